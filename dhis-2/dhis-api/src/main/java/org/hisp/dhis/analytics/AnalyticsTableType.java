@@ -33,13 +33,13 @@ package org.hisp.dhis.analytics;
 */
 public enum AnalyticsTableType
 {
-    DATA_VALUE( "analytics", true, true ),
-    COMPLETENESS( "analytics_completeness", true, true ),
-    COMPLETENESS_TARGET( "analytics_completenesstarget", false, false ),
-    ORG_UNIT_TARGET( "analytics_orgunittarget", false, false ),
-    EVENT( "analytics_event", false, true ),
-    ENROLLMENT( "analytics_enrollment", false, false ),
-    VALIDATION_RESULT( "analytics_validationresult", true, false );
+    DATA_VALUE( "analytics", true, true, true ),
+    COMPLETENESS( "analytics_completeness", true, true, false ),
+    COMPLETENESS_TARGET( "analytics_completenesstarget", false, false, false ),
+    ORG_UNIT_TARGET( "analytics_orgunittarget", false, false, false ),
+    EVENT( "analytics_event", false, true, true ),
+    ENROLLMENT( "analytics_enrollment", false, true, false ),
+    VALIDATION_RESULT( "analytics_validationresult", true, false, false );
 
     private String tableName;
 
@@ -47,11 +47,14 @@ public enum AnalyticsTableType
 
     private boolean latestPartition;
 
-    AnalyticsTableType( String tableName, boolean periodDimension, boolean latestPartition )
+    private boolean subYearPartitions;
+
+    AnalyticsTableType( String tableName, boolean periodDimension, boolean latestPartition, boolean subYearPartitions )
     {
         this.tableName = tableName;
         this.periodDimension = periodDimension;
         this.latestPartition = latestPartition;
+        this.subYearPartitions = subYearPartitions;
     }
 
     public String getTableName()
@@ -68,4 +71,9 @@ public enum AnalyticsTableType
     {
         return latestPartition;
     }
+
+    public boolean hasSubYearPartitions()
+    {
+        return subYearPartitions;
+    }
 }
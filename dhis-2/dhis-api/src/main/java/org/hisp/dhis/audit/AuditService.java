@@ -37,6 +37,13 @@ public interface AuditService
 {
     long addAudit( Audit audit );
 
+    /**
+     * Adds the given audits in a single transaction, using batched inserts.
+     *
+     * @param audits the audits to add.
+     */
+    void addAudits( List<Audit> audits );
+
     int countAudits( AuditQuery query );
 
     List<Audit> getAudits( AuditQuery query );
@@ -144,6 +144,16 @@ public interface DataValueStore
      */
     List<DeflatedDataValue> getDeflatedDataValues( DataExportParams params );
 
+    /**
+     * Returns deflated data values, including soft deleted values, with the
+     * same data element, period, organisation unit, category option combo
+     * and attribute option combo as any of the given data values.
+     *
+     * @param dataValues the data values to look up.
+     * @return a list of deflated data values.
+     */
+    List<DeflatedDataValue> getDeflatedDataValues( Collection<DataValue> dataValues );
+
     /**
      * Gets the number of DataValues which have been updated between the given
      * start and end date. The <pre>startDate</pre> and <pre>endDate</pre> parameters
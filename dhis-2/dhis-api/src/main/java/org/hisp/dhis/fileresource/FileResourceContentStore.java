@@ -33,6 +33,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.util.Date;
 import java.util.Map;
 import java.util.NoSuchElementException;
 
@@ -95,6 +96,14 @@ public interface FileResourceContentStore
      */
     boolean fileResourceContentExists( String key );
 
+    /**
+     * Delete the content stored in the given directory which was last modified before the given date.
+     * @param directory the directory, which is the key prefix of the content without the trailing slash.
+     * @param date the date.
+     * @return the number of deleted content items.
+     */
+    int deleteFileResourceContentOlderThan( String directory, Date date );
+
     /**
      * Create a signed GET request which gives access to the content.
      * @param key the key.
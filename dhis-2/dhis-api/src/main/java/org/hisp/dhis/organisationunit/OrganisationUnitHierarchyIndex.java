@@ -0,0 +1,381 @@
+package org.hisp.dhis.organisationunit;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Immutable snapshot of the organisation unit hierarchy, held in primitive
+ * arrays. Organisation units are numbered in pre-order, so that the subtree of
+ * a unit occupies a contiguous range of positions. This makes descendant tests
+ * constant time and subtree enumeration linear in the size of the subtree,
+ * without loading or walking organisation unit objects.
+ * <p>
+ * Organisation units are referred to by their database identifier. Units
+ * created after the snapshot was built are unknown to it, which callers can
+ * check with {@link #contains(long)}.
+ */
+public final class OrganisationUnitHierarchyIndex
+{
+    private static final int NONE = -1;
+
+    /**
+     * Database identifiers by position.
+     */
+    private final long[] ids;
+
+    /**
+     * Position of the parent by position, {@link #NONE} for roots.
+     */
+    private final int[] parents;
+
+    /**
+     * Exclusive end of the subtree by position.
+     */
+    private final int[] ends;
+
+    /**
+     * Hierarchy level by position, starting at 1 for roots.
+     */
+    private final int[] levels;
+
+    /**
+     * Database identifiers in ascending order, and their positions.
+     */
+    private final long[] sortedIds;
+
+    private final int[] sortedPositions;
+
+    private OrganisationUnitHierarchyIndex( long[] ids, int[] parents, int[] ends, int[] levels, long[] sortedIds,
+        int[] sortedPositions )
+    {
+        this.ids = ids;
+        this.parents = parents;
+        this.ends = ends;
+        this.levels = levels;
+        this.sortedIds = sortedIds;
+        this.sortedPositions = sortedPositions;
+    }
+
+    /**
+     * Builds an index of the given organisation units. Units without a parent,
+     * or with a parent which is not among the given units, become roots.
+     *
+     * @param ids the database identifiers of the organisation units.
+     * @param parentIds the database identifiers of the parents, with 0 for
+     *        units without a parent, in the order of the identifiers.
+     * @return an index.
+     * @throws IllegalArgumentException if the arrays differ in length.
+     */
+    public static OrganisationUnitHierarchyIndex build( long[] ids, long[] parentIds )
+    {
+        if ( ids.length != parentIds.length )
+        {
+            throw new IllegalArgumentException( "Identifiers and parent identifiers differ in length" );
+        }
+
+        final int size = ids.length;
+
+        // Sort the input by identifier to resolve parents by binary search
+
+        long[] inputSortedIds = ids.clone();
+        Arrays.sort( inputSortedIds );
+        int[] inputIndexBySorted = new int[size];
+
+        for ( int i = 0; i < size; i++ )
+        {
+            inputIndexBySorted[Arrays.binarySearch( inputSortedIds, ids[i] )] = i;
+        }
+
+        // Children as compressed adjacency arrays of input indexes
+
+        int[] inputParents = new int[size];
+        int[] childOffsets = new int[size + 1];
+
+        for ( int i = 0; i < size; i++ )
+        {
+            int parent = parentIds[i] == 0 ? NONE : Arrays.binarySearch( inputSortedIds, parentIds[i] );
+            inputParents[i] = parent >= 0 && inputIndexBySorted[parent] != i ? inputIndexBySorted[parent] : NONE;
+
+            if ( inputParents[i] != NONE )
+            {
+                childOffsets[inputParents[i] + 1]++;
+            }
+        }
+
+        for ( int i = 0; i < size; i++ )
+        {
+            childOffsets[i + 1] += childOffsets[i];
+        }
+
+        int[] children = new int[childOffsets[size]];
+        int[] childCounts = new int[size];
+
+        for ( int i = 0; i < size; i++ )
+        {
+            if ( inputParents[i] != NONE )
+            {
+                children[childOffsets[inputParents[i]] + childCounts[inputParents[i]]++] = i;
+            }
+        }
+
+        // Iterative depth-first traversal assigning pre-order positions
+
+        long[] positionIds = new long[size];
+        int[] positionParents = new int[size];
+        int[] positionEnds = new int[size];
+        int[] positionLevels = new int[size];
+        int[] positionByInput = new int[size];
+        Arrays.fill( positionByInput, NONE );
+
+        int[] stack = new int[size];
+        int[] nextChild = new int[size];
+        int position = 0;
+
+        for ( int root = 0; root < size; root++ )
+        {
+            if ( inputParents[root] != NONE )
+            {
+                continue;
+            }
+
+            int depth = 0;
+            stack[depth] = root;
+            nextChild[depth] = childOffsets[root];
+            position = visit( root, NONE, 1, position, positionIds, positionParents, positionLevels,
+                positionByInput, ids );
+
+            while ( depth >= 0 )
+            {
+                int node = stack[depth];
+
+                if ( nextChild[depth] < childOffsets[node + 1] )
+                {
+                    int child = children[nextChild[depth]++];
+
+                    if ( positionByInput[child] != NONE )
+                    {
+                        continue;
+                    }
+
+                    position = visit( child, positionByInput[node], depth + 2, position, positionIds,
+                        positionParents, positionLevels, positionByInput, ids );
+
+                    stack[++depth] = child;
+                    nextChild[depth] = childOffsets[child];
+                }
+                else
+                {
+                    positionEnds[positionByInput[node]] = position;
+                    depth--;
+                }
+            }
+        }
+
+        // Units in parent cycles are not reachable from any root and are left
+        // out, as their hierarchy is undefined
+
+        int indexed = position;
+
+        long[] sortedIds = new long[indexed];
+        int[] sortedPositions = new int[indexed];
+        int j = 0;
+
+        for ( int s = 0; s < size; s++ )
+        {
+            int pos = positionByInput[inputIndexBySorted[s]];
+
+            if ( pos != NONE )
+            {
+                sortedIds[j] = inputSortedIds[s];
+                sortedPositions[j++] = pos;
+            }
+        }
+
+        return new OrganisationUnitHierarchyIndex( Arrays.copyOf( positionIds, indexed ),
+            Arrays.copyOf( positionParents, indexed ), Arrays.copyOf( positionEnds, indexed ),
+            Arrays.copyOf( positionLevels, indexed ), sortedIds, sortedPositions );
+    }
+
+    private static int visit( int input, int parentPosition, int level, int position, long[] positionIds,
+        int[] positionParents, int[] positionLevels, int[] positionByInput, long[] ids )
+    {
+        positionIds[position] = ids[input];
+        positionParents[position] = parentPosition;
+        positionLevels[position] = level;
+        positionByInput[input] = position;
+
+        return position + 1;
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the number of organisation units in the index.
+     */
+    public int size()
+    {
+        return ids.length;
+    }
+
+    /**
+     * Indicates whether the organisation unit with the given identifier is in
+     * the index.
+     */
+    public boolean contains( long id )
+    {
+        return position( id ) != NONE;
+    }
+
+    /**
+     * Indicates whether the organisation unit with the given identifier is the
+     * same as or a descendant of the organisation unit with the given ancestor
+     * identifier, like {@link OrganisationUnit#isDescendant(OrganisationUnit)}.
+     *
+     * @param id the organisation unit identifier.
+     * @param ancestorId the ancestor organisation unit identifier.
+     * @return true if the unit is in the subtree of the ancestor, false if not
+     *         or if any of them is not in the index.
+     */
+    public boolean isDescendant( long id, long ancestorId )
+    {
+        int position = position( id );
+        int ancestor = position( ancestorId );
+
+        return position != NONE && ancestor != NONE && ancestor <= position && position < ends[ancestor];
+    }
+
+    /**
+     * Indicates whether the organisation unit with the given identifier is the
+     * same as or a descendant of any of the given ancestors, like
+     * {@link OrganisationUnit#isDescendant(java.util.Set)}.
+     *
+     * @param id the organisation unit identifier.
+     * @param ancestorIds the ancestor organisation unit identifiers.
+     * @return true if the unit is in the subtree of any of the ancestors.
+     */
+    public boolean isDescendant( long id, Collection<Long> ancestorIds )
+    {
+        int position = position( id );
+
+        if ( position == NONE || ancestorIds == null )
+        {
+            return false;
+        }
+
+        for ( Long ancestorId : ancestorIds )
+        {
+            int ancestor = ancestorId != null ? position( ancestorId ) : NONE;
+
+            if ( ancestor != NONE && ancestor <= position && position < ends[ancestor] )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the identifier of the parent of the given organisation unit, or
+     * 0 if it is a root or not in the index.
+     */
+    public long getParentId( long id )
+    {
+        int position = position( id );
+
+        return position == NONE || parents[position] == NONE ? 0 : ids[parents[position]];
+    }
+
+    /**
+     * Returns the hierarchy level of the given organisation unit, starting at
+     * 1 for roots, or 0 if it is not in the index.
+     */
+    public int getLevel( long id )
+    {
+        int position = position( id );
+
+        return position == NONE ? 0 : levels[position];
+    }
+
+    /**
+     * Returns the identifiers of the ancestors of the given organisation unit,
+     * not including itself, ordered with the root first.
+     */
+    public long[] getAncestorIds( long id )
+    {
+        int position = position( id );
+
+        if ( position == NONE )
+        {
+            return new long[0];
+        }
+
+        long[] ancestors = new long[levels[position] - 1];
+
+        for ( int i = ancestors.length - 1, p = parents[position]; i >= 0; i--, p = parents[p] )
+        {
+            ancestors[i] = ids[p];
+        }
+
+        return ancestors;
+    }
+
+    /**
+     * Returns the identifiers of the organisation units in the subtree of the
+     * given organisation unit, including itself, in pre-order.
+     */
+    public long[] getDescendantIds( long id )
+    {
+        int position = position( id );
+
+        return position == NONE ? new long[0] : Arrays.copyOfRange( ids, position, ends[position] );
+    }
+
+    /**
+     * Returns the number of organisation units in the subtree of the given
+     * organisation unit, including itself, or 0 if it is not in the index.
+     */
+    public int getDescendantCount( long id )
+    {
+        int position = position( id );
+
+        return position == NONE ? 0 : ends[position] - position;
+    }
+
+    private int position( long id )
+    {
+        int sorted = Arrays.binarySearch( sortedIds, id );
+
+        return sorted < 0 ? NONE : sortedPositions[sorted];
+    }
+}
@@ -0,0 +1,62 @@
+package org.hisp.dhis.organisationunit;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Collection;
+
+/**
+ * Provides the {@link OrganisationUnitHierarchyIndex} of the organisation unit
+ * hierarchy, for fast hierarchy checks by access managers, analytics and
+ * tracker.
+ */
+public interface OrganisationUnitHierarchyIndexService
+{
+    /**
+     * Returns the current hierarchy index. The index reflects committed
+     * changes to organisation units, and is rebuilt in the background after
+     * such changes. The index is empty while a rebuild is pending and when
+     * disabled, such as in test runs.
+     *
+     * @return the {@link OrganisationUnitHierarchyIndex}.
+     */
+    OrganisationUnitHierarchyIndex getIndex();
+
+    /**
+     * Indicates whether the given organisation unit is the same as or a
+     * descendant of any of the given ancestors. Uses the hierarchy index if
+     * all units are in it, and otherwise walks the parents of the given
+     * organisation unit.
+     *
+     * @param organisationUnit the organisation unit.
+     * @param ancestors the ancestor organisation units.
+     * @return true if the organisation unit is in the subtree of any of the
+     *         ancestors.
+     */
+    boolean isDescendant( OrganisationUnit organisationUnit, Collection<OrganisationUnit> ancestors );
+}
@@ -43,6 +43,8 @@ import org.springframework.core.Ordered;
 import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -80,6 +82,16 @@ public class Property implements Ordered, Klass
      */
     private Method setterMethod;
 
+    /**
+     * Compiled function invoking the getter, created on first use.
+     */
+    private transient Function<Object, Object> getter;
+
+    /**
+     * Compiled function invoking the setter, created on first use.
+     */
+    private transient BiConsumer<Object, Object> setter;
+
     /**
      * Name for this property, if this class is a collection, it is the name of the items -inside- the collection
      * and not the collection wrapper itself.
@@ -346,6 +358,7 @@ public class Property implements Ordered, Klass
     public void setGetterMethod( Method getterMethod )
     {
         this.getterMethod = getterMethod;
+        this.getter = null;
     }
 
     public Method getSetterMethod()
@@ -356,6 +369,54 @@ public class Property implements Ordered, Klass
     public void setSetterMethod( Method setterMethod )
     {
         this.setterMethod = setterMethod;
+        this.setter = null;
+    }
+
+    /**
+     * Returns the value of this property for the given object through the
+     * compiled getter. Returns null if the object is null or if this property
+     * has no getter.
+     *
+     * @param target the object to read the property from.
+     * @return the property value.
+     */
+    @SuppressWarnings( "unchecked" )
+    public <T> T getValue( Object target )
+    {
+        if ( target == null || getterMethod == null )
+        {
+            return null;
+        }
+
+        if ( getter == null )
+        {
+            getter = PropertyAccessors.getter( getterMethod );
+        }
+
+        return (T) getter.apply( target );
+    }
+
+    /**
+     * Sets the value of this property on the given object through the compiled
+     * setter. Does nothing if the object is null or if this property has no
+     * setter.
+     *
+     * @param target the object to write the property to.
+     * @param value the property value.
+     */
+    public void setValue( Object target, Object value )
+    {
+        if ( target == null || setterMethod == null )
+        {
+            return;
+        }
+
+        if ( setter == null )
+        {
+            setter = PropertyAccessors.setter( setterMethod );
+        }
+
+        setter.accept( target, value );
     }
 
     @JsonProperty
@@ -0,0 +1,192 @@
+package org.hisp.dhis.schema;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Creates getter and setter functions for property methods. The functions are
+ * generated through {@link LambdaMetafactory} and are invoked like regular
+ * lambdas, avoiding the cost of {@link Method#invoke}. Methods which can not
+ * be linked this way fall back to reflection.
+ */
+final class PropertyAccessors
+{
+    private PropertyAccessors()
+    {
+        throw new UnsupportedOperationException( "util" );
+    }
+
+    /**
+     * Creates a function invoking the given getter method. Protected and
+     * private methods produce a function which returns null.
+     *
+     * @param method the getter method.
+     * @return a function invoking the getter method.
+     */
+    @SuppressWarnings( "unchecked" )
+    static Function<Object, Object> getter( Method method )
+    {
+        if ( isHidden( method ) )
+        {
+            return target -> null;
+        }
+
+        if ( isLinkable( method ) )
+        {
+            try
+            {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                MethodHandle handle = lookup.unreflect( method );
+
+                CallSite site = LambdaMetafactory.metafactory( lookup, "apply",
+                    MethodType.methodType( Function.class ), MethodType.methodType( Object.class, Object.class ),
+                    handle, handle.type().wrap() );
+
+                return (Function<Object, Object>) site.getTarget().invokeExact();
+            }
+            catch ( Throwable ignored )
+            {
+                // fall back to reflection below
+            }
+        }
+
+        return target -> invoke( method, target );
+    }
+
+    /**
+     * Creates a function invoking the given setter method. Protected and
+     * private methods produce a function which does nothing.
+     *
+     * @param method the setter method.
+     * @return a function invoking the setter method.
+     */
+    @SuppressWarnings( "unchecked" )
+    static BiConsumer<Object, Object> setter( Method method )
+    {
+        if ( isHidden( method ) )
+        {
+            return ( target, value ) -> {};
+        }
+
+        if ( isLinkable( method ) )
+        {
+            try
+            {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                MethodHandle handle = lookup.unreflect( method );
+
+                CallSite site = LambdaMetafactory.metafactory( lookup, "accept",
+                    MethodType.methodType( BiConsumer.class ), MethodType.methodType( void.class, Object.class, Object.class ),
+                    handle, handle.type().wrap().changeReturnType( void.class ) );
+
+                return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+            }
+            catch ( Throwable ignored )
+            {
+                // fall back to reflection below
+            }
+        }
+
+        return ( target, value ) -> invoke( method, target, value );
+    }
+
+    private static boolean isHidden( Method method )
+    {
+        return Modifier.isProtected( method.getModifiers() ) || Modifier.isPrivate( method.getModifiers() );
+    }
+
+    /**
+     * Indicates whether the generated function can reference the given method
+     * and its types, i.e. whether the method is public and the types are
+     * visible from the class loader of this class. Package-private methods are
+     * invoked through reflection instead.
+     */
+    private static boolean isLinkable( Method method )
+    {
+        if ( !Modifier.isPublic( method.getModifiers() ) || Modifier.isStatic( method.getModifiers() )
+            || !isVisible( method.getDeclaringClass() ) )
+        {
+            return false;
+        }
+
+        for ( Class<?> type : method.getParameterTypes() )
+        {
+            if ( !isVisible( type ) )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isVisible( Class<?> klass )
+    {
+        if ( klass.isPrimitive() )
+        {
+            return true;
+        }
+
+        if ( !Modifier.isPublic( klass.getModifiers() ) )
+        {
+            return false;
+        }
+
+        try
+        {
+            return Class.forName( klass.getName(), false, PropertyAccessors.class.getClassLoader() ) == klass;
+        }
+        catch ( ClassNotFoundException | LinkageError e )
+        {
+            return false;
+        }
+    }
+
+    private static Object invoke( Method method, Object target, Object... args )
+    {
+        try
+        {
+            return method.invoke( target, args );
+        }
+        catch ( InvocationTargetException | IllegalAccessException e )
+        {
+            throw new RuntimeException( e );
+        }
+    }
+}
@@ -31,13 +31,57 @@ package org.hisp.dhis.sms;
 
 import org.hisp.dhis.sms.incoming.IncomingSms;
 
+/**
+ * Queue of persisted incoming SMS awaiting processing. Implementations must be
+ * thread-safe and bounded.
+ */
 public interface MessageQueue
 {
-    void put( IncomingSms message );
+    /**
+     * Adds the given message to the queue. If the queue is full the message is
+     * not added, remains persisted as incoming and is added by a later call to
+     * {@link #recover()}.
+     *
+     * @param message the message.
+     * @return true if the message was added or is already queued, false if the
+     *         queue is full.
+     */
+    boolean put( IncomingSms message );
 
+    /**
+     * Retrieves and removes the next message from the queue.
+     *
+     * @return the next message, or null if the queue is empty.
+     */
     IncomingSms get();
 
+    /**
+     * Marks the given message as processed, allowing it to be queued again.
+     * Must only be invoked once the status update of the message has been
+     * committed.
+     *
+     * @param message the message.
+     */
     void remove( IncomingSms message );
 
+    /**
+     * Returns the number of messages in the queue.
+     */
+    int size();
+
+    /**
+     * Indicates whether the queue is full and cannot accept more messages.
+     */
+    boolean isFull();
+
+    /**
+     * Adds all persisted unparsed messages to the queue. Invoked on startup.
+     */
     void initialize();
+
+    /**
+     * Adds persisted incoming messages which were rejected because the queue
+     * was full, if any, to the queue.
+     */
+    void recover();
 }
@@ -31,6 +31,7 @@ import com.google.common.collect.ImmutableSet;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
+import org.hisp.dhis.scheduling.JobConfiguration;
 
 import java.util.Collection;
 
@@ -72,6 +73,8 @@ public final class ValidationAnalysisParams
 
     private int dayInPeriod = -1;
 
+    private JobConfiguration jobConfiguration;
+
     /**
      * Gets the rules selected for analysis
      *
@@ -167,6 +170,17 @@ public final class ValidationAnalysisParams
         return maxResults;
     }
 
+    /**
+     * The job the analysis runs as, if any. Progress of the analysis is reported
+     * through the notifier for this job.
+     *
+     * @return the job configuration, or null if not run as a job
+     */
+    public JobConfiguration getJobConfiguration()
+    {
+        return jobConfiguration;
+    }
+
     public static class Builder
     {
         private ValidationAnalysisParams params;
@@ -254,6 +268,18 @@ public final class ValidationAnalysisParams
             return this;
         }
 
+        /**
+         * Sets the job the analysis runs as, to report progress for.
+         *
+         * @param jobConfiguration the job configuration
+         * @return the updated builder object
+         */
+        public Builder withJobConfiguration( JobConfiguration jobConfiguration )
+        {
+            this.params.jobConfiguration = jobConfiguration;
+            return this;
+        }
+
         /**
          * Returns the params object
          * @return the final ValidationAnalysisParams object.
@@ -0,0 +1,132 @@
+package org.hisp.dhis.organisationunit;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class OrganisationUnitHierarchyIndexTest
+{
+    /**
+     * 1 - 2 - 4 - 10
+     *   |   |   - 11
+     *   |   - 5
+     *   - 3 - 7
+     * 20 - 21
+     */
+    private final OrganisationUnitHierarchyIndex index = OrganisationUnitHierarchyIndex.build(
+        new long[] { 11, 10, 7, 5, 4, 3, 2, 1, 21, 20 },
+        new long[] { 4, 4, 3, 2, 2, 1, 1, 0, 20, 0 } );
+
+    @Test
+    public void testSize()
+    {
+        assertEquals( 10, index.size() );
+        assertTrue( index.contains( 21 ) );
+        assertFalse( index.contains( 99 ) );
+    }
+
+    @Test
+    public void testIsDescendant()
+    {
+        assertTrue( index.isDescendant( 10, 1 ) );
+        assertTrue( index.isDescendant( 10, 2 ) );
+        assertTrue( index.isDescendant( 10, 10 ) );
+        assertTrue( index.isDescendant( 7, 3 ) );
+        assertFalse( index.isDescendant( 7, 2 ) );
+        assertFalse( index.isDescendant( 1, 2 ) );
+        assertFalse( index.isDescendant( 21, 1 ) );
+        assertFalse( index.isDescendant( 99, 1 ) );
+        assertFalse( index.isDescendant( 1, 99 ) );
+    }
+
+    @Test
+    public void testIsDescendantOfAny()
+    {
+        assertTrue( index.isDescendant( 11, Arrays.asList( 3L, 4L ) ) );
+        assertTrue( index.isDescendant( 21, Arrays.asList( 3L, 20L ) ) );
+        assertFalse( index.isDescendant( 5, Arrays.asList( 3L, 4L, 99L ) ) );
+        assertFalse( index.isDescendant( 5, Arrays.asList() ) );
+    }
+
+    @Test
+    public void testGetParentAndLevel()
+    {
+        assertEquals( 4, index.getParentId( 10 ) );
+        assertEquals( 0, index.getParentId( 1 ) );
+        assertEquals( 4, index.getLevel( 11 ) );
+        assertEquals( 1, index.getLevel( 20 ) );
+        assertEquals( 0, index.getLevel( 99 ) );
+    }
+
+    @Test
+    public void testGetAncestorIds()
+    {
+        assertArrayEquals( new long[] { 1, 2, 4 }, index.getAncestorIds( 11 ) );
+        assertArrayEquals( new long[] {}, index.getAncestorIds( 1 ) );
+    }
+
+    @Test
+    public void testGetDescendantIds()
+    {
+        long[] descendants = index.getDescendantIds( 2 );
+        Arrays.sort( descendants );
+
+        assertArrayEquals( new long[] { 2, 4, 5, 10, 11 }, descendants );
+        assertEquals( 5, index.getDescendantCount( 2 ) );
+        assertEquals( 8, index.getDescendantCount( 1 ) );
+        assertEquals( 1, index.getDescendantCount( 21 ) );
+    }
+
+    @Test
+    public void testParentOutsideIndexBecomesRoot()
+    {
+        OrganisationUnitHierarchyIndex partial = OrganisationUnitHierarchyIndex.build(
+            new long[] { 5, 6 }, new long[] { 99, 5 } );
+
+        assertEquals( 1, partial.getLevel( 5 ) );
+        assertTrue( partial.isDescendant( 6, 5 ) );
+    }
+
+    @Test
+    public void testUnitsInCycleAreLeftOut()
+    {
+        OrganisationUnitHierarchyIndex cyclic = OrganisationUnitHierarchyIndex.build(
+            new long[] { 1, 2, 3 }, new long[] { 0, 3, 2 } );
+
+        assertEquals( 1, cyclic.size() );
+        assertFalse( cyclic.contains( 2 ) );
+    }
+}
@@ -0,0 +1,215 @@
+package org.hisp.dhis.schema;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.util.Timer;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PropertyTest
+{
+    @Test
+    public void testGetAndSetValue()
+        throws Exception
+    {
+        Property property = new Property( String.class,
+            DataElement.class.getMethod( "getName" ), DataElement.class.getMethod( "setName", String.class ) );
+
+        DataElement dataElement = new DataElement( "DataElementA" );
+
+        assertEquals( "DataElementA", property.getValue( dataElement ) );
+
+        property.setValue( dataElement, "DataElementB" );
+
+        assertEquals( "DataElementB", dataElement.getName() );
+        assertEquals( "DataElementB", property.getValue( dataElement ) );
+    }
+
+    @Test
+    public void testGetAndSetPrimitiveValue()
+        throws Exception
+    {
+        Property property = new Property( boolean.class,
+            DataElement.class.getMethod( "isZeroIsSignificant" ),
+            DataElement.class.getMethod( "setZeroIsSignificant", boolean.class ) );
+
+        DataElement dataElement = new DataElement( "DataElementA" );
+
+        assertFalse( property.getValue( dataElement ) );
+
+        property.setValue( dataElement, true );
+
+        assertTrue( dataElement.isZeroIsSignificant() );
+        assertTrue( property.getValue( dataElement ) );
+    }
+
+    @Test
+    public void testGetValueWithBoxedType()
+        throws Exception
+    {
+        Property property = new Property( Integer.class,
+            OrganisationUnit.class.getMethod( "getHierarchyLevel" ),
+            OrganisationUnit.class.getMethod( "setHierarchyLevel", Integer.class ) );
+
+        OrganisationUnit organisationUnit = new OrganisationUnit( "OrgUnitA" );
+
+        property.setValue( organisationUnit, 3 );
+
+        assertEquals( Integer.valueOf( 3 ), property.getValue( organisationUnit ) );
+
+        property.setValue( organisationUnit, null );
+
+        assertNull( property.getValue( organisationUnit ) );
+    }
+
+    @Test
+    public void testGetValueWithNullTarget()
+        throws Exception
+    {
+        Property property = new Property( String.class, DataElement.class.getMethod( "getName" ), null );
+
+        assertNull( property.getValue( null ) );
+
+        property.setValue( new DataElement( "DataElementA" ), "DataElementB" );
+    }
+
+    @Test
+    public void testGetValueAfterSetGetterMethod()
+        throws Exception
+    {
+        Property property = new Property( String.class, DataElement.class.getMethod( "getName" ), null );
+
+        DataElement dataElement = new DataElement( "DataElementA" );
+        dataElement.setCode( "CodeA" );
+
+        assertEquals( "DataElementA", property.getValue( dataElement ) );
+
+        property.setGetterMethod( DataElement.class.getMethod( "getCode" ) );
+
+        assertEquals( "CodeA", property.getValue( dataElement ) );
+    }
+
+    @Test
+    public void testGetAndSetPackagePrivateValue()
+        throws Exception
+    {
+        Property property = new Property( String.class,
+            Holder.class.getDeclaredMethod( "getValue" ), Holder.class.getDeclaredMethod( "setValue", String.class ) );
+
+        Holder holder = new Holder();
+
+        property.setValue( holder, "ValueA" );
+
+        assertEquals( "ValueA", holder.value );
+        assertEquals( "ValueA", property.getValue( holder ) );
+    }
+
+    @Test
+    public void testGetAndSetProtectedValue()
+        throws Exception
+    {
+        Property property = new Property( String.class,
+            Holder.class.getDeclaredMethod( "getHiddenValue" ), Holder.class.getDeclaredMethod( "setHiddenValue", String.class ) );
+
+        Holder holder = new Holder();
+        holder.value = "ValueA";
+
+        property.setValue( holder, "ValueB" );
+
+        assertEquals( "ValueA", holder.value );
+        assertNull( property.getValue( holder ) );
+    }
+
+    @Test
+    @Ignore
+    public void testGetValue10m()
+        throws Exception
+    {
+        Method getter = DataElement.class.getMethod( "getName" );
+        Property property = new Property( String.class, getter, null );
+
+        DataElement dataElement = new DataElement( "DataElementA" );
+
+        int length = 0;
+
+        Timer timer = new Timer().start();
+
+        for ( int i = 0; i < 10_000_000; i++ )
+        {
+            length += ((String) getter.invoke( dataElement )).length();
+        }
+
+        System.err.println( "Method.invoke: " + timer.getTimeInMs() + "ms" );
+
+        timer.start();
+
+        for ( int i = 0; i < 10_000_000; i++ )
+        {
+            length += property.<String>getValue( dataElement ).length();
+        }
+
+        System.err.println( "Property.getValue: " + timer.getTimeInMs() + "ms" );
+
+        assertEquals( 240_000_000, length );
+    }
+
+    public static class Holder
+    {
+        private String value;
+
+        String getValue()
+        {
+            return value;
+        }
+
+        void setValue( String value )
+        {
+            this.value = value;
+        }
+
+        protected String getHiddenValue()
+        {
+            return value;
+        }
+
+        protected void setHiddenValue( String value )
+        {
+            this.value = value;
+        }
+    }
+}
@@ -102,10 +102,25 @@ public class AnalyticsTable
      * @return this analytics table.
      */
     public AnalyticsTable addPartitionTable( Integer year, Date startDate, Date endDate )
+    {
+        return addPartitionTable( year, year, startDate, endDate );
+    }
+
+    /**
+     * Adds an analytics partition table to this master table.
+     *
+     * @param year the year.
+     * @param partition the partition identifier.
+     * @param startDate the start date.
+     * @param endDate the end date.
+     * @return this analytics table.
+     */
+    public AnalyticsTable addPartitionTable( Integer year, Integer partition, Date startDate, Date endDate )
     {
         Assert.notNull( year, "Year must be specified" );
+        Assert.notNull( partition, "Partition must be specified" );
 
-        AnalyticsTablePartition tablePartition = new AnalyticsTablePartition( this, year, startDate, endDate, false ); //TODO approval
+        AnalyticsTablePartition tablePartition = new AnalyticsTablePartition( this, year, partition, startDate, endDate, false ); //TODO approval
         this.tablePartitions.add( tablePartition );
 
         return this;
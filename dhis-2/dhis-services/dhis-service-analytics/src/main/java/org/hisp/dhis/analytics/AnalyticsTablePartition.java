@@ -53,6 +53,13 @@ public class AnalyticsTablePartition
      */
     private Integer year;
 
+    /**
+     * The partition identifier, used as table name suffix. Equal to the year for
+     * yearly partitions, and on the form yyyyMM of the start month for sub-year
+     * partitions.
+     */
+    private Integer partition;
+
     /**
      * The start date for which this partition may contain data, inclusive.
      */
@@ -69,9 +76,15 @@ public class AnalyticsTablePartition
     private boolean dataApproval;
 
     public AnalyticsTablePartition( AnalyticsTable masterTable, Integer year, Date startDate, Date endDate, boolean dataApproval )
+    {
+        this( masterTable, year, year, startDate, endDate, dataApproval );
+    }
+
+    public AnalyticsTablePartition( AnalyticsTable masterTable, Integer year, Integer partition, Date startDate, Date endDate, boolean dataApproval )
     {
         this.masterTable = masterTable;
         this.year = year;
+        this.partition = partition;
         this.startDate = startDate;
         this.endDate = endDate;
         this.dataApproval = dataApproval;
@@ -90,9 +103,9 @@ public class AnalyticsTablePartition
             name += PartitionUtils.SEP + masterTable.getProgram().getUid().toLowerCase();
         }
 
-        if ( year != null )
+        if ( partition != null )
         {
-            name += PartitionUtils.SEP + year;
+            name += PartitionUtils.SEP + partition;
         }
 
         return name;
@@ -107,9 +120,9 @@ public class AnalyticsTablePartition
             name += PartitionUtils.SEP + masterTable.getProgram().getUid().toLowerCase();
         }
 
-        if ( year != null )
+        if ( partition != null )
         {
-            name += PartitionUtils.SEP + year;
+            name += PartitionUtils.SEP + partition;
         }
 
         return name;
@@ -130,6 +143,19 @@ public class AnalyticsTablePartition
         return year;
     }
 
+    public Integer getPartition()
+    {
+        return partition;
+    }
+
+    /**
+     * Indicates whether this partition covers only a part of its year.
+     */
+    public boolean isSubYearPartition()
+    {
+        return partition != null && !partition.equals( year );
+    }
+
     public Date getStartDate()
     {
         return startDate;
@@ -30,6 +30,9 @@ package org.hisp.dhis.analytics;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.hisp.dhis.analytics.table.PartitionUtils;
 
 /**
  * Class representing analytics table partitions.
@@ -39,7 +42,8 @@ import java.util.Set;
 public class Partitions
 {
     /**
-     * Yearly partitions containing four-digit years.
+     * Partitions containing four-digit years for yearly partitions, or year
+     * and start month on the form yyyyMM for sub-year partitions.
      */
     private Set<Integer> partitions = new HashSet<>();
 
@@ -114,6 +118,16 @@ public class Partitions
         return hasAny() ? partitions.iterator().next() : null;
     }
 
+    /**
+     * Returns the years which the partitions belong to.
+     */
+    public Set<Integer> getYears()
+    {
+        return partitions.stream()
+            .map( PartitionUtils::getYear )
+            .collect( Collectors.toSet() );
+    }
+
     // -------------------------------------------------------------------------
     // toString, hashCode, equals
     // -------------------------------------------------------------------------
@@ -41,12 +41,15 @@ import javax.annotation.PostConstruct;
 
 import org.apache.commons.logging.Log;
 import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.event.EventQueryParams;
 import org.hisp.dhis.cache.Cache;
 import org.hisp.dhis.cache.CacheProvider;
 import org.hisp.dhis.common.Grid;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 /**
  * This is just a wrapper class responsible for keeping and isolating all
  * caching definition related to the analytics caching, decoupling it from the
@@ -65,19 +68,26 @@ public class AnalyticsCache
 
     private final AnalyticsCacheSettings analyticsCacheSettings;
 
+    private final QueryCoalescer<Grid> aggregateQueryCoalescer;
+
+    private final QueryCoalescer<Grid> eventQueryCoalescer;
+
     private static final int MAX_CACHE_ENTRIES = 20000;
 
     private static final String CACHE_REGION = "analyticsResponse";
 
     public AnalyticsCache( final CacheProvider cacheProvider, final Environment environment,
-        final AnalyticsCacheSettings analyticsCacheSettings )
+        final AnalyticsCacheSettings analyticsCacheSettings, final MeterRegistry meterRegistry )
     {
         checkNotNull( cacheProvider );
         checkNotNull( environment );
         checkNotNull( analyticsCacheSettings );
+        checkNotNull( meterRegistry );
         this.cacheProvider = cacheProvider;
         this.environment = environment;
         this.analyticsCacheSettings = analyticsCacheSettings;
+        this.aggregateQueryCoalescer = new QueryCoalescer<>( "aggregate", meterRegistry );
+        this.eventQueryCoalescer = new QueryCoalescer<>( "event", meterRegistry );
     }
 
     public Optional<Grid> get( final String key )
@@ -91,6 +101,10 @@ public class AnalyticsCache
      * fetched by the function provided. In this case, the fetched Grid will be
      * cached, so the next consumers can hit the cache only.
      * 
+     * Concurrent consumers asking for a Grid which is not cached yet are
+     * coalesced, meaning that the function is invoked once and all of them
+     * receive the Grid it returns.
+     * 
      * The TTL of the cached object will be set accordingly to the cache settings
      * available at {@link org.hisp.dhis.analytics.cache.AnalyticsCacheSettings}.
      * 
@@ -108,14 +122,21 @@ public class AnalyticsCache
         }
         else
         {
-            final Grid grid = function.apply( params );
+            return getQueryCoalescer( params ).execute( params.getKey(), () -> {
+                final Grid grid = function.apply( params );
 
-            put( params, grid );
+                put( params, grid );
 
-            return grid;
+                return grid;
+            } );
         }
     }
 
+    private QueryCoalescer<Grid> getQueryCoalescer( final DataQueryParams params )
+    {
+        return params instanceof EventQueryParams ? eventQueryCoalescer : aggregateQueryCoalescer;
+    }
+
     /**
      * This method will cache the given Grid associated with the given
      * DataQueryParams.
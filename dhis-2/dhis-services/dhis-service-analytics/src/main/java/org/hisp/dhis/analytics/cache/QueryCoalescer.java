@@ -0,0 +1,145 @@
+package org.hisp.dhis.analytics.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Coalesces concurrent executions of identical queries. The first caller for
+ * a key runs the query, while callers arriving with the same key before it
+ * completes wait for and receive the same result, or the same exception.
+ * Nothing is kept once the query completes, so this complements rather than
+ * replaces caching.
+ *
+ * The number of coalesced calls is published as the
+ * {@value #METRIC_NAME} metric, tagged with the query type.
+ */
+public class QueryCoalescer<T>
+{
+    public static final String METRIC_NAME = "analytics.queries.coalesced";
+
+    private final ConcurrentMap<String, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * @param queryType the type of query, used to tag the metric.
+     * @param meterRegistry the registry to publish the metric to.
+     */
+    public QueryCoalescer( String queryType, MeterRegistry meterRegistry )
+    {
+        checkNotNull( queryType );
+        checkNotNull( meterRegistry );
+
+        FunctionCounter.builder( METRIC_NAME, coalesced, AtomicLong::get )
+            .tag( "query", queryType )
+            .description( "Number of analytics queries served by an identical query already in progress" )
+            .register( meterRegistry );
+    }
+
+    /**
+     * Runs the given query, unless a query with the same key is in progress,
+     * in which case its result is awaited and returned instead. Callers share
+     * the returned object and must not modify it.
+     *
+     * @param key the key identifying the query.
+     * @param query the query.
+     * @return the result of the query.
+     */
+    public T execute( String key, Supplier<T> query )
+    {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        CompletableFuture<T> existing = inFlight.putIfAbsent( key, future );
+
+        if ( existing != null )
+        {
+            coalesced.incrementAndGet();
+
+            return await( existing );
+        }
+
+        try
+        {
+            T result = query.get();
+            future.complete( result );
+            return result;
+        }
+        catch ( RuntimeException | Error ex )
+        {
+            future.completeExceptionally( ex );
+            throw ex;
+        }
+        finally
+        {
+            inFlight.remove( key, future );
+        }
+    }
+
+    /**
+     * Returns the number of calls which were served by a query in progress.
+     */
+    public long getCoalescedCount()
+    {
+        return coalesced.get();
+    }
+
+    private T await( CompletableFuture<T> future )
+    {
+        try
+        {
+            return future.join();
+        }
+        catch ( CompletionException ex )
+        {
+            Throwable cause = ex.getCause();
+
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+
+            if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+
+            throw ex;
+        }
+    }
+}
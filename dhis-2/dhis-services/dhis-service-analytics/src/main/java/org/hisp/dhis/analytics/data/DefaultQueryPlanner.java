@@ -161,7 +161,8 @@ public class DefaultQueryPlanner
     @Override
     public DataQueryParams withTableNameAndPartitions( DataQueryParams params, QueryPlannerParams plannerParams )
     {
-        Partitions partitions = PartitionUtils.getPartitions( params, plannerParams.getTableType() );
+        Partitions partitions = PartitionUtils.getPartitions( params, plannerParams.getTableType(),
+            partitionManager.getPartitionGranularity( plannerParams.getTableType() ) );
 
         if ( params.getCurrentUser() != null )
         {
@@ -177,7 +178,8 @@ public class DefaultQueryPlanner
     @Override
     public DataQueryParams assignPartitionsFromQueryPeriods( DataQueryParams params, AnalyticsTableType tableType )
     {
-        Partitions partitions = PartitionUtils.getPartitions( params, tableType );
+        Partitions partitions = PartitionUtils.getPartitions( params, tableType,
+            partitionManager.getPartitionGranularity( tableType ) );
 
         if ( params.getTableName() != null )
         {
@@ -69,6 +69,7 @@ import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.analytics.DataType;
 import org.hisp.dhis.analytics.MeasureFilter;
 import org.hisp.dhis.analytics.QueryPlanner;
+import org.hisp.dhis.analytics.cache.QueryCoalescer;
 import org.hisp.dhis.analytics.table.PartitionUtils;
 import org.hisp.dhis.analytics.util.AnalyticsSqlUtils;
 import org.hisp.dhis.analytics.util.AnalyticsUtils;
@@ -99,6 +100,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -127,13 +129,18 @@ public class JdbcAnalyticsManager
 
     private final JdbcTemplate jdbcTemplate;
 
-    public JdbcAnalyticsManager( QueryPlanner queryPlanner, @Qualifier( "readOnlyJdbcTemplate" ) JdbcTemplate jdbcTemplate )
+    private final QueryCoalescer<Map<String, Object>> queryCoalescer;
+
+    public JdbcAnalyticsManager( QueryPlanner queryPlanner, @Qualifier( "readOnlyJdbcTemplate" ) JdbcTemplate jdbcTemplate,
+        MeterRegistry meterRegistry )
     {
         checkNotNull( queryPlanner );
         checkNotNull( jdbcTemplate );
+        checkNotNull( meterRegistry );
 
         this.queryPlanner = queryPlanner;
         this.jdbcTemplate = jdbcTemplate;
+        this.queryCoalescer = new QueryCoalescer<>( "subquery", meterRegistry );
     }
 
     // -------------------------------------------------------------------------
@@ -179,7 +186,7 @@ public class JdbcAnalyticsManager
 
             try
             {
-                map = getKeyValueMap( params, sql, maxLimit );
+                map = getCoalescedKeyValueMap( params, sql, maxLimit );
             }
             catch ( BadSqlGrammarException ex )
             {
@@ -500,7 +507,7 @@ public class JdbcAnalyticsManager
         if ( !params.isSkipPartitioning() && params.hasPartitions() )
         {
             sql += sqlHelper.whereAnd() + " " + quoteAlias( "year" ) + " in (" +
-                TextUtils.getCommaDelimitedString( params.getPartitions().getPartitions() ) + ") ";
+                TextUtils.getCommaDelimitedString( params.getPartitions().getYears() ) + ") ";
         }
 
         // ---------------------------------------------------------------------
@@ -649,6 +656,27 @@ public class JdbcAnalyticsManager
         return sql;
     }
 
+    /**
+     * Retrieves data from the database based on the given query and SQL,
+     * sharing the result of an identical query already in progress. A copy of
+     * the result is returned, as it is modified by the caller.
+     *
+     * @param params the {@link DataQueryParams}.
+     * @param sql the SQL query.
+     * @param maxLimit the max number of records to retrieve.
+     */
+    private Map<String, Object> getCoalescedKeyValueMap( DataQueryParams params, String sql, int maxLimit )
+    {
+        String dimensions = params.getDimensions().stream()
+            .map( dim -> dim.isFixed() ? "fixed:" + dim.getDimensionName() : dim.getDimensionName() )
+            .collect( Collectors.joining( DIMENSION_SEP ) );
+
+        String key = String.join( "|", dimensions, String.valueOf( params.getDataType() ),
+            String.valueOf( maxLimit ), sql );
+
+        return new HashMap<>( queryCoalescer.execute( key, () -> getKeyValueMap( params, sql, maxLimit ) ) );
+    }
+
     /**
      * Retrieves data from the database based on the given query and SQL and puts
      * into a value key and value mapping.
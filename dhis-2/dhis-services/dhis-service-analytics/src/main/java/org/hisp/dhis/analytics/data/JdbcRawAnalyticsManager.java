@@ -32,6 +32,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static org.hisp.dhis.analytics.DataQueryParams.*;
 import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.ANALYTICS_TBL_ALIAS;
 import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.quote;
+import static org.hisp.dhis.analytics.util.StreamingRowSetCallback.queryForStream;
 import static org.hisp.dhis.common.IdentifiableObjectUtils.getUids;
 import static org.hisp.dhis.commons.util.TextUtils.getQuotedCommaDelimitedString;
 
@@ -101,8 +102,26 @@ public class JdbcRawAnalyticsManager
 
         log.debug( "Get raw data SQL: " + sql );
 
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+        queryForStream( jdbcTemplate, sql, rowSet -> addRawDataValues( grid, dimensions, rowSet ) );
 
+        return grid;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Adds the raw data values of the given row set to the given grid. The row
+     * set is streamed from the database, hence rows are written to the grid as
+     * they are read.
+     *
+     * @param grid the grid.
+     * @param dimensions the list of dimensions.
+     * @param rowSet the row set.
+     */
+    private void addRawDataValues( Grid grid, List<DimensionalObject> dimensions, SqlRowSet rowSet )
+    {
         while ( rowSet.next() )
         {
             grid.addRow();
@@ -114,14 +133,8 @@ public class JdbcRawAnalyticsManager
 
             grid.addValue( rowSet.getDouble( "value" ) );
         }
-
-        return grid;
     }
 
-    // -------------------------------------------------------------------------
-    // Supportive methods
-    // -------------------------------------------------------------------------
-
     /**
      * Returns a SQL select statement.
      *
@@ -34,6 +34,7 @@ import static org.hisp.dhis.analytics.DataQueryParams.VALUE_ID;
 import static org.hisp.dhis.analytics.DataQueryParams.newBuilder;
 import static org.hisp.dhis.analytics.ProcessingHint.SINGLE_INDICATOR_REPORTING_RATE_FILTER_ITEM;
 import static org.hisp.dhis.analytics.SortOrder.ASC;
+import static org.hisp.dhis.analytics.util.AnalyticsUtils.newGrid;
 import static org.hisp.dhis.common.DimensionalObject.DATA_X_DIM_ID;
 
 import javax.annotation.PostConstruct;
@@ -83,7 +84,7 @@ public class DataAggregator
         // Headers
         // ---------------------------------------------------------------------
 
-        Grid grid = new ListGrid();
+        Grid grid = newGrid( params );
 
         headerHandler.addHeaders( params, grid );
 
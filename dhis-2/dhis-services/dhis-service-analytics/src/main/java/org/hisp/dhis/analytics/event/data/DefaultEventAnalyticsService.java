@@ -453,7 +453,7 @@ public class DefaultEventAnalyticsService
     {
         params.removeProgramIndicatorItems(); // Not supported as items for aggregate
 
-        Grid grid = new ListGrid();
+        Grid grid = AnalyticsUtils.newGrid( params );
 
         int maxLimit = queryValidator.getMaxLimit();
 
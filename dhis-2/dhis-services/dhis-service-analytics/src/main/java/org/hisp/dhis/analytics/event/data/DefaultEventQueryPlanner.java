@@ -40,6 +40,7 @@ import org.hisp.dhis.analytics.event.EventQueryParams;
 import org.hisp.dhis.analytics.event.EventQueryPlanner;
 import org.hisp.dhis.analytics.partition.PartitionManager;
 import org.hisp.dhis.analytics.AggregationType;
+import org.hisp.dhis.analytics.AnalyticsPartitionGranularity;
 import org.hisp.dhis.analytics.AnalyticsTableType;
 import org.hisp.dhis.analytics.table.PartitionUtils;
 import org.hisp.dhis.common.DimensionalItemObject;
@@ -139,15 +140,17 @@ public class DefaultEventQueryPlanner
      */
     private EventQueryParams withTableNameAndPartitions( EventQueryParams params )
     {
-        Partitions partitions = params.hasStartEndDate() ?
-            PartitionUtils.getPartitions( params.getStartDate(), params.getEndDate() ) :
-            PartitionUtils.getPartitions( params.getAllPeriods() );
+        AnalyticsTableType tableType = params.hasEnrollmentProgramIndicatorDimension() ?
+            AnalyticsTableType.ENROLLMENT :
+            AnalyticsTableType.EVENT;
+
+        AnalyticsPartitionGranularity granularity = partitionManager.getPartitionGranularity( tableType );
 
-        String baseName = params.hasEnrollmentProgramIndicatorDimension() ?
-            AnalyticsTableType.ENROLLMENT.getTableName() :
-            AnalyticsTableType.EVENT.getTableName();
+        Partitions partitions = params.hasStartEndDate() ?
+            PartitionUtils.getPartitions( params.getStartDate(), params.getEndDate(), granularity ) :
+            PartitionUtils.getPartitions( params.getAllPeriods(), granularity );
 
-        String tableName = PartitionUtils.getTableName( baseName, params.getProgram() );
+        String tableName = PartitionUtils.getTableName( tableType.getTableName(), params.getProgram() );
 
         if ( params.getCurrentUser() != null )
         {
@@ -29,6 +29,7 @@ package org.hisp.dhis.analytics.event.data;
  */
 
 import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.*;
+import static org.hisp.dhis.analytics.util.StreamingRowSetCallback.queryForStream;
 import static org.hisp.dhis.common.DimensionalObject.ORGUNIT_DIM_ID;
 import static org.hisp.dhis.common.DimensionalObject.PERIOD_DIM_ID;
 import static org.hisp.dhis.common.IdentifiableObjectUtils.getUids;
@@ -100,8 +101,20 @@ public class JdbcEnrollmentAnalyticsManager
     {
         log.debug( String.format( "Analytics enrollment query SQL: %s", sql ) );
 
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+        queryForStream( jdbcTemplate, sql, rowSet -> addEnrollments( params, grid, rowSet ) );
+    }
 
+    /**
+     * Adds the enrollments of the given row set to the given grid. The row set
+     * is streamed from the database, hence rows are written to the grid as they
+     * are read.
+     *
+     * @param params the {@link EventQueryParams}.
+     * @param grid the {@link Grid}.
+     * @param rowSet the {@link SqlRowSet}.
+     */
+    private void addEnrollments( EventQueryParams params, Grid grid, SqlRowSet rowSet )
+    {
         while ( rowSet.next() )
         {
             grid.addRow();
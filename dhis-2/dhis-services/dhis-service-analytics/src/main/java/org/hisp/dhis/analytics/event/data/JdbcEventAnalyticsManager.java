@@ -36,6 +36,7 @@ import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.DATE_PERIOD_STRUCT_
 import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.ORG_UNIT_STRUCT_ALIAS;
 import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.quote;
 import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.quoteAlias;
+import static org.hisp.dhis.analytics.util.StreamingRowSetCallback.queryForStream;
 import static org.hisp.dhis.common.DimensionalObject.ORGUNIT_DIM_ID;
 import static org.hisp.dhis.common.DimensionalObject.PERIOD_DIM_ID;
 import static org.hisp.dhis.common.IdentifiableObjectUtils.getUids;
@@ -126,8 +127,20 @@ public class JdbcEventAnalyticsManager
     {
         log.debug( String.format( "Analytics event query SQL: %s", sql ) );
 
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+        queryForStream( jdbcTemplate, sql, rowSet -> addEvents( params, grid, rowSet ) );
+    }
 
+    /**
+     * Adds the events of the given row set to the given grid. The row set is
+     * streamed from the database, hence rows are written to the grid as they
+     * are read.
+     *
+     * @param params the {@link EventQueryParams}.
+     * @param grid the {@link Grid}.
+     * @param rowSet the {@link SqlRowSet}.
+     */
+    private void addEvents( EventQueryParams params, Grid grid, SqlRowSet rowSet )
+    {
         while ( rowSet.next() )
         {
             grid.addRow();
@@ -512,7 +525,7 @@ public class JdbcEventAnalyticsManager
         if ( !params.isSkipPartitioning() && params.hasPartitions() && !params.hasNonDefaultBoundaries() && !params.hasTimeField() )
         {
             sql += sqlHelper.whereAnd() + " " + quoteAlias( "yearly" ) + " in (" +
-                TextUtils.getQuotedCommaDelimitedString( params.getPartitions().getPartitions() ) + ") ";
+                TextUtils.getQuotedCommaDelimitedString( params.getPartitions().getYears() ) + ") ";
         }
 
         // ---------------------------------------------------------------------
@@ -34,10 +34,16 @@ import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.hisp.dhis.analytics.AnalyticsPartitionGranularity;
+import org.hisp.dhis.analytics.AnalyticsTablePartition;
 import org.hisp.dhis.analytics.AnalyticsTableType;
 import org.hisp.dhis.analytics.Partitions;
 import org.hisp.dhis.analytics.table.PartitionUtils;
 import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
+import org.hisp.dhis.commons.util.TextUtils;
+import org.hisp.dhis.period.PeriodType;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -58,6 +64,9 @@ public class JdbcPartitionManager
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private SystemSettingManager systemSettingManager;
+
     @Override
     public Set<String> getAnalyticsPartitions( AnalyticsTableType tableType )
     {
@@ -98,9 +107,22 @@ public class JdbcPartitionManager
     @Override
     public void filterNonExistingPartitions( Partitions partitions, String tableName )
     {
-        Set<Integer> partitionSet = partitions.getPartitions().stream()
-            .filter( partition -> partitionExists( tableName, partition ) )
-            .collect( Collectors.toSet() );
+        Set<Integer> partitionSet = new HashSet<>();
+
+        Map<Integer, Set<Integer>> yearPartitions = new HashMap<>();
+
+        for ( Integer partition : partitions.getPartitions() )
+        {
+            if ( partitionExists( tableName, partition ) )
+            {
+                partitionSet.add( partition );
+            }
+            else if ( !AnalyticsTablePartition.LATEST_PARTITION.equals( partition ) )
+            {
+                partitionSet.addAll( yearPartitions.computeIfAbsent( PartitionUtils.getYear( partition ),
+                    year -> getExistingPartitions( tableName, year ) ) );
+            }
+        }
 
         partitions.setPartitions( partitionSet );
     }
@@ -108,7 +130,44 @@ public class JdbcPartitionManager
     private boolean partitionExists( String tableName, Integer partition )
     {
         return tableExists( PartitionUtils.getPartitionName( tableName, partition ) );
+    }
+
+    /**
+     * Returns the existing partitions of any granularity for the given year
+     * of the given table. A partial analytics table update leaves the years
+     * outside of the update with the partitions of the granularity they were
+     * created with, which might differ from the current granularity.
+     *
+     * @param tableName the table name.
+     * @param year the year.
+     * @return the existing partitions of the year.
+     */
+    private Set<Integer> getExistingPartitions( String tableName, Integer year )
+    {
+        Map<String, Integer> partitionNames = PartitionUtils.getAllPartitions( PeriodType.getCalendar(), year ).stream()
+            .collect( Collectors.toMap( partition -> PartitionUtils.getPartitionName( tableName, partition ), partition -> partition ) );
+
+        final String sql =
+            "select table_name from information_schema.tables " +
+            "where table_name in (" + TextUtils.getQuotedCommaDelimitedString( partitionNames.keySet() ) + ") " +
+            "and table_type = 'BASE TABLE'";
+
+        log.debug( "Existing partitions SQL: " + sql );
+
+        return jdbcTemplate.queryForList( sql, String.class ).stream()
+            .map( partitionNames::get )
+            .collect( Collectors.toSet() );
+    }
+
+    @Override
+    public AnalyticsPartitionGranularity getPartitionGranularity( AnalyticsTableType tableType )
+    {
+        if ( !tableType.hasSubYearPartitions() )
+        {
+            return AnalyticsPartitionGranularity.YEARLY;
+        }
 
+        return (AnalyticsPartitionGranularity) systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_PARTITION_GRANULARITY );
     }
 
     @Override
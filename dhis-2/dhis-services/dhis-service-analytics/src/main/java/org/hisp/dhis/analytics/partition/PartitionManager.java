@@ -30,6 +30,7 @@ package org.hisp.dhis.analytics.partition;
 
 import java.util.Set;
 
+import org.hisp.dhis.analytics.AnalyticsPartitionGranularity;
 import org.hisp.dhis.analytics.AnalyticsTableType;
 import org.hisp.dhis.analytics.Partitions;
 import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
@@ -57,13 +58,25 @@ public interface PartitionManager
 
     /**
      * Filters the set of integers for which a database partition table
-     * exists.
+     * exists. A partition which does not exist is replaced by the existing
+     * partitions of its year, which covers years partitioned with another
+     * granularity than the current one.
      *
      * @param partitions the partitions.
      * @param tableName the table name.
      */
     void filterNonExistingPartitions( Partitions partitions, String tableName );
 
+    /**
+     * Returns the partition granularity in use for the given analytics
+     * table type. Table types which do not support sub-year partitions
+     * are always partitioned by year.
+     *
+     * @param tableType the {@link AnalyticsTableType}.
+     * @return the {@link AnalyticsPartitionGranularity}.
+     */
+    AnalyticsPartitionGranularity getPartitionGranularity( AnalyticsTableType tableType );
+
     /**
      * Event handler for {@link ApplicationCacheClearedEvent}.
      *
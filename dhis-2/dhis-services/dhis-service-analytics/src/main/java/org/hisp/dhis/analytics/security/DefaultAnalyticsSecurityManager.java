@@ -54,6 +54,7 @@ import org.hisp.dhis.dataapproval.DataApprovalLevel;
 import org.hisp.dhis.dataapproval.DataApprovalLevelService;
 import org.hisp.dhis.feedback.ErrorCode;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitHierarchyIndexService;
 import org.hisp.dhis.security.acl.AclService;
 import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.user.CurrentUserService;
@@ -82,21 +83,26 @@ public class DefaultAnalyticsSecurityManager
 
     private final CurrentUserService currentUserService;
 
+    private final OrganisationUnitHierarchyIndexService organisationUnitHierarchyIndexService;
+
     public DefaultAnalyticsSecurityManager( DataApprovalLevelService approvalLevelService,
         SystemSettingManager systemSettingManager, DimensionService dimensionService, AclService aclService,
-        CurrentUserService currentUserService )
+        CurrentUserService currentUserService,
+        OrganisationUnitHierarchyIndexService organisationUnitHierarchyIndexService )
     {
         checkNotNull( approvalLevelService );
         checkNotNull( systemSettingManager );
         checkNotNull( dimensionService );
         checkNotNull( aclService );
         checkNotNull( currentUserService );
+        checkNotNull( organisationUnitHierarchyIndexService );
 
         this.approvalLevelService = approvalLevelService;
         this.systemSettingManager = systemSettingManager;
         this.dimensionService = dimensionService;
         this.aclService = aclService;
         this.currentUserService = currentUserService;
+        this.organisationUnitHierarchyIndexService = organisationUnitHierarchyIndexService;
     }
 
     // -------------------------------------------------------------------------
@@ -135,7 +141,7 @@ public class DefaultAnalyticsSecurityManager
         {
             OrganisationUnit queryOrgUnit = (OrganisationUnit) object;
 
-            boolean notDescendant = !queryOrgUnit.isDescendant( viewOrgUnits );
+            boolean notDescendant = !organisationUnitHierarchyIndexService.isDescendant( queryOrgUnit, viewOrgUnits );
 
             if ( notDescendant )
             {
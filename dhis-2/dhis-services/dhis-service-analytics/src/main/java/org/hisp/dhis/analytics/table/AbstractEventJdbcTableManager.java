@@ -35,9 +35,11 @@ import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
 
+import org.hisp.dhis.analytics.AnalyticsTable;
 import org.hisp.dhis.analytics.AnalyticsTableHookService;
 import org.hisp.dhis.analytics.AnalyticsTableColumn;
 import org.hisp.dhis.analytics.AnalyticsTablePartition;
+import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
 import org.hisp.dhis.analytics.ColumnDataType;
 import org.hisp.dhis.analytics.partition.PartitionManager;
 import org.hisp.dhis.category.CategoryService;
@@ -49,21 +51,30 @@ import org.hisp.dhis.jdbc.StatementBuilder;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.program.Program;
 import org.hisp.dhis.resourcetable.ResourceTableService;
+import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.database.DatabaseInfo;
 import org.hisp.dhis.trackedentity.TrackedEntityAttribute;
+import org.hisp.dhis.util.DateUtils;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.hisp.dhis.commons.util.TextUtils;
 import org.springframework.scheduling.annotation.Async;
+import org.springframework.util.Assert;
+
+import com.google.common.collect.Lists;
+
+import lombok.extern.slf4j.Slf4j;
 
 import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.getClosingParentheses;
 import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.quote;
 import static org.hisp.dhis.analytics.util.AnalyticsUtils.getColumnType;
 import static org.hisp.dhis.system.util.MathUtils.NUMERIC_LENIENT_REGEXP;
+import static org.hisp.dhis.util.DateUtils.getLongDateString;
 
 /**
  * @author Markus Bekken
  */
+@Slf4j
 public abstract class AbstractEventJdbcTableManager
     extends AbstractJdbcTableManager
 {
@@ -157,6 +168,72 @@ public abstract class AbstractEventJdbcTableManager
         throw new IllegalStateException( "This method should never be invoked" );
     }
 
+    /**
+     * Indicates whether data stored between the given start and end date and for the
+     * given program exists.
+     *
+     * @param startDate the start date.
+     * @param endDate the end date.
+     * @param program the program.
+     * @return whether data exists.
+     */
+    protected abstract boolean hasUpdatedLatestData( Date startDate, Date endDate, Program program );
+
+    /**
+     * Returns the dimension columns of the analytics table for the given program.
+     *
+     * @param program the program.
+     * @return a list of {@link AnalyticsTableColumn}.
+     */
+    protected abstract List<AnalyticsTableColumn> getDimensionColumns( Program program );
+
+    /**
+     * Creates a list of {@link AnalyticsTable} with a partition each or the "latest" data. The
+     * start date of the partition is the time of the last successful full analytics table update.
+     * The end date of the partition is the start time of this analytics table update process.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @return a list of {@link AnalyticsTableUpdateParams}.
+     */
+    protected List<AnalyticsTable> getLatestAnalyticsTables( AnalyticsTableUpdateParams params )
+    {
+        Date lastFullTableUpdate = (Date) systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE );
+        Date lastLatestPartitionUpdate = (Date) systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_LATEST_ANALYTICS_PARTITION_UPDATE );
+        Date lastAnyTableUpdate = DateUtils.getLatest( lastLatestPartitionUpdate, lastFullTableUpdate );
+
+        Assert.notNull( lastFullTableUpdate, "A full analytics table update process must be run prior to a latest partition update process" );
+
+        Date startDate = lastFullTableUpdate;
+        Date endDate = params.getStartTime();
+
+        List<AnalyticsTable> tables = new ArrayList<>();
+
+        List<Program> programs = idObjectManager.getAllNoAcl( Program.class );
+
+        for ( Program program : programs )
+        {
+            boolean hasUpdatedData = hasUpdatedLatestData( lastAnyTableUpdate, endDate, program );
+
+            if ( hasUpdatedData )
+            {
+                AnalyticsTable table = new AnalyticsTable( getAnalyticsTableType(), getDimensionColumns( program ), Lists.newArrayList(), program );
+                table.addPartitionTable( AnalyticsTablePartition.LATEST_PARTITION, startDate, endDate );
+                tables.add( table );
+
+                log.info( String.format( "Added latest %s partition for program: '%s' with start: '%s' and end: '%s'",
+                    getTableName(), program.getUid(), getLongDateString( startDate ), getLongDateString( endDate ) ) );
+            }
+            else
+            {
+                log.info( String.format( "No updated latest %s data found for program: '%s' with start: '%s' and end: '%s",
+                    getTableName(), program.getUid(), getLongDateString( lastAnyTableUpdate ), getLongDateString( endDate ) ) );
+            }
+        }
+
+        return tables;
+    }
+
+
     /**
      * Populates the given analytics table partition using the given columns and
      * join statement.
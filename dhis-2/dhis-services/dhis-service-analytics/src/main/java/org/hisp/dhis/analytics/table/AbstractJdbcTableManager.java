@@ -233,6 +233,7 @@ public abstract class AbstractJdbcTableManager
         else
         {
             table.getTablePartitions().stream().forEach( p -> swapInheritance( p.getTableName(),table.getTempTableName(), table.getTableName() ) );
+            dropStalePartitions( table );
             dropTempTable( table );
         }
     }
@@ -440,6 +441,7 @@ public abstract class AbstractJdbcTableManager
 
     /**
      * Creates a {@link AnalyticsTable} with partitions based on a list of years with data.
+     * Each year is split into quarterly or monthly partitions if configured for the table type.
      *
      * @param params the {@link AnalyticsTableUpdateParams}.
      * @param dataYears the list of years with data.
@@ -450,13 +452,15 @@ public abstract class AbstractJdbcTableManager
     {
         Calendar calendar = PeriodType.getCalendar();
 
+        AnalyticsPartitionGranularity granularity = partitionManager.getPartitionGranularity( getAnalyticsTableType() );
+
         Collections.sort( dataYears );
 
         AnalyticsTable table = new AnalyticsTable( getAnalyticsTableType(), dimensionColumns, valueColumns );
 
         for ( Integer year : dataYears )
         {
-            table.addPartitionTable( year, PartitionUtils.getStartDate( calendar, year ), PartitionUtils.getEndDate( calendar, year ) );
+            PartitionUtils.addPartitionTables( table, calendar, year, granularity );
         }
 
         return table;
@@ -624,6 +628,32 @@ public abstract class AbstractJdbcTableManager
         executeSilently( sql );
     }
 
+    /**
+     * Drops the partition tables of the years of the given table which are not
+     * partitions of the table. These are left from updates with a different
+     * partition granularity and would otherwise be queried through the master
+     * table along with the new partitions.
+     *
+     * @param table the {@link AnalyticsTable}.
+     */
+    private void dropStalePartitions( AnalyticsTable table )
+    {
+        Calendar calendar = PeriodType.getCalendar();
+
+        Set<String> partitionNames = table.getTablePartitions().stream()
+            .map( AnalyticsTablePartition::getTableName )
+            .collect( Collectors.toSet() );
+
+        table.getTablePartitions().stream()
+            .filter( p -> !p.isLatestPartition() )
+            .map( AnalyticsTablePartition::getYear )
+            .distinct()
+            .flatMap( year -> PartitionUtils.getAllPartitions( calendar, year ).stream() )
+            .map( partition -> PartitionUtils.getPartitionName( table.getTableName(), partition ) )
+            .filter( name -> !partitionNames.contains( name ) )
+            .forEach( this::dropTable );
+    }
+
     /**
      * Updates table inheritance of a table partition from the temp master table
      * to the real master table.
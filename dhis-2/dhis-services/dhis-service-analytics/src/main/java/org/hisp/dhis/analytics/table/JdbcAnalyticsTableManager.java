@@ -57,6 +57,7 @@ import org.hisp.dhis.analytics.ColumnDataType;
 import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.analytics.partition.PartitionManager;
 import org.hisp.dhis.analytics.util.AnalyticsUtils;
+import org.hisp.dhis.calendar.Calendar;
 import org.hisp.dhis.category.Category;
 import org.hisp.dhis.category.CategoryOptionGroupSet;
 import org.hisp.dhis.category.CategoryService;
@@ -71,6 +72,7 @@ import org.hisp.dhis.jdbc.StatementBuilder;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroupSet;
 import org.hisp.dhis.organisationunit.OrganisationUnitLevel;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.resourcetable.ResourceTableService;
 import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
@@ -225,11 +227,75 @@ public class JdbcAnalyticsTableManager
     @Override
     protected List<String> getPartitionChecks( AnalyticsTablePartition partition )
     {
-        return partition.isLatestPartition() ?
-            newArrayList() :
-            newArrayList(
-                "year = " + partition.getYear() + "",
-                "pestartdate < '" + DateUtils.getMediumDateString( partition.getEndDate() ) + "'" );
+        if ( partition.isLatestPartition() )
+        {
+            return newArrayList();
+        }
+        else if ( partition.isSubYearPartition() )
+        {
+            List<String> checks = newArrayList( "year = " + partition.getYear() + "" );
+            checks.addAll( getSubYearPartitionConditions( partition, "pestartdate" ) );
+            return checks;
+        }
+
+        return newArrayList(
+            "year = " + partition.getYear() + "",
+            "pestartdate < '" + DateUtils.getMediumDateString( partition.getEndDate() ) + "'" );
+    }
+
+    /**
+     * Returns a SQL clause restricting data values to the given partition.
+     *
+     * @param partition the {@link AnalyticsTablePartition}.
+     * @return a SQL clause.
+     */
+    private String getPartitionClause( AnalyticsTablePartition partition )
+    {
+        if ( partition.isLatestPartition() )
+        {
+            return "and dv.lastupdated >= '" + getLongDateString( partition.getStartDate() ) + "' ";
+        }
+
+        String sql = "and ps.year = " + partition.getYear() + " ";
+
+        if ( partition.isSubYearPartition() )
+        {
+            for ( String condition : getSubYearPartitionConditions( partition, "ps.startdate" ) )
+            {
+                sql += "and " + condition + " ";
+            }
+        }
+
+        return sql;
+    }
+
+    /**
+     * Returns conditions on the given period start date column which restrict data
+     * to the given sub-year partition. The first partition of a year has no lower
+     * bound and the last partition has no upper bound, so that periods which belong
+     * to the year but start outside of it, like weeks, are covered.
+     *
+     * @param partition the {@link AnalyticsTablePartition}.
+     * @param column the period start date column.
+     * @return a list of conditions.
+     */
+    private List<String> getSubYearPartitionConditions( AnalyticsTablePartition partition, String column )
+    {
+        Calendar calendar = PeriodType.getCalendar();
+
+        List<String> conditions = newArrayList();
+
+        if ( !partition.getStartDate().equals( PartitionUtils.getStartDate( calendar, partition.getYear() ) ) )
+        {
+            conditions.add( column + " >= '" + DateUtils.getMediumDateString( partition.getStartDate() ) + "'" );
+        }
+
+        if ( !partition.getEndDate().equals( PartitionUtils.getEndDate( calendar, partition.getYear() ) ) )
+        {
+            conditions.add( column + " < '" + DateUtils.getMediumDateString( partition.getEndDate() ) + "'" );
+        }
+
+        return conditions;
     }
 
     @Override
@@ -244,10 +310,43 @@ public class JdbcAnalyticsTableManager
         final String zeroValueClause = "(dv.value != '0' or de.aggregationtype in ('" + AggregationType.AVERAGE + ',' + AggregationType.AVERAGE_SUM_ORG_UNIT + "')" + zeroValueCondition + ") ";
         final String intClause = zeroValueClause + numericClause;
 
-        populateTable( params, partition, "cast(dv.value as " + dbl + ")", "null", ValueType.NUMERIC_TYPES, intClause );
-        populateTable( params, partition, "1", "null", Sets.newHashSet( ValueType.BOOLEAN, ValueType.TRUE_ONLY ), "dv.value = 'true'" );
-        populateTable( params, partition, "0", "null", Sets.newHashSet( ValueType.BOOLEAN ), "dv.value = 'false'" );
-        populateTable( params, partition, "null", "dv.value", Sets.union( ValueType.TEXT_TYPES, ValueType.DATE_TYPES ), null );
+        final Set<ValueType> boolTypes = Sets.newHashSet( ValueType.BOOLEAN, ValueType.TRUE_ONLY );
+        final Set<ValueType> textTypes = Sets.union( ValueType.TEXT_TYPES, ValueType.DATE_TYPES );
+
+        final String numericTypeClause = getValueTypeClause( ValueType.NUMERIC_TYPES );
+        final String boolTypeClause = getValueTypeClause( boolTypes );
+        final String textTypeClause = getValueTypeClause( textTypes );
+
+        // Read data values once and route them to the value columns by value type
+
+        final String valueExpression =
+            "(case when " + numericTypeClause + " then cast(dv.value as " + dbl + ") " +
+            "when " + boolTypeClause + " then (case when dv.value = 'true' then 1 else 0 end) " +
+            "else null end)";
+
+        final String textValueExpression = "(case when " + textTypeClause + " then dv.value else null end)";
+
+        final String whereClause =
+            "((" + numericTypeClause + " and " + intClause + ") " +
+            "or (" + boolTypeClause + " and dv.value = 'true') " +
+            "or (" + getValueTypeClause( Sets.newHashSet( ValueType.BOOLEAN ) ) + " and dv.value = 'false') " +
+            "or " + textTypeClause + ") ";
+
+        final Set<ValueType> valueTypes = Sets.newHashSet( ValueType.NUMERIC_TYPES );
+        valueTypes.addAll( boolTypes );
+        valueTypes.addAll( textTypes );
+
+        populateTable( params, partition, valueExpression, textValueExpression, valueTypes, whereClause );
+    }
+
+    /**
+     * Returns a condition matching data elements of the given value types.
+     *
+     * @param valueTypes the value types.
+     */
+    private String getValueTypeClause( Set<ValueType> valueTypes )
+    {
+        return "de.valuetype in (" + TextUtils.getQuotedCommaDelimitedString( ObjectUtils.asStringList( valueTypes ) ) + ")";
     }
 
     /**
@@ -262,12 +361,9 @@ public class JdbcAnalyticsTableManager
         String valueExpression, String textValueExpression, Set<ValueType> valueTypes, String whereClause )
     {
         final String tableName = partition.getTempTableName();
-        final String valTypes = TextUtils.getQuotedCommaDelimitedString( ObjectUtils.asStringList( valueTypes ) );
         final boolean respectStartEndDates = (Boolean) systemSettingManager.getSystemSetting( SettingKey.RESPECT_META_DATA_START_END_DATES_IN_ANALYTICS_TABLE_EXPORT );
         final String approvalClause = getApprovalJoinClause( partition.getYear() );
-        final String partitionClause = partition.isLatestPartition() ?
-            "and dv.lastupdated >= '" + getLongDateString( partition.getStartDate() ) + "' " :
-            "and ps.year = " + partition.getYear() + " ";
+        final String partitionClause = getPartitionClause( partition );
 
         String sql = "insert into " + partition.getTempTableName() + " (";
 
@@ -311,7 +407,7 @@ public class JdbcAnalyticsTableManager
             "inner join _categoryoptioncomboname con on dv.categoryoptioncomboid=con.categoryoptioncomboid " +
 
             approvalClause +
-            "where de.valuetype in (" + valTypes + ") " +
+            "where " + getValueTypeClause( valueTypes ) + " " +
             "and de.domaintype = 'AGGREGATE' " +
             partitionClause +
             "and dv.lastupdated < '" + getLongDateString( params.getStartTime() ) + "' " +
@@ -332,7 +428,7 @@ public class JdbcAnalyticsTableManager
             sql += "and " + whereClause;
         }
 
-        invokeTimeAndLog( sql, String.format( "Populate %s %s", tableName, valueTypes ) );
+        invokeTimeAndLog( sql, String.format( "Populate %s", tableName ) );
     }
 
     /**
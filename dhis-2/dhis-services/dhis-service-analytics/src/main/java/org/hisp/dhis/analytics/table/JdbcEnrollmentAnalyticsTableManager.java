@@ -39,6 +39,7 @@ import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.quote;
 import static org.hisp.dhis.util.DateUtils.getLongDateString;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 import org.hisp.dhis.analytics.AnalyticsTable;
@@ -107,11 +108,12 @@ public class JdbcEnrollmentAnalyticsTableManager
     @Transactional
     public List<AnalyticsTable> getAnalyticsTables( AnalyticsTableUpdateParams params )
     {
-        return params.isLatestUpdate() ? new ArrayList<>() : getRegularAnalyticsTables( params );
+        return params.isLatestUpdate() ? getLatestAnalyticsTables( params ) : getRegularAnalyticsTables( params );
     }
 
     /**
-     * Creates a list of {@link AnalyticsTable} for each program.
+     * Creates a list of {@link AnalyticsTable} for each program. The data of each
+     * table is stored in the master table, while "latest" partitions inherit from it.
      *
      * @param params the {@link AnalyticsTableUpdateParams}.
      * @return a list of {@link AnalyticsTableUpdateParams}.
@@ -132,6 +134,45 @@ public class JdbcEnrollmentAnalyticsTableManager
         return tables;
     }
 
+    @Override
+    protected boolean hasUpdatedLatestData( Date startDate, Date endDate, Program program )
+    {
+        String sql =
+            "select pi.programinstanceid " +
+            "from programinstance pi " +
+            "where pi.programid = " + program.getId() + " " +
+            "and pi.lastupdated >= '" + getLongDateString( startDate ) + "' " +
+            "and pi.lastupdated < '" + getLongDateString( endDate ) + "' " +
+            "limit 1";
+
+        return !jdbcTemplate.queryForList( sql ).isEmpty();
+    }
+
+    @Override
+    public void removeUpdatedData( AnalyticsTableUpdateParams params, List<AnalyticsTable> tables )
+    {
+        if ( !params.isLatestUpdate() )
+        {
+            return;
+        }
+
+        for ( AnalyticsTable table : tables )
+        {
+            AnalyticsTablePartition partition = table.getLatestPartition();
+
+            String sql =
+                "delete from " + quote( table.getTableName() ) + " ax " +
+                "where ax.pi in (" +
+                    "select pi.uid " +
+                    "from programinstance pi " +
+                    "where pi.programid = " + table.getProgram().getId() + " " +
+                    "and pi.lastupdated >= '" + getLongDateString( partition.getStartDate() ) + "' " +
+                    "and pi.lastupdated < '" + getLongDateString( partition.getEndDate() ) + "')";
+
+            invokeTimeAndLog( sql, String.format( "Remove updated enrollments for table: '%s'", table.getTableName() ) );
+        }
+    }
+
     @Override
     protected List<String> getPartitionChecks( AnalyticsTablePartition partition )
     {
@@ -142,6 +183,8 @@ public class JdbcEnrollmentAnalyticsTableManager
     protected void populateTable( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition )
     {
         final Program program = partition.getMasterTable().getProgram();
+        final String partitionClause = partition.isLatestPartition() ?
+            "and pi.lastupdated >= '" + getLongDateString( partition.getStartDate() ) + "' " : "";
 
         String fromClause = "from programinstance pi " +
             "inner join program pr on pi.programid=pr.programid " +
@@ -154,13 +197,15 @@ public class JdbcEnrollmentAnalyticsTableManager
             "where pr.programid=" + program.getId() + " " +
             "and pi.organisationunitid is not null " +
             "and pi.lastupdated <= '" + getLongDateString( params.getStartTime() ) + "' " +
+            partitionClause +
             "and pi.incidentdate is not null " +
             "and pi.deleted is false ";
 
         populateTableInternal( partition, getDimensionColumns( program ), fromClause );
     }
 
-    private List<AnalyticsTableColumn> getDimensionColumns( Program program )
+    @Override
+    protected List<AnalyticsTableColumn> getDimensionColumns( Program program )
     {
         List<AnalyticsTableColumn> columns = new ArrayList<>();
 
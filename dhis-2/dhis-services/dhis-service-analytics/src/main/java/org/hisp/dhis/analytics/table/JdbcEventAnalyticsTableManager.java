@@ -47,6 +47,7 @@ import java.util.stream.Collectors;
 import com.google.common.collect.ImmutableSet;
 
 import lombok.extern.slf4j.Slf4j;
+import org.hisp.dhis.analytics.AnalyticsPartitionGranularity;
 import org.hisp.dhis.analytics.AnalyticsTable;
 import org.hisp.dhis.analytics.AnalyticsTableColumn;
 import org.hisp.dhis.analytics.AnalyticsTableHookService;
@@ -67,7 +68,6 @@ import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.program.Program;
 import org.hisp.dhis.resourcetable.ResourceTableService;
-import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.database.DatabaseInfo;
 import org.hisp.dhis.trackedentity.TrackedEntityAttribute;
@@ -75,7 +75,6 @@ import org.hisp.dhis.util.DateUtils;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.Assert;
 
 import com.google.common.collect.Lists;
 
@@ -144,7 +143,7 @@ public class JdbcEventAnalyticsTableManager
 
     /**
      * Creates a list of {@link AnalyticsTable} for each program. The tables contain a partition
-     * for each year for which events exist.
+     * for each year, or each quarter or month of the year if configured, for which events exist.
      *
      * @param params the {@link AnalyticsTableUpdateParams}.
      * @return a list of {@link AnalyticsTableUpdateParams}.
@@ -155,6 +154,8 @@ public class JdbcEventAnalyticsTableManager
 
         Calendar calendar = PeriodType.getCalendar();
 
+        AnalyticsPartitionGranularity granularity = partitionManager.getPartitionGranularity( getAnalyticsTableType() );
+
         List<Program> programs = idObjectManager.getAllNoAcl( Program.class );
 
         for ( Program program : programs )
@@ -167,7 +168,7 @@ public class JdbcEventAnalyticsTableManager
 
             for ( Integer year : dataYears )
             {
-                table.addPartitionTable( year, PartitionUtils.getStartDate( calendar, year ), PartitionUtils.getEndDate( calendar, year ) );
+                PartitionUtils.addPartitionTables( table, calendar, year, granularity );
             }
 
             if ( table.hasPartitionTables() )
@@ -179,75 +180,37 @@ public class JdbcEventAnalyticsTableManager
         return tables;
     }
 
-    /**
-     * Creates a list of {@link AnalyticsTable} with a partition each or the "latest" data. The
-     * start date of the partition is the time of the last successful full analytics table update.
-     * The end date of the partition is the start time of this analytics table update process.
-     *
-     * @param params the {@link AnalyticsTableUpdateParams}.
-     * @return a list of {@link AnalyticsTableUpdateParams}.
-     */
-    private List<AnalyticsTable> getLatestAnalyticsTables( AnalyticsTableUpdateParams params )
-    {
-        Date lastFullTableUpdate = (Date) systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE );
-        Date lastLatestPartitionUpdate = (Date) systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_LATEST_ANALYTICS_PARTITION_UPDATE );
-        Date lastAnyTableUpdate = DateUtils.getLatest( lastLatestPartitionUpdate, lastFullTableUpdate );
-
-        Assert.notNull( lastFullTableUpdate, "A full analytics table update process must be run prior to a latest partition update process" );
-
-        Date startDate = lastFullTableUpdate;
-        Date endDate = params.getStartTime();
-
-        List<AnalyticsTable> tables = new ArrayList<>();
-
-        List<Program> programs = idObjectManager.getAllNoAcl( Program.class );
-
-        for ( Program program : programs )
-        {
-            boolean hasUpdatedData = hasUpdatedLatestData( lastAnyTableUpdate, endDate, program );
-
-            if ( hasUpdatedData )
-            {
-                AnalyticsTable table = new AnalyticsTable( getAnalyticsTableType(), getDimensionColumns( program ), Lists.newArrayList(), program );
-                table.addPartitionTable( AnalyticsTablePartition.LATEST_PARTITION, startDate, endDate );
-                tables.add( table );
-
-                log.info( String.format( "Added latest event analytics partition for program: '%s' with start: '%s' and end: '%s'",
-                    program.getUid(), getLongDateString( startDate ), getLongDateString( endDate ) ) );
-            }
-            else
-            {
-                log.info( String.format( "No updated latest event data found for program: '%s' with start: '%s' and end: '%s",
-                    program.getUid(), getLongDateString( lastAnyTableUpdate ), getLongDateString( endDate ) ) );
-            }
-        }
-
-        return tables;
-    }
-
-    /**
-     * Indicates whether event data stored between the given start and end date and for the
-     * given program exists.
-     *
-     * @param startDate the start date.
-     * @param endDate the end date.
-     * @param program the program.
-     * @return whether event data exists.
-     */
-    private boolean hasUpdatedLatestData( Date startDate, Date endDate, Program program )
+    @Override
+    protected boolean hasUpdatedLatestData( Date startDate, Date endDate, Program program )
     {
         String sql =
             "select psi.programstageinstanceid " +
             "from programstageinstance psi " +
             "inner join programinstance pi on psi.programinstanceid=pi.programinstanceid " +
             "where pi.programid = " + program.getId() + " " +
-            "and psi.lastupdated >= '" + getLongDateString( startDate ) + "' " +
-            "and psi.lastupdated < '" + getLongDateString( endDate ) + "' " +
+            "and " + getUpdatedClause( startDate, endDate ) + " " +
             "limit 1";
 
         return !jdbcTemplate.queryForList( sql ).isEmpty();
     }
 
+    /**
+     * Returns a SQL condition matching events which were updated, or which belong to
+     * an enrollment which was updated, between the given start and end date.
+     *
+     * @param startDate the start date, inclusive.
+     * @param endDate the end date, exclusive.
+     * @return a SQL condition.
+     */
+    private String getUpdatedClause( Date startDate, Date endDate )
+    {
+        final String start = getLongDateString( startDate );
+        final String end = getLongDateString( endDate );
+
+        return "((psi.lastupdated >= '" + start + "' and psi.lastupdated < '" + end + "') " +
+            "or (pi.lastupdated >= '" + start + "' and pi.lastupdated < '" + end + "'))";
+    }
+
     @Override
     public void removeUpdatedData( AnalyticsTableUpdateParams params, List<AnalyticsTable> tables )
     {
@@ -267,8 +230,7 @@ public class JdbcEventAnalyticsTableManager
                     "from programstageinstance psi " +
                     "inner join programinstance pi on psi.programinstanceid=pi.programinstanceid " +
                     "where pi.programid = " + table.getProgram().getId() + " " +
-                    "and psi.lastupdated >= '" + getLongDateString( partition.getStartDate() ) + "' " +
-                    "and psi.lastupdated < '" + getLongDateString( partition.getEndDate() ) + "')";
+                    "and " + getUpdatedClause( partition.getStartDate(), partition.getEndDate() ) + ")";
 
             invokeTimeAndLog( sql, String.format( "Remove updated events for table: '%s'", table.getTableName() ) );
         }
@@ -298,7 +260,7 @@ public class JdbcEventAnalyticsTableManager
         final String start = DateUtils.getLongDateString( partition.getStartDate() );
         final String end = DateUtils.getLongDateString( partition.getEndDate() );
         final String partitionClause = partition.isLatestPartition() ?
-            "and psi.lastupdated >= '" + start + "' " :
+            "and " + getUpdatedClause( partition.getStartDate(), partition.getEndDate() ) + " " :
             "and psi.executiondate >= '" + start + "' and psi.executiondate < '" + end + "' ";
 
         String fromClause = "from programstageinstance psi " +
@@ -323,7 +285,8 @@ public class JdbcEventAnalyticsTableManager
         populateTableInternal( partition, getDimensionColumns( program ), fromClause );
     }
 
-    private List<AnalyticsTableColumn> getDimensionColumns( Program program )
+    @Override
+    protected List<AnalyticsTableColumn> getDimensionColumns( Program program )
     {
         List<AnalyticsTableColumn> columns = new ArrayList<>();
 
@@ -427,6 +390,11 @@ public class JdbcEventAnalyticsTableManager
         } ).collect( Collectors.toList() );
     }
 
+    /**
+     * Returns the columns for the given data element. The values are read from
+     * the event data values of the joined {@code psi} table, so that each event
+     * row is read once regardless of the number of data element columns.
+     */
     private List<AnalyticsTableColumn> getColumnFromDataElement( DataElement dataElement, boolean withLegendSet )
     {
         List<AnalyticsTableColumn> columns = new ArrayList<>();
@@ -434,18 +402,20 @@ public class JdbcEventAnalyticsTableManager
         // Assemble a regex dataClause with using jsonb #>> operator
         String dataClause = getDataClause( dataElement.getUid(), dataElement.getValueType() );
 
-        String columnName = "eventdatavalues #>> '{" + dataElement.getUid() + ", value}'";
+        String columnName = "psi.eventdatavalues #>> '{" + dataElement.getUid() + ", value}'";
 
         String select = getSelectClause( dataElement.getValueType(), columnName );
 
-        String sql = selectForInsert( dataElement, select, dataClause );
+        String sql;
 
         if ( dataElement.getValueType().isOrganisationUnit() )
         {
+            sql = selectForInsert( dataElement, "ou.uid from organisationunit ou where ou.uid = " + columnName, dataClause );
+
             if ( databaseInfo.isSpatialSupport() )
             {
                 String geoSql = selectForInsert( dataElement,
-                    "ou.geometry from organisationunit ou where ou.uid = (select " + columnName, dataClause );
+                    "ou.geometry from organisationunit ou where ou.uid = " + columnName, dataClause );
 
                 columns.add( new AnalyticsTableColumn( quote( dataElement.getUid() + OU_GEOMETRY_COL_SUFFIX ),
                     ColumnDataType.GEOMETRY, geoSql )
@@ -454,11 +424,15 @@ public class JdbcEventAnalyticsTableManager
 
             // add the OU name for this Data Element
             String ouNameSql = selectForInsert( dataElement,
-                "ou.name from organisationunit ou where ou.uid = (select " + columnName, dataClause );
+                "ou.name from organisationunit ou where ou.uid = " + columnName, dataClause );
 
             columns.add( new AnalyticsTableColumn( quote( dataElement.getUid() + OU_NAME_COL_SUFFIX ), TEXT, ouNameSql )
                 .withSkipIndex( true ) );
         }
+        else
+        {
+            sql = selectForInsert( dataElement, select, dataClause );
+        }
 
         columns.add( new AnalyticsTableColumn( quote( dataElement.getUid() ),
             getColumnType( dataElement.getValueType(), databaseInfo.isSpatialSupport() ), sql ).withSkipIndex(
@@ -467,10 +441,26 @@ public class JdbcEventAnalyticsTableManager
         return withLegendSet ? getColumnFromDataElementWithLegendSet(dataElement, select, dataClause): columns;
     }
 
+    /**
+     * Returns the select expression for a data element column. Values not
+     * matching the data clause are inserted as null. Org unit values are looked
+     * up through a sub query on the organisation unit table.
+     */
     private String selectForInsert( DataElement dataElement, String fromType, String dataClause )
     {
-        return String.format( "(select %s from programstageinstance where programstageinstanceid=psi.programstageinstanceid " +
-            dataClause + ")" + getClosingParentheses( fromType ) + " as " + quote( dataElement.getUid() ), fromType );
+        String alias = " as " + quote( dataElement.getUid() );
+
+        if ( dataElement.getValueType().isOrganisationUnit() )
+        {
+            return "(select " + fromType + ")" + alias;
+        }
+
+        if ( dataClause.isEmpty() )
+        {
+            return fromType + alias;
+        }
+
+        return "case when " + dataClause + " then " + fromType + " end" + alias;
     }
 
     private String selectForInsert( TrackedEntityAttribute attribute, String fromType, String dataClause )
@@ -484,27 +474,31 @@ public class JdbcEventAnalyticsTableManager
     private List<AnalyticsTableColumn> getColumnFromDataElementWithLegendSet( DataElement dataElement, String select,
         String dataClause )
     {
+        String value = dataClause.isEmpty() ? select : "case when " + dataClause + " then " + select + " end";
+
         return dataElement.getLegendSets().stream().map( ls -> {
             String column = quote( dataElement.getUid() + PartitionUtils.SEP + ls.getUid() );
 
             String sql =
                 "(select l.uid from maplegend l " +
-                    "inner join programstageinstance on l.startvalue <= " + select + " " +
-                    "and l.endvalue > " + select + " " +
-                    "and l.maplegendsetid=" + ls.getId() + " " +
-                    "and programstageinstanceid=psi.programstageinstanceid " +
-                    dataClause + ") as " + column;
+                    "where l.startvalue <= " + value + " " +
+                    "and l.endvalue > " + value + " " +
+                    "and l.maplegendsetid=" + ls.getId() + ") as " + column;
             return new AnalyticsTableColumn( column, CHARACTER_11, sql );
         } ).collect( Collectors.toList() );
     }
 
+    /**
+     * Returns a condition which matches valid values of the given value type,
+     * or an empty string if all values are valid.
+     */
     private String getDataClause( String uid, ValueType valueType )
     {
         if ( valueType.isNumeric() || valueType.isDate() )
         {
             String regex = valueType.isNumeric() ? NUMERIC_LENIENT_REGEXP : valueType.isDate() ? DATE_REGEXP : "";
 
-            return " and eventdatavalues #>> '{" + uid + ",value}' " + statementBuilder.getRegexpMatch() + " '" + regex + "'";
+            return "psi.eventdatavalues #>> '{" + uid + ",value}' " + statementBuilder.getRegexpMatch() + " '" + regex + "'";
         }
 
         return "";
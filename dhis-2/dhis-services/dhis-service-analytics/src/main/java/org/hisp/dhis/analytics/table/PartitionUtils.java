@@ -34,12 +34,14 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.hisp.dhis.analytics.AnalyticsPartitionGranularity;
 import org.hisp.dhis.analytics.AnalyticsTable;
 import org.hisp.dhis.analytics.AnalyticsTablePartition;
 import org.hisp.dhis.analytics.AnalyticsTableType;
 import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.analytics.Partitions;
 import org.hisp.dhis.calendar.Calendar;
+import org.hisp.dhis.calendar.DateTimeUnit;
 import org.hisp.dhis.common.DimensionalItemObject;
 import org.hisp.dhis.common.ListMap;
 import org.hisp.dhis.period.Period;
@@ -84,6 +86,96 @@ public class PartitionUtils
         return getStartDate( calendar, nextYear );
     }
 
+    /**
+     * Returns the start date for the given year and month, inclusive.
+     *
+     * @param calendar the calendar to base the date on.
+     * @param year the year.
+     * @param month the month.
+     * @return the start date.
+     */
+    public static Date getStartDate( Calendar calendar, Integer year, Integer month )
+    {
+        return calendar.toIso( year, month, 1 ).toJdkDate();
+    }
+
+    /**
+     * Returns the partition identifier for the given year and start month.
+     * Sub-year partitions are identified on the form yyyyMM.
+     *
+     * @param year the year.
+     * @param month the start month.
+     * @return the partition identifier.
+     */
+    public static Integer getPartition( Integer year, Integer month )
+    {
+        return year * 100 + month;
+    }
+
+    /**
+     * Returns the year of the given partition identifier.
+     *
+     * @param partition the partition identifier.
+     * @return the year.
+     */
+    public static Integer getYear( Integer partition )
+    {
+        return partition > 9999 ? partition / 100 : partition;
+    }
+
+    /**
+     * Returns the identifiers of all partitions the given year can have with
+     * any granularity, which is the year itself and the yyyyMM identifier of
+     * each month of the year.
+     *
+     * @param calendar the calendar to base the months on.
+     * @param year the year.
+     * @return the partition identifiers.
+     */
+    public static Set<Integer> getAllPartitions( Calendar calendar, Integer year )
+    {
+        Set<Integer> partitions = new HashSet<>();
+        partitions.add( year );
+
+        for ( int month = 1; month <= calendar.monthsInYear(); month++ )
+        {
+            partitions.add( getPartition( year, month ) );
+        }
+
+        return partitions;
+    }
+
+    /**
+     * Adds partition tables for the given year to the given analytics table.
+     * One partition is added for yearly granularity, otherwise one partition
+     * is added for each quarter or month of the year.
+     *
+     * @param table the {@link AnalyticsTable}.
+     * @param calendar the calendar to base the dates on.
+     * @param year the year.
+     * @param granularity the {@link AnalyticsPartitionGranularity}.
+     */
+    public static void addPartitionTables( AnalyticsTable table, Calendar calendar, Integer year, AnalyticsPartitionGranularity granularity )
+    {
+        if ( !isSubYear( granularity ) )
+        {
+            table.addPartitionTable( year, getStartDate( calendar, year ), getEndDate( calendar, year ) );
+            return;
+        }
+
+        int monthsInYear = calendar.monthsInYear();
+
+        for ( int month = 1; month <= monthsInYear; month += granularity.getMonths() )
+        {
+            int nextMonth = month + granularity.getMonths();
+
+            Date startDate = month == 1 ? getStartDate( calendar, year ) : getStartDate( calendar, year, month );
+            Date endDate = nextMonth > monthsInYear ? getEndDate( calendar, year ) : getStartDate( calendar, year, nextMonth );
+
+            table.addPartitionTable( year, getPartition( year, month ), startDate, endDate );
+        }
+    }
+
     /**
      * Returns the table name of the table with the given base name and program.
      *
@@ -104,14 +196,26 @@ public class PartitionUtils
      */
     public static Partitions getPartitions( List<DimensionalItemObject> periods )
     {
-        final Set<Integer> years = new HashSet<>();
+        return getPartitions( periods, AnalyticsPartitionGranularity.YEARLY );
+    }
+
+    /**
+     * Returns partitions of the given granularity for the given list of periods.
+     *
+     * @param periods the periods.
+     * @param granularity the {@link AnalyticsPartitionGranularity}.
+     * @return partitions for the given list of periods.
+     */
+    public static Partitions getPartitions( List<DimensionalItemObject> periods, AnalyticsPartitionGranularity granularity )
+    {
+        final Set<Integer> partitions = new HashSet<>();
 
         periods.forEach( p -> {
             Period period = (Period) p;
-            years.addAll( getYears( period ) );
+            partitions.addAll( getPartitions( period, granularity ).getPartitions() );
         } );
 
-        return new Partitions( years );
+        return new Partitions( partitions );
     }
 
     /**
@@ -122,7 +226,19 @@ public class PartitionUtils
      */
     public static Partitions getPartitions( Period period )
     {
-        return new Partitions( getYears( period ) );
+        return getPartitions( period, AnalyticsPartitionGranularity.YEARLY );
+    }
+
+    /**
+     * Returns partitions of the given granularity for the given period.
+     *
+     * @param period the period.
+     * @param granularity the {@link AnalyticsPartitionGranularity}.
+     * @return partitions for the given period.
+     */
+    public static Partitions getPartitions( Period period, AnalyticsPartitionGranularity granularity )
+    {
+        return new Partitions( isSubYear( granularity ) ? getSubYearPartitions( period, granularity ) : getYears( period ) );
     }
 
     /**
@@ -133,12 +249,25 @@ public class PartitionUtils
      * @return partitions for the given start and end date.
      */
     public static Partitions getPartitions( Date startDate, Date endDate )
+    {
+        return getPartitions( startDate, endDate, AnalyticsPartitionGranularity.YEARLY );
+    }
+
+    /**
+     * Returns partitions of the given granularity for the given start and end date.
+     *
+     * @param startDate the start date.
+     * @param endDate the end date.
+     * @param granularity the {@link AnalyticsPartitionGranularity}.
+     * @return partitions for the given start and end date.
+     */
+    public static Partitions getPartitions( Date startDate, Date endDate, AnalyticsPartitionGranularity granularity )
     {
         Period period = new Period();
         period.setStartDate( startDate );
         period.setEndDate( endDate );
 
-        return getPartitions( period );
+        return getPartitions( period, granularity );
     }
 
     /**
@@ -151,10 +280,25 @@ public class PartitionUtils
      * @return partitions for query and planner parameters.
      */
     public static Partitions getPartitions( DataQueryParams params, AnalyticsTableType tableType )
+    {
+        return getPartitions( params, tableType, AnalyticsPartitionGranularity.YEARLY );
+    }
+
+    /**
+     * Returns partitions of the given granularity for the given {@link DataQueryParams}
+     * and {@link AnalyticsTableType}. Includes a "latest" partition depending on the
+     * given table type.
+     *
+     * @param params the {@link DataQueryParams}.
+     * @param tableType the {@link AnalyticsTableType}.
+     * @param granularity the {@link AnalyticsPartitionGranularity}.
+     * @return partitions for query and planner parameters.
+     */
+    public static Partitions getPartitions( DataQueryParams params, AnalyticsTableType tableType, AnalyticsPartitionGranularity granularity )
     {
         Partitions partitions = params.hasStartEndDate() ?
-            getPartitions( params.getStartDate(), params.getEndDate() ) :
-            getPartitions( params.getAllPeriods() );
+            getPartitions( params.getStartDate(), params.getEndDate(), granularity ) :
+            getPartitions( params.getAllPeriods(), granularity );
 
         if ( tableType.hasLatestPartition() )
         {
@@ -186,6 +330,47 @@ public class PartitionUtils
         return years;
     }
 
+    /**
+     * Returns the sub-year partitions of the given granularity which the given
+     * period spans.
+     *
+     * @param period the period.
+     * @param granularity the {@link AnalyticsPartitionGranularity}.
+     * @return a set of partition identifiers.
+     */
+    private static Set<Integer> getSubYearPartitions( Period period, AnalyticsPartitionGranularity granularity )
+    {
+        Set<Integer> partitions = new HashSet<>();
+
+        Calendar calendar = PeriodType.getCalendar();
+
+        DateTimeUnit start = calendar.fromIso( period.getStartDate() );
+        DateTimeUnit end = calendar.fromIso( period.getEndDate() );
+
+        int year = start.getYear();
+        int month = start.getMonth();
+
+        while ( year < end.getYear() || ( year == end.getYear() && month <= end.getMonth() ) )
+        {
+            int startMonth = ( ( month - 1 ) / granularity.getMonths() ) * granularity.getMonths() + 1;
+
+            partitions.add( getPartition( year, startMonth ) );
+
+            if ( ++month > calendar.monthsInYear() )
+            {
+                month = 1;
+                year++;
+            }
+        }
+
+        return partitions;
+    }
+
+    private static boolean isSubYear( AnalyticsPartitionGranularity granularity )
+    {
+        return granularity != null && granularity.isSubYear();
+    }
+
     /**
      * Creates a mapping between period type name and period for the given periods.
      */
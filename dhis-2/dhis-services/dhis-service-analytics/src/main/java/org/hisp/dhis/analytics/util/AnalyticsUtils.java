@@ -89,6 +89,8 @@ import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.program.Program;
 import org.hisp.dhis.program.ProgramIndicator;
 import org.hisp.dhis.program.ProgramStage;
+import org.hisp.dhis.system.grid.ColumnarGrid;
+import org.hisp.dhis.system.grid.ListGrid;
 import org.hisp.dhis.system.util.MathUtils;
 import org.hisp.dhis.system.util.ReflectionUtils;
 import org.hisp.dhis.util.DateUtils;
@@ -110,6 +112,40 @@ public class AnalyticsUtils
 
     public static final String ERR_MSG_TABLE_NOT_EXISTING = "Query failed, likely because the requested analytics table does not exist";
 
+    /**
+     * Minimum number of potential grid rows for which a columnar grid is used.
+     */
+    public static final long COLUMNAR_GRID_MIN_ROWS = 50_000;
+
+    /**
+     * Returns a new grid for the given query. A {@link ColumnarGrid} is
+     * returned if the product of the number of items of the query dimensions
+     * is at least {@link #COLUMNAR_GRID_MIN_ROWS}, as the response is then
+     * potentially large, otherwise a {@link ListGrid} is returned.
+     *
+     * @param params the data query parameters.
+     * @return a new grid.
+     */
+    public static Grid newGrid( DataQueryParams params )
+    {
+        long rows = 1;
+
+        for ( DimensionalObject dimension : params.getDimensions() )
+        {
+            if ( dimension.hasItems() )
+            {
+                rows *= dimension.getItems().size();
+
+                if ( rows >= COLUMNAR_GRID_MIN_ROWS )
+                {
+                    return new ColumnarGrid();
+                }
+            }
+        }
+
+        return new ListGrid();
+    }
+
     /**
      * Returns an SQL statement for retrieving raw data values for
      * an aggregate query.
@@ -0,0 +1,145 @@
+package org.hisp.dhis.analytics.util;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Consumer;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.jdbc.support.rowset.ResultSetWrappingSqlRowSet;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+/**
+ * Connection callback which executes a query through a forward-only, read-only
+ * cursor and passes the connected result to a consumer as a {@link SqlRowSet}.
+ * <p>
+ * As opposed to {@link JdbcTemplate#queryForRowSet(String)}, which buffers the
+ * entire result in a disconnected row set before any row can be processed, rows
+ * are fetched from the database in batches of the given fetch size. Peak memory
+ * use is hence bounded by the fetch size and not by the size of the result.
+ * <p>
+ * The PostgreSQL driver only uses a cursor when auto-commit is disabled, so
+ * auto-commit is switched off for the duration of the query and restored
+ * afterwards. The row set is only valid within the consumer.
+ */
+public class StreamingRowSetCallback
+    implements ConnectionCallback<Void>, SqlProvider
+{
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private final String sql;
+
+    private final int fetchSize;
+
+    private final Consumer<SqlRowSet> consumer;
+
+    /**
+     * Constructor.
+     *
+     * @param sql the SQL query.
+     * @param fetchSize the number of rows to fetch per round trip, the
+     *        {@link #DEFAULT_FETCH_SIZE} is used if zero or negative.
+     * @param consumer the consumer of the row set.
+     */
+    public StreamingRowSetCallback( String sql, int fetchSize, Consumer<SqlRowSet> consumer )
+    {
+        checkNotNull( sql );
+        checkNotNull( consumer );
+
+        this.sql = sql;
+        this.fetchSize = fetchSize > 0 ? fetchSize : DEFAULT_FETCH_SIZE;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Executes the given SQL query using the fetch size of the given
+     * {@link JdbcTemplate}, and passes the streamed row set to the given
+     * consumer.
+     *
+     * @param jdbcTemplate the {@link JdbcTemplate}.
+     * @param sql the SQL query.
+     * @param consumer the consumer of the row set.
+     */
+    public static void queryForStream( JdbcTemplate jdbcTemplate, String sql, Consumer<SqlRowSet> consumer )
+    {
+        jdbcTemplate.execute( new StreamingRowSetCallback( sql, jdbcTemplate.getFetchSize(), consumer ) );
+    }
+
+    @Override
+    public Void doInConnection( Connection connection )
+        throws SQLException
+    {
+        boolean autoCommit = connection.getAutoCommit();
+
+        try
+        {
+            if ( autoCommit )
+            {
+                connection.setAutoCommit( false );
+            }
+
+            try ( Statement statement = connection.createStatement( ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY ) )
+            {
+                statement.setFetchSize( fetchSize );
+
+                try ( ResultSet resultSet = statement.executeQuery( sql ) )
+                {
+                    consumer.accept( new ResultSetWrappingSqlRowSet( resultSet ) );
+                }
+            }
+        }
+        finally
+        {
+            if ( autoCommit )
+            {
+                connection.setAutoCommit( true );
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public String getSql()
+    {
+        return sql;
+    }
+
+    public int getFetchSize()
+    {
+        return fetchSize;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.analytics.cache;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class QueryCoalescerTest
+{
+    private final QueryCoalescer<Object> subject = new QueryCoalescer<>( "test", new SimpleMeterRegistry() );
+
+    @Test
+    public void testConcurrentIdenticalQueriesAreExecutedOnce()
+        throws Exception
+    {
+        // Given
+        final int callers = 4;
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final AtomicInteger executions = new AtomicInteger();
+        final Object result = new Object();
+
+        final ExecutorService executor = Executors.newFixedThreadPool( callers );
+        final List<Future<Object>> futures = new ArrayList<>();
+
+        // When
+        futures.add( executor.submit( () -> subject.execute( "key", () -> {
+            executions.incrementAndGet();
+            started.countDown();
+            await( release );
+            return result;
+        } ) ) );
+
+        started.await( 5, TimeUnit.SECONDS );
+
+        for ( int i = 1; i < callers; i++ )
+        {
+            futures.add( executor.submit( () -> subject.execute( "key", () -> {
+                executions.incrementAndGet();
+                return new Object();
+            } ) ) );
+        }
+
+        while ( subject.getCoalescedCount() < callers - 1 )
+        {
+            Thread.sleep( 10 );
+        }
+
+        release.countDown();
+
+        // Then
+        for ( Future<Object> future : futures )
+        {
+            assertThat( future.get( 5, TimeUnit.SECONDS ), is( sameInstance( result ) ) );
+        }
+
+        assertThat( executions.get(), is( 1 ) );
+        assertThat( subject.getCoalescedCount(), is( (long) callers - 1 ) );
+
+        executor.shutdown();
+    }
+
+    @Test
+    public void testSequentialQueriesAreExecutedEachTime()
+    {
+        // Given
+        final AtomicInteger executions = new AtomicInteger();
+
+        // When
+        subject.execute( "key", executions::incrementAndGet );
+        subject.execute( "key", executions::incrementAndGet );
+
+        // Then
+        assertThat( executions.get(), is( 2 ) );
+        assertThat( subject.getCoalescedCount(), is( 0L ) );
+    }
+
+    @Test
+    public void testFailureIsPropagatedAndNotRetained()
+    {
+        // Given
+        final IllegalStateException failure = new IllegalStateException( "Query failed" );
+
+        // When
+        try
+        {
+            subject.execute( "key", () -> {
+                throw failure;
+            } );
+
+            fail( "IllegalStateException was expected." );
+        }
+        catch ( IllegalStateException ex )
+        {
+            assertThat( ex, is( sameInstance( failure ) ) );
+        }
+
+        // Then
+        assertThat( subject.execute( "key", () -> "value" ), is( "value" ) );
+    }
+
+    private static void await( CountDownLatch latch )
+    {
+        try
+        {
+            latch.await( 5, TimeUnit.SECONDS );
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
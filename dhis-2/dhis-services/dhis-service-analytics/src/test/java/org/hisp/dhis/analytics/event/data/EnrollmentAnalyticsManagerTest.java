@@ -31,7 +31,6 @@ package org.hisp.dhis.analytics.event.data;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hisp.dhis.DhisConvenienceTest.*;
-import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -39,6 +38,7 @@ import java.util.Date;
 
 import org.hisp.dhis.analytics.event.EventQueryParams;
 import org.hisp.dhis.analytics.event.data.programindicator.DefaultProgramIndicatorSubqueryBuilder;
+import org.hisp.dhis.analytics.util.StreamingRowSetCallback;
 import org.hisp.dhis.common.ValueType;
 import org.hisp.dhis.jdbc.StatementBuilder;
 import org.hisp.dhis.jdbc.statementbuilder.PostgreSQLStatementBuilder;
@@ -59,7 +59,6 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 
 /**
  * @author Luciano Fiandesio
@@ -73,14 +72,11 @@ public class EnrollmentAnalyticsManagerTest
     @Mock
     private JdbcTemplate jdbcTemplate;
 
-    @Mock
-    private SqlRowSet rowSet;
-
     @Mock
     private ProgramIndicatorService programIndicatorService;
 
     @Captor
-    private ArgumentCaptor<String> sql;
+    private ArgumentCaptor<StreamingRowSetCallback> callback;
 
     @Rule
     public MockitoRule mockitoRule = MockitoJUnit.rule();
@@ -91,8 +87,6 @@ public class EnrollmentAnalyticsManagerTest
 
     @Before
     public void setUp() {
-        when( jdbcTemplate.queryForRowSet( anyString() ) ).thenReturn( this.rowSet );
-
         StatementBuilder statementBuilder = new PostgreSQLStatementBuilder();
         DefaultProgramIndicatorSubqueryBuilder programIndicatorSubqueryBuilder = new DefaultProgramIndicatorSubqueryBuilder(
             programIndicatorService );
@@ -107,12 +101,12 @@ public class EnrollmentAnalyticsManagerTest
 
         subject.getEnrollments(params, new ListGrid(), 10000);
 
-        verify(jdbcTemplate).queryForRowSet(sql.capture());
+        verify( jdbcTemplate ).execute( callback.capture() );
 
         String expected = "ax.\"monthly\",ax.\"ou\"  from " + getTable(programA.getUid())
                 + " as ax where enrollmentdate >= '2017-01-01' and enrollmentdate <= '2017-12-31' and (uidlevel0 = 'ouabcdefghA' ) limit 10001";
 
-        assertSql( sql.getValue(), expected );
+        assertSql( callback.getValue().getSql(), expected );
 
     }
 
@@ -132,7 +126,7 @@ public class EnrollmentAnalyticsManagerTest
 
         subject.getEnrollments(params, new ListGrid(), 100);
 
-        verify(jdbcTemplate).queryForRowSet(sql.capture());
+        verify( jdbcTemplate ).execute( callback.capture() );
 
         String subSelect = "(select \"fWIAEtYVEGk\" from analytics_event_" + programA.getUid()
                 + " where analytics_event_" + programA.getUid() + ".pi = ax.pi and \"fWIAEtYVEGk\" is not null and ps = '"
@@ -142,7 +136,7 @@ public class EnrollmentAnalyticsManagerTest
                 + " as ax where ax.\"monthly\" in ('2000Q1') and (uidlevel0 = 'ouabcdefghA' ) " + "and ps = '"
                 + programStage.getUid() + "' limit 101";
 
-        assertSql( sql.getValue(), expected );
+        assertSql( callback.getValue().getSql(), expected );
     }
 
     @Test
@@ -152,7 +146,7 @@ public class EnrollmentAnalyticsManagerTest
 
         subject.getEnrollments(params, new ListGrid(), 10000);
 
-        verify(jdbcTemplate).queryForRowSet(sql.capture());
+        verify( jdbcTemplate ).execute( callback.capture() );
 
         String subSelect = "(select \"fWIAEtYVEGk\" from analytics_event_" + programA.getUid()  + " where analytics_event_"
             + programA.getUid()  + ".pi = ax.pi and \"fWIAEtYVEGk\" is not null and ps = '"
@@ -162,7 +156,7 @@ public class EnrollmentAnalyticsManagerTest
             + " as ax where ax.\"monthly\" in ('2000Q1') and (uidlevel0 = 'ouabcdefghA' ) "
             + "and ps = '" + programStage.getUid() + "' and lower(" + subSelect + ") > '10' limit 10001";
 
-        assertSql( sql.getValue(), expected );
+        assertSql( callback.getValue().getSql(), expected );
     }
 
     @Test
@@ -172,7 +166,7 @@ public class EnrollmentAnalyticsManagerTest
 
         subject.getEnrollments(params, new ListGrid(), 10000);
 
-        verify(jdbcTemplate).queryForRowSet(sql.capture());
+        verify( jdbcTemplate ).execute( callback.capture() );
 
         String subSelect = "(select \"fWIAEtYVEGk\" from analytics_event_" + programA.getUid()  + " where analytics_event_"
             + programA.getUid()  + ".pi = ax.pi and \"fWIAEtYVEGk\" is not null and ps = '"
@@ -182,7 +176,7 @@ public class EnrollmentAnalyticsManagerTest
             + " as ax where ax.\"monthly\" in ('2000Q1') and (uidlevel0 = 'ouabcdefghA' ) "
             + "and ps = '" + programStage.getUid() + "' and " + subSelect + " > '10' limit 10001";
 
-        assertSql( sql.getValue(), expected );
+        assertSql( callback.getValue().getSql(), expected );
     }
 
     @Test
@@ -206,7 +200,7 @@ public class EnrollmentAnalyticsManagerTest
 
         subject.getEnrollments( params.build(), new ListGrid(), 100 );
 
-        verify( jdbcTemplate ).queryForRowSet( sql.capture() );
+        verify( jdbcTemplate ).execute( callback.capture() );
 
         String expected = "ax.\"monthly\",ax.\"ou\",(SELECT avg (" + piSubquery + ") FROM analytics_event_"
                 + programA.getUid().toLowerCase() + " as subax WHERE  "
@@ -220,7 +214,7 @@ public class EnrollmentAnalyticsManagerTest
                 + "\"  " + "from analytics_enrollment_" + programA.getUid()
                 + " as ax where enrollmentdate >= '2015-01-01' and enrollmentdate <= '2017-04-08' and (uidlevel0 = 'ouabcdefghA' ) limit 101";
 
-        assertSql( sql.getValue(), expected );
+        assertSql( callback.getValue().getSql(), expected );
     }
 
     @Test
@@ -245,7 +239,7 @@ public class EnrollmentAnalyticsManagerTest
 
         subject.getEnrollments( params.build(), new ListGrid(), 100 );
 
-        verify( jdbcTemplate ).queryForRowSet( sql.capture() );
+        verify( jdbcTemplate ).execute( callback.capture() );
 
         String expected = "ax.\"monthly\",ax.\"ou\",(SELECT avg (" + piSubquery + ") FROM analytics_event_"
             + programA.getUid().toLowerCase() + " as subax WHERE "
@@ -258,7 +252,7 @@ public class EnrollmentAnalyticsManagerTest
             + "from analytics_enrollment_" + programA.getUid()
             + " as ax where enrollmentdate >= '2015-01-01' and enrollmentdate <= '2017-04-08' and (uidlevel0 = 'ouabcdefghA' ) limit 101";
 
-        assertSql( sql.getValue(), expected );
+        assertSql( callback.getValue().getSql(), expected );
     }
 
     @Override
@@ -312,7 +306,7 @@ public class EnrollmentAnalyticsManagerTest
 
         subject.getEnrollments( params.build(), new ListGrid(), 100 );
 
-        verify( jdbcTemplate ).queryForRowSet( sql.capture() );
+        verify( jdbcTemplate ).execute( callback.capture() );
 
         String expected = "ax.\"monthly\",ax.\"ou\",(SELECT avg (" + piSubquery + ") FROM analytics_event_"
             + programB.getUid().toLowerCase() + " as subax WHERE  "
@@ -326,6 +320,6 @@ public class EnrollmentAnalyticsManagerTest
             + "\"  " + "from analytics_enrollment_" + programA.getUid()
             + " as ax where enrollmentdate >= '2015-01-01' and enrollmentdate <= '2017-04-08' and (uidlevel0 = 'ouabcdefghA' ) limit 101";
 
-        assertSql( sql.getValue(), expected );
+        assertSql( callback.getValue().getSql(), expected );
     }
 }
@@ -52,6 +52,7 @@ import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.analytics.DataType;
 import org.hisp.dhis.analytics.event.EventQueryParams;
 import org.hisp.dhis.analytics.event.data.programindicator.DefaultProgramIndicatorSubqueryBuilder;
+import org.hisp.dhis.analytics.util.StreamingRowSetCallback;
 import org.hisp.dhis.common.BaseDimensionalObject;
 import org.hisp.dhis.common.DimensionType;
 import org.hisp.dhis.common.Grid;
@@ -98,6 +99,9 @@ public class EventsAnalyticsManagerTest extends EventAnalyticsTest
     @Captor
     private ArgumentCaptor<String> sql;
 
+    @Captor
+    private ArgumentCaptor<StreamingRowSetCallback> callback;
+
     private final String TABLE_NAME = "analytics_event";
     private final String DEFAULT_COLUMNS_WITH_REGISTRATION = "psi,ps,executiondate,enrollmentdate,incidentdate,tei,pi,ST_AsGeoJSON(psigeometry, 6) as geometry,longitude,latitude,ouname,oucode";
 
@@ -122,12 +126,12 @@ public class EventsAnalyticsManagerTest extends EventAnalyticsTest
 
         subject.getEvents( createRequestParams(), createGrid(), 100 );
 
-        verify( jdbcTemplate ).queryForRowSet( sql.capture() );
+        verify( jdbcTemplate ).execute( callback.capture() );
 
         String expected = "select psi,ps,executiondate,ST_AsGeoJSON(psigeometry, 6) as geometry,longitude,latitude,ouname,oucode,ax.\"monthly\",ax.\"ou\"  from " + getTable( programA.getUid() )
                 + " as ax where ax.\"monthly\" in ('2000Q1') and (ax.\"uidlevel0\" = 'ouabcdefghA' ) limit 101";
 
-        assertThat( sql.getValue(), is(expected) );
+        assertThat( callback.getValue().getSql(), is(expected) );
     }
 
     @Test
@@ -141,13 +145,13 @@ public class EventsAnalyticsManagerTest extends EventAnalyticsTest
 
         subject.getEvents( createRequestParams( queryItem ), createGrid(), 100 );
 
-        verify( jdbcTemplate ).queryForRowSet( sql.capture() );
+        verify( jdbcTemplate ).execute( callback.capture() );
 
         String expected = "select psi,ps,executiondate,enrollmentdate,incidentdate,tei,pi,ST_AsGeoJSON(psigeometry, 6) " +
                 "as geometry,longitude,latitude,ouname,oucode,ax.\"monthly\",ax.\"ou\",\"" + dataElement.getUid() + "_name" + "\"  " +
                 "from " + getTable( programA.getUid() ) + " as ax where ax.\"monthly\" in ('2000Q1') and (ax.\"uidlevel0\" = 'ouabcdefghA' ) limit 101";
 
-        assertThat( sql.getValue(), is(expected) );
+        assertThat( callback.getValue().getSql(), is(expected) );
     }
 
 
@@ -158,12 +162,12 @@ public class EventsAnalyticsManagerTest extends EventAnalyticsTest
 
         subject.getEvents( createRequestParams(), createGrid(), 100 );
 
-        verify( jdbcTemplate ).queryForRowSet( sql.capture() );
+        verify( jdbcTemplate ).execute( callback.capture() );
 
         String expected = "ax.\"monthly\",ax.\"ou\"  from " + getTable( programA.getUid() )
             + " as ax where ax.\"monthly\" in ('2000Q1') and (ax.\"uidlevel0\" = 'ouabcdefghA' ) limit 101";
 
-        assertSql( expected, sql.getValue() );
+        assertSql( expected, callback.getValue().getSql() );
     }
 
     @Test
@@ -174,13 +178,13 @@ public class EventsAnalyticsManagerTest extends EventAnalyticsTest
         subject.getEvents( createRequestParams( programStage ), createGrid(),
                 100 );
 
-        verify( jdbcTemplate ).queryForRowSet( sql.capture() );
+        verify( jdbcTemplate ).execute( callback.capture() );
 
         String expected = "ax.\"monthly\",ax.\"ou\"  from " + getTable( programA.getUid() )
             + " as ax where ax.\"monthly\" in ('2000Q1') and (ax.\"uidlevel0\" = 'ouabcdefghA' ) and ax.\"ps\" = '"
             + programStage.getUid() + "' limit 101";
 
-        assertSql( expected, sql.getValue() );
+        assertSql( expected, callback.getValue().getSql() );
     }
 
     @Test
@@ -191,13 +195,13 @@ public class EventsAnalyticsManagerTest extends EventAnalyticsTest
         subject.getEvents( createRequestParams( programStage, ValueType.INTEGER ), createGrid(),
                 100 );
 
-        verify( jdbcTemplate ).queryForRowSet( sql.capture() );
+        verify( jdbcTemplate ).execute( callback.capture() );
 
         String expected = "ax.\"monthly\",ax.\"ou\",ax.\"fWIAEtYVEGk\"  from " + getTable( programA.getUid() )
             + " as ax where ax.\"monthly\" in ('2000Q1') and (ax.\"uidlevel0\" = 'ouabcdefghA' ) and ax.\"ps\" = '"
             + programStage.getUid() + "' limit 101";
 
-        assertSql( expected, sql.getValue() );
+        assertSql( expected, callback.getValue().getSql() );
     }
 
     @Test
@@ -208,13 +212,13 @@ public class EventsAnalyticsManagerTest extends EventAnalyticsTest
         subject.getEvents( createRequestParamsWithFilter( programStage, ValueType.INTEGER ), createGrid(),
                 100 );
 
-        verify( jdbcTemplate ).queryForRowSet( sql.capture() );
+        verify( jdbcTemplate ).execute( callback.capture() );
 
         String expected = "ax.\"monthly\",ax.\"ou\",ax.\"fWIAEtYVEGk\"  from " + getTable( programA.getUid() )
             + " as ax where ax.\"monthly\" in ('2000Q1') and (ax.\"uidlevel0\" = 'ouabcdefghA' ) and ax.\"ps\" = '"
             + programStage.getUid() + "' and ax.\"fWIAEtYVEGk\" > '10' limit 101";
 
-        assertSql( expected, sql.getValue() );
+        assertSql( expected, callback.getValue().getSql() );
     }
 
 
@@ -226,13 +230,13 @@ public class EventsAnalyticsManagerTest extends EventAnalyticsTest
         subject.getEvents( createRequestParams( programStage, ValueType.TEXT ), createGrid(),
                 100 );
 
-        verify( jdbcTemplate ).queryForRowSet( sql.capture() );
+        verify( jdbcTemplate ).execute( callback.capture() );
 
         String expected = "ax.\"monthly\",ax.\"ou\",ax.\"fWIAEtYVEGk\"  from " + getTable( programA.getUid() )
             + " as ax where ax.\"monthly\" in ('2000Q1') and (ax.\"uidlevel0\" = 'ouabcdefghA' ) and ax.\"ps\" = '"
             + programStage.getUid() + "' limit 101";
 
-        assertSql( expected, sql.getValue() );
+        assertSql( expected, callback.getValue().getSql() );
     }
 
     @Test
@@ -242,13 +246,13 @@ public class EventsAnalyticsManagerTest extends EventAnalyticsTest
 
         subject.getEvents( createRequestParamsWithFilter( programStage, ValueType.TEXT ), createGrid(), 100 );
 
-        verify( jdbcTemplate ).queryForRowSet( sql.capture() );
+        verify( jdbcTemplate ).execute( callback.capture() );
 
         String expected = "ax.\"monthly\",ax.\"ou\",ax.\"fWIAEtYVEGk\"  from " + getTable( programA.getUid() )
             + " as ax where ax.\"monthly\" in ('2000Q1') and (ax.\"uidlevel0\" = 'ouabcdefghA' ) and ax.\"ps\" = '"
             + programStage.getUid() + "' and lower(ax.\"fWIAEtYVEGk\") > '10' limit 101";
 
-        assertSql( expected, sql.getValue() );
+        assertSql( expected, callback.getValue().getSql() );
     }
 
     @Test
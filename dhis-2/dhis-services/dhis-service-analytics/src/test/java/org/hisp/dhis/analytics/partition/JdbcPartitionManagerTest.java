@@ -0,0 +1,125 @@
+package org.hisp.dhis.analytics.partition;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.hisp.dhis.analytics.AnalyticsTablePartition;
+import org.hisp.dhis.analytics.Partitions;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class JdbcPartitionManagerTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private JdbcPartitionManager partitionManager;
+
+    @Before
+    public void setUp()
+    {
+        when( jdbcTemplate.queryForObject( anyString(), eq( Integer.class ) ) ).thenReturn( 0 );
+    }
+
+    @Test
+    public void testFilterExistingPartitions()
+    {
+        mockTableExists( "analytics_201901" );
+        mockTableExists( "analytics_201902" );
+
+        Partitions partitions = new Partitions( Sets.newHashSet( 201901, 201902 ) );
+
+        partitionManager.filterNonExistingPartitions( partitions, "analytics" );
+
+        assertEquals( Sets.newHashSet( 201901, 201902 ), partitions.getPartitions() );
+        verify( jdbcTemplate, never() ).queryForList( anyString(), eq( String.class ) );
+    }
+
+    @Test
+    public void testFilterPartitionsOfYearlyPartitionedYear()
+    {
+        when( jdbcTemplate.queryForList( contains( "'analytics_2019'" ), eq( String.class ) ) )
+            .thenReturn( Lists.newArrayList( "analytics_2019" ) );
+
+        Partitions partitions = new Partitions( Sets.newHashSet( 201901, 201902 ) );
+
+        partitionManager.filterNonExistingPartitions( partitions, "analytics" );
+
+        assertEquals( Sets.newHashSet( 2019 ), partitions.getPartitions() );
+    }
+
+    @Test
+    public void testFilterPartitionsOfMonthlyPartitionedYear()
+    {
+        when( jdbcTemplate.queryForList( contains( "'analytics_2018'" ), eq( String.class ) ) )
+            .thenReturn( Lists.newArrayList( "analytics_201801", "analytics_201802" ) );
+
+        Partitions partitions = new Partitions( Sets.newHashSet( 2018 ) );
+
+        partitionManager.filterNonExistingPartitions( partitions, "analytics" );
+
+        assertEquals( Sets.newHashSet( 201801, 201802 ), partitions.getPartitions() );
+    }
+
+    @Test
+    public void testFilterMissingLatestPartition()
+    {
+        Partitions partitions = new Partitions( Sets.newHashSet( AnalyticsTablePartition.LATEST_PARTITION ) );
+
+        partitionManager.filterNonExistingPartitions( partitions, "analytics" );
+
+        assertEquals( Sets.newHashSet(), partitions.getPartitions() );
+        verify( jdbcTemplate, never() ).queryForList( anyString(), eq( String.class ) );
+    }
+
+    private void mockTableExists( String table )
+    {
+        when( jdbcTemplate.queryForObject( contains( "'" + table + "'" ), eq( Integer.class ) ) ).thenReturn( 1 );
+    }
+}
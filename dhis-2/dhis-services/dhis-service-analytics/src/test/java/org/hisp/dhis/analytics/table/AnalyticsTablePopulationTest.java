@@ -0,0 +1,151 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.Sets;
+import org.hisp.dhis.IntegrationTest;
+import org.hisp.dhis.IntegrationTestBase;
+import org.hisp.dhis.analytics.AggregationType;
+import org.hisp.dhis.analytics.AnalyticsTableGenerator;
+import org.hisp.dhis.analytics.AnalyticsTableType;
+import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
+import org.hisp.dhis.category.CategoryService;
+import org.hisp.dhis.common.ValueType;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.DailyPeriodType;
+import org.hisp.dhis.period.PeriodService;
+import org.hisp.dhis.util.Timer;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Times the population of the aggregate analytics table on PostgreSQL. The
+ * population query relies on PostgreSQL regular expression matching and
+ * casts, which H2 can not run, so this is an integration test. It is ignored
+ * by default as generating the data values takes a while.
+ */
+@Category( IntegrationTest.class )
+public class AnalyticsTablePopulationTest
+    extends IntegrationTestBase
+{
+    private static final int ORG_UNIT_COUNT = 200;
+
+    @Autowired
+    private AnalyticsTableGenerator analyticsTableGenerator;
+
+    @Autowired
+    private DataElementService dataElementService;
+
+    @Autowired
+    private OrganisationUnitService organisationUnitService;
+
+    @Autowired
+    private PeriodService periodService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public boolean emptyDatabaseAfterTest()
+    {
+        return true;
+    }
+
+    @Override
+    public void tearDownTest()
+    {
+        analyticsTableGenerator.dropTables();
+    }
+
+    /**
+     * Populates one partition from 20 data elements of numeric, boolean and
+     * text value types, 365 daily periods and 200 org units, which is 1.46
+     * million data values.
+     */
+    @Test
+    @Ignore
+    public void testPopulateAnalyticsTable1m()
+    {
+        for ( char c = 'A'; c < 'A' + 20; c++ )
+        {
+            ValueType valueType = c < 'M' ? ValueType.INTEGER : c < 'Q' ? ValueType.BOOLEAN : ValueType.TEXT;
+
+            dataElementService.addDataElement( createDataElement( c, valueType, AggregationType.SUM ) );
+        }
+
+        OrganisationUnit ouA = createOrganisationUnit( 'A' );
+        organisationUnitService.addOrganisationUnit( ouA );
+
+        for ( int i = 1; i < ORG_UNIT_COUNT; i++ )
+        {
+            organisationUnitService.addOrganisationUnit( createOrganisationUnit( "OrganisationUnit" + i, ouA ) );
+        }
+
+        new DailyPeriodType().generatePeriods( getDate( 2019, 1, 1 ), getDate( 2019, 12, 31 ) )
+            .forEach( periodService::addPeriod );
+
+        dbmsManager.flushSession();
+
+        long coc = categoryService.getDefaultCategoryOptionCombo().getId();
+
+        jdbcTemplate.update(
+            "insert into datavalue (dataelementid, periodid, sourceid, categoryoptioncomboid, attributeoptioncomboid, " +
+                "value, created, lastupdated, deleted) " +
+            "select de.dataelementid, pe.periodid, ou.organisationunitid, ?, ?, " +
+                "case de.valuetype " +
+                    "when 'BOOLEAN' then case when random() < 0.5 then 'true' else 'false' end " +
+                    "when 'TEXT' then 'Text' " +
+                    "else cast(floor(random() * 100) + 1 as text) end, " +
+                "now(), now(), false " +
+            "from dataelement de cross join period pe cross join organisationunit ou",
+            coc, coc );
+
+        Timer timer = new Timer().start();
+        analyticsTableGenerator.generateTables( AnalyticsTableUpdateParams.newBuilder()
+            .withSkipTableTypes( Sets.newHashSet( AnalyticsTableType.COMPLETENESS,
+                AnalyticsTableType.COMPLETENESS_TARGET, AnalyticsTableType.ORG_UNIT_TARGET, AnalyticsTableType.EVENT,
+                AnalyticsTableType.ENROLLMENT, AnalyticsTableType.VALIDATION_RESULT ) )
+            .build() );
+        System.err.println( "Analytics table: " + timer.getTimeInS() + "s" );
+
+        assertEquals( 20 * 365 * ORG_UNIT_COUNT, jdbcTemplate.queryForObject(
+            "select count(*) from analytics", Integer.class ).intValue() );
+    }
+}
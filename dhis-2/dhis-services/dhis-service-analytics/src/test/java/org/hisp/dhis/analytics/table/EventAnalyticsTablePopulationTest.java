@@ -0,0 +1,179 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.Sets;
+import org.hisp.dhis.IntegrationTest;
+import org.hisp.dhis.IntegrationTestBase;
+import org.hisp.dhis.analytics.AnalyticsTableGenerator;
+import org.hisp.dhis.analytics.AnalyticsTableType;
+import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
+import org.hisp.dhis.category.CategoryService;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementDomain;
+import org.hisp.dhis.event.EventStatus;
+import org.hisp.dhis.eventdatavalue.EventDataValue;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.program.Program;
+import org.hisp.dhis.program.ProgramInstance;
+import org.hisp.dhis.program.ProgramInstanceService;
+import org.hisp.dhis.program.ProgramStage;
+import org.hisp.dhis.program.ProgramStageInstance;
+import org.hisp.dhis.program.ProgramStageInstanceService;
+import org.hisp.dhis.trackedentity.TrackedEntityInstance;
+import org.hisp.dhis.trackedentity.TrackedEntityType;
+import org.hisp.dhis.util.Timer;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Times the population of the event analytics table on PostgreSQL. The
+ * population query reads the data element columns from the event data values
+ * JSON, which H2 can not run, so this is an integration test. It is ignored
+ * by default as generating the events takes a while.
+ */
+@Category( IntegrationTest.class )
+public class EventAnalyticsTablePopulationTest
+    extends IntegrationTestBase
+{
+    private static final int EVENT_COUNT = 1_000_000;
+
+    private static final int DATA_ELEMENT_COUNT = 20;
+
+    @Autowired
+    private AnalyticsTableGenerator analyticsTableGenerator;
+
+    @Autowired
+    private IdentifiableObjectManager idObjectManager;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ProgramInstanceService programInstanceService;
+
+    @Autowired
+    private ProgramStageInstanceService programStageInstanceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public boolean emptyDatabaseAfterTest()
+    {
+        return true;
+    }
+
+    @Override
+    public void tearDownTest()
+    {
+        analyticsTableGenerator.dropTables();
+    }
+
+    @Test
+    @Ignore
+    public void testPopulateEventAnalyticsTable1m()
+    {
+        OrganisationUnit ouA = createOrganisationUnit( 'A' );
+        idObjectManager.save( ouA );
+
+        Set<DataElement> dataElements = new LinkedHashSet<>();
+
+        for ( int i = 0; i < DATA_ELEMENT_COUNT; i++ )
+        {
+            DataElement dataElement = createDataElement( (char) ('A' + i) );
+            dataElement.setDomainType( DataElementDomain.TRACKER );
+            idObjectManager.save( dataElement );
+            dataElements.add( dataElement );
+        }
+
+        Program programA = createProgram( 'A', null, null, Sets.newHashSet( ouA ), null );
+        idObjectManager.save( programA );
+
+        ProgramStage psA = createProgramStage( 'A', dataElements );
+        psA.setProgram( programA );
+        idObjectManager.save( psA );
+
+        programA.getProgramStages().add( psA );
+        idObjectManager.update( programA );
+
+        TrackedEntityType trackedEntityType = createTrackedEntityType( 'A' );
+        idObjectManager.save( trackedEntityType );
+
+        TrackedEntityInstance teiA = createTrackedEntityInstance( ouA );
+        teiA.setTrackedEntityType( trackedEntityType );
+        idObjectManager.save( teiA );
+
+        ProgramInstance piA = programInstanceService.enrollTrackedEntityInstance( teiA, programA, null, null, ouA );
+
+        Date eventDate = getDate( 2019, 6, 1 );
+
+        ProgramStageInstance psiA = new ProgramStageInstance( piA, psA );
+        psiA.setOrganisationUnit( ouA );
+        psiA.setAttributeOptionCombo( categoryService.getDefaultCategoryOptionCombo() );
+        psiA.setExecutionDate( eventDate );
+        psiA.setDueDate( eventDate );
+        psiA.setStatus( EventStatus.COMPLETED );
+        dataElements.forEach( de -> psiA.getEventDataValues().add( new EventDataValue( de.getUid(), "10" ) ) );
+        programStageInstanceService.addProgramStageInstance( psiA );
+
+        dbmsManager.flushSession();
+
+        // Copy the event, keeping its data values
+
+        jdbcTemplate.update(
+            "insert into programstageinstance (programstageinstanceid, uid, created, lastupdated, programinstanceid, " +
+                "programstageid, attributeoptioncomboid, deleted, executiondate, duedate, organisationunitid, status, eventdatavalues) " +
+            "select nextval('programstageinstance_sequence'), substr(md5(random()::text), 1, 11), created, lastupdated, programinstanceid, " +
+                "programstageid, attributeoptioncomboid, deleted, executiondate, duedate, organisationunitid, status, eventdatavalues " +
+            "from programstageinstance, generate_series(1, ?) where programstageinstanceid = ?",
+            EVENT_COUNT - 1, psiA.getId() );
+
+        Timer timer = new Timer().start();
+        analyticsTableGenerator.generateTables( AnalyticsTableUpdateParams.newBuilder()
+            .withSkipTableTypes( Sets.newHashSet( AnalyticsTableType.DATA_VALUE, AnalyticsTableType.COMPLETENESS,
+                AnalyticsTableType.COMPLETENESS_TARGET, AnalyticsTableType.ORG_UNIT_TARGET,
+                AnalyticsTableType.ENROLLMENT, AnalyticsTableType.VALIDATION_RESULT ) )
+            .build() );
+        System.err.println( "Event analytics table: " + timer.getTimeInS() + "s" );
+
+        assertEquals( EVENT_COUNT, jdbcTemplate.queryForObject(
+            "select count(*) from analytics_event_" + programA.getUid().toLowerCase(), Integer.class ).intValue() );
+    }
+}
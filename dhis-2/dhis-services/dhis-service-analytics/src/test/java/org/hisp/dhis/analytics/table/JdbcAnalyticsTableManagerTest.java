@@ -45,10 +45,12 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
+import org.hisp.dhis.analytics.AnalyticsPartitionGranularity;
 import org.hisp.dhis.analytics.AnalyticsTable;
 import org.hisp.dhis.analytics.AnalyticsTableHookService;
 import org.hisp.dhis.analytics.AnalyticsTableManager;
 import org.hisp.dhis.analytics.AnalyticsTablePartition;
+import org.hisp.dhis.analytics.AnalyticsTableType;
 import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
 import org.hisp.dhis.analytics.partition.PartitionManager;
 import org.hisp.dhis.category.CategoryService;
@@ -56,6 +58,7 @@ import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.dataapproval.DataApprovalLevelService;
 import org.hisp.dhis.jdbc.StatementBuilder;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.resourcetable.ResourceTableService;
 import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
@@ -63,6 +66,8 @@ import org.hisp.dhis.system.database.DatabaseInfo;
 import org.joda.time.DateTime;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import static org.junit.Assert.assertNotNull;
@@ -80,6 +85,9 @@ public class JdbcAnalyticsTableManagerTest
     @Mock
     private JdbcTemplate jdbcTemplate;
 
+    @Mock
+    private PartitionManager partitionManager;
+
     @Rule
     public MockitoRule mockitoRule = MockitoJUnit.rule();
 
@@ -91,7 +99,7 @@ public class JdbcAnalyticsTableManagerTest
         subject = new JdbcAnalyticsTableManager( mock( IdentifiableObjectManager.class ), mock( OrganisationUnitService.class ),
             mock( CategoryService.class ), systemSettingManager, mock( DataApprovalLevelService.class ),
             mock( ResourceTableService.class ), mock( AnalyticsTableHookService.class ), mock( StatementBuilder.class ),
-            mock( PartitionManager.class ), mock( DatabaseInfo.class ), jdbcTemplate );
+            partitionManager, mock( DatabaseInfo.class ), jdbcTemplate );
     }
 
     @Test
@@ -183,4 +191,40 @@ public class JdbcAnalyticsTableManagerTest
 
         subject.getAnalyticsTables( params );
     }
+
+    @Test
+    public void testSwapTableDropsPartitionsOfOtherGranularity()
+    {
+        AnalyticsTable table = new AnalyticsTable( AnalyticsTableType.DATA_VALUE, Lists.newArrayList(), Lists.newArrayList() );
+        PartitionUtils.addPartitionTables( table, PeriodType.getCalendar(), 2019, AnalyticsPartitionGranularity.QUARTERLY );
+
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder()
+            .withLastYears( 1 )
+            .build();
+
+        when( partitionManager.tableExists( "analytics" ) ).thenReturn( true );
+
+        subject.swapTable( params, table );
+
+        verify( jdbcTemplate ).execute( "drop table if exists analytics_2019" );
+        verify( jdbcTemplate ).execute( "drop table if exists analytics_201902" );
+        verify( jdbcTemplate ).execute( "drop table if exists analytics_201912" );
+        verify( jdbcTemplate, never() ).execute( "drop table if exists analytics_201901" );
+        verify( jdbcTemplate, never() ).execute( "drop table if exists analytics_201904" );
+    }
+
+    @Test
+    public void testSwapTableFullUpdateKeepsPartitions()
+    {
+        AnalyticsTable table = new AnalyticsTable( AnalyticsTableType.DATA_VALUE, Lists.newArrayList(), Lists.newArrayList() );
+        PartitionUtils.addPartitionTables( table, PeriodType.getCalendar(), 2019, AnalyticsPartitionGranularity.QUARTERLY );
+
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder().build();
+
+        when( partitionManager.tableExists( "analytics" ) ).thenReturn( true );
+
+        subject.swapTable( params, table );
+
+        verify( jdbcTemplate, never() ).execute( "drop table if exists analytics_2019" );
+    }
 }
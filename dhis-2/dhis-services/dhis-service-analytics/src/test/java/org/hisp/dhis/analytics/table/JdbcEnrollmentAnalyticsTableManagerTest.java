@@ -29,6 +29,8 @@ package org.hisp.dhis.analytics.table;
  */
 
 import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hisp.dhis.DhisConvenienceTest.createProgram;
 import static org.hisp.dhis.DhisConvenienceTest.createProgramTrackedEntityAttribute;
 import static org.hisp.dhis.DhisConvenienceTest.createTrackedEntityAttribute;
@@ -36,8 +38,12 @@ import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.*;
 
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 
+import org.hisp.dhis.analytics.AnalyticsTable;
 import org.hisp.dhis.analytics.AnalyticsTableHookService;
+import org.hisp.dhis.analytics.AnalyticsTablePartition;
 import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
 import org.hisp.dhis.analytics.partition.PartitionManager;
 import org.hisp.dhis.category.CategoryService;
@@ -49,6 +55,7 @@ import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.program.Program;
 import org.hisp.dhis.program.ProgramTrackedEntityAttribute;
 import org.hisp.dhis.resourcetable.ResourceTableService;
+import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.database.DatabaseInfo;
 import org.hisp.dhis.trackedentity.TrackedEntityAttribute;
@@ -58,10 +65,12 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 
 /**
@@ -72,6 +81,9 @@ public class JdbcEnrollmentAnalyticsTableManagerTest
     @Mock
     private IdentifiableObjectManager idObjectManager;
 
+    @Mock
+    private SystemSettingManager systemSettingManager;
+
     @Mock
     private DatabaseInfo databaseInfo;
 
@@ -89,7 +101,7 @@ public class JdbcEnrollmentAnalyticsTableManagerTest
     public void setUp()
     {
         subject = new JdbcEnrollmentAnalyticsTableManager( idObjectManager, mock( OrganisationUnitService.class ),
-            mock( CategoryService.class ), mock( SystemSettingManager.class ), mock( DataApprovalLevelService.class ),
+            mock( CategoryService.class ), systemSettingManager, mock( DataApprovalLevelService.class ),
             mock( ResourceTableService.class ), mock( AnalyticsTableHookService.class ),
             new PostgreSQLStatementBuilder(), mock( PartitionManager.class ), databaseInfo, jdbcTemplate );
     }
@@ -123,4 +135,46 @@ public class JdbcEnrollmentAnalyticsTableManagerTest
 
         assertThat( sql.getValue(), containsString( String.format( ouQuery, "uid") ) );
     }
+
+    @Test
+    public void verifyGetLatestAnalyticsTables()
+    {
+        Program prA = createProgram( 'A' );
+        Program prB = createProgram( 'B' );
+
+        Date lastFullTableUpdate = new DateTime( 2019, 3, 1, 2, 0 ).toDate();
+        Date lastLatestPartitionUpdate = new DateTime( 2019, 3, 1, 9, 0 ).toDate();
+        Date startTime = new DateTime( 2019, 3, 1, 10, 0 ).toDate();
+
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder().withStartTime( startTime )
+            .withLatestPartition().build();
+
+        List<Map<String, Object>> queryResp = Lists.newArrayList();
+        queryResp.add( ImmutableMap.of( "programinstanceid", 1 ) );
+
+        when( systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE ) )
+            .thenReturn( lastFullTableUpdate );
+        when( systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_LATEST_ANALYTICS_PARTITION_UPDATE ) )
+            .thenReturn( lastLatestPartitionUpdate );
+        when( jdbcTemplate.queryForList( Mockito.anyString() ) ).thenReturn( queryResp );
+        when( idObjectManager.getAllNoAcl( Program.class ) ).thenReturn( Lists.newArrayList( prA, prB ) );
+
+        List<AnalyticsTable> tables = subject.getAnalyticsTables( params );
+
+        assertThat( tables, hasSize( 2 ) );
+
+        AnalyticsTablePartition partition = tables.get( 0 ).getLatestPartition();
+
+        assertThat( partition.isLatestPartition(), equalTo( true ) );
+        assertThat( partition.getStartDate(), equalTo( lastFullTableUpdate ) );
+        assertThat( partition.getEndDate(), equalTo( startTime ) );
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+
+        subject.populateTable( params, partition );
+
+        verify( jdbcTemplate ).execute( sql.capture() );
+
+        assertThat( sql.getValue(), containsString( "and pi.lastupdated >= '2019-03-01T02:00:00' " ) );
+    }
 }
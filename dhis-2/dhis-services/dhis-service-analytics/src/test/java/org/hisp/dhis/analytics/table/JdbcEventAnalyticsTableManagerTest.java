@@ -122,8 +122,6 @@ public class JdbcEventAnalyticsTableManagerTest
 
     private final static String TABLE_PREFIX = "analytics_event_";
 
-    private static final String FROM_CLAUSE = "from programstageinstance where programstageinstanceid=psi.programstageinstanceid";
-
     private List<AnalyticsTableColumn> periodColumns = PeriodType.getAvailablePeriodTypes().stream().map( pt -> {
         String column = quote( pt.getName().toLowerCase() );
         return new AnalyticsTableColumn( column, TEXT, "dps" + "." + column );
@@ -249,25 +247,22 @@ public class JdbcEventAnalyticsTableManagerTest
 
         when( idObjectManager.getAllNoAcl( Program.class ) ).thenReturn( Lists.newArrayList( program ) );
 
-        String aliasD1 = "(select eventdatavalues #>> '{%s, value}' " + FROM_CLAUSE + " ) as \"%s\"";
-        String aliasD2 = "(select cast(eventdatavalues #>> '{%s, value}' as " + statementBuilder.getDoubleColumnType()
-            + ") " + FROM_CLAUSE + "  and eventdatavalues #>> '{%s,value}' " + statementBuilder.getRegexpMatch()
-            + " '^(-?[0-9]+)(\\.[0-9]+)?$') as \"%s\"";
-        String aliasD3 = "(select case when eventdatavalues #>> '{%s, value}' = 'true' then 1 when eventdatavalues #>> '{%s, value}' = 'false' then 0 else null end "
-            + FROM_CLAUSE + " ) as \"%s\"";
-        String aliasD4 = "(select cast(eventdatavalues #>> '{%s, value}' as timestamp) " + FROM_CLAUSE
-            + "  and eventdatavalues #>> '{%s,value}' " + statementBuilder.getRegexpMatch()
-            + " '^\\d{4}-\\d{2}-\\d{2}(\\s|T)?((\\d{2}:)(\\d{2}:)?(\\d{2}))?$') as \"%s\"";
-        String aliasD5 = "(select ou.uid from organisationunit ou where ou.uid = " + "(select eventdatavalues #>> '{"
-            + d5.getUid() + ", value}' " + FROM_CLAUSE + " )) as \"" + d5.getUid() + "\"";
-        String aliasD6 = "(select cast(eventdatavalues #>> '{%s, value}' as bigint) " + FROM_CLAUSE
-            + "  and eventdatavalues #>> '{%s,value}' " + statementBuilder.getRegexpMatch()
-            + " '^(-?[0-9]+)(\\.[0-9]+)?$') as \"%s\"";
-        String aliasD7 = "(select ST_GeomFromGeoJSON('{\"type\":\"Point\", \"coordinates\":' || (eventdatavalues #>> '{%s, value}') || ', \"crs\":{\"type\":\"name\", \"properties\":{\"name\":\"EPSG:4326\"}}}') from programstageinstance where programstageinstanceid=psi.programstageinstanceid ) as \"%s\"";
-        String aliasD5_geo = "(select ou.geometry from organisationunit ou where ou.uid = (select eventdatavalues #>> '{"
-            + d5.getUid() + ", value}' " + FROM_CLAUSE + " )) as \"" + d5.getUid() + "\"";
-        String aliasD5_name = "(select ou.name from organisationunit ou where ou.uid = (select eventdatavalues #>> '{"
-                + d5.getUid() + ", value}' " + FROM_CLAUSE + " )) as \"" + d5.getUid() + "\"";
+        String aliasD1 = "psi.eventdatavalues #>> '{%s, value}' as \"%s\"";
+        String aliasD2 = "case when psi.eventdatavalues #>> '{%s,value}' " + statementBuilder.getRegexpMatch()
+            + " '^(-?[0-9]+)(\\.[0-9]+)?$' then cast(psi.eventdatavalues #>> '{%s, value}' as "
+            + statementBuilder.getDoubleColumnType() + ") end as \"%s\"";
+        String aliasD3 = "case when psi.eventdatavalues #>> '{%s, value}' = 'true' then 1 when psi.eventdatavalues #>> '{%s, value}' = 'false' then 0 else null end as \"%s\"";
+        String aliasD4 = "case when psi.eventdatavalues #>> '{%s,value}' " + statementBuilder.getRegexpMatch()
+            + " '^\\d{4}-\\d{2}-\\d{2}(\\s|T)?((\\d{2}:)(\\d{2}:)?(\\d{2}))?$' then cast(psi.eventdatavalues #>> '{%s, value}' as timestamp) end as \"%s\"";
+        String aliasD5 = "(select ou.uid from organisationunit ou where ou.uid = psi.eventdatavalues #>> '{"
+            + d5.getUid() + ", value}') as \"" + d5.getUid() + "\"";
+        String aliasD6 = "case when psi.eventdatavalues #>> '{%s,value}' " + statementBuilder.getRegexpMatch()
+            + " '^(-?[0-9]+)(\\.[0-9]+)?$' then cast(psi.eventdatavalues #>> '{%s, value}' as bigint) end as \"%s\"";
+        String aliasD7 = "ST_GeomFromGeoJSON('{\"type\":\"Point\", \"coordinates\":' || (psi.eventdatavalues #>> '{%s, value}') || ', \"crs\":{\"type\":\"name\", \"properties\":{\"name\":\"EPSG:4326\"}}}') as \"%s\"";
+        String aliasD5_geo = "(select ou.geometry from organisationunit ou where ou.uid = psi.eventdatavalues #>> '{"
+            + d5.getUid() + ", value}') as \"" + d5.getUid() + "\"";
+        String aliasD5_name = "(select ou.name from organisationunit ou where ou.uid = psi.eventdatavalues #>> '{"
+            + d5.getUid() + ", value}') as \"" + d5.getUid() + "\"";
 
         AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder().withLastYears( 2 )
             .withStartTime( START_TIME ).withToday( today ).build();
@@ -317,7 +312,7 @@ public class JdbcEventAnalyticsTableManagerTest
 
         when( idObjectManager.getAllNoAcl( Program.class ) ).thenReturn( Lists.newArrayList( program ) );
 
-        String aliasD1 = "(select eventdatavalues #>> '{%s, value}' " + FROM_CLAUSE + " ) as \"%s\"";
+        String aliasD1 = "psi.eventdatavalues #>> '{%s, value}' as \"%s\"";
         String aliasTea1 = "(select %s from organisationunit ou where ou.uid = (select value from "
             + "trackedentityattributevalue where trackedentityinstanceid=pi.trackedentityinstanceid and "
             + "trackedentityattributeid=%d)) as \"%s\"";
@@ -374,9 +369,8 @@ public class JdbcEventAnalyticsTableManagerTest
 
         verify( jdbcTemplate ).execute( sql.capture() );
 
-        String ouQuery = "(select ou.%s from organisationunit ou where ou.uid = " + "(select eventdatavalues #>> '{"
-            + d5.getUid() + ", value}' from programstageinstance where "
-            + "programstageinstanceid=psi.programstageinstanceid )) as \"" + d5.getUid() + "\"";
+        String ouQuery = "(select ou.%s from organisationunit ou where ou.uid = psi.eventdatavalues #>> '{"
+            + d5.getUid() + ", value}') as \"" + d5.getUid() + "\"";
 
         assertThat( sql.getValue(), containsString( String.format( ouQuery, "uid") ) );
         assertThat( sql.getValue(), containsString( String.format( ouQuery, "name") ) );
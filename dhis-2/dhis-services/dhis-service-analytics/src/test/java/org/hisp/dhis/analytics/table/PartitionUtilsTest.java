@@ -32,10 +32,13 @@ import static org.hisp.dhis.DhisConvenienceTest.createPeriod;
 import static org.hisp.dhis.analytics.ColumnDataType.DOUBLE;
 import static org.hisp.dhis.analytics.ColumnDataType.TEXT;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.List;
+import java.util.Set;
 
+import org.hisp.dhis.analytics.AnalyticsPartitionGranularity;
 import org.hisp.dhis.analytics.AnalyticsTable;
 import org.hisp.dhis.analytics.AnalyticsTableColumn;
 import org.hisp.dhis.analytics.AnalyticsTablePartition;
@@ -92,6 +95,59 @@ public class PartitionUtilsTest
         assertEquals( expected, PartitionUtils.getPartitions( period ) );
     }
 
+    @Test
+    public void testGetSubYearPartitions()
+    {
+        assertEquals( new Partitions( Sets.newHashSet( 200001 ) ), PartitionUtils.getPartitions( createPeriod( "200001" ), AnalyticsPartitionGranularity.MONTHLY ) );
+        assertEquals( new Partitions( Sets.newHashSet( 200204, 200205, 200206 ) ), PartitionUtils.getPartitions( createPeriod( "2002Q2" ), AnalyticsPartitionGranularity.MONTHLY ) );
+        assertEquals( new Partitions( Sets.newHashSet( 200110 ) ), PartitionUtils.getPartitions( createPeriod( "200111" ), AnalyticsPartitionGranularity.QUARTERLY ) );
+        assertEquals( new Partitions( Sets.newHashSet( 200307, 200310 ) ), PartitionUtils.getPartitions( createPeriod( "2003S2" ), AnalyticsPartitionGranularity.QUARTERLY ) );
+        assertEquals( new Partitions( Sets.newHashSet( 200007, 200010, 200101, 200104 ) ), PartitionUtils.getPartitions( createPeriod( "2000July" ), AnalyticsPartitionGranularity.QUARTERLY ) );
+        assertEquals( new Partitions( Sets.newHashSet( 2000 ) ), PartitionUtils.getPartitions( createPeriod( "200001" ), AnalyticsPartitionGranularity.YEARLY ) );
+    }
+
+    @Test
+    public void testGetYear()
+    {
+        assertEquals( Integer.valueOf( 2019 ), PartitionUtils.getYear( 2019 ) );
+        assertEquals( Integer.valueOf( 2019 ), PartitionUtils.getYear( 201910 ) );
+        assertEquals( Integer.valueOf( 0 ), PartitionUtils.getYear( 0 ) );
+        assertEquals( Sets.newHashSet( 2018, 2019 ), new Partitions( Sets.newHashSet( 201810, 201901, 201904 ) ).getYears() );
+    }
+
+    @Test
+    public void testAddPartitionTables()
+    {
+        List<AnalyticsTableColumn> dimensions = Lists.newArrayList( new AnalyticsTableColumn( "dx", TEXT, "dx" ) );
+        List<AnalyticsTableColumn> values = Lists.newArrayList( new AnalyticsTableColumn( "value", DOUBLE, "value" ) );
+
+        AnalyticsTable table = new AnalyticsTable( AnalyticsTableType.DATA_VALUE, dimensions, values );
+        PartitionUtils.addPartitionTables( table, PeriodType.getCalendar(), 2019, AnalyticsPartitionGranularity.QUARTERLY );
+
+        List<AnalyticsTablePartition> partitions = table.getTablePartitions();
+
+        assertEquals( 4, partitions.size() );
+        assertEquals( "analytics_201901", partitions.get( 0 ).getTableName() );
+        assertEquals( "analytics_201910", partitions.get( 3 ).getTableName() );
+        assertEquals( Integer.valueOf( 2019 ), partitions.get( 3 ).getYear() );
+        assertEquals( new DateTime( 2019, 4, 1, 0, 0 ).toDate(), partitions.get( 1 ).getStartDate() );
+        assertEquals( new DateTime( 2019, 7, 1, 0, 0 ).toDate(), partitions.get( 1 ).getEndDate() );
+        assertEquals( new DateTime( 2020, 1, 1, 0, 0 ).toDate(), partitions.get( 3 ).getEndDate() );
+        assertTrue( partitions.get( 0 ).isSubYearPartition() );
+
+        table = new AnalyticsTable( AnalyticsTableType.DATA_VALUE, dimensions, values );
+        PartitionUtils.addPartitionTables( table, PeriodType.getCalendar(), 2019, AnalyticsPartitionGranularity.MONTHLY );
+
+        assertEquals( 12, table.getTablePartitions().size() );
+
+        table = new AnalyticsTable( AnalyticsTableType.DATA_VALUE, dimensions, values );
+        PartitionUtils.addPartitionTables( table, PeriodType.getCalendar(), 2019, AnalyticsPartitionGranularity.YEARLY );
+
+        assertEquals( 1, table.getTablePartitions().size() );
+        assertEquals( "analytics_2019", table.getTablePartitions().get( 0 ).getTableName() );
+        assertFalse( table.getTablePartitions().get( 0 ).isSubYearPartition() );
+    }
+
     @Test
     public void testGetTablePartitions()
     {
@@ -132,4 +188,16 @@ public class PartitionUtilsTest
         assertEquals( 1, partitions.getPartitions().size() );
         assertTrue( partitions.getPartitions().contains( 2018 ) );
     }
+
+    @Test
+    public void testGetAllPartitions()
+    {
+        Set<Integer> partitions = PartitionUtils.getAllPartitions( PeriodType.getCalendar(), 2019 );
+
+        assertEquals( 13, partitions.size() );
+        assertTrue( partitions.contains( 2019 ) );
+        assertTrue( partitions.contains( 201901 ) );
+        assertTrue( partitions.contains( 201904 ) );
+        assertTrue( partitions.contains( 201912 ) );
+    }
 }
@@ -49,11 +49,13 @@ import org.hisp.dhis.period.*;
 import org.hisp.dhis.program.Program;
 import org.hisp.dhis.program.ProgramDataElementDimensionItem;
 import org.hisp.dhis.program.ProgramIndicator;
+import org.hisp.dhis.system.grid.ColumnarGrid;
 import org.hisp.dhis.system.grid.ListGrid;
 import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -665,4 +667,27 @@ public class AnalyticsUtilsTest
 
 
     }
+
+    @Test
+    public void testNewGrid()
+    {
+        DataElement deA = createDataElement( 'A' );
+        Period peA = createPeriod( "202001" );
+        OrganisationUnit ouA = createOrganisationUnit( 'A' );
+
+        DataQueryParams paramsA = DataQueryParams.newBuilder()
+            .withDataElements( Lists.newArrayList( deA ) )
+            .withPeriods( Lists.newArrayList( peA ) )
+            .withOrganisationUnits( Lists.newArrayList( ouA ) )
+            .build();
+
+        DataQueryParams paramsB = DataQueryParams.newBuilder()
+            .withDataElements( Collections.nCopies( 500, deA ) )
+            .withPeriods( Collections.nCopies( 10, peA ) )
+            .withOrganisationUnits( Collections.nCopies( 10, ouA ) )
+            .build();
+
+        assertTrue( AnalyticsUtils.newGrid( paramsA ) instanceof ListGrid );
+        assertTrue( AnalyticsUtils.newGrid( paramsB ) instanceof ColumnarGrid );
+    }
 }
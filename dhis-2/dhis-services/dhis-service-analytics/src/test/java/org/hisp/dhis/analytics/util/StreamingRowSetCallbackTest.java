@@ -0,0 +1,120 @@
+package org.hisp.dhis.analytics.util;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class StreamingRowSetCallbackTest
+{
+    private static final String SQL = "select value from analytics";
+
+    private Connection connection;
+
+    private Statement statement;
+
+    private ResultSet resultSet;
+
+    @Before
+    public void setUp()
+        throws Exception
+    {
+        connection = mock( Connection.class );
+        statement = mock( Statement.class );
+        resultSet = mock( ResultSet.class );
+
+        ResultSetMetaData metaData = mock( ResultSetMetaData.class );
+
+        when( connection.createStatement( ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY ) ).thenReturn( statement );
+        when( statement.executeQuery( SQL ) ).thenReturn( resultSet );
+        when( resultSet.getMetaData() ).thenReturn( metaData );
+        when( metaData.getColumnCount() ).thenReturn( 0 );
+        when( resultSet.next() ).thenReturn( true, true, false );
+        when( resultSet.getString( anyInt() ) ).thenReturn( "A", "B" );
+    }
+
+    @Test
+    public void testStreamRowsWithAutoCommit()
+        throws Exception
+    {
+        when( connection.getAutoCommit() ).thenReturn( true );
+
+        List<String> values = new ArrayList<>();
+
+        new StreamingRowSetCallback( SQL, 500, rowSet -> {
+            while ( rowSet.next() )
+            {
+                values.add( rowSet.getString( 1 ) );
+            }
+        } ).doInConnection( connection );
+
+        assertEquals( 2, values.size() );
+        assertEquals( "A", values.get( 0 ) );
+        assertEquals( "B", values.get( 1 ) );
+
+        verify( statement ).setFetchSize( 500 );
+        verify( connection ).setAutoCommit( false );
+        verify( connection ).setAutoCommit( true );
+        verify( resultSet ).close();
+        verify( statement ).close();
+    }
+
+    @Test
+    public void testStreamRowsWithoutAutoCommit()
+        throws Exception
+    {
+        when( connection.getAutoCommit() ).thenReturn( false );
+
+        new StreamingRowSetCallback( SQL, 0, rowSet -> {} ).doInConnection( connection );
+
+        verify( statement ).setFetchSize( StreamingRowSetCallback.DEFAULT_FETCH_SIZE );
+        verify( connection, never() ).setAutoCommit( false );
+        verify( connection, never() ).setAutoCommit( true );
+    }
+
+    @Test
+    public void testGetSql()
+    {
+        assertEquals( SQL, new StreamingRowSetCallback( SQL, 100, rowSet -> {} ).getSql() );
+    }
+}
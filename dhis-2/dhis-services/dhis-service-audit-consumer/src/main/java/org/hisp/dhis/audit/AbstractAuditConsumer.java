@@ -29,26 +29,110 @@ package org.hisp.dhis.audit;
  */
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.hisp.dhis.artemis.IdleListener;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 
+import javax.annotation.PreDestroy;
+import javax.jms.JMSException;
 import javax.jms.TextMessage;
 import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * Base class for audit consumers. Audits are persisted in batches, which are
+ * written when reaching the batch size, and otherwise at least every second.
+ * <p>
+ * Messages are acknowledged individually, which requires the listener
+ * container to use individual acknowledgement. A message is acknowledged only
+ * once its audit has been persisted, or once it has been sent to the dead
+ * letter queue when it could not be persisted. As JMS sessions must not be
+ * used concurrently, acknowledgements are done on the listener thread:
+ * messages persisted by the scheduled flush are acknowledged when the next
+ * message is consumed, or when the listener container is idle. On shutdown,
+ * the listener containers have been stopped before this consumer is
+ * destroyed, so the remaining batch is persisted and acknowledged then.
+ *
  * @author Morten Olav Hansen <mortenoh@gmail.com>
  */
 @Slf4j
 public abstract class AbstractAuditConsumer
-    implements AuditConsumer
+    implements AuditConsumer, IdleListener
 {
+    protected static final String CONTAINER_FACTORY = "jmsAuditListenerContainerFactory";
+
+    protected static final String DEAD_LETTER_QUEUE = "DLQ";
+
+    private static final long FLUSH_DELAY = 1_000;
+
     protected AuditService auditService;
     protected ObjectMapper objectMapper;
+    protected JmsTemplate jmsQueueTemplate;
 
     protected boolean isAuditLogEnabled;
     protected boolean isAuditDatabaseEnabled;
 
+    protected int batchSize;
+
+    private final List<org.hisp.dhis.audit.Audit> audits = new ArrayList<>();
+    private final List<TextMessage> messages = new ArrayList<>();
+
+    /**
+     * Messages which have been persisted or dead lettered and are waiting to
+     * be acknowledged on the listener thread.
+     */
+    private final Queue<TextMessage> completedMessages = new ConcurrentLinkedQueue<>();
+
+    private final Object flushLock = new Object();
+
+    private Counter persistedCounter;
+    private Counter failedCounter;
+    private Timer batchTimer;
+    private Timer lagTimer;
+
+    /**
+     * Registers the metrics of this consumer.
+     *
+     * @param meterRegistry the {@link MeterRegistry}.
+     * @param auditScope the scope of the audits consumed.
+     */
+    protected void registerMetrics( MeterRegistry meterRegistry, AuditScope auditScope )
+    {
+        String scope = auditScope.name().toLowerCase();
+
+        this.persistedCounter = Counter.builder( "audit.consumer.persisted" )
+            .description( "Number of audits persisted" )
+            .tag( "scope", scope )
+            .register( meterRegistry );
+        this.failedCounter = Counter.builder( "audit.consumer.failed" )
+            .description( "Number of audits which could not be persisted" )
+            .tag( "scope", scope )
+            .register( meterRegistry );
+        this.batchTimer = Timer.builder( "audit.consumer.batch.write" )
+            .description( "Time to persist a batch of audits" )
+            .tag( "scope", scope )
+            .register( meterRegistry );
+        this.lagTimer = Timer.builder( "audit.consumer.lag" )
+            .description( "Time from creation of an audit until it is persisted" )
+            .tag( "scope", scope )
+            .register( meterRegistry );
+    }
+
     protected void _consume( TextMessage message )
     {
+        acknowledgeCompleted();
+
         try
         {
             org.hisp.dhis.artemis.audit.Audit auditMessage = objectMapper.readValue( message.getText(), org.hisp.dhis.artemis.audit.Audit.class );
@@ -67,7 +151,8 @@ public abstract class AbstractAuditConsumer
 
             if ( isAuditDatabaseEnabled )
             {
-                auditService.addAudit( audit );
+                addToBatch( audit, message );
+                return;
             }
         }
         catch ( IOException e )
@@ -75,10 +160,235 @@ public abstract class AbstractAuditConsumer
             log.error(
                 "An error occurred de-serializing the message payload. The message can not be de-serialized to an Audit object.",
                 e );
+
+            deadLetter( message );
+            return;
+        }
+        catch ( Exception e )
+        {
+            log.error( "An error occurred consuming an Audit message", e );
+
+            deadLetter( message );
+            return;
+        }
+
+        acknowledge( message );
+    }
+
+    /**
+     * Acknowledges the messages persisted by the scheduled flush while no
+     * messages arrive. Called on the listener thread by the listener container.
+     */
+    @Override
+    public void onIdle()
+    {
+        acknowledgeCompleted();
+    }
+
+    /**
+     * Persists the current batch of audits, if any. The messages of the batch
+     * are queued for acknowledgement on the listener thread. Flushes do not
+     * run concurrently, so once a flush returns, the messages of all earlier
+     * flushes are queued.
+     */
+    @Scheduled( fixedDelay = FLUSH_DELAY )
+    public void flush()
+    {
+        synchronized ( flushLock )
+        {
+            List<org.hisp.dhis.audit.Audit> batch;
+            List<TextMessage> batchMessages;
+
+            synchronized ( audits )
+            {
+                if ( audits.isEmpty() )
+                {
+                    return;
+                }
+
+                batch = new ArrayList<>( audits );
+                batchMessages = new ArrayList<>( messages );
+
+                audits.clear();
+                messages.clear();
+            }
+
+            boolean[] persisted = persist( batch );
+
+            for ( int i = 0; i < batchMessages.size(); i++ )
+            {
+                if ( persisted[i] || sendToDeadLetterQueue( batchMessages.get( i ) ) )
+                {
+                    completedMessages.add( batchMessages.get( i ) );
+                }
+            }
+        }
+    }
+
+    /**
+     * Persists the remaining batch and acknowledges all completed messages.
+     * The listener containers are stopped before beans are destroyed, so the
+     * listener thread no longer uses the session when this is called.
+     */
+    @PreDestroy
+    public void shutdown()
+    {
+        flush();
+        acknowledgeCompleted();
+    }
+
+    private void addToBatch( org.hisp.dhis.audit.Audit audit, TextMessage message )
+    {
+        boolean full;
+
+        synchronized ( audits )
+        {
+            audits.add( audit );
+            messages.add( message );
+
+            full = audits.size() >= batchSize;
+        }
+
+        if ( full )
+        {
+            flush();
+            acknowledgeCompleted();
+        }
+    }
+
+    /**
+     * Persists the given batch of audits. If the batch fails, the audits are
+     * persisted one by one.
+     *
+     * @param batch the audits to persist.
+     * @return for each audit, whether it was persisted.
+     */
+    private boolean[] persist( List<org.hisp.dhis.audit.Audit> batch )
+    {
+        long start = System.nanoTime();
+
+        boolean[] persisted = new boolean[batch.size()];
+
+        try
+        {
+            auditService.addAudits( batch );
+
+            Arrays.fill( persisted, true );
         }
         catch ( Exception e )
         {
-            log.error( "An error occurred persisting an Audit message of type 'TRACKER'", e );
+            log.error( String.format( "An error occurred persisting a batch of %d Audit messages, persisting one by one", batch.size() ), e );
+
+            for ( int i = 0; i < batch.size(); i++ )
+            {
+                persisted[i] = persist( batch.get( i ) );
+            }
+        }
+
+        if ( batchTimer != null )
+        {
+            batchTimer.record( System.nanoTime() - start, TimeUnit.NANOSECONDS );
+
+            LocalDateTime now = LocalDateTime.now();
+
+            for ( int i = 0; i < batch.size(); i++ )
+            {
+                if ( !persisted[i] )
+                {
+                    failedCounter.increment();
+                    continue;
+                }
+
+                persistedCounter.increment();
+
+                if ( batch.get( i ).getCreatedAt() != null )
+                {
+                    lagTimer.record( Duration.between( batch.get( i ).getCreatedAt(), now ) );
+                }
+            }
+        }
+
+        return persisted;
+    }
+
+    private boolean persist( org.hisp.dhis.audit.Audit audit )
+    {
+        try
+        {
+            auditService.addAudit( audit );
+
+            return true;
+        }
+        catch ( Exception e )
+        {
+            log.error( "An error occurred persisting an Audit message", e );
+
+            return false;
+        }
+    }
+
+    /**
+     * Acknowledges the messages which have been completed by a flush. Must
+     * only be called from the listener thread, or once the listener container
+     * has stopped.
+     */
+    private void acknowledgeCompleted()
+    {
+        TextMessage message;
+
+        while ( (message = completedMessages.poll()) != null )
+        {
+            acknowledge( message );
+        }
+    }
+
+    /**
+     * Sends the given message to the dead letter queue and acknowledges it.
+     * Must only be called from the listener thread.
+     */
+    private void deadLetter( TextMessage message )
+    {
+        if ( sendToDeadLetterQueue( message ) )
+        {
+            acknowledge( message );
+        }
+    }
+
+    /**
+     * Sends a copy of the given message to the dead letter queue. This uses a
+     * session of the {@link JmsTemplate} and is safe to call from any thread.
+     *
+     * @param message the message.
+     * @return true if the message was sent, false if it should be left
+     *         unacknowledged.
+     */
+    private boolean sendToDeadLetterQueue( TextMessage message )
+    {
+        try
+        {
+            String text = message.getText();
+
+            jmsQueueTemplate.send( DEAD_LETTER_QUEUE, session -> session.createTextMessage( text ) );
+
+            return true;
+        }
+        catch ( Exception e )
+        {
+            log.error( "An error occurred sending an Audit message to the dead letter queue, leaving it unacknowledged", e );
+
+            return false;
+        }
+    }
+
+    private void acknowledge( TextMessage message )
+    {
+        try
+        {
+            message.acknowledge();
+        }
+        catch ( JMSException e )
+        {
+            log.error( "An error occurred acknowledging an Audit message", e );
         }
     }
 }
@@ -29,12 +29,15 @@ package org.hisp.dhis.audit.consumers;
  */
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.hisp.dhis.artemis.Topics;
 import org.hisp.dhis.audit.AbstractAuditConsumer;
+import org.hisp.dhis.audit.AuditScope;
 import org.hisp.dhis.audit.AuditService;
 import org.hisp.dhis.external.conf.ConfigurationKey;
 import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.springframework.jms.annotation.JmsListener;
+import org.springframework.jms.core.JmsTemplate;
 import org.springframework.stereotype.Component;
 
 import javax.jms.TextMessage;
@@ -49,16 +52,22 @@ public class AggregateAuditConsumer
     public AggregateAuditConsumer(
         AuditService auditService,
         ObjectMapper objectMapper,
-        DhisConfigurationProvider dhisConfig )
+        DhisConfigurationProvider dhisConfig,
+        MeterRegistry meterRegistry,
+        JmsTemplate jmsQueueTemplate )
     {
         this.auditService = auditService;
         this.objectMapper = objectMapper;
+        this.jmsQueueTemplate = jmsQueueTemplate;
 
         this.isAuditLogEnabled = dhisConfig.isEnabled( ConfigurationKey.AUDIT_LOGGER );
         this.isAuditDatabaseEnabled = dhisConfig.isEnabled( ConfigurationKey.AUDIT_DATABASE );
+        this.batchSize = Integer.parseInt( dhisConfig.getProperty( ConfigurationKey.AUDIT_DATABASE_BATCH_SIZE ) );
+
+        registerMetrics( meterRegistry, AuditScope.AGGREGATE );
     }
 
-    @JmsListener( destination = Topics.AGGREGATE_TOPIC_NAME )
+    @JmsListener( destination = Topics.AGGREGATE_TOPIC_NAME, containerFactory = CONTAINER_FACTORY )
     public void consume( TextMessage message )
     {
         _consume( message );
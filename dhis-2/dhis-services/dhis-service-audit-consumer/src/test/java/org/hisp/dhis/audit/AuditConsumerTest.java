@@ -0,0 +1,223 @@
+package org.hisp.dhis.audit;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hisp.dhis.audit.consumers.AggregateAuditConsumer;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.jms.UncategorizedJmsException;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.MessageCreator;
+
+import javax.jms.TextMessage;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the batching and acknowledgement of {@link AbstractAuditConsumer}.
+ */
+public class AuditConsumerTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private AuditService auditService;
+
+    @Mock
+    private DhisConfigurationProvider dhisConfig;
+
+    @Mock
+    private JmsTemplate jmsQueueTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private AggregateAuditConsumer consumer;
+
+    @Before
+    public void setUp()
+    {
+        when( dhisConfig.isEnabled( ConfigurationKey.AUDIT_DATABASE ) ).thenReturn( true );
+        when( dhisConfig.getProperty( ConfigurationKey.AUDIT_DATABASE_BATCH_SIZE ) ).thenReturn( "2" );
+
+        consumer = new AggregateAuditConsumer( auditService, objectMapper, dhisConfig, new SimpleMeterRegistry(),
+            jmsQueueTemplate );
+    }
+
+    @Test
+    public void testPersistAndAcknowledgeFullBatch()
+        throws Exception
+    {
+        TextMessage messageA = createMessage( "auditUidA" );
+        TextMessage messageB = createMessage( "auditUidB" );
+
+        consumer.consume( messageA );
+
+        verify( auditService, never() ).addAudits( anyList() );
+        verify( messageA, never() ).acknowledge();
+
+        consumer.consume( messageB );
+
+        verify( auditService ).addAudits( argThat( audits -> audits.size() == 2 ) );
+        verify( messageA ).acknowledge();
+        verify( messageB ).acknowledge();
+    }
+
+    @Test
+    public void testAcknowledgeScheduledFlushOnListenerThread()
+        throws Exception
+    {
+        TextMessage messageA = createMessage( "auditUidA" );
+        TextMessage messageB = createMessage( "auditUidB" );
+
+        consumer.consume( messageA );
+        consumer.flush();
+
+        verify( auditService ).addAudits( anyList() );
+        verify( messageA, never() ).acknowledge();
+
+        consumer.consume( messageB );
+
+        verify( messageA ).acknowledge();
+        verify( messageB, never() ).acknowledge();
+    }
+
+    @Test
+    public void testAcknowledgeScheduledFlushWhenIdle()
+        throws Exception
+    {
+        TextMessage messageA = createMessage( "auditUidA" );
+
+        consumer.consume( messageA );
+        consumer.onIdle();
+
+        verify( messageA, never() ).acknowledge();
+
+        consumer.flush();
+        consumer.onIdle();
+
+        verify( messageA ).acknowledge();
+    }
+
+    @Test
+    public void testPersistAndAcknowledgeOnShutdown()
+        throws Exception
+    {
+        TextMessage messageA = createMessage( "auditUidA" );
+
+        consumer.consume( messageA );
+        consumer.shutdown();
+
+        verify( auditService ).addAudits( argThat( audits -> audits.size() == 1 ) );
+        verify( messageA ).acknowledge();
+    }
+
+    @Test
+    public void testSendFailedAuditToDeadLetterQueue()
+        throws Exception
+    {
+        TextMessage messageA = createMessage( "auditUidA" );
+        TextMessage messageB = createMessage( "auditUidB" );
+
+        doThrow( new IllegalStateException( "Batch failed" ) ).when( auditService ).addAudits( anyList() );
+        doThrow( new IllegalStateException( "Audit failed" ) ).when( auditService )
+            .addAudit( argThat( audit -> "auditUidA".equals( audit.getUid() ) ) );
+
+        consumer.consume( messageA );
+        consumer.consume( messageB );
+
+        verify( auditService ).addAudit( argThat( audit -> "auditUidB".equals( audit.getUid() ) ) );
+        verify( jmsQueueTemplate ).send( eq( AbstractAuditConsumer.DEAD_LETTER_QUEUE ), any( MessageCreator.class ) );
+        verify( messageA ).acknowledge();
+        verify( messageB ).acknowledge();
+    }
+
+    @Test
+    public void testLeaveFailedAuditUnacknowledgedWhenDeadLetterQueueFails()
+        throws Exception
+    {
+        TextMessage messageA = createMessage( "auditUidA" );
+        TextMessage messageB = createMessage( "auditUidB" );
+
+        doThrow( new IllegalStateException( "Batch failed" ) ).when( auditService ).addAudits( anyList() );
+        doThrow( new IllegalStateException( "Audit failed" ) ).when( auditService )
+            .addAudit( argThat( audit -> "auditUidA".equals( audit.getUid() ) ) );
+        doThrow( new UncategorizedJmsException( "Broker unavailable" ) ).when( jmsQueueTemplate )
+            .send( eq( AbstractAuditConsumer.DEAD_LETTER_QUEUE ), any( MessageCreator.class ) );
+
+        consumer.consume( messageA );
+        consumer.consume( messageB );
+
+        verify( messageA, never() ).acknowledge();
+        verify( messageB ).acknowledge();
+    }
+
+    @Test
+    public void testSendInvalidMessageToDeadLetterQueue()
+        throws Exception
+    {
+        TextMessage message = mock( TextMessage.class );
+        when( message.getText() ).thenReturn( "{ not an audit" );
+
+        consumer.consume( message );
+
+        verify( auditService, never() ).addAudits( anyList() );
+        verify( jmsQueueTemplate ).send( eq( AbstractAuditConsumer.DEAD_LETTER_QUEUE ), any( MessageCreator.class ) );
+        verify( message ).acknowledge();
+    }
+
+    private TextMessage createMessage( String uid )
+        throws Exception
+    {
+        String audit = String.format(
+            "{\"auditType\":\"CREATE\",\"auditScope\":\"AGGREGATE\",\"klass\":\"org.hisp.dhis.datavalue.DataValue\",\"uid\":\"%s\"}",
+            uid );
+
+        TextMessage message = mock( TextMessage.class );
+        when( message.getText() ).thenReturn( audit );
+
+        return message;
+    }
+}
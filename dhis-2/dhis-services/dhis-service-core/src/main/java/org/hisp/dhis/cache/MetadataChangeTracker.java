@@ -0,0 +1,264 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps track of committed changes to metadata objects on this node, as a
+ * monotonically increasing version per metadata type. Caches of data derived
+ * from metadata can stamp their entries with the version of the types they
+ * depend on, and reload an entry when the current version differs from the
+ * stamp, instead of reloading on every use or relying on expiry only.
+ * <p>
+ * Changes are registered by the {@link org.hisp.dhis.cache.hibernate.MetadataChangeEventListener}
+ * after transactions commit, once per changed type and transaction, and are
+ * published to the other nodes of a cluster through the
+ * {@link CacheInvalidationBus}, which register them in turn. Clearing the
+ * application caches increments the version of all types, as does a change
+ * from another node of a type which is unknown to this node or a reconnect of
+ * the invalidation bus, as changes may have been missed.
+ * <p>
+ * Components which prefer to react to changes as they happen instead of
+ * comparing versions on access can register a listener per type.
+ *
+ * @see MetadataVersionedCache
+ */
+@Slf4j
+@Component( "org.hisp.dhis.cache.MetadataChangeTracker" )
+public class MetadataChangeTracker
+{
+    private static final String REGION = "metadataChangeTracker";
+
+    private final Map<Class<?>, AtomicLong> changes = new ConcurrentHashMap<>();
+
+    private final AtomicLong clears = new AtomicLong();
+
+    private final Map<Class<?>, List<Runnable>> listeners = new ConcurrentHashMap<>();
+
+    private final CacheInvalidationBus invalidationBus;
+
+    public MetadataChangeTracker( CacheInvalidationBus invalidationBus )
+    {
+        checkNotNull( invalidationBus );
+
+        this.invalidationBus = invalidationBus;
+
+        invalidationBus.addListener( REGION, this::registerClusterChange );
+    }
+
+    /**
+     * Registers a change to an object of the given type, and publishes the
+     * change to the other nodes of the cluster. Changes registered while a
+     * transaction is active are collected per type and registered once the
+     * transaction has completed, so that a transaction changing many objects
+     * of a type increments its version and publishes it once.
+     *
+     * @param type the type of the changed object.
+     */
+    public void registerChange( Class<?> type )
+    {
+        if ( TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            getTransactionChanges().add( type );
+        }
+        else
+        {
+            applyChange( type );
+        }
+    }
+
+    /**
+     * Returns the current version of the given types, including their
+     * subtypes. The version increases whenever an object of any of the given
+     * types is changed.
+     *
+     * @param types the metadata types.
+     * @return the current version.
+     */
+    public long getVersion( Class<?>... types )
+    {
+        long version = clears.get();
+
+        for ( Map.Entry<Class<?>, AtomicLong> entry : changes.entrySet() )
+        {
+            for ( Class<?> type : types )
+            {
+                if ( type.isAssignableFrom( entry.getKey() ) )
+                {
+                    version += entry.getValue().get();
+                    break;
+                }
+            }
+        }
+
+        return version;
+    }
+
+    /**
+     * Adds a listener which is called after a change to an object of the
+     * given type or any of its subtypes has been registered, whether on this
+     * or another node, and whenever all types may have changed. Listeners are
+     * called on the thread registering the change and should return quickly.
+     *
+     * @param type the metadata type.
+     * @param listener the listener.
+     */
+    public void addListener( Class<?> type, Runnable listener )
+    {
+        listeners.computeIfAbsent( type, t -> new CopyOnWriteArrayList<>() ).add( listener );
+    }
+
+    @EventListener
+    public void handleApplicationCachesCleared( ApplicationCacheClearedEvent event )
+    {
+        incrementClears();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void applyChange( Class<?> type )
+    {
+        incrementVersion( type );
+
+        invalidationBus.publishInvalidation( REGION, type.getName() );
+    }
+
+    /**
+     * Returns the types changed within the current transaction. The first
+     * call within a transaction registers a synchronization which applies
+     * the changes once the transaction has committed. Changes are applied
+     * after completion, when the synchronizations of the transaction are no
+     * longer active, so that the invalidation bus publishes them right away.
+     */
+    @SuppressWarnings( "unchecked" )
+    private Set<Class<?>> getTransactionChanges()
+    {
+        Set<Class<?>> types = (Set<Class<?>>) TransactionSynchronizationManager.getResource( this );
+
+        if ( types != null )
+        {
+            return types;
+        }
+
+        Set<Class<?>> transactionTypes = new LinkedHashSet<>();
+
+        TransactionSynchronizationManager.bindResource( this, transactionTypes );
+        TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronizationAdapter()
+        {
+            @Override
+            public void afterCompletion( int status )
+            {
+                TransactionSynchronizationManager.unbindResourceIfPossible( MetadataChangeTracker.this );
+
+                if ( status == STATUS_COMMITTED )
+                {
+                    transactionTypes.forEach( MetadataChangeTracker.this::applyChange );
+                }
+            }
+        } );
+
+        return transactionTypes;
+    }
+
+    private void incrementVersion( Class<?> type )
+    {
+        changes.computeIfAbsent( type, t -> new AtomicLong() ).incrementAndGet();
+
+        listeners.forEach( ( listenerType, typeListeners ) -> {
+            if ( listenerType.isAssignableFrom( type ) )
+            {
+                typeListeners.forEach( this::notifyListener );
+            }
+        } );
+    }
+
+    private void incrementClears()
+    {
+        clears.incrementAndGet();
+
+        listeners.values().forEach( typeListeners -> typeListeners.forEach( this::notifyListener ) );
+    }
+
+    private void notifyListener( Runnable listener )
+    {
+        try
+        {
+            listener.run();
+        }
+        catch ( RuntimeException ex )
+        {
+            log.warn( "Metadata change listener failed", ex );
+        }
+    }
+
+    /**
+     * Registers a change published by another node, without publishing it
+     * again. A null type name means that all types may have changed.
+     *
+     * @param typeName the class name of the changed type, or null.
+     */
+    void registerClusterChange( String typeName )
+    {
+        if ( typeName == null )
+        {
+            incrementClears();
+            return;
+        }
+
+        try
+        {
+            incrementVersion( Class.forName( typeName ) );
+        }
+        catch ( ClassNotFoundException ex )
+        {
+            log.debug( "Unknown metadata type changed on other node: " + typeName );
+
+            incrementClears();
+        }
+    }
+}
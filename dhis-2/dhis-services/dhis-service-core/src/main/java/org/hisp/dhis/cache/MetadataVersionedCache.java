@@ -0,0 +1,175 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Cache of values derived from metadata, where each entry is stamped with the
+ * version of the metadata types the value depends on, as reported by the
+ * {@link MetadataChangeTracker}. An entry is reloaded when any object of those
+ * types has been changed since the entry was loaded, on this or any other node
+ * of the cluster. Entries also expire a while after they were loaded, which
+ * bounds the staleness after changes made outside of Hibernate, such as
+ * through SQL.
+ *
+ * @param <V> the value type.
+ */
+public class MetadataVersionedCache<V>
+{
+    private static final long EXPIRE_AFTER_WRITE_MINUTES = 60;
+
+    private final Cache<Versioned<V>> cache;
+
+    private final MetadataChangeTracker metadataChangeTracker;
+
+    private final Class<?>[] types;
+
+    /**
+     * Constructor.
+     *
+     * @param region the cache region.
+     * @param maximumSize the maximum number of entries, zero to disable caching.
+     * @param metadataChangeTracker the {@link MetadataChangeTracker}.
+     * @param types the metadata types which cached values depend on.
+     */
+    public MetadataVersionedCache( String region, long maximumSize, MetadataChangeTracker metadataChangeTracker,
+        Class<?>... types )
+    {
+        checkNotNull( region );
+        checkNotNull( metadataChangeTracker );
+
+        this.cache = new SimpleCacheBuilder<Versioned<V>>()
+            .forRegion( region )
+            .expireAfterWrite( EXPIRE_AFTER_WRITE_MINUTES, TimeUnit.MINUTES )
+            .withMaximumSize( maximumSize )
+            .build();
+        this.metadataChangeTracker = metadataChangeTracker;
+        this.types = types;
+    }
+
+    /**
+     * Returns the value for the given key. The value is loaded with the given
+     * function if not present, or if the metadata which the value depends on
+     * has been changed since it was loaded.
+     *
+     * @param key the cache key.
+     * @param mappingFunction the function loading the value for a key.
+     * @return the value.
+     */
+    public V get( String key, Function<String, V> mappingFunction )
+    {
+        // Read the version before loading, so that a change during loading
+        // leads to a reload on next access
+
+        long version = metadataChangeTracker.getVersion( types );
+
+        Versioned<V> cached = cache.getIfPresent( key ).orElse( null );
+
+        if ( cached != null && cached.version == version )
+        {
+            return cached.value;
+        }
+
+        V value = mappingFunction.apply( key );
+
+        if ( value != null )
+        {
+            cache.put( key, new Versioned<>( version, value ) );
+        }
+
+        return value;
+    }
+
+    /**
+     * Returns the current version of the metadata types which cached values
+     * depend on. Callers loading values themselves should read the version
+     * before loading and pass it to {@link #put(String, Object, long)}.
+     *
+     * @return the current version.
+     */
+    public long getVersion()
+    {
+        return metadataChangeTracker.getVersion( types );
+    }
+
+    /**
+     * Returns the value for the given key if present and loaded at the given
+     * version, or null otherwise.
+     *
+     * @param key the cache key.
+     * @param version the current version, see {@link #getVersion()}.
+     * @return the value, or null.
+     */
+    public V getIfCurrent( String key, long version )
+    {
+        Versioned<V> cached = cache.getIfPresent( key ).orElse( null );
+
+        return cached != null && cached.version == version ? cached.value : null;
+    }
+
+    /**
+     * Puts the given value, loaded at the given version, in the cache.
+     *
+     * @param key the cache key.
+     * @param value the value.
+     * @param version the version read before the value was loaded.
+     */
+    public void put( String key, V value, long version )
+    {
+        if ( value != null )
+        {
+            cache.put( key, new Versioned<>( version, value ) );
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void invalidateAll()
+    {
+        cache.invalidateAll();
+    }
+
+    private static class Versioned<V>
+    {
+        private final long version;
+
+        private final V value;
+
+        private Versioned( long version, V value )
+        {
+            this.version = version;
+            this.value = value;
+        }
+    }
+}
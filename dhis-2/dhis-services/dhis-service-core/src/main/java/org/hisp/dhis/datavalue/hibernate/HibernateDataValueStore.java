@@ -447,33 +447,33 @@ public class HibernateDataValueStore extends HibernateGenericStore<DataValue>
 
         sql += where;
 
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
-
-        List<DeflatedDataValue> result = new ArrayList<>();
+        return getDeflatedDataValues( sql );
+    }
 
-        while ( rowSet.next() )
+    @Override
+    public List<DeflatedDataValue> getDeflatedDataValues( Collection<DataValue> dataValues )
+    {
+        if ( dataValues.isEmpty() )
         {
-            Integer dataElementId = rowSet.getInt( 1 );
-            Integer periodId = rowSet.getInt( 2 );
-            Integer organisationUnitId = rowSet.getInt( 3 );
-            Integer categoryOptionComboId = rowSet.getInt( 4 );
-            Integer attributeOptionComboId = rowSet.getInt( 5 );
-            String value = rowSet.getString( 6 );
-            String storedBy = rowSet.getString( 7 );
-            Date created = rowSet.getDate( 8 );
-            Date lastUpdated = rowSet.getDate( 9 );
-            String comment = rowSet.getString( 10 );
-            boolean followup = rowSet.getBoolean( 11 );
-            boolean deleted = rowSet.getBoolean( 12 );
-
-            result.add( new DeflatedDataValue( dataElementId, periodId,
-                organisationUnitId, categoryOptionComboId, attributeOptionComboId,
-                value, storedBy, created, lastUpdated, comment, followup, deleted ) );
+            return new ArrayList<>();
         }
 
-        log.debug( result.size() + " DeflatedDataValues returned from: " + sql );
+        String keys = dataValues.stream()
+            .map( dv -> "(" + dv.getDataElement().getId() +
+                "," + dv.getPeriod().getId() +
+                "," + dv.getSource().getId() +
+                "," + dv.getCategoryOptionCombo().getId() +
+                "," + dv.getAttributeOptionCombo().getId() + ")" )
+            .distinct()
+            .collect( Collectors.joining( "," ) );
 
-        return result;
+        String sql = "select dv.dataelementid, dv.periodid, dv.sourceid" +
+            ", dv.categoryoptioncomboid, dv.attributeoptioncomboid, dv.value" +
+            ", dv.storedby, dv.created, dv.lastupdated, dv.comment, dv.followup, dv.deleted" +
+            " from datavalue dv where (dv.dataelementid, dv.periodid, dv.sourceid" +
+            ", dv.categoryoptioncomboid, dv.attributeoptioncomboid) in (values " + keys + ")";
+
+        return getDeflatedDataValues( sql );
     }
 
     @Override
@@ -547,4 +547,35 @@ public class HibernateDataValueStore extends HibernateGenericStore<DataValue>
             .filter( deo -> deo.getCategoryOptionCombo() == null || !wildDataElementIds.contains( deo.getDataElement().getId() ) )
             .collect( Collectors.toList() );
     }
+
+    private List<DeflatedDataValue> getDeflatedDataValues( String sql )
+    {
+        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+
+        List<DeflatedDataValue> result = new ArrayList<>();
+
+        while ( rowSet.next() )
+        {
+            Integer dataElementId = rowSet.getInt( 1 );
+            Integer periodId = rowSet.getInt( 2 );
+            Integer organisationUnitId = rowSet.getInt( 3 );
+            Integer categoryOptionComboId = rowSet.getInt( 4 );
+            Integer attributeOptionComboId = rowSet.getInt( 5 );
+            String value = rowSet.getString( 6 );
+            String storedBy = rowSet.getString( 7 );
+            Date created = rowSet.getDate( 8 );
+            Date lastUpdated = rowSet.getDate( 9 );
+            String comment = rowSet.getString( 10 );
+            boolean followup = rowSet.getBoolean( 11 );
+            boolean deleted = rowSet.getBoolean( 12 );
+
+            result.add( new DeflatedDataValue( dataElementId, periodId,
+                organisationUnitId, categoryOptionComboId, attributeOptionComboId,
+                value, storedBy, created, lastUpdated, comment, followup, deleted ) );
+        }
+
+        log.debug( result.size() + " DeflatedDataValues returned from: " + sql );
+
+        return result;
+    }
 }
@@ -31,7 +31,6 @@ package org.hisp.dhis.expression;
 import com.google.common.collect.ImmutableMap;
 import lombok.extern.slf4j.Slf4j;
 import org.hisp.dhis.analytics.DataType;
-import org.hisp.dhis.antlr.Parser;
 import org.hisp.dhis.antlr.ParserException;
 import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.common.DimensionService;
@@ -139,6 +138,8 @@ public class DefaultExpressionService
 
     private final DimensionService dimensionService;
 
+    private final ExpressionParseTreeCache parseTreeCache;
+
     // -------------------------------------------------------------------------
     // Static data
     // -------------------------------------------------------------------------
@@ -189,7 +190,8 @@ public class DefaultExpressionService
     public DefaultExpressionService(
         @Qualifier( "org.hisp.dhis.expression.ExpressionStore" ) HibernateGenericStore<Expression> expressionStore,
         DataElementService dataElementService, ConstantService constantService, CategoryService categoryService,
-        OrganisationUnitGroupService organisationUnitGroupService, DimensionService dimensionService )
+        OrganisationUnitGroupService organisationUnitGroupService, DimensionService dimensionService,
+        ExpressionParseTreeCache parseTreeCache )
     {
         checkNotNull( expressionStore );
         checkNotNull( dataElementService );
@@ -197,6 +199,7 @@ public class DefaultExpressionService
         checkNotNull( categoryService );
         checkNotNull( organisationUnitGroupService );
         checkNotNull( dimensionService );
+        checkNotNull( parseTreeCache );
 
         this.expressionStore = expressionStore;
         this.dataElementService = dataElementService;
@@ -204,6 +207,7 @@ public class DefaultExpressionService
         this.categoryService = categoryService;
         this.organisationUnitGroupService = organisationUnitGroupService;
         this.dimensionService = dimensionService;
+        this.parseTreeCache = parseTreeCache;
     }
 
     // -------------------------------------------------------------------------
@@ -638,7 +642,7 @@ public class DefaultExpressionService
     {
         try
         {
-            Object result = Parser.visit( expression, visitor );
+            Object result = parseTreeCache.visit( expression, visitor );
 
             switch( dataType )
             {
@@ -0,0 +1,210 @@
+package org.hisp.dhis.expression;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.hisp.dhis.antlr.AntlrExpressionVisitor;
+import org.hisp.dhis.antlr.ParserException;
+import org.hisp.dhis.cache.Cache;
+import org.hisp.dhis.cache.SimpleCacheBuilder;
+import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
+import org.hisp.dhis.parser.expression.antlr.ExpressionLexer;
+import org.hisp.dhis.parser.expression.antlr.ExpressionParser;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cache of ANTLR parse trees of expressions, shared by all expression
+ * visitors and listeners. The same expression is typically evaluated many
+ * times, for instance once per organisation unit, period and category option
+ * combination in a validation run, and lexing and parsing dominates the cost
+ * of each evaluation.
+ * <p>
+ * Parse trees are keyed by the expression string only, as the tree depends on
+ * the text of the expression and not on the metadata it refers to, nor on the
+ * parse type which only determines the items the visitor accepts. Metadata
+ * changes can hence never make a cached tree stale, and the cache is bounded
+ * by size and expiry time only. Parse trees are not modified by visitors and
+ * listeners, so a cached tree can be traversed by several threads at once.
+ */
+@Slf4j
+@Component( "org.hisp.dhis.expression.ExpressionParseTreeCache" )
+public class ExpressionParseTreeCache
+{
+    private static final long MAX_CACHE_ENTRIES = 20000;
+
+    private final Cache<ParseTree> parseTreeCache = new SimpleCacheBuilder<ParseTree>()
+        .forRegion( "expressionParseTree" )
+        .expireAfterAccess( 12, TimeUnit.HOURS )
+        .withInitialCapacity( 1000 )
+        .withMaximumSize( MAX_CACHE_ENTRIES )
+        .build();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the parse tree for the given expression, parsing the expression
+     * if it is not already cached.
+     *
+     * @param expression the expression.
+     * @return the parse tree.
+     * @throws ParserException if the expression cannot be parsed.
+     */
+    public ParseTree getParseTree( String expression )
+    {
+        ParseTree parseTree = parseTreeCache.getIfPresent( expression ).orElse( null );
+
+        if ( parseTree != null )
+        {
+            hits.incrementAndGet();
+
+            return parseTree;
+        }
+
+        misses.incrementAndGet();
+
+        parseTree = parse( expression );
+
+        parseTreeCache.put( expression, parseTree );
+
+        return parseTree;
+    }
+
+    /**
+     * Visits the cached parse tree of the given expression with the given
+     * visitor.
+     *
+     * @param expression the expression.
+     * @param visitor the visitor.
+     * @return the result of the visit.
+     * @throws ParserException if the expression cannot be parsed.
+     */
+    public Object visit( String expression, AntlrExpressionVisitor visitor )
+    {
+        return visitor.visit( getParseTree( expression ) );
+    }
+
+    /**
+     * Walks the cached parse tree of the given expression with the given
+     * listener.
+     *
+     * @param expression the expression.
+     * @param listener the listener.
+     * @throws ParserException if the expression cannot be parsed.
+     */
+    public void listen( String expression, ParseTreeListener listener )
+    {
+        ParseTreeWalker.DEFAULT.walk( listener, getParseTree( expression ) );
+    }
+
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+    public long getMissCount()
+    {
+        return misses.get();
+    }
+
+    /**
+     * Removes all cached parse trees.
+     */
+    public void invalidateAll()
+    {
+        parseTreeCache.invalidateAll();
+
+        log.info( "Expression parse tree cache cleared" );
+    }
+
+    @EventListener
+    public void handleApplicationCachesCleared( ApplicationCacheClearedEvent event )
+    {
+        invalidateAll();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Lexes and parses the given expression into a parse tree, throwing a
+     * {@link ParserException} on any syntax error.
+     *
+     * @param expression the expression.
+     * @return the parse tree.
+     */
+    private ParseTree parse( String expression )
+    {
+        ThrowingErrorListener errorListener = new ThrowingErrorListener();
+
+        ExpressionLexer lexer = new ExpressionLexer( CharStreams.fromString( expression ) );
+        lexer.removeErrorListeners();
+        lexer.addErrorListener( errorListener );
+
+        ExpressionParser parser = new ExpressionParser( new CommonTokenStream( lexer ) );
+        parser.removeErrorListeners();
+        parser.addErrorListener( errorListener );
+
+        return parser.expression();
+    }
+
+    /**
+     * Error listener which throws a {@link ParserException} instead of
+     * printing syntax errors to the console.
+     */
+    private static class ThrowingErrorListener
+        extends BaseErrorListener
+    {
+        @Override
+        public void syntaxError( Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+            int charPositionInLine, String msg, RecognitionException e )
+        {
+            throw new ParserException( msg + " at character " + charPositionInLine );
+        }
+    }
+}
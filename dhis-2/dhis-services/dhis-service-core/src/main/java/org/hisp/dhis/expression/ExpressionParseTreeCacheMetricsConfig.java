@@ -0,0 +1,76 @@
+package org.hisp.dhis.expression;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.external.conf.ConfigurationKey.MONITORING_CACHE_ENABLED;
+
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.monitoring.metrics.MetricsEnabler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Binds the hit and miss counts of the {@link ExpressionParseTreeCache} to
+ * the meter registry when cache monitoring is enabled.
+ */
+@Configuration
+@Conditional( ExpressionParseTreeCacheMetricsConfig.CacheMetricsEnabledCondition.class )
+public class ExpressionParseTreeCacheMetricsConfig
+{
+    private static final String METRIC_NAME = "expression.parse.tree.cache.gets";
+
+    @Autowired
+    public void bindToRegistry( MeterRegistry registry, ExpressionParseTreeCache expressionParseTreeCache )
+    {
+        FunctionCounter.builder( METRIC_NAME, expressionParseTreeCache, ExpressionParseTreeCache::getHitCount )
+            .tag( "result", "hit" )
+            .description( "Number of expression parse tree cache hits" )
+            .register( registry );
+
+        FunctionCounter.builder( METRIC_NAME, expressionParseTreeCache, ExpressionParseTreeCache::getMissCount )
+            .tag( "result", "miss" )
+            .description( "Number of expression parse tree cache misses" )
+            .register( registry );
+    }
+
+    static class CacheMetricsEnabledCondition
+        extends
+        MetricsEnabler
+    {
+        @Override
+        protected ConfigurationKey getConfigKey()
+        {
+            return MONITORING_CACHE_ENABLED;
+        }
+    }
+}
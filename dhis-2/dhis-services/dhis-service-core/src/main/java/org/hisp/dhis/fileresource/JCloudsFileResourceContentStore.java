@@ -51,7 +51,11 @@ import org.hisp.dhis.external.location.LocationManager;
 import org.jclouds.ContextBuilder;
 import org.jclouds.blobstore.*;
 import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.domain.StorageType;
 import org.jclouds.blobstore.internal.RequestSigningUnsupported;
+import org.jclouds.blobstore.options.ListContainerOptions;
 import org.jclouds.domain.Credentials;
 import org.jclouds.domain.Location;
 import org.jclouds.domain.LocationBuilder;
@@ -341,6 +345,41 @@ public class JCloudsFileResourceContentStore
         return blobExists( key );
     }
 
+    @Override
+    public int deleteFileResourceContentOlderThan( String directory, Date date )
+    {
+        int deleted = 0;
+
+        String marker = null;
+
+        do
+        {
+            ListContainerOptions options = ListContainerOptions.Builder.inDirectory( directory );
+
+            if ( marker != null )
+            {
+                options.afterMarker( marker );
+            }
+
+            PageSet<? extends StorageMetadata> page = blobStore.list( config.container, options );
+
+            for ( StorageMetadata metadata : page )
+            {
+                if ( StorageType.BLOB == metadata.getType() && metadata.getLastModified() != null
+                    && metadata.getLastModified().before( date ) )
+                {
+                    deleteBlob( metadata.getName() );
+                    deleted++;
+                }
+            }
+
+            marker = page.getNextMarker();
+        }
+        while ( marker != null );
+
+        return deleted;
+    }
+
     @Override
     public URI getSignedGetContentUri( String key )
     {
@@ -0,0 +1,260 @@
+package org.hisp.dhis.organisationunit;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+
+import org.hisp.dhis.cache.MetadataChangeTracker;
+import org.hisp.dhis.commons.util.SystemUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps an {@link OrganisationUnitHierarchyIndex} built from the organisation
+ * unit table. The {@link MetadataChangeTracker} notifies the service of
+ * committed changes to organisation units on this and other nodes, and of
+ * cleared application caches. The index is then rebuilt on a background
+ * thread, outside of any transaction of the callers, once changes have
+ * stopped arriving for {@link #REBUILD_DELAY_MILLIS}.
+ * <p>
+ * While a rebuild is pending, the index is empty, so that hierarchy checks
+ * fall back to walking the parents of the organisation units instead of
+ * using an outdated index.
+ */
+@Slf4j
+@Service( "org.hisp.dhis.organisationunit.OrganisationUnitHierarchyIndexService" )
+public class DefaultOrganisationUnitHierarchyIndexService
+    implements OrganisationUnitHierarchyIndexService
+{
+    private static final long REBUILD_DELAY_MILLIS = TimeUnit.SECONDS.toMillis( 5 );
+
+    private static final OrganisationUnitHierarchyIndex EMPTY_INDEX = OrganisationUnitHierarchyIndex
+        .build( new long[0], new long[0] );
+
+    private static final String HIERARCHY_SQL = "select organisationunitid, parentid from organisationunit";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final MetadataChangeTracker metadataChangeTracker;
+
+    private final boolean enabled;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor( runnable -> {
+        Thread thread = new Thread( runnable, "org-unit-hierarchy-index" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+
+    private volatile Snapshot snapshot;
+
+    public DefaultOrganisationUnitHierarchyIndexService( JdbcTemplate jdbcTemplate,
+        MetadataChangeTracker metadataChangeTracker, Environment env )
+    {
+        checkNotNull( jdbcTemplate );
+        checkNotNull( metadataChangeTracker );
+        checkNotNull( env );
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.metadataChangeTracker = metadataChangeTracker;
+        this.enabled = !SystemUtils.isTestRun( env.getActiveProfiles() );
+
+        if ( enabled )
+        {
+            metadataChangeTracker.addListener( OrganisationUnit.class, () -> scheduleRebuild( REBUILD_DELAY_MILLIS ) );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // OrganisationUnitHierarchyIndexService implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public OrganisationUnitHierarchyIndex getIndex()
+    {
+        if ( !enabled )
+        {
+            return EMPTY_INDEX;
+        }
+
+        Snapshot current = snapshot;
+
+        if ( current != null && current.version == metadataChangeTracker.getVersion( OrganisationUnit.class ) )
+        {
+            return current.index;
+        }
+
+        // Build the first index right away, later ones are scheduled by
+        // change notifications
+
+        if ( current == null )
+        {
+            scheduleRebuild( 0 );
+        }
+
+        return EMPTY_INDEX;
+    }
+
+    @Override
+    public boolean isDescendant( OrganisationUnit organisationUnit, Collection<OrganisationUnit> ancestors )
+    {
+        if ( organisationUnit == null || ancestors == null || ancestors.isEmpty() )
+        {
+            return false;
+        }
+
+        OrganisationUnitHierarchyIndex index = getIndex();
+
+        List<Long> ancestorIds = ancestors.stream()
+            .map( OrganisationUnit::getId )
+            .collect( Collectors.toList() );
+
+        if ( index.contains( organisationUnit.getId() ) && ancestorIds.stream().allMatch( index::contains ) )
+        {
+            return index.isDescendant( organisationUnit.getId(), ancestorIds );
+        }
+
+        return organisationUnit.isDescendant( new HashSet<>( ancestors ) );
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        executor.shutdownNow();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Schedules a rebuild of the index after the given delay, unless one is
+     * already scheduled, so that a burst of changes leads to one rebuild.
+     */
+    private void scheduleRebuild( long delayMillis )
+    {
+        if ( rebuildScheduled.compareAndSet( false, true ) )
+        {
+            executor.schedule( this::rebuild, delayMillis, TimeUnit.MILLISECONDS );
+        }
+    }
+
+    private void rebuild()
+    {
+        rebuildScheduled.set( false );
+
+        // Read the version before loading, so that a change during loading
+        // leaves the index outdated until the rebuild it schedules
+
+        long version = metadataChangeTracker.getVersion( OrganisationUnit.class );
+
+        try
+        {
+            snapshot = new Snapshot( version, loadIndex() );
+        }
+        catch ( RuntimeException ex )
+        {
+            log.error( "Failed to build organisation unit hierarchy index", ex );
+
+            scheduleRebuild( REBUILD_DELAY_MILLIS );
+        }
+    }
+
+    private OrganisationUnitHierarchyIndex loadIndex()
+    {
+        long startTime = System.currentTimeMillis();
+
+        LongArray ids = new LongArray();
+        LongArray parentIds = new LongArray();
+
+        jdbcTemplate.query( HIERARCHY_SQL, rs -> {
+            ids.add( rs.getLong( "organisationunitid" ) );
+            parentIds.add( rs.getLong( "parentid" ) );
+        } );
+
+        OrganisationUnitHierarchyIndex index = OrganisationUnitHierarchyIndex.build( ids.toArray(),
+            parentIds.toArray() );
+
+        log.info( String.format( "Organisation unit hierarchy index built with %d units in %d ms", index.size(),
+            System.currentTimeMillis() - startTime ) );
+
+        return index;
+    }
+
+    private static class Snapshot
+    {
+        private final long version;
+
+        private final OrganisationUnitHierarchyIndex index;
+
+        private Snapshot( long version, OrganisationUnitHierarchyIndex index )
+        {
+            this.version = version;
+            this.index = index;
+        }
+    }
+
+    private static class LongArray
+    {
+        private long[] values = new long[1024];
+
+        private int size;
+
+        private void add( long value )
+        {
+            if ( size == values.length )
+            {
+                values = Arrays.copyOf( values, size * 2 );
+            }
+
+            values[size++] = value;
+        }
+
+        private long[] toArray()
+        {
+            return Arrays.copyOf( values, size );
+        }
+    }
+}
@@ -98,10 +98,13 @@ public class DefaultOrganisationUnitService
 
     private final CacheProvider cacheProvider;
 
+    private final OrganisationUnitHierarchyIndexService organisationUnitHierarchyIndexService;
+
     public DefaultOrganisationUnitService( Environment env, OrganisationUnitStore organisationUnitStore,
         DataSetService dataSetService, OrganisationUnitLevelStore organisationUnitLevelStore,
         CurrentUserService currentUserService, ConfigurationService configurationService,
-        UserSettingService userSettingService, CacheProvider cacheProvider )
+        UserSettingService userSettingService, CacheProvider cacheProvider,
+        OrganisationUnitHierarchyIndexService organisationUnitHierarchyIndexService )
     {
         checkNotNull( env );
         checkNotNull( organisationUnitStore );
@@ -110,6 +113,7 @@ public class DefaultOrganisationUnitService
         checkNotNull( currentUserService );
         checkNotNull( configurationService );
         checkNotNull( userSettingService );
+        checkNotNull( organisationUnitHierarchyIndexService );
 
         this.env = env;
         this.organisationUnitStore = organisationUnitStore;
@@ -119,6 +123,7 @@ public class DefaultOrganisationUnitService
         this.configurationService = configurationService;
         this.userSettingService = userSettingService;
         this.cacheProvider = cacheProvider;
+        this.organisationUnitHierarchyIndexService = organisationUnitHierarchyIndexService;
     }
 
     /**
@@ -481,7 +486,7 @@ public class DefaultOrganisationUnitService
             return false;
         }
 
-        return organisationUnit.isDescendant( user.getOrganisationUnits() );
+        return organisationUnitHierarchyIndexService.isDescendant( organisationUnit, user.getOrganisationUnits() );
     }
 
     @Override
@@ -518,7 +523,8 @@ public class DefaultOrganisationUnitService
             return false;
         }
 
-        return organisationUnit.isDescendant( user.getTeiSearchOrganisationUnitsWithFallback() );
+        return organisationUnitHierarchyIndexService.isDescendant( organisationUnit,
+            user.getTeiSearchOrganisationUnitsWithFallback() );
     }
 
     @Override
@@ -527,7 +533,8 @@ public class DefaultOrganisationUnitService
     {
         OrganisationUnit organisationUnit = organisationUnitStore.getByUid( uid );
 
-        return organisationUnit != null && organisationUnit.isDescendant( organisationUnits );
+        return organisationUnit != null
+            && organisationUnitHierarchyIndexService.isDescendant( organisationUnit, organisationUnits );
     }
 
     // -------------------------------------------------------------------------
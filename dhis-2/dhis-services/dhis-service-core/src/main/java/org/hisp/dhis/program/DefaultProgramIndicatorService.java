@@ -30,7 +30,6 @@ package org.hisp.dhis.program;
 
 import com.google.common.collect.ImmutableMap;
 import org.apache.commons.lang.StringUtils;
-import org.hisp.dhis.antlr.Parser;
 import org.hisp.dhis.antlr.ParserException;
 import org.hisp.dhis.cache.Cache;
 import org.hisp.dhis.cache.SimpleCacheBuilder;
@@ -38,6 +37,7 @@ import org.hisp.dhis.common.IdentifiableObjectStore;
 import org.hisp.dhis.commons.util.TextUtils;
 import org.hisp.dhis.constant.ConstantService;
 import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.expression.ExpressionParseTreeCache;
 import org.hisp.dhis.i18n.I18nManager;
 import org.hisp.dhis.jdbc.StatementBuilder;
 import org.hisp.dhis.parser.expression.CommonExpressionVisitor;
@@ -109,6 +109,8 @@ public class DefaultProgramIndicatorService
 
     private RelationshipTypeService relationshipTypeService;
 
+    private ExpressionParseTreeCache parseTreeCache;
+
     private static Cache<String> ANALYTICS_SQL_CACHE = new SimpleCacheBuilder<String>().forRegion( "analyticsSql" )
         .expireAfterAccess( 10, TimeUnit.HOURS )
         .withInitialCapacity( 10000 )
@@ -119,7 +121,8 @@ public class DefaultProgramIndicatorService
         ProgramStageService programStageService, DataElementService dataElementService,
         TrackedEntityAttributeService attributeService, ConstantService constantService, StatementBuilder statementBuilder,
         @Qualifier("org.hisp.dhis.program.ProgramIndicatorGroupStore") IdentifiableObjectStore<ProgramIndicatorGroup> programIndicatorGroupStore,
-        I18nManager i18nManager, RelationshipTypeService relationshipTypeService )
+        I18nManager i18nManager, RelationshipTypeService relationshipTypeService,
+        ExpressionParseTreeCache parseTreeCache )
     {
         checkNotNull( programIndicatorStore );
         checkNotNull( programStageService );
@@ -130,6 +133,7 @@ public class DefaultProgramIndicatorService
         checkNotNull( programIndicatorGroupStore );
         checkNotNull( i18nManager );
         checkNotNull( relationshipTypeService );
+        checkNotNull( parseTreeCache );
 
         this.programIndicatorStore = programIndicatorStore;
         this.programStageService = programStageService;
@@ -140,6 +144,7 @@ public class DefaultProgramIndicatorService
         this.programIndicatorGroupStore = programIndicatorGroupStore;
         this.i18nManager = i18nManager;
         this.relationshipTypeService = relationshipTypeService;
+        this.parseTreeCache = parseTreeCache;
     }
 
     public final static ImmutableMap<Integer, ExpressionItem> PROGRAM_INDICATOR_ITEMS = ImmutableMap.<Integer, ExpressionItem>builder()
@@ -295,7 +300,7 @@ public class DefaultProgramIndicatorService
     {
         CommonExpressionVisitor visitor = newVisitor( ITEM_GET_DESCRIPTIONS );
 
-        castClass( clazz, Parser.visit( expression, visitor ) );
+        castClass( clazz, parseTreeCache.visit( expression, visitor ) );
 
         itemDescriptions.putAll( visitor.getItemDescriptions() );
     }
@@ -348,7 +353,7 @@ public class DefaultProgramIndicatorService
         visitor.setReportingEndDate( endDate );
         visitor.setDataElementAndAttributeIdentifiers( uids );
 
-        String sql =  castString( Parser.visit( expression, visitor ) );
+        String sql =  castString( parseTreeCache.visit( expression, visitor ) );
         return (tableAlias != null ? sql.replaceAll( ANALYTICS_TBL_ALIAS + "\\.", tableAlias + "\\." ) : sql);
     }
 
@@ -492,7 +497,7 @@ public class DefaultProgramIndicatorService
 
         ProgramElementsAndAttributesCollecter listener = new ProgramElementsAndAttributesCollecter( items, analyticsType );
 
-        Parser.listen( expression, listener );
+        parseTreeCache.listen( expression, listener );
 
         return items;
     }
@@ -29,11 +29,15 @@ package org.hisp.dhis.query;
  */
 
 import org.hibernate.Criteria;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.DetachedCriteria;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.criterion.SimpleExpression;
 import org.hibernate.criterion.Subqueries;
+import org.hibernate.engine.spi.EntityKey;
 import org.hisp.dhis.common.IdentifiableObject;
 import org.hisp.dhis.hibernate.InternalHibernateGenericStore;
 import org.hisp.dhis.query.planner.QueryPlan;
@@ -43,10 +47,15 @@ import org.hisp.dhis.user.CurrentUserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -66,19 +75,23 @@ public class CriteriaQueryEngine<T extends IdentifiableObject>
 
     private final List<InternalHibernateGenericStore<T>> hibernateGenericStores;
 
+    private final SessionFactory sessionFactory;
+
     private Map<Class<?>, InternalHibernateGenericStore<T>> stores = new HashMap<>();
 
     @Autowired
     public CriteriaQueryEngine( CurrentUserService currentUserService, QueryPlanner queryPlanner,
-        List<InternalHibernateGenericStore<T>> hibernateGenericStores )
+        List<InternalHibernateGenericStore<T>> hibernateGenericStores, SessionFactory sessionFactory )
     {
         checkNotNull( currentUserService );
         checkNotNull( queryPlanner );
         checkNotNull( hibernateGenericStores );
+        checkNotNull( sessionFactory );
 
         this.currentUserService = currentUserService;
         this.queryPlanner = queryPlanner;
         this.hibernateGenericStores = hibernateGenericStores;
+        this.sessionFactory = sessionFactory;
     }
 
     @Override
@@ -123,6 +136,113 @@ public class CriteriaQueryEngine<T extends IdentifiableObject>
         return criteria.add( Subqueries.propertyIn( "id", detachedCriteria ) ).list();
     }
 
+    /**
+     * Reads the objects matching the given query in chunks of the given size
+     * and passes each chunk to the given filter, which returns the objects of
+     * the chunk to retain. Chunks are read in the persisted orders of the query
+     * followed by id, each starting after the last object of the previous
+     * chunk, and the paging of the query is ignored. Reading stops once the
+     * given number of objects is retained or no more objects match. Objects
+     * which were neither in the session before being read nor retained are
+     * evicted once the filter returns, so that the session does not grow with
+     * the number of objects read.
+     *
+     * @param query the query.
+     * @param chunkSize the maximum number of objects per chunk.
+     * @param limit the number of retained objects after which to stop.
+     * @param filter the function returning the objects of a chunk to retain.
+     * @return the retained objects in query order.
+     */
+    @SuppressWarnings( "unchecked" )
+    public List<IdentifiableObject> queryInChunks( Query query, int chunkSize, int limit,
+        Function<List<? extends IdentifiableObject>, List<? extends IdentifiableObject>> filter )
+    {
+        List<IdentifiableObject> retained = new ArrayList<>();
+
+        Schema schema = query.getSchema();
+        InternalHibernateGenericStore<?> store = getStore( (Class<? extends IdentifiableObject>) schema.getKlass() );
+
+        if ( store == null )
+        {
+            return retained;
+        }
+
+        if ( query.getUser() == null )
+        {
+            query.setUser( currentUserService.getCurrentUser() );
+        }
+
+        if ( !query.isPlannedQuery() )
+        {
+            QueryPlan queryPlan = queryPlanner.planQuery( query, true );
+            query = queryPlan.getPersistedQuery();
+        }
+
+        List<Order> orders = query.getOrders().stream()
+            .filter( order -> getHibernateOrder( order ) != null )
+            .collect( Collectors.toList() );
+
+        Session session = sessionFactory.getCurrentSession();
+        Set<Serializable> managedIds = getManagedIds( session, schema.getKlass() );
+
+        T last = null;
+
+        while ( retained.size() < limit )
+        {
+            DetachedCriteria detachedCriteria = buildCriteria( store.getSharingDetachedCriteria( query.getUser() ), query );
+            Criteria criteria = store.getCriteria();
+
+            if ( criteria == null )
+            {
+                return retained;
+            }
+
+            criteria.add( Subqueries.propertyIn( "id", detachedCriteria ) );
+
+            if ( last != null )
+            {
+                criteria.add( getAfterCriterion( orders, last ) );
+            }
+
+            for ( Order order : orders )
+            {
+                criteria.addOrder( getHibernateOrder( order ) );
+            }
+
+            List<T> chunk = criteria
+                .addOrder( org.hibernate.criterion.Order.asc( "id" ) )
+                .setMaxResults( chunkSize )
+                .list();
+
+            if ( chunk.isEmpty() )
+            {
+                return retained;
+            }
+
+            List<? extends IdentifiableObject> matches = filter.apply( chunk );
+            retained.addAll( matches );
+
+            Set<Long> retainedIds = matches.stream().map( IdentifiableObject::getId ).collect( Collectors.toSet() );
+
+            last = chunk.get( chunk.size() - 1 );
+
+            for ( T object : chunk )
+            {
+                if ( !managedIds.contains( object.getId() ) && !retainedIds.contains( object.getId() ) )
+                {
+                    session.evict( object );
+                }
+            }
+
+            if ( chunk.size() < chunkSize )
+            {
+                return retained;
+            }
+        }
+
+        return retained;
+    }
+
     @Override
     @SuppressWarnings( "unchecked" )
     public int count( Query query )
@@ -271,6 +391,11 @@ public class CriteriaQueryEngine<T extends IdentifiableObject>
             return null;
         }
 
+        if ( restriction.getQueryPath().haveSqlExpression() )
+        {
+            return restriction.getOperator().getSqlCriterion( restriction.getQueryPath().getSqlExpression() );
+        }
+
         return restriction.getOperator().getHibernateCriterion( restriction.getQueryPath() );
     }
 
@@ -306,6 +431,96 @@ public class CriteriaQueryEngine<T extends IdentifiableObject>
         return criteriaOrder;
     }
 
+    /**
+     * Returns a criterion matching the objects which come after the given
+     * object in the given orders followed by id. Null values are taken to sort
+     * last in ascending and first in descending order, as in PostgreSQL.
+     */
+    private Criterion getAfterCriterion( List<Order> orders, T last )
+    {
+        org.hibernate.criterion.Disjunction after = Restrictions.disjunction();
+        List<Criterion> equal = new ArrayList<>();
+
+        for ( Order order : orders )
+        {
+            String fieldName = order.getProperty().getFieldName() != null ?
+                order.getProperty().getFieldName() : order.getProperty().getName();
+            Object value = order.getProperty().getValue( last );
+
+            Criterion next;
+
+            if ( value == null )
+            {
+                next = order.isAscending() ? null : Restrictions.isNotNull( fieldName );
+            }
+            else
+            {
+                SimpleExpression beyond = order.isAscending() ? Restrictions.gt( fieldName, value ) : Restrictions.lt( fieldName, value );
+
+                if ( order.isIgnoreCase() && value instanceof String )
+                {
+                    beyond.ignoreCase();
+                }
+
+                next = order.isAscending() ? Restrictions.or( beyond, Restrictions.isNull( fieldName ) ) : beyond;
+            }
+
+            if ( next != null )
+            {
+                after.add( getConjunction( equal, next ) );
+            }
+
+            if ( value == null )
+            {
+                equal.add( Restrictions.isNull( fieldName ) );
+            }
+            else
+            {
+                SimpleExpression same = Restrictions.eq( fieldName, value );
+
+                if ( order.isIgnoreCase() && value instanceof String )
+                {
+                    same.ignoreCase();
+                }
+
+                equal.add( same );
+            }
+        }
+
+        after.add( getConjunction( equal, Restrictions.gt( "id", last.getId() ) ) );
+
+        return after;
+    }
+
+    private Criterion getConjunction( List<Criterion> criteria, Criterion criterion )
+    {
+        org.hibernate.criterion.Conjunction conjunction = Restrictions.conjunction();
+        criteria.forEach( conjunction::add );
+
+        return conjunction.add( criterion );
+    }
+
+    /**
+     * Returns the identifiers of the objects of the given class which are
+     * currently in the given session.
+     */
+    private Set<Serializable> getManagedIds( Session session, Class<?> klass )
+    {
+        Set<Serializable> ids = new HashSet<>();
+
+        for ( Object key : session.getStatistics().getEntityKeys() )
+        {
+            EntityKey entityKey = (EntityKey) key;
+
+            if ( klass.getName().equals( entityKey.getEntityName() ) )
+            {
+                ids.add( entityKey.getIdentifier() );
+            }
+        }
+
+        return ids;
+    }
+
     private void initStoreMap()
     {
         if ( !stores.isEmpty() )
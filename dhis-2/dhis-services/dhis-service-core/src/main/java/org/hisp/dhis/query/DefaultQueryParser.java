@@ -163,6 +163,11 @@ public class DefaultQueryParser implements QueryParser
     {
         Property property = getProperty( schema, path );
 
+        if ( property == null && QueryUtils.isAttributeValuePath( schema, path ) )
+        {
+            property = new Property( String.class );
+        }
+
         if ( property == null )
         {
             throw new QueryParserException( "Unknown path property: " + path );
@@ -30,9 +30,12 @@ package org.hisp.dhis.query;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.common.PagerUtils;
 import org.hisp.dhis.fieldfilter.Defaults;
 import org.hisp.dhis.preheat.Preheat;
 import org.hisp.dhis.query.planner.QueryPlan;
@@ -61,6 +64,8 @@ public class DefaultQueryService
 
     private final Junction.Type DEFAULT_JUNCTION_TYPE = Junction.Type.AND;
 
+    private static final int IN_MEMORY_CHUNK_SIZE = 1000;
+
     public DefaultQueryService( QueryParser queryParser, QueryPlanner queryPlanner,
         CriteriaQueryEngine<? extends IdentifiableObject> criteriaQueryEngine,
         InMemoryQueryEngine<? extends IdentifiableObject> inMemoryQueryEngine )
@@ -146,15 +151,23 @@ public class DefaultQueryService
 
     private int countObjects( Query query )
     {
-        List<? extends IdentifiableObject> objects;
         QueryPlan queryPlan = queryPlanner.planQuery( query );
         Query pQuery = queryPlan.getPersistedQuery();
         Query npQuery = queryPlan.getNonPersistedQuery();
         if ( !npQuery.isEmpty() )
         {
-            npQuery.setObjects( criteriaQueryEngine.query( pQuery ) );
-            objects = inMemoryQueryEngine.query( npQuery );
-            return objects.size();
+            // only the number of matches is kept, and each chunk is evicted from the session once counted
+
+            Query chunkQuery = Query.from( npQuery ).setFirstResult( 0 ).setMaxResults( Integer.MAX_VALUE );
+            AtomicInteger count = new AtomicInteger();
+
+            criteriaQueryEngine.queryInChunks( pQuery, IN_MEMORY_CHUNK_SIZE, Integer.MAX_VALUE, chunk -> {
+                chunkQuery.setObjects( chunk );
+                count.addAndGet( inMemoryQueryEngine.query( chunkQuery ).size() );
+                return Collections.emptyList();
+            } );
+
+            return count.get();
         }
         else
         {
@@ -179,9 +192,11 @@ public class DefaultQueryService
         Query pQuery = queryPlan.getPersistedQuery();
         Query npQuery = queryPlan.getNonPersistedQuery();
 
-        objects = criteriaQueryEngine.query( pQuery );
-
-        if ( !npQuery.isEmpty() )
+        if ( npQuery.isEmpty() )
+        {
+            objects = criteriaQueryEngine.query( pQuery );
+        }
+        else
         {
             if ( log.isDebugEnabled() )
             {
@@ -189,9 +204,25 @@ public class DefaultQueryService
                     + npQuery.getOrders().size() + " orders." );
             }
 
-            npQuery.setObjects( objects );
+            if ( npQuery.getOrders().isEmpty() )
+            {
+                // without in-memory sorting only enough objects to fill the requested page are needed
+
+                long limit = (long) npQuery.getFirstResult() + npQuery.getMaxResults();
+
+                Query chunkQuery = Query.from( npQuery ).setFirstResult( 0 ).setMaxResults( Integer.MAX_VALUE );
+
+                List<IdentifiableObject> matches = criteriaQueryEngine.queryInChunks( pQuery, IN_MEMORY_CHUNK_SIZE,
+                    (int) Math.min( limit, Integer.MAX_VALUE ), chunk -> inMemoryQueryEngine.query( chunkQuery.setObjects( chunk ) ) );
 
-            objects = inMemoryQueryEngine.query( npQuery );
+                objects = PagerUtils.pageCollection( matches, npQuery.getFirstResult(), npQuery.getMaxResults() );
+            }
+            else
+            {
+                npQuery.setObjects( criteriaQueryEngine.query( pQuery ) );
+
+                objects = inMemoryQueryEngine.query( npQuery );
+            }
         }
 
         clearDefaults( query.getSchema().getKlass(), objects, query.getDefaults() );
@@ -29,6 +29,7 @@ package org.hisp.dhis.query;
  */
 
 import com.google.common.collect.Lists;
+import org.hisp.dhis.attribute.AttributeValue;
 import org.hisp.dhis.common.BaseIdentifiableObject;
 import org.hisp.dhis.common.IdentifiableObject;
 import org.hisp.dhis.common.PagerUtils;
@@ -37,7 +38,6 @@ import org.hisp.dhis.schema.Property;
 import org.hisp.dhis.schema.Schema;
 import org.hisp.dhis.schema.SchemaService;
 import org.hisp.dhis.security.acl.AclService;
-import org.hisp.dhis.system.util.ReflectionUtils;
 import org.hisp.dhis.user.CurrentUserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -245,6 +245,11 @@ public class InMemoryQueryEngine<T extends IdentifiableObject>
     @SuppressWarnings( "unchecked" )
     private Object getValue( Query query, Object object, String path )
     {
+        if ( QueryUtils.isAttributeValuePath( query.getSchema(), path ) )
+        {
+            return getAttributeValue( (IdentifiableObject) HibernateUtils.unwrap( object ), path );
+        }
+
         String[] paths = path.split( "\\." );
         Schema currentSchema = query.getSchema();
 
@@ -303,6 +308,19 @@ public class InMemoryQueryEngine<T extends IdentifiableObject>
         throw new QueryException( "No values found for path " + path );
     }
 
+    private String getAttributeValue( IdentifiableObject object, String attribute )
+    {
+        for ( AttributeValue attributeValue : object.getAttributeValues() )
+        {
+            if ( attributeValue.getAttribute() != null && attribute.equals( attributeValue.getAttribute().getUid() ) )
+            {
+                return attributeValue.getValue();
+            }
+        }
+
+        return null;
+    }
+
     @SuppressWarnings( { "unchecked", "rawtypes" } )
     private Object collect( Object object, Property property )
     {
@@ -330,6 +348,6 @@ public class InMemoryQueryEngine<T extends IdentifiableObject>
             return items;
         }
 
-        return ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+        return property.getValue( object );
     }
 }
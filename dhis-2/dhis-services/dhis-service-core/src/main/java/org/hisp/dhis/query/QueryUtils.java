@@ -33,6 +33,7 @@ import com.google.common.base.Optional;
 import com.google.common.collect.Lists;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.math.NumberUtils;
+import org.hisp.dhis.common.CodeGenerator;
 import org.hisp.dhis.schema.Property;
 import org.hisp.dhis.schema.Schema;
 import org.hisp.dhis.util.DateUtils;
@@ -54,6 +55,8 @@ import java.util.Map;
  */
 public final class QueryUtils
 {
+    private static final String ATTRIBUTE_VALUES = "attributeValues";
+
     public static <T> T parseValue( Class<T> klass, Object objectValue )
     {
         return parseValue( klass, null, objectValue );
@@ -496,4 +499,18 @@ public final class QueryUtils
 
         return list.get( 0 );
     }
+
+    /**
+     * Indicates whether the given path refers to the value of the attribute
+     * with the path as identifier, rather than to a property of the schema.
+     *
+     * @param schema the schema.
+     * @param path the path.
+     * @return true if the path is an attribute value path.
+     */
+    public static boolean isAttributeValuePath( Schema schema, String path )
+    {
+        return !schema.haveProperty( path ) && schema.havePersistedProperty( ATTRIBUTE_VALUES )
+            && CodeGenerator.isValidUid( path );
+    }
 }
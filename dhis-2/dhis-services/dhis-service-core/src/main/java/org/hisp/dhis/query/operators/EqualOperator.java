@@ -30,6 +30,7 @@ package org.hisp.dhis.query.operators;
 
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.type.StringType;
 import org.hisp.dhis.query.QueryException;
 import org.hisp.dhis.query.QueryUtils;
 import org.hisp.dhis.query.Type;
@@ -75,6 +76,17 @@ public class EqualOperator extends Operator
         return Restrictions.eq( queryPath.getPath(), args.get( 0 ) );
     }
 
+    @Override
+    public Criterion getSqlCriterion( String sqlExpression )
+    {
+        if ( !String.class.isInstance( args.get( 0 ) ) )
+        {
+            return null;
+        }
+
+        return Restrictions.sqlRestriction( sqlExpression + " = ?", args.get( 0 ), StringType.INSTANCE );
+    }
+
     @Override
     public boolean test( Object value )
     {
@@ -30,12 +30,15 @@ package org.hisp.dhis.query.operators;
 
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.type.StringType;
 import org.hisp.dhis.query.Type;
 import org.hisp.dhis.query.Typed;
 import org.hisp.dhis.query.planner.QueryPath;
 import org.hisp.dhis.schema.Property;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 
 /**
@@ -66,6 +69,23 @@ public class InOperator extends Operator
         return Restrictions.in( queryPath.getPath(), getValue( Collection.class, queryPath.getProperty().getKlass(), args.get( 0 ) ) );
     }
 
+    @Override
+    public Criterion getSqlCriterion( String sqlExpression )
+    {
+        Collection<?> items = getValue( Collection.class, String.class, args.get( 0 ) );
+
+        if ( items == null || items.isEmpty() )
+        {
+            return null;
+        }
+
+        org.hibernate.type.Type[] types = new org.hibernate.type.Type[items.size()];
+        Arrays.fill( types, StringType.INSTANCE );
+
+        return Restrictions.sqlRestriction( sqlExpression + " in (" + String.join( ",", Collections.nCopies( items.size(), "?" ) ) + ")",
+            items.toArray(), types );
+    }
+
     @Override
     public boolean test( Object value )
     {
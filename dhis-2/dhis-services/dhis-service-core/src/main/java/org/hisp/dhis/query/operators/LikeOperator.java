@@ -31,6 +31,7 @@ package org.hisp.dhis.query.operators;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.MatchMode;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.type.StringType;
 import org.hisp.dhis.query.Type;
 import org.hisp.dhis.query.Typed;
 import org.hisp.dhis.query.planner.QueryPath;
@@ -71,6 +72,24 @@ public class LikeOperator extends Operator
         }
     }
 
+    @Override
+    public Criterion getSqlCriterion( String sqlExpression )
+    {
+        String value = matchMode.toMatchString( escapeSqlLike( String.valueOf( args.get( 0 ) ) ) );
+
+        return Restrictions.sqlRestriction( sqlExpression + ( caseSensitive ? " like ?" : " ilike ?" ),
+            value, StringType.INSTANCE );
+    }
+
+    /**
+     * Escapes the backslash escape character and the % and _ wildcards of the
+     * given value, so that it is matched literally by a SQL like expression.
+     */
+    private static String escapeSqlLike( String value )
+    {
+        return value.replace( "\\", "\\\\" ).replace( "%", "\\%" ).replace( "_", "\\_" );
+    }
+
     @Override
     public boolean test( Object value )
     {
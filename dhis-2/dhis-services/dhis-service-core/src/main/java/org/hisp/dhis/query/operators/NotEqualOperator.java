@@ -48,6 +48,14 @@ public class NotEqualOperator extends EqualOperator
         return Restrictions.not( super.getHibernateCriterion( queryPath ) );
     }
 
+    @Override
+    public Criterion getSqlCriterion( String sqlExpression )
+    {
+        Criterion criterion = super.getSqlCriterion( sqlExpression );
+
+        return criterion != null ? Restrictions.not( criterion ) : null;
+    }
+
     @Override
     public boolean test( Object value )
     {
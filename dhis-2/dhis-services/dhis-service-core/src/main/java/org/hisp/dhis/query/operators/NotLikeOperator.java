@@ -48,6 +48,12 @@ public class NotLikeOperator extends LikeOperator
         return Restrictions.not( super.getHibernateCriterion( queryPath ) );
     }
 
+    @Override
+    public Criterion getSqlCriterion( String sqlExpression )
+    {
+        return Restrictions.not( super.getSqlCriterion( sqlExpression ) );
+    }
+
     @Override
     public boolean test( Object value )
     {
@@ -121,6 +121,19 @@ public abstract class Operator
 
     public abstract Criterion getHibernateCriterion( QueryPath queryPath );
 
+    /**
+     * Returns a criterion applying this operator to the given SQL expression,
+     * which may refer to the root entity as {alias}. Used for paths that are
+     * not mapped properties, like translated names and attribute values.
+     *
+     * @param sqlExpression the SQL expression.
+     * @return a criterion, or null if the operator has no SQL form.
+     */
+    public Criterion getSqlCriterion( String sqlExpression )
+    {
+        return null;
+    }
+
     public abstract boolean test( Object value );
 
     org.hibernate.criterion.MatchMode getMatchMode( org.hisp.dhis.query.operators.MatchMode matchMode )
@@ -34,24 +34,36 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Root;
 
+import org.hisp.dhis.common.BaseIdentifiableObject;
+import org.hisp.dhis.common.BaseNameableObject;
+import org.hisp.dhis.common.UserContext;
 import org.hisp.dhis.query.Conjunction;
 import org.hisp.dhis.query.Criterion;
+import org.hisp.dhis.query.Direction;
 import org.hisp.dhis.query.Disjunction;
 import org.hisp.dhis.query.Junction;
 import org.hisp.dhis.query.Order;
 import org.hisp.dhis.query.Query;
+import org.hisp.dhis.query.QueryUtils;
 import org.hisp.dhis.query.Restriction;
 import org.hisp.dhis.schema.Property;
 import org.hisp.dhis.schema.Schema;
 import org.hisp.dhis.schema.SchemaService;
+import org.hisp.dhis.user.UserSettingKey;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -59,6 +71,22 @@ import org.springframework.stereotype.Component;
 @Component( "org.hisp.dhis.query.planner.QueryPlanner" )
 public class DefaultQueryPlanner implements QueryPlanner
 {
+    private static final String ATTRIBUTE_VALUE_SQL = "{alias}.attributevalues #>> '{%s, value}'";
+
+    private static final String TRANSLATION_SQL = "coalesce((select t.value ->> 'value' " +
+        "from jsonb_array_elements({alias}.translations) t " +
+        "where t.value ->> 'locale' = '%s' and t.value ->> 'property' = '%s' limit 1), {alias}.%s)";
+
+    private static final Pattern LOCALE_PATTERN = Pattern.compile( "[a-zA-Z0-9_]+" );
+
+    private static final Map<String, String> DISPLAY_PROPERTIES = ImmutableMap.of(
+        "displayName", "name",
+        "displayShortName", "shortName",
+        "displayDescription", "description" );
+
+    private static final Set<Class<?>> DISPLAY_PROPERTY_CLASSES = ImmutableSet.of(
+        BaseIdentifiableObject.class, BaseNameableObject.class );
+
     private final SchemaService schemaService;
 
     @Autowired
@@ -80,8 +108,9 @@ public class DefaultQueryPlanner implements QueryPlanner
     {
         // if only one filter, always set to Junction.Type AND
         Junction.Type junctionType = query.getCriterions().size() <= 1 ? Junction.Type.AND : query.getRootJunctionType();
-        
-        if ( (!isFilterOnPersistedFieldOnly( query ) || Junction.Type.OR == junctionType) && !persistedOnly )
+
+        // a disjunction can only be split when every branch can be run in SQL
+        if ( Junction.Type.OR == junctionType && !isPersisted( query.getSchema(), query.getCriterions() ) && !persistedOnly )
         {
             return QueryPlan.QueryPlanBuilder.newBuilder()
                 .persistedQuery( Query.from( query.getSchema() ).setPlannedQuery( true ) )
@@ -91,10 +120,14 @@ public class DefaultQueryPlanner implements QueryPlanner
 
         Query npQuery = Query.from( query ).setUser( query.getUser() ).setPlannedQuery( true );
 
+        List<Order> orders = getOrders( npQuery.getSchema(), npQuery.getOrders() );
+        npQuery.clearOrders();
+        npQuery.addOrders( orders );
+
         Query pQuery = getQuery( npQuery, persistedOnly ).setUser( query.getUser() ).setPlannedQuery( true );
 
-        // if there are any non persisted criterions left, we leave the paging to the in-memory engine
-        if ( !npQuery.getCriterions().isEmpty() )
+        // if there are any non persisted criterions or orders left, we leave the paging to the in-memory engine
+        if ( !npQuery.getCriterions().isEmpty() || !npQuery.getOrders().isEmpty() )
         {
             pQuery.setSkipPaging( true );
         }
@@ -114,6 +147,19 @@ public class DefaultQueryPlanner implements QueryPlanner
     @Override
     public QueryPath getQueryPath( Schema schema, String path )
     {
+        if ( QueryUtils.isAttributeValuePath( schema, path ) )
+        {
+            return new QueryPath( new Property( String.class ),
+                String.format( ATTRIBUTE_VALUE_SQL, path ) );
+        }
+
+        QueryPath displayPath = getDisplayPropertyPath( schema, path );
+
+        if ( displayPath != null )
+        {
+            return displayPath;
+        }
+
         Schema curSchema = schema;
         Property curProperty = null;
         boolean persisted = true;
@@ -243,9 +289,9 @@ public class DefaultQueryPlanner implements QueryPlanner
             else if ( Restriction.class.isInstance( criterion ) )
             {
                 Restriction restriction = (Restriction) criterion;
-                restriction.setQueryPath( getQueryPath( query.getSchema(), restriction.getPath() ) );
+                restriction.setQueryPath( getQueryPath( query.getSchema(), restriction ) );
 
-                if ( restriction.getQueryPath().isPersisted() && !restriction.getQueryPath().haveAlias() )
+                if ( isPersisted( restriction.getQueryPath() ) )
                 {
                     pQuery.getAliases().addAll( Arrays.asList( ((Restriction) criterion).getQueryPath().getAlias() ) );
                     pQuery.getCriterions().add( criterion );
@@ -291,9 +337,9 @@ public class DefaultQueryPlanner implements QueryPlanner
             else if ( Restriction.class.isInstance( criterion ) )
             {
                 Restriction restriction = (Restriction) criterion;
-                restriction.setQueryPath( getQueryPath( query.getSchema(), restriction.getPath() ) );
+                restriction.setQueryPath( getQueryPath( query.getSchema(), restriction ) );
 
-                if ( restriction.getQueryPath().isPersisted() && !restriction.getQueryPath().haveAlias( 1 ) )
+                if ( isPersisted( restriction.getQueryPath() ) )
                 {
                     criteriaJunction.getAliases().addAll( Arrays.asList( ((Restriction) criterion).getQueryPath().getAlias() ) );
                     criteriaJunction.getCriterions().add( criterion );
@@ -311,57 +357,130 @@ public class DefaultQueryPlanner implements QueryPlanner
     }
 
     /**
-     * Check if all the criteria for the given query are associated to "persisted" properties
+     * Returns the query path of the given restriction. Paths backed by a SQL
+     * expression are only considered persisted when the restriction operator
+     * can be expressed in SQL.
+     */
+    private QueryPath getQueryPath( Schema schema, Restriction restriction )
+    {
+        QueryPath queryPath = getQueryPath( schema, restriction.getPath() );
+
+        if ( queryPath.haveSqlExpression()
+            && restriction.getOperator().getSqlCriterion( queryPath.getSqlExpression() ) == null )
+        {
+            return new QueryPath( queryPath.getProperty(), false );
+        }
+
+        return queryPath;
+    }
+
+    /**
+     * Returns the query path for a display property which is backed by a
+     * translatable persisted property, like displayName for name. Without a
+     * database locale the display property equals the persisted property,
+     * otherwise the translation is read from the translations column.
      *
-     * @param query a {@see Query} object
-     * @return true, if all criteria are on persisted properties
+     * @param schema the schema.
+     * @param path the path.
+     * @return a query path, or null if the path is not such a display property.
      */
-    private boolean isFilterOnPersistedFieldOnly( Query query )
+    private QueryPath getDisplayPropertyPath( Schema schema, String path )
     {
-        Set<String> persistedFields = query.getSchema().getPersistedProperties().keySet();
-        if ( nonPersistedFieldExistsInCriterions( persistedFields, query.getCriterions() ) )
+        String baseName = DISPLAY_PROPERTIES.get( path );
+
+        if ( baseName == null || !schema.havePersistedProperty( baseName ) || !schema.haveProperty( path ) )
         {
-            return false;
+            return null;
         }
 
-        for ( Order order : query.getOrders() )
+        Property property = schema.getProperty( path );
+        Property baseProperty = schema.getPersistedProperties().get( baseName );
+
+        // subclasses computing the display property differently are not supported
+
+        if ( property.getGetterMethod() == null || !DISPLAY_PROPERTY_CLASSES.contains( property.getGetterMethod().getDeclaringClass() ) )
         {
+            return null;
+        }
 
-            if ( !persistedFields.contains( order.getProperty().getName() ) )
+        Locale locale = UserContext.getUserSetting( UserSettingKey.DB_LOCALE, Locale.class );
+
+        if ( locale == null )
+        {
+            return new QueryPath( baseProperty, true );
+        }
+
+        if ( !schema.isTranslatable() || baseProperty.getTranslationKey() == null
+            || !LOCALE_PATTERN.matcher( locale.toString() ).matches() )
+        {
+            return null;
+        }
+
+        return new QueryPath( property, String.format( TRANSLATION_SQL, locale.toString(),
+            baseProperty.getTranslationKey().name(), baseProperty.getFieldName() ) );
+    }
+
+    /**
+     * Replaces orders on display properties with orders on the persisted
+     * property when they are equal, that is without a database locale.
+     */
+    private List<Order> getOrders( Schema schema, List<Order> orders )
+    {
+        List<Order> result = new ArrayList<>();
+
+        for ( Order order : orders )
+        {
+            QueryPath displayPath = getDisplayPropertyPath( schema, order.getProperty().getName() );
+
+            if ( displayPath != null && !displayPath.haveSqlExpression() )
             {
-                return false;
+                Order persistedOrder = new Order( displayPath.getProperty(),
+                    order.isAscending() ? Direction.ASCENDING : Direction.DESCENDING );
+
+                result.add( order.isIgnoreCase() ? persistedOrder.ignoreCase() : persistedOrder );
+            }
+            else
+            {
+                result.add( order );
             }
         }
-        return true;
+
+        return result;
     }
-    
+
+    private boolean isPersisted( QueryPath queryPath )
+    {
+        return queryPath.isPersisted() && !queryPath.haveAlias( 1 );
+    }
+
     /**
-     * Recursive function that checks if any of the criterions or subcriterions are associated with fields that are not persisted. 
+     * Recursive function that checks if all of the criterions and subcriterions
+     * can be run in SQL.
      *
-     * @param persistedFields The set of persistedFields in the schema
-     * @param criterions List of criterions
-     * @return true if there is any non persisted field in any of the criteria at any level. false otherwise.
+     * @param schema the schema.
+     * @param criterions list of criterions.
+     * @return true if all criterions at any level can be run in SQL.
      */
-    private boolean nonPersistedFieldExistsInCriterions( Set<String> persistedFields, List<Criterion> criterions )
+    private boolean isPersisted( Schema schema, List<Criterion> criterions )
     {
         for ( Criterion criterion : criterions )
         {
             if ( criterion instanceof Restriction )
             {
-                Restriction restriction = (Restriction) criterion;
-                if ( !persistedFields.contains( restriction.getPath() ) )
+                if ( !isPersisted( getQueryPath( schema, (Restriction) criterion ) ) )
                 {
-                    return true;
+                    return false;
                 }
             }
             else if ( criterion instanceof Junction )
             {
-                if ( nonPersistedFieldExistsInCriterions( persistedFields, ((Junction) criterion).getCriterions() ) )
+                if ( !isPersisted( schema, ((Junction) criterion).getCriterions() ) )
                 {
-                    return true;
+                    return false;
                 }
             }
         }
-        return false;
+
+        return true;
     }
 }
@@ -45,6 +45,12 @@ public class QueryPath
 
     private String[] alias = new String[]{};
 
+    /**
+     * SQL expression to restrict on instead of the mapped property path, null
+     * if the path is a mapped property.
+     */
+    private String sqlExpression;
+
     private static final Joiner PATH_JOINER = Joiner.on( "." );
 
     public QueryPath( Property property, boolean persisted )
@@ -59,6 +65,12 @@ public class QueryPath
         this.alias = alias;
     }
 
+    public QueryPath( Property property, String sqlExpression )
+    {
+        this( property, true );
+        this.sqlExpression = sqlExpression;
+    }
+
     public Property getProperty()
     {
         return property;
@@ -81,6 +93,16 @@ public class QueryPath
         return persisted;
     }
 
+    public String getSqlExpression()
+    {
+        return sqlExpression;
+    }
+
+    public boolean haveSqlExpression()
+    {
+        return sqlExpression != null;
+    }
+
     public String[] getAlias()
     {
         return alias;
@@ -104,6 +126,7 @@ public class QueryPath
             .add( "path", getPath() )
             .add( "persisted", persisted )
             .add( "alias", Arrays.toString( alias ) )
+            .add( "sqlExpression", sqlExpression )
             .toString();
     }
 }
@@ -28,21 +28,51 @@ package org.hisp.dhis.sms;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
-import java.util.ArrayList;
+import static com.google.common.base.Preconditions.checkNotNull;
+
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 import org.hisp.dhis.sms.incoming.IncomingSms;
 import org.hisp.dhis.sms.incoming.IncomingSmsService;
+import org.hisp.dhis.sms.incoming.SmsMessageStatus;
 import org.springframework.stereotype.Component;
 
-import static com.google.common.base.Preconditions.checkNotNull;
+import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Bounded, thread-safe in-memory queue of incoming SMS backed by the database.
+ * Messages are persisted before they are queued, and messages which are not
+ * processed because of a restart or because the queue was full are read back
+ * from the database by {@link #initialize()} and {@link #recover()}. A message
+ * is not queued again while it is queued or being processed, and a message is
+ * considered processed only once its status update has been committed.
+ * Messages read back by {@link #recover()} are re-checked against the database
+ * after being marked as pending, so a message processed after it was read is
+ * not queued again.
+ */
+@Slf4j
 @Component( "org.hisp.dhis.sms.MessageQueue" )
 public class DatabaseSupportedInternalMemoryMessageQueue
     implements MessageQueue
 {
-    private List<IncomingSms> queue = new ArrayList<>();
+    static final int CAPACITY = 20000;
+
+    private final BlockingQueue<IncomingSms> queue = new LinkedBlockingQueue<>( CAPACITY );
+
+    /**
+     * Identifiers of messages which are queued or being processed.
+     */
+    private final Set<Integer> pending = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean overflow = new AtomicBoolean();
 
     // -------------------------------------------------------------------------
     // Dependencies
@@ -61,36 +91,122 @@ public class DatabaseSupportedInternalMemoryMessageQueue
     // -------------------------------------------------------------------------
 
     @Override
-    public void put( IncomingSms message )
+    public boolean put( IncomingSms message )
     {
-        queue.add( message );
+        if ( !pending.add( message.getId() ) )
+        {
+            return true;
+        }
+
+        return offer( message );
     }
 
     @Override
     public IncomingSms get()
     {
-        if ( queue != null && queue.size() > 0 )
-        {
-            return queue.get( 0 );
-        }
-
-        return null;
+        return queue.poll();
     }
 
     @Override
     public void remove( IncomingSms message )
     {
-        queue.remove( message );
+        pending.remove( message.getId() );
+    }
+
+    @Override
+    public int size()
+    {
+        return queue.size();
+    }
+
+    @Override
+    public boolean isFull()
+    {
+        return queue.remainingCapacity() == 0;
     }
 
     @Override
     public void initialize()
     {
-        Collection<IncomingSms> messages = incomingSmsService.getAllUnparsedMessages();
+        putAll( incomingSmsService.getAllUnparsedMessages(), false );
+    }
+
+    @Override
+    public void recover()
+    {
+        if ( queue.remainingCapacity() > CAPACITY / 2 && overflow.compareAndSet( true, false ) )
+        {
+            putAll( incomingSmsService.getSmsByStatus( SmsMessageStatus.INCOMING, null ), true );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Adds the given messages in the order they were received, which preserves
+     * the order of messages per originator.
+     *
+     * @param messages the messages.
+     * @param recheck whether to re-read the status of each message from the
+     *        database before queueing it.
+     */
+    private void putAll( Collection<IncomingSms> messages, boolean recheck )
+    {
+        if ( messages == null )
+        {
+            return;
+        }
+
+        List<IncomingSms> ordered = messages.stream()
+            .sorted( Comparator.comparing( IncomingSms::getId ) )
+            .collect( Collectors.toList() );
 
-        if ( messages != null )
+        for ( IncomingSms message : ordered )
+        {
+            if ( !( recheck ? putIfIncoming( message ) : put( message ) ) )
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Adds the given message if it is still incoming. The message is marked as
+     * pending before its status is read, which guarantees that a consumer has
+     * either committed its status update already or has not taken it yet.
+     */
+    private boolean putIfIncoming( IncomingSms message )
+    {
+        if ( !pending.add( message.getId() ) )
         {
-            queue.addAll( messages );
+            return true;
         }
+
+        IncomingSms current = incomingSmsService.findBy( message.getId() );
+
+        if ( current == null || current.getStatus() != SmsMessageStatus.INCOMING )
+        {
+            pending.remove( message.getId() );
+            return true;
+        }
+
+        return offer( current );
+    }
+
+    private boolean offer( IncomingSms message )
+    {
+        if ( !queue.offer( message ) )
+        {
+            pending.remove( message.getId() );
+            overflow.set( true );
+
+            log.warn( "Incoming SMS queue is full, message will be processed later: " + message.getId() );
+
+            return false;
+        }
+
+        return true;
     }
 }
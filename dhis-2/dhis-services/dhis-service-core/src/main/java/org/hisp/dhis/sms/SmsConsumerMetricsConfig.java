@@ -0,0 +1,78 @@
+package org.hisp.dhis.sms;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.external.conf.ConfigurationKey.MONITORING_SMS_ENABLED;
+
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.monitoring.metrics.MetricsEnabler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Binds the queue depth, the number of messages in flight and the processing
+ * latency of incoming SMS to the meter registry when SMS monitoring is
+ * enabled.
+ */
+@Configuration
+@Conditional( SmsConsumerMetricsConfig.SmsMetricsEnabledCondition.class )
+public class SmsConsumerMetricsConfig
+{
+    @Autowired
+    public void bindToRegistry( MeterRegistry registry, MessageQueue messageQueue, SmsConsumerThread smsConsumerThread )
+    {
+        Gauge.builder( "sms.inbound.queue.size", messageQueue, MessageQueue::size )
+            .description( "Number of incoming SMS waiting in the queue" )
+            .register( registry );
+
+        Gauge.builder( "sms.inbound.processing", smsConsumerThread, SmsConsumerThread::getInFlight )
+            .description( "Number of incoming SMS handed to consumer workers" )
+            .register( registry );
+
+        smsConsumerThread.setLatencyTimer( Timer.builder( "sms.inbound.latency" )
+            .description( "Time from an incoming SMS being received until it is processed" )
+            .register( registry ) );
+    }
+
+    static class SmsMetricsEnabledCondition
+        extends
+        MetricsEnabler
+    {
+        @Override
+        protected ConfigurationKey getConfigKey()
+        {
+            return MONITORING_SMS_ENABLED;
+        }
+    }
+}
@@ -30,7 +30,14 @@ package org.hisp.dhis.sms;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
 
 import org.hisp.dhis.message.MessageSender;
 import org.hisp.dhis.sms.incoming.IncomingSms;
@@ -41,14 +48,35 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Consumes incoming SMS from the {@link MessageQueue} using a pool of workers.
+ * Messages are partitioned over the workers by originator, and each worker
+ * processes its messages one at a time, so that messages from the same
+ * originator are processed in the order they were received. The number of
+ * messages handed to workers is bounded, leaving the remaining messages in the
+ * bounded message queue. A message is released from the queue only once its
+ * status update has been committed, so that it is not recovered and processed
+ * again.
+ */
 @Slf4j
 @Component( "org.hisp.dhis.sms.SmsConsumerThread")
 public class SmsConsumerThread
 {
+    static final int WORKERS = Math.max( 2, Runtime.getRuntime().availableProcessors() / 2 );
+
+    static final int MAX_IN_FLIGHT = WORKERS * 100;
+
     private List<IncomingSmsListener> listeners;
 
+    private final List<ExecutorService> workers = new ArrayList<>();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile Timer latencyTimer;
+
     private final MessageQueue messageQueue;
 
     private final MessageSender smsSender;
@@ -65,53 +93,119 @@ public class SmsConsumerThread
         this.messageQueue = messageQueue;
         this.smsSender = smsSender;
         this.incomingSmsService = incomingSmsService;
+
+        for ( int i = 0; i < WORKERS; i++ )
+        {
+            String name = "sms-consumer-" + i;
+            workers.add( Executors.newSingleThreadExecutor( runnable -> new Thread( runnable, name ) ) );
+        }
     }
-    
 
+    /**
+     * Hands queued messages to the consumer workers, up to the maximum number
+     * of messages in flight.
+     */
     public void spawnSmsConsumer()
     {
-        IncomingSms message = messageQueue.get();
+        messageQueue.recover();
 
-        while ( message != null )
+        while ( inFlight.get() < MAX_IN_FLIGHT )
         {
-            log.info( "Received SMS: " + message.getText() );
-            
-            try
+            IncomingSms message = messageQueue.get();
+
+            if ( message == null )
+            {
+                return;
+            }
+
+            inFlight.incrementAndGet();
+
+            getWorker( message ).execute( () -> consume( message ) );
+        }
+    }
+
+    private ExecutorService getWorker( IncomingSms message )
+    {
+        String originator = message.getOriginator();
+
+        return workers.get( originator != null ? Math.floorMod( originator.hashCode(), WORKERS ) : 0 );
+    }
+
+    private void consume( IncomingSms message )
+    {
+        log.info( "Received SMS: " + message.getText() );
+
+        try
+        {
+            for ( IncomingSmsListener listener : listeners )
             {
-                for ( IncomingSmsListener listener : listeners )
+                if ( listener.accept( message ) )
                 {
-                    if ( listener.accept( message ) )
-                    {
-                        listener.receive( message );
-                        messageQueue.remove( message );
-                        return;
-                    }
+                    listener.receive( message );
+                    return;
                 }
+            }
 
-                log.warn( "No SMS command found in received data" );
+            log.warn( "No SMS command found in received data" );
 
-                message.setStatus( SmsMessageStatus.UNHANDLED );
+            message.setStatus( SmsMessageStatus.UNHANDLED );
 
-                smsSender.sendMessage( null, "No command found", message.getOriginator() );
-            }
-            catch ( Exception e )
+            smsSender.sendMessage( null, "No command found", message.getOriginator() );
+        }
+        catch ( Exception e )
+        {
+            log.error( "Processing of SMS failed: " + message.getId(), e );
+
+            message.setStatus( SmsMessageStatus.FAILED );
+            message.setParsed( false );
+        }
+        finally
+        {
+            try
             {
-                e.printStackTrace();
+                incomingSmsService.update( message );
 
-                message.setStatus( SmsMessageStatus.FAILED );
-                message.setParsed( false );
+                messageQueue.remove( message );
             }
-            finally
+            catch ( Exception e )
             {
-                messageQueue.remove( message );
+                log.error( "Update of SMS failed, SMS will not be processed again until restart: " + message.getId(), e );
+            }
 
-                incomingSmsService.update( message );
+            Timer timer = latencyTimer;
 
-                message = messageQueue.get();
+            if ( timer != null && message.getReceivedDate() != null )
+            {
+                timer.record( System.currentTimeMillis() - message.getReceivedDate().getTime(), TimeUnit.MILLISECONDS );
             }
+
+            inFlight.decrementAndGet();
         }
     }
 
+    /**
+     * Returns the number of messages handed to workers and not yet processed.
+     */
+    public int getInFlight()
+    {
+        return inFlight.get();
+    }
+
+    /**
+     * Sets the timer recording the time from receipt until a message is
+     * processed. No latency is recorded unless a timer is set.
+     */
+    public void setLatencyTimer( Timer latencyTimer )
+    {
+        this.latencyTimer = latencyTimer;
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        workers.forEach( ExecutorService::shutdownNow );
+    }
+
     @Autowired
     public void setListeners( List<IncomingSmsListener> listeners )
     {
@@ -62,7 +62,7 @@ public class SmsPublisher
     {
         messageQueue.initialize();
 
-        future = taskScheduler.scheduleWithFixedDelay(smsConsumer::spawnSmsConsumer, 5000 );
+        future = taskScheduler.scheduleWithFixedDelay( smsConsumer::spawnSmsConsumer, 1000 );
     }
 
     public void stop()
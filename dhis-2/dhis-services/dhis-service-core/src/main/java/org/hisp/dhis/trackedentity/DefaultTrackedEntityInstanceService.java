@@ -33,6 +33,7 @@ import org.hisp.dhis.audit.payloads.TrackedEntityInstanceAudit;
 import org.hisp.dhis.common.*;
 import org.hisp.dhis.event.EventStatus;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitHierarchyIndexService;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.program.Program;
 import org.hisp.dhis.program.ProgramService;
@@ -89,6 +90,8 @@ public class DefaultTrackedEntityInstanceService
 
     private final OrganisationUnitService organisationUnitService;
 
+    private final OrganisationUnitHierarchyIndexService organisationUnitHierarchyIndexService;
+
     private final CurrentUserService currentUserService;
 
     private final AclService aclService;
@@ -104,7 +107,9 @@ public class DefaultTrackedEntityInstanceService
     public DefaultTrackedEntityInstanceService( TrackedEntityInstanceStore trackedEntityInstanceStore,
         TrackedEntityAttributeValueService attributeValueService, TrackedEntityAttributeService attributeService,
         TrackedEntityTypeService trackedEntityTypeService, ProgramService programService,
-        OrganisationUnitService organisationUnitService, CurrentUserService currentUserService, AclService aclService,
+        OrganisationUnitService organisationUnitService,
+        OrganisationUnitHierarchyIndexService organisationUnitHierarchyIndexService,
+        CurrentUserService currentUserService, AclService aclService,
         @Lazy TrackerOwnershipManager trackerOwnershipAccessManager,
         @Lazy TrackedEntityInstanceAuditService trackedEntityInstanceAuditService,
         @Lazy TrackedEntityAttributeValueAuditService attributeValueAuditService )
@@ -115,6 +120,7 @@ public class DefaultTrackedEntityInstanceService
         checkNotNull( trackedEntityTypeService );
         checkNotNull( programService );
         checkNotNull( organisationUnitService );
+        checkNotNull( organisationUnitHierarchyIndexService );
         checkNotNull( currentUserService );
         checkNotNull( aclService );
         checkNotNull( trackerOwnershipAccessManager );
@@ -127,6 +133,7 @@ public class DefaultTrackedEntityInstanceService
         this.trackedEntityTypeService = trackedEntityTypeService;
         this.programService = programService;
         this.organisationUnitService = organisationUnitService;
+        this.organisationUnitHierarchyIndexService = organisationUnitHierarchyIndexService;
         this.currentUserService = currentUserService;
         this.aclService = aclService;
         this.trackerOwnershipAccessManager = trackerOwnershipAccessManager;
@@ -1024,7 +1031,7 @@ public class DefaultTrackedEntityInstanceService
 
         for ( OrganisationUnit ou : searchOrgUnits )
         {
-            if ( !ou.isDescendant( localOrgUnits ) )
+            if ( !organisationUnitHierarchyIndexService.isDescendant( ou, localOrgUnits ) )
             {
                 return false;
             }
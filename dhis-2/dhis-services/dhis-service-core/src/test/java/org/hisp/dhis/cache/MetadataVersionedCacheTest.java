@@ -0,0 +1,267 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
+import org.hisp.dhis.constant.Constant;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.indicator.Indicator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class MetadataVersionedCacheTest
+{
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    private MetadataChangeTracker tracker;
+
+    private MetadataVersionedCache<String> cache;
+
+    private AtomicInteger loads;
+
+    @Before
+    public void setUp()
+    {
+        tracker = new MetadataChangeTracker( invalidationBus );
+        cache = new MetadataVersionedCache<>( "test", 10, tracker, DataElement.class, Constant.class );
+        loads = new AtomicInteger();
+    }
+
+    @After
+    public void tearDown()
+    {
+        if ( TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        TransactionSynchronizationManager.unbindResourceIfPossible( tracker );
+    }
+
+    @Test
+    public void testGetVersion()
+    {
+        long version = tracker.getVersion( DataElement.class );
+
+        tracker.registerChange( Indicator.class );
+
+        assertEquals( version, tracker.getVersion( DataElement.class ) );
+
+        tracker.registerChange( DataElement.class );
+
+        assertNotEquals( version, tracker.getVersion( DataElement.class ) );
+    }
+
+    @Test
+    public void testListenerNotifiedOfChanges()
+    {
+        AtomicInteger notifications = new AtomicInteger();
+
+        tracker.addListener( DataElement.class, notifications::incrementAndGet );
+
+        tracker.registerChange( Indicator.class );
+
+        assertEquals( 0, notifications.get() );
+
+        tracker.registerChange( DataElement.class );
+        tracker.registerClusterChange( DataElement.class.getName() );
+        tracker.handleApplicationCachesCleared( new ApplicationCacheClearedEvent() );
+
+        assertEquals( 3, notifications.get() );
+    }
+
+    @Test
+    public void testGetCached()
+    {
+        assertEquals( "A1", cache.get( "A", this::load ) );
+        assertEquals( "A1", cache.get( "A", this::load ) );
+        assertEquals( 1, loads.get() );
+    }
+
+    @Test
+    public void testGetReloadedOnChange()
+    {
+        assertEquals( "A1", cache.get( "A", this::load ) );
+
+        tracker.registerChange( Indicator.class );
+
+        assertEquals( "A1", cache.get( "A", this::load ) );
+
+        tracker.registerChange( Constant.class );
+
+        assertEquals( "A2", cache.get( "A", this::load ) );
+        assertEquals( "A2", cache.get( "A", this::load ) );
+    }
+
+    @Test
+    public void testGetReloadedOnCachesCleared()
+    {
+        assertEquals( "A1", cache.get( "A", this::load ) );
+
+        tracker.handleApplicationCachesCleared( new ApplicationCacheClearedEvent() );
+
+        assertEquals( "A2", cache.get( "A", this::load ) );
+    }
+
+    @Test
+    public void testGetCacheDisabled()
+    {
+        MetadataVersionedCache<String> disabled = new MetadataVersionedCache<>( "test", 0, tracker, DataElement.class );
+
+        assertEquals( "A1", disabled.get( "A", this::load ) );
+        assertEquals( "A2", disabled.get( "A", this::load ) );
+    }
+
+    @Test
+    public void testPutAndGetIfCurrent()
+    {
+        long version = cache.getVersion();
+
+        cache.put( "A", "A0", version );
+
+        assertEquals( "A0", cache.getIfCurrent( "A", version ) );
+        assertEquals( "A0", cache.get( "A", this::load ) );
+        assertNull( cache.getIfCurrent( "B", version ) );
+
+        tracker.registerChange( DataElement.class );
+
+        assertNotEquals( version, cache.getVersion() );
+        assertNull( cache.getIfCurrent( "A", cache.getVersion() ) );
+    }
+
+    @Test
+    public void testRegisterChangeIsPublished()
+    {
+        tracker.registerChange( DataElement.class );
+
+        verify( invalidationBus ).publishInvalidation( eq( "metadataChangeTracker" ),
+            eq( DataElement.class.getName() ) );
+    }
+
+    @Test
+    public void testRegisterChangesOncePerTypeAfterCommit()
+    {
+        long version = tracker.getVersion( DataElement.class );
+
+        TransactionSynchronizationManager.initSynchronization();
+
+        tracker.registerChange( DataElement.class );
+        tracker.registerChange( DataElement.class );
+        tracker.registerChange( Indicator.class );
+
+        assertEquals( version, tracker.getVersion( DataElement.class ) );
+        verify( invalidationBus, never() ).publishInvalidation( anyString(), anyString() );
+
+        completeTransaction( TransactionSynchronization.STATUS_COMMITTED );
+
+        assertEquals( version + 1, tracker.getVersion( DataElement.class ) );
+        verify( invalidationBus, times( 1 ) ).publishInvalidation( eq( "metadataChangeTracker" ),
+            eq( DataElement.class.getName() ) );
+        verify( invalidationBus, times( 1 ) ).publishInvalidation( eq( "metadataChangeTracker" ),
+            eq( Indicator.class.getName() ) );
+    }
+
+    @Test
+    public void testNoChangesRegisteredOnRollback()
+    {
+        long version = tracker.getVersion( DataElement.class );
+
+        TransactionSynchronizationManager.initSynchronization();
+
+        tracker.registerChange( DataElement.class );
+
+        completeTransaction( TransactionSynchronization.STATUS_ROLLED_BACK );
+
+        assertEquals( version, tracker.getVersion( DataElement.class ) );
+        verify( invalidationBus, never() ).publishInvalidation( anyString(), anyString() );
+    }
+
+    @Test
+    public void testGetReloadsAfterClusterChange()
+    {
+        assertEquals( "A1", cache.get( "A", this::load ) );
+
+        tracker.registerClusterChange( Indicator.class.getName() );
+
+        assertEquals( "A1", cache.get( "A", this::load ) );
+
+        tracker.registerClusterChange( DataElement.class.getName() );
+
+        assertEquals( "A2", cache.get( "A", this::load ) );
+    }
+
+    @Test
+    public void testGetReloadsAfterUnknownClusterChange()
+    {
+        assertEquals( "A1", cache.get( "A", this::load ) );
+
+        tracker.registerClusterChange( "org.hisp.dhis.Unknown" );
+
+        assertEquals( "A2", cache.get( "A", this::load ) );
+
+        tracker.registerClusterChange( null );
+
+        assertEquals( "A3", cache.get( "A", this::load ) );
+    }
+
+    private void completeTransaction( int status )
+    {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach( synchronization -> synchronization.afterCompletion( status ) );
+    }
+
+    private String load( String key )
+    {
+        return key + loads.incrementAndGet();
+    }
+}
@@ -0,0 +1,81 @@
+package org.hisp.dhis.expression;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.hisp.dhis.antlr.ParserException;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExpressionParseTreeCacheTest
+{
+    private ExpressionParseTreeCache cache;
+
+    @Before
+    public void setUp()
+    {
+        cache = new ExpressionParseTreeCache();
+    }
+
+    @Test
+    public void testGetParseTreeIsCached()
+    {
+        ParseTree treeA = cache.getParseTree( "#{abcdefghijk} + 2" );
+        ParseTree treeB = cache.getParseTree( "#{abcdefghijk} + 2" );
+
+        assertNotNull( treeA );
+        assertSame( treeA, treeB );
+        assertEquals( 1, cache.getHitCount() );
+        assertEquals( 1, cache.getMissCount() );
+    }
+
+    @Test
+    public void testInvalidateAll()
+    {
+        ParseTree treeA = cache.getParseTree( "1 + 2" );
+
+        cache.invalidateAll();
+
+        ParseTree treeB = cache.getParseTree( "1 + 2" );
+
+        assertEquals( treeA.getText(), treeB.getText() );
+        assertEquals( 0, cache.getHitCount() );
+        assertEquals( 2, cache.getMissCount() );
+    }
+
+    @Test( expected = ParserException.class )
+    public void testGetParseTreeInvalidExpression()
+    {
+        cache.getParseTree( "1 +" );
+    }
+}
@@ -167,7 +167,8 @@ public class ExpressionService2Test
     public void setUp()
     {
         target = new DefaultExpressionService( hibernateGenericStore, dataElementService, constantService,
-            categoryService, organisationUnitGroupService, dimensionService );
+            categoryService, organisationUnitGroupService, dimensionService,
+            new ExpressionParseTreeCache() );
 
         rnd = new BeanRandomizer();
 
@@ -31,17 +31,32 @@ package org.hisp.dhis.query;
 import static org.hamcrest.core.Is.is;
 import static org.hisp.dhis.DhisConvenienceTest.createOrganisationUnit;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.beans.PropertyDescriptor;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
+import org.apache.commons.beanutils.PropertyUtils;
 import org.apache.commons.lang.RandomStringUtils;
 import org.hisp.dhis.common.IdentifiableObject;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.query.planner.DefaultQueryPlanner;
+import org.hisp.dhis.query.operators.MatchMode;
 import org.hisp.dhis.query.planner.QueryPlanner;
+import org.hisp.dhis.schema.Property;
+import org.hisp.dhis.schema.Schema;
 import org.hisp.dhis.schema.SchemaService;
 import org.hisp.dhis.schema.descriptors.OrganisationUnitSchemaDescriptor;
 import org.junit.Before;
@@ -98,6 +113,74 @@ public class DefaultQueryServiceTest
         assertThat( orgUnits.size(), is( 20 ) );
     }
 
+    @Test
+    public void verifyInMemoryQueryStopsWhenPageIsFull()
+        throws Exception
+    {
+        Map<String, Property> propertyMap = new HashMap<>();
+        addProperty( propertyMap, "id", true );
+        addProperty( propertyMap, "name", false );
+        Schema schema = new OrganisationUnitSchemaDescriptor().getSchema();
+        schema.setPropertyMap( propertyMap );
+
+        Query query = Query.from( schema );
+        query.add( Restrictions.like( "name", "a", MatchMode.ANYWHERE ) );
+        query.setMaxResults( 50 );
+
+        doAnswer( invocation -> {
+            Function<List<? extends IdentifiableObject>, List<? extends IdentifiableObject>> filter = invocation.getArgument( 3 );
+            return new ArrayList<>( filter.apply( createOrgUnits( 1000 ) ) );
+        } ).when( criteriaQueryEngine ).queryInChunks( any(), anyInt(), eq( 50 ), any() );
+
+        when( inMemoryQueryEngine.query( any() ) ).thenAnswer( invocation -> invocation.<Query> getArgument( 0 ).getObjects() );
+
+        List<? extends IdentifiableObject> orgUnits = subject.query( query );
+
+        assertThat( orgUnits.size(), is( 50 ) );
+        verify( criteriaQueryEngine ).queryInChunks( any(), anyInt(), eq( 50 ), any() );
+        verify( criteriaQueryEngine, never() ).query( any() );
+    }
+
+    @Test
+    public void verifyInMemoryCountReadsChunks()
+        throws Exception
+    {
+        Map<String, Property> propertyMap = new HashMap<>();
+        addProperty( propertyMap, "id", true );
+        addProperty( propertyMap, "name", false );
+        Schema schema = new OrganisationUnitSchemaDescriptor().getSchema();
+        schema.setPropertyMap( propertyMap );
+
+        Query query = Query.from( schema );
+        query.add( Restrictions.like( "name", "a", MatchMode.ANYWHERE ) );
+
+        doAnswer( invocation -> {
+            Function<List<? extends IdentifiableObject>, List<? extends IdentifiableObject>> filter = invocation.getArgument( 3 );
+            filter.apply( createOrgUnits( 1000 ) );
+            filter.apply( createOrgUnits( 1000 ) );
+            filter.apply( createOrgUnits( 500 ) );
+            return new ArrayList<>();
+        } ).when( criteriaQueryEngine ).queryInChunks( any(), anyInt(), anyInt(), any() );
+
+        when( inMemoryQueryEngine.query( any() ) ).thenAnswer( invocation -> invocation.<Query> getArgument( 0 ).getObjects() );
+
+        assertThat( subject.count( query ), is( 2500 ) );
+        verify( criteriaQueryEngine, never() ).query( any() );
+        verify( inMemoryQueryEngine, times( 3 ) ).query( any() );
+    }
+
+    private void addProperty( Map<String, Property> propertyMap, String property, boolean persisted )
+        throws Exception
+    {
+        PropertyDescriptor pd = PropertyUtils.getPropertyDescriptor( new OrganisationUnit(), property );
+        Property p = new Property( pd.getPropertyType(), pd.getReadMethod(), pd.getWriteMethod() );
+        p.setName( pd.getName() );
+        p.setReadable( true );
+        p.setPersisted( persisted );
+
+        propertyMap.put( pd.getName(), p );
+    }
+
     private List<OrganisationUnit> createOrgUnits( int size )
     {
 
@@ -28,6 +28,8 @@ package org.hisp.dhis.query;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import org.hibernate.criterion.Criterion;
+import org.hibernate.engine.spi.TypedValue;
 import org.hisp.dhis.query.operators.BetweenOperator;
 import org.hisp.dhis.query.operators.EqualOperator;
 import org.hisp.dhis.query.operators.GreaterEqualOperator;
@@ -47,6 +49,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -243,6 +246,18 @@ public class OperatorTest
         assertFalse( operator.test( "abc" ) );
     }
 
+    @Test
+    public void testLikeSqlCriterionEscapesWildcards()
+    {
+        LikeOperator operator = new LikeOperator( "a%b_c\\d", false, MatchMode.ANYWHERE );
+
+        Criterion criterion = operator.getSqlCriterion( "{alias}.name" );
+        TypedValue[] values = criterion.getTypedValues( null, null );
+
+        assertEquals( "{alias}.name ilike ?", criterion.toString() );
+        assertEquals( "%a\\%b\\_c\\\\d%", values[0].getValue() );
+    }
+
     @Test
     public void testILikeAnywhere()
     {
@@ -39,6 +39,7 @@ import org.apache.commons.beanutils.PropertyUtils;
 import org.hisp.dhis.attribute.Attribute;
 import org.hisp.dhis.query.Junction;
 import org.hisp.dhis.query.Query;
+import org.hisp.dhis.query.Restriction;
 import org.hisp.dhis.query.Restrictions;
 import org.hisp.dhis.schema.Property;
 import org.hisp.dhis.schema.Schema;
@@ -185,6 +186,90 @@ public class DefaultQueryPlannerTest
         assertEquals( nonPersistedQuery.getRootJunctionType(), Junction.Type.AND );
     }
 
+    @Test
+    public void verifyPlanQueryPushesDisjunctionOnPersistedFieldsToPersistedQuery()
+        throws Exception
+    {
+        final Attribute attribute = new Attribute();
+        final Map<String, Property> propertyMap = new HashMap<>();
+        addProperty( propertyMap, attribute, "id", true );
+        addProperty( propertyMap, attribute, "name", true );
+        Schema schema = new OrganisationUnitSchemaDescriptor().getSchema();
+        schema.setPropertyMap( propertyMap );
+
+        Query query = Query.from( schema, Junction.Type.OR );
+        query.setMaxResults( 10 );
+        query.add( Restrictions.eq( "name", "test" ) );
+        query.add( Restrictions.eq( "id", "abc" ) );
+
+        QueryPlan queryPlan = subject.planQuery( query, false );
+
+        Query persistedQuery = queryPlan.getPersistedQuery();
+        assertEquals( 2, persistedQuery.getCriterions().size() );
+        assertEquals( Junction.Type.OR, persistedQuery.getRootJunctionType() );
+        assertEquals( 10, persistedQuery.getMaxResults().intValue() );
+
+        assertTrue( queryPlan.getNonPersistedQuery().getCriterions().isEmpty() );
+    }
+
+    @Test
+    public void verifyPlanQuerySplitsConjunctionOnPersistedAndNonPersistedFields()
+        throws Exception
+    {
+        final Attribute attribute = new Attribute();
+        final Map<String, Property> propertyMap = new HashMap<>();
+        addProperty( propertyMap, attribute, "id", true );
+        addProperty( propertyMap, attribute, "name", false );
+        Schema schema = new OrganisationUnitSchemaDescriptor().getSchema();
+        schema.setPropertyMap( propertyMap );
+
+        Query query = Query.from( schema, Junction.Type.AND );
+        query.setMaxResults( 10 );
+        query.add( Restrictions.eq( "name", "test" ) );
+        query.add( Restrictions.eq( "id", "abc" ) );
+
+        QueryPlan queryPlan = subject.planQuery( query, false );
+
+        Query persistedQuery = queryPlan.getPersistedQuery();
+        assertEquals( 1, persistedQuery.getCriterions().size() );
+        assertEquals( Integer.MAX_VALUE, persistedQuery.getMaxResults().intValue() );
+
+        Query nonPersistedQuery = queryPlan.getNonPersistedQuery();
+        assertEquals( 1, nonPersistedQuery.getCriterions().size() );
+        assertEquals( 10, nonPersistedQuery.getMaxResults().intValue() );
+    }
+
+    @Test
+    public void verifyPlanQueryPushesAttributeValueAndDisplayNameToPersistedQuery()
+        throws Exception
+    {
+        final Attribute attribute = new Attribute();
+        final Map<String, Property> propertyMap = new HashMap<>();
+        addProperty( propertyMap, attribute, "id", true );
+        addProperty( propertyMap, attribute, "name", true );
+        addProperty( propertyMap, attribute, "displayName", false );
+        addProperty( propertyMap, attribute, "attributeValues", true );
+        Schema schema = new OrganisationUnitSchemaDescriptor().getSchema();
+        schema.setPropertyMap( propertyMap );
+
+        Query query = Query.from( schema, Junction.Type.AND );
+        query.add( Restrictions.eq( "displayName", "test" ) );
+        query.add( Restrictions.eq( "AttrUid0001", "value" ) );
+
+        QueryPlan queryPlan = subject.planQuery( query, false );
+
+        Query persistedQuery = queryPlan.getPersistedQuery();
+        assertEquals( 2, persistedQuery.getCriterions().size() );
+        assertTrue( queryPlan.getNonPersistedQuery().getCriterions().isEmpty() );
+
+        QueryPath displayNamePath = ((Restriction) persistedQuery.getCriterions().get( 0 )).getQueryPath();
+        assertEquals( "name", displayNamePath.getPath() );
+
+        QueryPath attributePath = ((Restriction) persistedQuery.getCriterions().get( 1 )).getQueryPath();
+        assertTrue( attributePath.haveSqlExpression() );
+        assertTrue( attributePath.getSqlExpression().contains( "AttrUid0001" ) );
+    }
+
     private void addProperty( Map<String, Property> propertyMap, Object bean, String property, boolean persisted )
         throws Exception
     {
@@ -0,0 +1,194 @@
+package org.hisp.dhis.sms;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import org.hisp.dhis.sms.incoming.IncomingSms;
+import org.hisp.dhis.sms.incoming.IncomingSmsService;
+import org.hisp.dhis.sms.incoming.SmsMessageStatus;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import com.google.common.collect.Lists;
+
+public class DatabaseSupportedInternalMemoryMessageQueueTest
+{
+    @Mock
+    private IncomingSmsService incomingSmsService;
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    private MessageQueue messageQueue;
+
+    @Before
+    public void setUp()
+    {
+        messageQueue = new DatabaseSupportedInternalMemoryMessageQueue( incomingSmsService );
+    }
+
+    @Test
+    public void testPutAndGet()
+    {
+        IncomingSms smsA = createSms( 1 );
+        IncomingSms smsB = createSms( 2 );
+
+        assertTrue( messageQueue.put( smsA ) );
+        assertTrue( messageQueue.put( smsB ) );
+        assertEquals( 2, messageQueue.size() );
+
+        assertEquals( smsA, messageQueue.get() );
+        assertEquals( smsB, messageQueue.get() );
+        assertNull( messageQueue.get() );
+    }
+
+    @Test
+    public void testPutPendingMessageOnce()
+    {
+        IncomingSms smsA = createSms( 1 );
+
+        assertTrue( messageQueue.put( smsA ) );
+        assertTrue( messageQueue.put( smsA ) );
+        assertEquals( 1, messageQueue.size() );
+
+        assertEquals( smsA, messageQueue.get() );
+
+        assertTrue( messageQueue.put( smsA ) );
+        assertEquals( 0, messageQueue.size() );
+
+        messageQueue.remove( smsA );
+
+        assertTrue( messageQueue.put( smsA ) );
+        assertEquals( 1, messageQueue.size() );
+    }
+
+    @Test
+    public void testInitializeInReceivedOrder()
+    {
+        IncomingSms smsA = createSms( 1 );
+        IncomingSms smsB = createSms( 2 );
+        IncomingSms smsC = createSms( 3 );
+
+        when( incomingSmsService.getAllUnparsedMessages() ).thenReturn( Lists.newArrayList( smsC, smsA, smsB ) );
+
+        messageQueue.initialize();
+
+        assertEquals( smsA, messageQueue.get() );
+        assertEquals( smsB, messageQueue.get() );
+        assertEquals( smsC, messageQueue.get() );
+        assertFalse( messageQueue.isFull() );
+    }
+
+    @Test
+    public void testRecoverSkipsProcessedMessages()
+    {
+        for ( int i = 1; i <= DatabaseSupportedInternalMemoryMessageQueue.CAPACITY; i++ )
+        {
+            assertTrue( messageQueue.put( createSms( i ) ) );
+        }
+
+        IncomingSms smsA = createSms( DatabaseSupportedInternalMemoryMessageQueue.CAPACITY + 1 );
+        IncomingSms smsB = createSms( DatabaseSupportedInternalMemoryMessageQueue.CAPACITY + 2 );
+
+        assertTrue( messageQueue.isFull() );
+        assertFalse( messageQueue.put( smsA ) );
+        assertFalse( messageQueue.put( smsB ) );
+
+        IncomingSms sms;
+
+        while ( ( sms = messageQueue.get() ) != null )
+        {
+            messageQueue.remove( sms );
+        }
+
+        IncomingSms processedSmsA = createSms( smsA.getId() );
+        processedSmsA.setStatus( SmsMessageStatus.PROCESSED );
+
+        when( incomingSmsService.getSmsByStatus( SmsMessageStatus.INCOMING, null ) ).thenReturn( Lists.newArrayList( smsA, smsB ) );
+        when( incomingSmsService.findBy( smsA.getId() ) ).thenReturn( processedSmsA );
+        when( incomingSmsService.findBy( smsB.getId() ) ).thenReturn( smsB );
+
+        messageQueue.recover();
+
+        assertEquals( 1, messageQueue.size() );
+        assertEquals( smsB, messageQueue.get() );
+        assertNull( messageQueue.get() );
+    }
+
+    @Test
+    public void testRecoverSkipsPendingMessages()
+    {
+        for ( int i = 1; i <= DatabaseSupportedInternalMemoryMessageQueue.CAPACITY; i++ )
+        {
+            assertTrue( messageQueue.put( createSms( i ) ) );
+        }
+
+        IncomingSms smsA = createSms( DatabaseSupportedInternalMemoryMessageQueue.CAPACITY + 1 );
+
+        assertFalse( messageQueue.put( smsA ) );
+
+        // Taken by a consumer, status update not yet committed
+
+        IncomingSms smsB = messageQueue.get();
+
+        IncomingSms sms;
+
+        while ( ( sms = messageQueue.get() ) != null )
+        {
+            messageQueue.remove( sms );
+        }
+
+        when( incomingSmsService.getSmsByStatus( SmsMessageStatus.INCOMING, null ) ).thenReturn( Lists.newArrayList( smsA, smsB ) );
+        when( incomingSmsService.findBy( smsA.getId() ) ).thenReturn( smsA );
+
+        messageQueue.recover();
+
+        assertEquals( smsA, messageQueue.get() );
+        assertNull( messageQueue.get() );
+    }
+
+    private IncomingSms createSms( int id )
+    {
+        IncomingSms sms = new IncomingSms();
+        sms.setId( id );
+        sms.setOriginator( "4740000000" );
+        sms.setText( "text" + id );
+        return sms;
+    }
+}
@@ -0,0 +1,243 @@
+package org.hisp.dhis.sms;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.hisp.dhis.message.MessageSender;
+import org.hisp.dhis.sms.incoming.IncomingSms;
+import org.hisp.dhis.sms.incoming.IncomingSmsListener;
+import org.hisp.dhis.sms.incoming.IncomingSmsService;
+import org.hisp.dhis.sms.incoming.SmsMessageStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+public class SmsConsumerThreadTest
+{
+    @Mock
+    private IncomingSmsService incomingSmsService;
+
+    @Mock
+    private MessageSender smsSender;
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    private MessageQueue messageQueue;
+
+    private SmsConsumerThread smsConsumer;
+
+    @Before
+    public void setUp()
+    {
+        messageQueue = new DatabaseSupportedInternalMemoryMessageQueue( incomingSmsService );
+        smsConsumer = new SmsConsumerThread( messageQueue, smsSender, incomingSmsService );
+    }
+
+    @After
+    public void tearDown()
+    {
+        smsConsumer.shutdown();
+    }
+
+    @Test
+    public void testProcessInOrderPerOriginator() throws Exception
+    {
+        String[] originators = { "4740000001", "4740000002", "4740000003", "4740000004" };
+        int messagesPerOriginator = 50;
+
+        CountDownLatch processed = new CountDownLatch( originators.length * messagesPerOriginator );
+        Map<String, List<Integer>> received = new ConcurrentHashMap<>();
+
+        smsConsumer.setListeners( Collections.singletonList( new TestListener( sms -> {
+            received.computeIfAbsent( sms.getOriginator(), o -> Collections.synchronizedList( new ArrayList<>() ) ).add( sms.getId() );
+            processed.countDown();
+        } ) ) );
+
+        int id = 1;
+
+        for ( int i = 0; i < messagesPerOriginator; i++ )
+        {
+            for ( String originator : originators )
+            {
+                assertTrue( messageQueue.put( createSms( id++, originator ) ) );
+            }
+        }
+
+        smsConsumer.spawnSmsConsumer();
+
+        assertTrue( processed.await( 10, TimeUnit.SECONDS ) );
+        awaitIdle();
+
+        for ( String originator : originators )
+        {
+            List<Integer> ids = received.get( originator );
+            List<Integer> sorted = new ArrayList<>( ids );
+            Collections.sort( sorted );
+
+            assertEquals( messagesPerOriginator, ids.size() );
+            assertEquals( sorted, ids );
+        }
+
+        verify( incomingSmsService, times( originators.length * messagesPerOriginator ) ).update( any( IncomingSms.class ) );
+    }
+
+    @Test
+    public void testBoundMessagesInFlight() throws Exception
+    {
+        int messages = SmsConsumerThread.MAX_IN_FLIGHT + 10;
+
+        CountDownLatch release = new CountDownLatch( 1 );
+        CountDownLatch processed = new CountDownLatch( messages );
+
+        smsConsumer.setListeners( Collections.singletonList( new TestListener( sms -> {
+            try
+            {
+                release.await( 10, TimeUnit.SECONDS );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+
+            processed.countDown();
+        } ) ) );
+
+        for ( int i = 1; i <= messages; i++ )
+        {
+            assertTrue( messageQueue.put( createSms( i, "47" + i ) ) );
+        }
+
+        smsConsumer.spawnSmsConsumer();
+
+        assertEquals( SmsConsumerThread.MAX_IN_FLIGHT, smsConsumer.getInFlight() );
+        assertEquals( 10, messageQueue.size() );
+
+        release.countDown();
+
+        long deadline = System.currentTimeMillis() + 10000;
+
+        while ( processed.getCount() > 0 && System.currentTimeMillis() < deadline )
+        {
+            smsConsumer.spawnSmsConsumer();
+            Thread.sleep( 10 );
+        }
+
+        assertTrue( processed.await( 1, TimeUnit.SECONDS ) );
+        assertEquals( 0, messageQueue.size() );
+    }
+
+    @Test
+    public void testKeepPendingWhenUpdateFails() throws Exception
+    {
+        CountDownLatch processed = new CountDownLatch( 1 );
+
+        smsConsumer.setListeners( Collections.singletonList( new TestListener( sms -> processed.countDown() ) ) );
+
+        IncomingSms sms = createSms( 1, "4740000001" );
+
+        doThrow( new RuntimeException( "Update failed" ) ).when( incomingSmsService ).update( sms );
+
+        assertTrue( messageQueue.put( sms ) );
+
+        smsConsumer.spawnSmsConsumer();
+
+        assertTrue( processed.await( 10, TimeUnit.SECONDS ) );
+        awaitIdle();
+
+        // Not queued again, the message is still pending
+
+        assertTrue( messageQueue.put( sms ) );
+        assertEquals( 0, messageQueue.size() );
+    }
+
+    private void awaitIdle() throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 10000;
+
+        while ( smsConsumer.getInFlight() > 0 && System.currentTimeMillis() < deadline )
+        {
+            Thread.sleep( 10 );
+        }
+
+        assertEquals( 0, smsConsumer.getInFlight() );
+    }
+
+    private IncomingSms createSms( int id, String originator )
+    {
+        IncomingSms sms = new IncomingSms();
+        sms.setId( id );
+        sms.setOriginator( originator );
+        sms.setText( "text" + id );
+        return sms;
+    }
+
+    private static class TestListener
+        implements IncomingSmsListener
+    {
+        private final Consumer<IncomingSms> consumer;
+
+        TestListener( Consumer<IncomingSms> consumer )
+        {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public boolean accept( IncomingSms sms )
+        {
+            return true;
+        }
+
+        @Override
+        public void receive( IncomingSms sms )
+        {
+            consumer.accept( sms );
+            sms.setStatus( SmsMessageStatus.PROCESSED );
+        }
+    }
+}
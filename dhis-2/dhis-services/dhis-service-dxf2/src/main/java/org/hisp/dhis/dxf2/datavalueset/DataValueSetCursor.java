@@ -0,0 +1,109 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import java.util.Date;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Keyset position in the data value export ordered by last updated and the
+ * data value primary key columns. Pages read after a cursor start with the
+ * first data value following it in that order, which lets the database seek
+ * directly to the page rather than skipping an offset.
+ */
+public class DataValueSetCursor
+{
+    private final Date lastUpdated;
+
+    private final long dataElementId;
+
+    private final long periodId;
+
+    private final long sourceId;
+
+    private final long categoryOptionComboId;
+
+    private final long attributeOptionComboId;
+
+    public DataValueSetCursor( Date lastUpdated, long dataElementId, long periodId, long sourceId,
+        long categoryOptionComboId, long attributeOptionComboId )
+    {
+        this.lastUpdated = lastUpdated;
+        this.dataElementId = dataElementId;
+        this.periodId = periodId;
+        this.sourceId = sourceId;
+        this.categoryOptionComboId = categoryOptionComboId;
+        this.attributeOptionComboId = attributeOptionComboId;
+    }
+
+    public Date getLastUpdated()
+    {
+        return lastUpdated;
+    }
+
+    public long getDataElementId()
+    {
+        return dataElementId;
+    }
+
+    public long getPeriodId()
+    {
+        return periodId;
+    }
+
+    public long getSourceId()
+    {
+        return sourceId;
+    }
+
+    public long getCategoryOptionComboId()
+    {
+        return categoryOptionComboId;
+    }
+
+    public long getAttributeOptionComboId()
+    {
+        return attributeOptionComboId;
+    }
+
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper( this )
+            .add( "lastUpdated", lastUpdated )
+            .add( "dataElementId", dataElementId )
+            .add( "periodId", periodId )
+            .add( "sourceId", sourceId )
+            .add( "categoryOptionComboId", categoryOptionComboId )
+            .add( "attributeOptionComboId", attributeOptionComboId )
+            .toString();
+    }
+}
@@ -56,14 +56,16 @@ public interface DataValueSetStore
     void writeDataValueSetJson( Date lastUpdated, OutputStream outputStream, IdSchemes idSchemes );
 
     /**
-     * Query for {@link DataValueSet DataValueSets} and write result as JSON.
+     * Query for a page of {@link DataValueSet DataValueSets} using keyset
+     * pagination and write result as JSON.
      *
      * @param lastUpdated specifies the date to filter complete data sets last updated after
      * @param outputStream the stream to write to
      * @param idSchemes idSchemes
-     * @param pageSize pageSize
-     * @param page page
+     * @param pageSize the maximum number of data values to write
+     * @param after the cursor to continue after, null to start from the beginning
+     * @return the cursor of the last data value written, null if none were written
      */
-    void writeDataValueSetJson( Date lastUpdated, OutputStream outputStream, IdSchemes idSchemes, int pageSize,
-        int page );
+    DataValueSetCursor writeDataValueSetJson( Date lastUpdated, OutputStream outputStream, IdSchemes idSchemes,
+        int pageSize, DataValueSetCursor after );
 }
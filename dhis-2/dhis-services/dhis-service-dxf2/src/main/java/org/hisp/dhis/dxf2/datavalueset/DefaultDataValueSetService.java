@@ -60,6 +60,7 @@ import org.hisp.dhis.datavalue.DataExportParams;
 import org.hisp.dhis.datavalue.DataValue;
 import org.hisp.dhis.datavalue.DataValueAudit;
 import org.hisp.dhis.datavalue.DataValueService;
+import org.hisp.dhis.datavalue.DeflatedDataValue;
 import org.hisp.dhis.dxf2.common.ImportOptions;
 import org.hisp.dhis.dxf2.importsummary.ImportConflict;
 import org.hisp.dhis.dxf2.importsummary.ImportCount;
@@ -115,8 +116,10 @@ import java.io.OutputStream;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -140,6 +143,7 @@ public class DefaultDataValueSetService
 {
     private static final String ERROR_OBJECT_NEEDED_TO_COMPLETE = "Must be provided to complete data set";
     private static final int CACHE_MISS_THRESHOLD = 250;
+    private static final int IMPORT_CHUNK_SIZE = 5000;
 
     private final IdentifiableObjectManager identifiableObjectManager;
 
@@ -462,10 +466,10 @@ public class DefaultDataValueSetService
 
     @Override
     @Transactional
-    public void writeDataValueSetJson( Date lastUpdated, OutputStream outputStream, IdSchemes idSchemes, int pageSize,
-        int page )
+    public DataValueSetCursor writeDataValueSetJson( Date lastUpdated, OutputStream outputStream, IdSchemes idSchemes,
+        int pageSize, DataValueSetCursor after )
     {
-        dataValueSetStore.writeDataValueSetJson( lastUpdated, outputStream, idSchemes, pageSize, page );
+        return dataValueSetStore.writeDataValueSetJson( lastUpdated, outputStream, idSchemes, pageSize, after );
     }
 
     @Override
@@ -665,8 +669,11 @@ public class DefaultDataValueSetService
         try
         {
             in = StreamUtils.wrapAndCheckCompressionFormat( in );
-            DataValueSet dataValueSet = jsonMapper.readValue( in, DataValueSet.class );
-            return saveDataValueSet( importOptions, id, dataValueSet );
+
+            try ( StreamingJsonDataValueSet dataValueSet = new StreamingJsonDataValueSet( jsonMapper.getFactory().createParser( in ) ) )
+            {
+                return saveDataValueSet( importOptions, id, dataValueSet );
+            }
         }
         catch ( Exception ex )
         {
@@ -938,11 +945,12 @@ public class DefaultDataValueSetService
         BatchHandler<DataValue> dataValueBatchHandler = batchHandlerFactory.createBatchHandler( DataValueBatchHandler.class ).init();
         BatchHandler<DataValueAudit> auditBatchHandler = skipAudit ? null : batchHandlerFactory.createBatchHandler( DataValueAuditBatchHandler.class ).init();
 
-        int importCount = 0;
-        int updateCount = 0;
-        int deleteCount = 0;
+        ImportCount importCount = new ImportCount();
         int totalCount = 0;
 
+        List<ImportDataValue> chunk = new ArrayList<>();
+        Set<String> chunkKeys = new HashSet<>();
+
         // ---------------------------------------------------------------------
         // Data values
         // ---------------------------------------------------------------------
@@ -952,6 +960,8 @@ public class DefaultDataValueSetService
         clock.logTime( "Validated outer meta-data" );
         notifier.notify( id, notificationLevel, "Importing data values" );
 
+        long startTime = System.currentTimeMillis();
+
         while ( dataValueSet.hasNextDataValue() )
         {
             org.hisp.dhis.dxf2.datavalue.DataValue dataValue = dataValueSet.getNextDataValue();
@@ -1294,10 +1304,137 @@ public class DefaultDataValueSetService
             internalValue.setDeleted( BooleanUtils.isTrue( dataValue.getDeleted() ) );
 
             // -----------------------------------------------------------------
-            // Save, update or delete data value
+            // Add data value to chunk, existing values are looked up per chunk
             // -----------------------------------------------------------------
 
-            DataValue existingValue = !skipExistingCheck ? dataValueBatchHandler.findObject( internalValue ) : null;
+            String key = getDataValueKey( internalValue );
+
+            if ( chunkKeys.contains( key ) || chunk.size() >= IMPORT_CHUNK_SIZE )
+            {
+                importDataValues( chunk, strategy, dryRun, skipAudit, skipExistingCheck,
+                    dataValueBatchHandler, auditBatchHandler, importCount );
+
+                chunk.clear();
+                chunkKeys.clear();
+
+                long seconds = Math.max( 1, ( System.currentTimeMillis() - startTime ) / 1000 );
+
+                notifier.notify( id, notificationLevel, String.format( "Processed %d data values, %d per second",
+                    totalCount, totalCount / seconds ) );
+            }
+
+            chunk.add( new ImportDataValue( internalValue, actualDataValue ) );
+            chunkKeys.add( key );
+        }
+
+        importDataValues( chunk, strategy, dryRun, skipAudit, skipExistingCheck,
+            dataValueBatchHandler, auditBatchHandler, importCount );
+
+        dataValueBatchHandler.flush();
+
+        if ( !skipAudit )
+        {
+            auditBatchHandler.flush();
+        }
+
+        int ignores = totalCount - importCount.getImported() - importCount.getUpdated() - importCount.getDeleted();
+
+        summary.setImportCount( new ImportCount( importCount.getImported(), importCount.getUpdated(), ignores, importCount.getDeleted() ) );
+        summary.setStatus( summary.getConflicts().isEmpty() ? ImportStatus.SUCCESS : ImportStatus.WARNING );
+        summary.setDescription( "Import process completed successfully" );
+
+        clock.logTime( "Data value import done, total: " + totalCount + ", import: " + importCount.getImported() +
+            ", update: " + importCount.getUpdated() + ", delete: " + importCount.getDeleted() );
+        notifier.notify( id, notificationLevel, "Import done", true ).addJobSummary( id, notificationLevel, summary, ImportSummary.class );
+
+        dataValueSet.close();
+
+        return summary;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void handleComplete( DataSet dataSet, Date completeDate, Period period, OrganisationUnit orgUnit,
+        CategoryOptionCombo attributeOptionCombo, String currentUserName, ImportSummary summary )
+    {
+        if ( orgUnit == null )
+        {
+            summary.getConflicts().add( new ImportConflict( OrganisationUnit.class.getSimpleName(), ERROR_OBJECT_NEEDED_TO_COMPLETE ) );
+            return;
+        }
+
+        if ( period == null )
+        {
+            summary.getConflicts().add( new ImportConflict( Period.class.getSimpleName(), ERROR_OBJECT_NEEDED_TO_COMPLETE ) );
+            return;
+        }
+
+        period = periodService.reloadPeriod( period );
+
+        CompleteDataSetRegistration completeAlready = registrationService
+            .getCompleteDataSetRegistration( dataSet, period, orgUnit, attributeOptionCombo );
+
+        if ( completeAlready != null )
+        {
+            // At this point, DataSet is completed. Override, eventual non-completeness
+            completeAlready.setDate( completeDate );
+            completeAlready.setStoredBy( currentUserName );
+            completeAlready.setLastUpdated( new Date() );
+            completeAlready.setLastUpdatedBy( currentUserName );
+            completeAlready.setCompleted( true );
+
+            registrationService.updateCompleteDataSetRegistration( completeAlready );
+        }
+        else
+        {
+            CompleteDataSetRegistration registration = new CompleteDataSetRegistration( dataSet, period, orgUnit,
+                attributeOptionCombo, completeDate, currentUserName, new Date(), currentUserName, true );
+
+            registrationService.saveCompleteDataSetRegistration( registration );
+        }
+
+        summary.setDataSetComplete( DateUtils.getMediumDateString( completeDate ) );
+    }
+
+    /**
+     * Saves, updates or deletes the given chunk of validated data values. The
+     * existing data values of the chunk are retrieved in a single query.
+     * Inserts and updates are both written through the batch handler, so both
+     * are committed as they are written, outside of the import transaction,
+     * and hold no row locks for the rest of the import. The batch
+     * handler is flushed and re-initialized at the end of the chunk, so that
+     * following chunks see the values inserted by this chunk.
+     *
+     * @param chunk the data values to import.
+     * @param strategy the import strategy.
+     * @param dryRun whether to skip writing to the database.
+     * @param skipAudit whether to skip auditing.
+     * @param skipExistingCheck whether to skip the check for existing values.
+     * @param dataValueBatchHandler the data value batch handler.
+     * @param auditBatchHandler the data value audit batch handler.
+     * @param importCount the import count to update.
+     */
+    private void importDataValues( List<ImportDataValue> chunk, ImportStrategy strategy, boolean dryRun, boolean skipAudit,
+        boolean skipExistingCheck, BatchHandler<DataValue> dataValueBatchHandler, BatchHandler<DataValueAudit> auditBatchHandler,
+        ImportCount importCount )
+    {
+        if ( chunk.isEmpty() )
+        {
+            return;
+        }
+
+        Map<String, DeflatedDataValue> existingValues = !skipExistingCheck ? getExistingDataValues( chunk ) : new HashMap<>();
+
+        for ( ImportDataValue importValue : chunk )
+        {
+            DataValue internalValue = importValue.getDataValue();
+            DataValue actualDataValue = importValue.getActualDataValue();
+            DataElement dataElement = internalValue.getDataElement();
+            String storedBy = internalValue.getStoredBy();
+
+            DeflatedDataValue existingValue = !skipExistingCheck ? existingValues.get( getDataValueKey( internalValue ) ) : null;
 
             // -----------------------------------------------------------------
             // Check soft deleted data values on update and import
@@ -1315,11 +1452,11 @@ public class DefaultDataValueSetService
 
                         auditType = AuditType.DELETE;
 
-                        deleteCount++;
+                        importCount.incrementDeleted();
                     }
                     else
                     {
-                        updateCount++;
+                        importCount.incrementUpdated();
                     }
 
                     if ( !dryRun )
@@ -1348,7 +1485,7 @@ public class DefaultDataValueSetService
                 {
                     internalValue.setDeleted( true );
 
-                    deleteCount++;
+                    importCount.incrementDeleted();
 
                     if ( !dryRun )
                     {
@@ -1378,7 +1515,7 @@ public class DefaultDataValueSetService
                     {
                         if ( existingValue != null && existingValue.isDeleted() )
                         {
-                            importCount++;
+                            importCount.incrementImported();
 
                             if ( !dryRun )
                             {
@@ -1414,7 +1551,7 @@ public class DefaultDataValueSetService
 
                             if ( dryRun || added )
                             {
-                                importCount++;
+                                importCount.incrementImported();
                             }
                         }
                     }
@@ -1422,71 +1559,45 @@ public class DefaultDataValueSetService
             }
         }
 
-        dataValueBatchHandler.flush();
-
-        if ( !skipAudit )
+        if ( !dryRun )
         {
-            auditBatchHandler.flush();
+            dataValueBatchHandler.flush();
+            dataValueBatchHandler.init();
         }
-
-        int ignores = totalCount - importCount - updateCount - deleteCount;
-
-        summary.setImportCount( new ImportCount( importCount, updateCount, ignores, deleteCount ) );
-        summary.setStatus( summary.getConflicts().isEmpty() ? ImportStatus.SUCCESS : ImportStatus.WARNING );
-        summary.setDescription( "Import process completed successfully" );
-
-        clock.logTime( "Data value import done, total: " + totalCount + ", import: " + importCount + ", update: " + updateCount + ", delete: " + deleteCount );
-        notifier.notify( id, notificationLevel, "Import done", true ).addJobSummary( id, notificationLevel, summary, ImportSummary.class );
-
-        dataValueSet.close();
-
-        return summary;
     }
 
-    // -------------------------------------------------------------------------
-    // Supportive methods
-    // -------------------------------------------------------------------------
-
-    private void handleComplete( DataSet dataSet, Date completeDate, Period period, OrganisationUnit orgUnit,
-        CategoryOptionCombo attributeOptionCombo, String currentUserName, ImportSummary summary )
+    /**
+     * Returns the persisted data values, including soft deleted values, for the
+     * given chunk of data values mapped by their key.
+     *
+     * @param chunk the data values to import.
+     * @return a mapping of key to persisted data value.
+     */
+    private Map<String, DeflatedDataValue> getExistingDataValues( List<ImportDataValue> chunk )
     {
-        if ( orgUnit == null )
-        {
-            summary.getConflicts().add( new ImportConflict( OrganisationUnit.class.getSimpleName(), ERROR_OBJECT_NEEDED_TO_COMPLETE ) );
-            return;
-        }
-
-        if ( period == null )
-        {
-            summary.getConflicts().add( new ImportConflict( Period.class.getSimpleName(), ERROR_OBJECT_NEEDED_TO_COMPLETE ) );
-            return;
-        }
-
-        period = periodService.reloadPeriod( period );
+        List<DataValue> dataValues = chunk.stream().map( ImportDataValue::getDataValue ).collect( Collectors.toList() );
 
-        CompleteDataSetRegistration completeAlready = registrationService
-            .getCompleteDataSetRegistration( dataSet, period, orgUnit, attributeOptionCombo );
+        Map<String, DeflatedDataValue> existingValues = new HashMap<>();
 
-        if ( completeAlready != null )
+        for ( DeflatedDataValue value : dataValueService.getDeflatedDataValues( dataValues ) )
         {
-            // At this point, DataSet is completed. Override, eventual non-completeness
-            completeAlready.setDate( completeDate );
-            completeAlready.setStoredBy( currentUserName );
-            completeAlready.setLastUpdated( new Date() );
-            completeAlready.setLastUpdatedBy( currentUserName );
-            completeAlready.setCompleted( true );
-
-            registrationService.updateCompleteDataSetRegistration( completeAlready );
+            existingValues.put( getDataValueKey( value.getDataElementId(), value.getPeriodId(), value.getSourceId(),
+                value.getCategoryOptionComboId(), value.getAttributeOptionComboId() ), value );
         }
-        else
-        {
-            CompleteDataSetRegistration registration = new CompleteDataSetRegistration( dataSet, period, orgUnit,
-                attributeOptionCombo, completeDate, currentUserName, new Date(), currentUserName, true );
 
-            registrationService.saveCompleteDataSetRegistration( registration );
-        }
+        return existingValues;
+    }
 
-        summary.setDataSetComplete( DateUtils.getMediumDateString( completeDate ) );
+    private String getDataValueKey( DataValue value )
+    {
+        return getDataValueKey( value.getDataElement().getId(), value.getPeriod().getId(), value.getSource().getId(),
+            value.getCategoryOptionCombo().getId(), value.getAttributeOptionCombo().getId() );
+    }
+
+    private String getDataValueKey( long dataElementId, long periodId, long sourceId, long categoryOptionComboId,
+        long attributeOptionComboId )
+    {
+        return dataElementId + "-" + periodId + "-" + sourceId + "-" + categoryOptionComboId + "-" + attributeOptionComboId;
     }
 
     /**
@@ -1501,4 +1612,31 @@ public class DefaultDataValueSetService
     {
         return dataSet.isLocked( user, period, null ) && (skipLockExceptionCheck || lockExceptionStore.getCount( dataSet, period, organisationUnit ) == 0L);
     }
+
+    /**
+     * Validated data value to import, with the persisted file data value to
+     * delete if any.
+     */
+    private static class ImportDataValue
+    {
+        private final DataValue dataValue;
+
+        private final DataValue actualDataValue;
+
+        ImportDataValue( DataValue dataValue, DataValue actualDataValue )
+        {
+            this.dataValue = dataValue;
+            this.actualDataValue = actualDataValue;
+        }
+
+        public DataValue getDataValue()
+        {
+            return dataValue;
+        }
+
+        public DataValue getActualDataValue()
+        {
+            return actualDataValue;
+        }
+    }
 }
@@ -69,6 +69,13 @@ import lombok.extern.slf4j.Slf4j;
 public class SpringDataValueSetStore
     implements DataValueSetStore
 {
+    /**
+     * Columns defining the order of the keyset paginated data value export.
+     * Matches the index in_datavalue_lastupdated_keyset.
+     */
+    private static final String KEYSET_COLUMNS = "dv.lastupdated, dv.dataelementid, dv.periodid, dv.sourceid, " +
+        "dv.categoryoptioncomboid, dv.attributeoptioncomboid";
+
     private CurrentUserService currentUserService;
 
     private final JdbcTemplate jdbcTemplate;
@@ -135,16 +142,33 @@ public class SpringDataValueSetStore
     }
 
     @Override
-    public void writeDataValueSetJson( Date lastUpdated, OutputStream outputStream, IdSchemes idSchemes, int pageSize,
-        int page )
+    public DataValueSetCursor writeDataValueSetJson( Date lastUpdated, OutputStream outputStream, IdSchemes idSchemes,
+        int pageSize, DataValueSetCursor after )
     {
         DataValueSet dataValueSet = new StreamingJsonDataValueSet( outputStream );
 
-        final int offset = (page - 1) * pageSize;
-        final String sql = buildDataValueSql( lastUpdated, idSchemes ) +
-            "order by pe.startdate asc, dv.created asc, deid asc limit " + pageSize + " offset " + offset;
+        String sql = buildDataValueSql( lastUpdated, idSchemes );
+        Object[] args = new Object[0];
 
-        writeDataValueSet( sql, new DataExportParams(), null, dataValueSet );
+        if ( after != null )
+        {
+            sql += "and (" + KEYSET_COLUMNS + ") > (?, ?, ?, ?, ?, ?) ";
+
+            // Last updated is kept as the timestamp read from the database so that no precision is lost
+
+            args = new Object[] { after.getLastUpdated(), after.getDataElementId(), after.getPeriodId(),
+                after.getSourceId(), after.getCategoryOptionComboId(), after.getAttributeOptionComboId() };
+        }
+
+        sql += "order by " + KEYSET_COLUMNS + " limit " + pageSize;
+
+        final DataValueSetCursor[] last = new DataValueSetCursor[1];
+
+        writeDataValueSet( sql, args, new DataExportParams(), null, dataValueSet, rs -> last[0] = new DataValueSetCursor(
+            rs.getTimestamp( "lastupdated" ), rs.getLong( "dataelementid" ), rs.getLong( "periodid" ),
+            rs.getLong( "sourceid" ), rs.getLong( "categoryoptioncomboid" ), rs.getLong( "attributeoptioncomboid" ) ) );
+
+        return last[0];
     }
 
     private String buildDataValueSql( Date lastUpdated, IdSchemes idSchemes )
@@ -156,7 +180,8 @@ public class SpringDataValueSetStore
         final String sql =
             "select de." + deScheme + " as deid, pe.startdate as pestart, pt.name as ptname, ou." + ouScheme + " as ouid, " +
                 "coc." + ocScheme + " as cocid, aoc." + ocScheme + " as aocid, " +
-                "dv.value, dv.storedby, dv.created, dv.lastupdated, dv.comment, dv.followup, dv.deleted " +
+                "dv.value, dv.storedby, dv.created, dv.lastupdated, dv.comment, dv.followup, dv.deleted, " +
+                "dv.dataelementid, dv.periodid, dv.sourceid, dv.categoryoptioncomboid, dv.attributeoptioncomboid " +
                 "from datavalue dv " +
                 "join dataelement de on (dv.dataelementid=de.dataelementid) " +
                 "join period pe on (dv.periodid=pe.periodid) " +
@@ -170,6 +195,22 @@ public class SpringDataValueSetStore
     }
 
     private void writeDataValueSet( String sql, DataExportParams params, Date completeDate, final DataValueSet dataValueSet )
+    {
+        writeDataValueSet( sql, new Object[0], params, completeDate, dataValueSet, null );
+    }
+
+    /**
+     * Writes the data values returned by the given SQL to the data value set.
+     *
+     * @param sql the SQL query.
+     * @param args the SQL query arguments.
+     * @param params the data export parameters.
+     * @param completeDate the complete date, can be null.
+     * @param dataValueSet the data value set to write to.
+     * @param rowListener callback invoked for each written row, can be null.
+     */
+    private void writeDataValueSet( String sql, Object[] args, DataExportParams params, Date completeDate,
+        final DataValueSet dataValueSet, RowCallbackHandler rowListener )
     {
         if ( params.isSingleDataValueSet() )
         {
@@ -212,8 +253,13 @@ public class SpringDataValueSetStore
                 }
 
                 dataValue.close();
+
+                if ( rowListener != null )
+                {
+                    rowListener.processRow( rs );
+                }
             }
-        } );
+        }, args );
 
         dataValueSet.close();
     }
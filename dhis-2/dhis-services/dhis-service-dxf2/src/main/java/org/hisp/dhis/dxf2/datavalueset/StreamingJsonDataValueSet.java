@@ -28,24 +28,58 @@ package org.hisp.dhis.dxf2.datavalueset;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
 import org.hisp.dhis.dxf2.datavalue.DataValue;
 import org.hisp.dhis.dxf2.datavalue.StreamingJsonDataValue;
 
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
 
 /**
+ * Data value set which writes to a {@link JsonGenerator} or reads from a
+ * {@link JsonParser} without holding the data values in memory.
+ * <p>
+ * When reading, the {@code dataValues} array is copied to a temporary file as
+ * it is encountered, so that all properties of the data value set are known
+ * before the first data value is imported, including properties such as
+ * {@code dryRun} and {@code strategy} which follow the array. Data values are
+ * then read one at a time from the temporary file, which is removed on
+ * {@link #close()}. Closing is idempotent, so callers can close the data value
+ * set in a {@code finally} block regardless of whether the import closed it.
+ *
  * @author Morten Olav Hansen <mortenoh@gmail.com>
  */
+@Slf4j
 public class StreamingJsonDataValueSet extends DataValueSet
+    implements Closeable
 {
+    private static final String FIELD_DATAVALUES = "dataValues";
+    private static final String FIELD_STRATEGY = "strategy";
+    private static final String FIELD_ATTRIBUTE_CATEGORY_OPTIONS = "attributeCategoryOptions";
+
     private JsonGenerator generator;
 
+    private JsonParser parser;
+
     private boolean startedArray;
 
+    private boolean endedArray;
+
+    private File dataValuesFile;
+
+    private DataValue nextDataValue;
+
     public StreamingJsonDataValueSet( OutputStream out )
     {
         try
@@ -63,6 +97,200 @@ public class StreamingJsonDataValueSet extends DataValueSet
         }
     }
 
+    /**
+     * Creates a data value set reading from the given parser, which must have a
+     * codec able to bind {@link DataValue}, such as a parser created by an
+     * {@link ObjectMapper}. The properties of the data value set are read
+     * immediately, and the data values are copied to a temporary file.
+     *
+     * @param parser the {@link JsonParser}.
+     */
+    public StreamingJsonDataValueSet( JsonParser parser )
+    {
+        this.parser = parser;
+
+        try
+        {
+            if ( parser.nextToken() != JsonToken.START_OBJECT )
+            {
+                throw new IllegalArgumentException( "Data value set must be a JSON object" );
+            }
+
+            readProperties();
+
+            if ( startedArray )
+            {
+                spoolDataValues();
+            }
+        }
+        catch ( IOException ex )
+        {
+            close();
+
+            throw new UncheckedIOException( "Failed to read data value set", ex );
+        }
+    }
+
+    //--------------------------------------------------------------------------
+    // Reading
+    //--------------------------------------------------------------------------
+
+    @Override
+    public boolean hasNextDataValue()
+    {
+        if ( nextDataValue != null )
+        {
+            return true;
+        }
+
+        if ( !startedArray || endedArray || parser == null )
+        {
+            return false;
+        }
+
+        try
+        {
+            if ( parser.nextToken() == JsonToken.START_OBJECT )
+            {
+                nextDataValue = parser.readValueAs( DataValue.class );
+                return true;
+            }
+
+            endedArray = true;
+
+            return false;
+        }
+        catch ( IOException ex )
+        {
+            throw new UncheckedIOException( "Failed to read data value", ex );
+        }
+    }
+
+    @Override
+    public DataValue getNextDataValue()
+    {
+        if ( !hasNextDataValue() )
+        {
+            return null;
+        }
+
+        DataValue dataValue = nextDataValue;
+        nextDataValue = null;
+        return dataValue;
+    }
+
+    /**
+     * Reads properties of the data value set until the start of the data
+     * values array or the end of the object.
+     */
+    private void readProperties()
+        throws IOException
+    {
+        while ( parser.nextToken() == JsonToken.FIELD_NAME )
+        {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+
+            if ( FIELD_DATAVALUES.equals( field ) && token == JsonToken.START_ARRAY && !startedArray )
+            {
+                startedArray = true;
+                return;
+            }
+
+            readProperty( field, token );
+        }
+    }
+
+    /**
+     * Copies the data values array, at which the parser is positioned, to a
+     * temporary file, reads the properties following the array, and continues
+     * reading data values from the temporary file.
+     */
+    private void spoolDataValues()
+        throws IOException
+    {
+        JsonFactory factory = parser.getCodec().getFactory();
+
+        dataValuesFile = File.createTempFile( "datavalueset", ".json" );
+
+        try ( JsonGenerator spool = factory.createGenerator( dataValuesFile, JsonEncoding.UTF8 ) )
+        {
+            spool.copyCurrentStructure( parser );
+        }
+
+        readProperties();
+
+        parser.close();
+
+        parser = factory.createParser( dataValuesFile );
+
+        if ( parser.nextToken() != JsonToken.START_ARRAY )
+        {
+            throw new IllegalStateException( "Spooled data values must be a JSON array" );
+        }
+
+        log.debug( String.format( "Data values spooled to: %s", dataValuesFile.getAbsolutePath() ) );
+    }
+
+    private void readProperty( String field, JsonToken token )
+        throws IOException
+    {
+        if ( token.isStructStart() && !FIELD_ATTRIBUTE_CATEGORY_OPTIONS.equals( field ) )
+        {
+            parser.skipChildren();
+            return;
+        }
+
+        switch ( field )
+        {
+            case FIELD_IDSCHEME:
+                idScheme = parser.getValueAsString();
+                break;
+            case FIELD_DATAELEMENTIDSCHEME:
+                dataElementIdScheme = parser.getValueAsString();
+                break;
+            case FIELD_ORGUNITIDSCHEME:
+                orgUnitIdScheme = parser.getValueAsString();
+                break;
+            case FIELD_CATEGORYOPTCOMBOIDSCHEME:
+                categoryOptionComboIdScheme = parser.getValueAsString();
+                break;
+            case FIELD_DATASETIDSCHEME:
+                dataSetIdScheme = parser.getValueAsString();
+                break;
+            case FIELD_DRYRUN:
+                dryRun = token == JsonToken.VALUE_NULL ? null : parser.getValueAsBoolean();
+                break;
+            case FIELD_STRATEGY:
+                strategy = parser.getValueAsString();
+                break;
+            case FIELD_DATASET:
+                dataSet = parser.getValueAsString();
+                break;
+            case FIELD_COMPLETEDATE:
+                completeDate = parser.getValueAsString();
+                break;
+            case FIELD_PERIOD:
+                period = parser.getValueAsString();
+                break;
+            case FIELD_ORGUNIT:
+                orgUnit = parser.getValueAsString();
+                break;
+            case FIELD_ATTRIBUTE_OPTION_COMBO:
+                attributeOptionCombo = parser.getValueAsString();
+                break;
+            case FIELD_ATTRIBUTE_CATEGORY_OPTIONS:
+                attributeCategoryOptions = parser.readValueAs( new TypeReference<List<String>>() {} );
+                break;
+            default:
+                parser.skipChildren();
+        }
+    }
+
+    //--------------------------------------------------------------------------
+    // Writing
+    //--------------------------------------------------------------------------
+
     @Override
     public void setDataElementIdScheme( String dataElementIdScheme )
     {
@@ -124,7 +352,7 @@ public class StreamingJsonDataValueSet extends DataValueSet
         {
             try
             {
-                generator.writeArrayFieldStart( "dataValues" );
+                generator.writeArrayFieldStart( FIELD_DATAVALUES );
                 startedArray = true;
             }
             catch ( IOException ignored )
@@ -138,6 +366,26 @@ public class StreamingJsonDataValueSet extends DataValueSet
     @Override
     public void close()
     {
+        if ( parser != null )
+        {
+            try
+            {
+                parser.close();
+            }
+            catch ( IOException ignored )
+            {
+            }
+
+            parser = null;
+        }
+
+        if ( dataValuesFile != null && !dataValuesFile.delete() )
+        {
+            log.warn( String.format( "Failed to delete spooled data values: %s", dataValuesFile.getAbsolutePath() ) );
+        }
+
+        dataValuesFile = null;
+
         if ( generator == null )
         {
             return;
@@ -164,6 +412,8 @@ public class StreamingJsonDataValueSet extends DataValueSet
             catch ( IOException ignored )
             {
             }
+
+            generator = null;
         }
     }
 
@@ -30,7 +30,6 @@ package org.hisp.dhis.dxf2.events.trackedentity;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Lists;
-import com.vividsolutions.jts.geom.Geometry;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.hisp.dhis.common.CodeGenerator;
@@ -92,6 +91,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -152,6 +152,8 @@ public abstract class AbstractTrackedEntityInstanceService
 
     protected ObjectMapper xmlMapper;
 
+    protected TrackedEntityInstanceAggregate trackedEntityInstanceAggregate;
+
     private final CachingMap<String, OrganisationUnit> organisationUnitCache = new CachingMap<>();
 
     private final CachingMap<String, Program> programCache = new CachingMap<>();
@@ -191,13 +193,15 @@ public abstract class AbstractTrackedEntityInstanceService
         List<org.hisp.dhis.trackedentity.TrackedEntityInstance> daoTEIs = teiService
             .getTrackedEntityInstances( queryParams, skipAccessValidation );
 
-        List<TrackedEntityInstance> dtoTeis = new ArrayList<>();
         User user = currentUserService.getCurrentUser();
 
         Set<TrackedEntityAttribute> trackedEntityTypeAttributes = this.trackedEntityAttributeService.getTrackedEntityAttributesByTrackedEntityTypes();
 
         Map<Program, Set<TrackedEntityAttribute>> teaByProgram = this.trackedEntityAttributeService.getTrackedEntityAttributesByProgram();
 
+        List<org.hisp.dhis.trackedentity.TrackedEntityInstance> accessibleTeis = new ArrayList<>();
+        Map<org.hisp.dhis.trackedentity.TrackedEntityInstance, Set<TrackedEntityAttribute>> teiAttributes = new IdentityHashMap<>();
+
         if ( queryParams != null && queryParams.isIncludeAllAttributes() )
         {
             daoTEIs.forEach( t -> {
@@ -207,7 +211,8 @@ public abstract class AbstractTrackedEntityInstanceService
                     attributes = mergeIf( trackedEntityTypeAttributes, teaByProgram.get( program ),
                         trackerOwnershipAccessManager.hasAccess( user, t, program ) );
                 }
-                dtoTeis.add( getTei( t, attributes, params, user ) );
+                accessibleTeis.add( t );
+                teiAttributes.put( t, attributes );
 
             } );
         }
@@ -225,12 +230,13 @@ public abstract class AbstractTrackedEntityInstanceService
             {
                 if ( trackerOwnershipAccessManager.hasAccess( user, daoTrackedEntityInstance, queryParams.getProgram() ) )
                 {
-                    dtoTeis.add( getTei( daoTrackedEntityInstance, attributes, params, user ) );
+                    accessibleTeis.add( daoTrackedEntityInstance );
+                    teiAttributes.put( daoTrackedEntityInstance, attributes );
                 }
             }
         }
 
-        return dtoTeis;
+        return trackedEntityInstanceAggregate.getTrackedEntityInstances( accessibleTeis, teiAttributes::get, params, user );
     }
 
     @Override
@@ -1453,28 +1459,8 @@ public abstract class AbstractTrackedEntityInstanceService
             return null;
         }
 
-        TrackedEntityInstance trackedEntityInstance = new TrackedEntityInstance();
-        trackedEntityInstance.setTrackedEntityInstance( daoTrackedEntityInstance.getUid() );
-        trackedEntityInstance.setOrgUnit( daoTrackedEntityInstance.getOrganisationUnit().getUid() );
-        trackedEntityInstance.setTrackedEntityType( daoTrackedEntityInstance.getTrackedEntityType().getUid() );
-        trackedEntityInstance.setCreated( DateUtils.getIso8601NoTz( daoTrackedEntityInstance.getCreated() ) );
-        trackedEntityInstance
-            .setCreatedAtClient( DateUtils.getIso8601NoTz( daoTrackedEntityInstance.getLastUpdatedAtClient() ) );
-        trackedEntityInstance.setLastUpdated( DateUtils.getIso8601NoTz( daoTrackedEntityInstance.getLastUpdated() ) );
-        trackedEntityInstance
-            .setLastUpdatedAtClient( DateUtils.getIso8601NoTz( daoTrackedEntityInstance.getLastUpdatedAtClient() ) );
-        trackedEntityInstance.setInactive( daoTrackedEntityInstance.isInactive() );
-        trackedEntityInstance.setGeometry( daoTrackedEntityInstance.getGeometry() );
-        trackedEntityInstance.setDeleted( daoTrackedEntityInstance.isDeleted() );
-        trackedEntityInstance.setStoredBy( daoTrackedEntityInstance.getStoredBy() );
-
-        if ( daoTrackedEntityInstance.getGeometry() != null )
-        {
-            Geometry geometry = daoTrackedEntityInstance.getGeometry();
-            FeatureType featureType = FeatureType.getTypeFromName( geometry.getGeometryType() );
-            trackedEntityInstance.setFeatureType( featureType );
-            trackedEntityInstance.setCoordinates( GeoUtils.getCoordinatesFromGeometry( geometry ) );
-        }
+        TrackedEntityInstance trackedEntityInstance = TrackedEntityInstanceAggregate
+            .createTrackedEntityInstance( daoTrackedEntityInstance );
 
         if ( params.isIncludeRelationships() )
         {
@@ -96,7 +96,8 @@ public class JacksonTrackedEntityInstanceService extends AbstractTrackedEntityIn
         TrackerOwnershipManager trackerOwnershipAccessManager,
         Notifier notifier,
         ObjectMapper jsonMapper,
-        @Qualifier( "xmlMapper" ) ObjectMapper xmlMapper )
+        @Qualifier( "xmlMapper" ) ObjectMapper xmlMapper,
+        TrackedEntityInstanceAggregate trackedEntityInstanceAggregate )
     {
         checkNotNull( teiService );
         checkNotNull( trackedEntityAttributeService );
@@ -118,6 +119,7 @@ public class JacksonTrackedEntityInstanceService extends AbstractTrackedEntityIn
         checkNotNull( notifier );
         checkNotNull( jsonMapper );
         checkNotNull( xmlMapper );
+        checkNotNull( trackedEntityInstanceAggregate );
 
         this.teiService = teiService;
         this.trackedEntityAttributeService = trackedEntityAttributeService;
@@ -139,6 +141,7 @@ public class JacksonTrackedEntityInstanceService extends AbstractTrackedEntityIn
         this.notifier = notifier;
         this.jsonMapper = jsonMapper;
         this.xmlMapper = xmlMapper;
+        this.trackedEntityInstanceAggregate = trackedEntityInstanceAggregate;
     }
 
     // -------------------------------------------------------------------------
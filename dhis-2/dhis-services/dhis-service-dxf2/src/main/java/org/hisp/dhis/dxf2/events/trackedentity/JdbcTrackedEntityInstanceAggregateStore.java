@@ -0,0 +1,432 @@
+package org.hisp.dhis.dxf2.events.trackedentity;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hisp.dhis.common.ListMap;
+import org.hisp.dhis.dxf2.events.enrollment.Enrollment;
+import org.hisp.dhis.dxf2.events.enrollment.EnrollmentStatus;
+import org.hisp.dhis.dxf2.events.event.Coordinate;
+import org.hisp.dhis.dxf2.events.event.DataValue;
+import org.hisp.dhis.dxf2.events.event.Event;
+import org.hisp.dhis.dxf2.events.event.Note;
+import org.hisp.dhis.event.EventStatus;
+import org.hisp.dhis.eventdatavalue.EventDataValue;
+import org.hisp.dhis.hibernate.jsonb.type.JsonEventDataValueSetBinaryType;
+import org.hisp.dhis.program.ProgramStatus;
+import org.hisp.dhis.util.DateUtils;
+import org.jasypt.encryption.pbe.PBEStringEncryptor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKTReader;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * JDBC implementation of {@link TrackedEntityInstanceAggregateStore}. Every
+ * query takes the tracked entity instance identifiers as one array parameter.
+ */
+@Slf4j
+@Repository( "org.hisp.dhis.dxf2.events.trackedentity.TrackedEntityInstanceAggregateStore" )
+public class JdbcTrackedEntityInstanceAggregateStore
+    implements TrackedEntityInstanceAggregateStore
+{
+    private static final String ATTRIBUTE_SQL =
+        "select teav.trackedentityinstanceid as tei_id, tea.uid as tea_uid, tea.confidential as tea_confidential, " +
+        "teav.value, teav.encryptedvalue, teav.created, teav.lastupdated, teav.storedby " +
+        "from trackedentityattributevalue teav " +
+        "inner join trackedentityattribute tea on tea.trackedentityattributeid = teav.trackedentityattributeid " +
+        "where teav.trackedentityinstanceid = any( ? )";
+
+    private static final String PROGRAM_OWNER_SQL =
+        "select tpo.trackedentityinstanceid as tei_id, tei.uid as tei_uid, p.uid as p_uid, ou.uid as ou_uid " +
+        "from trackedentityprogramowner tpo " +
+        "inner join trackedentityinstance tei on tei.trackedentityinstanceid = tpo.trackedentityinstanceid " +
+        "inner join program p on p.programid = tpo.programid " +
+        "inner join organisationunit ou on ou.organisationunitid = tpo.organisationunitid " +
+        "where tpo.trackedentityinstanceid = any( ? )";
+
+    private static final String ENROLLMENT_SQL =
+        "select pi.trackedentityinstanceid as tei_id, pi.uid as pi_uid, tei.uid as tei_uid, tet.uid as tet_uid, " +
+        "p.uid as p_uid, ou.uid as ou_uid, ou.name as ou_name, ST_AsText( pi.geometry ) as pi_geometry, " +
+        "pi.created, pi.createdatclient, pi.lastupdated, pi.lastupdatedatclient, pi.status, pi.enrollmentdate, " +
+        "pi.incidentdate, pi.followup, pi.enddate, pi.completedby, pi.storedby, pi.deleted " +
+        "from programinstance pi " +
+        "inner join trackedentityinstance tei on tei.trackedentityinstanceid = pi.trackedentityinstanceid " +
+        "inner join trackedentitytype tet on tet.trackedentitytypeid = tei.trackedentitytypeid " +
+        "inner join program p on p.programid = pi.programid " +
+        "left join organisationunit ou on ou.organisationunitid = pi.organisationunitid " +
+        "where pi.trackedentityinstanceid = any( ? ) " +
+        "order by pi.programinstanceid";
+
+    private static final String ENROLLMENT_NOTE_SQL =
+        "select pi.uid as owner_uid, c.uid, c.commenttext, c.creator, c.created " +
+        "from programinstancecomments pic " +
+        "inner join trackedentitycomment c on c.trackedentitycommentid = pic.trackedentitycommentid " +
+        "inner join programinstance pi on pi.programinstanceid = pic.programinstanceid " +
+        "where pi.trackedentityinstanceid = any( ? ) " +
+        "order by pic.programinstanceid, pic.sort_order";
+
+    private static final String EVENT_SQL =
+        "select pi.uid as pi_uid, pi.status as pi_status, pi.followup as pi_followup, psi.uid as psi_uid, " +
+        "tei.uid as tei_uid, p.uid as p_uid, ps.uid as ps_uid, ou.uid as ou_uid, ou.name as ou_name, " +
+        "coc.uid as coc_uid, (select string_agg( co.uid, ';' ) from categoryoptioncombos_categoryoptions cocco " +
+        "inner join dataelementcategoryoption co on co.categoryoptionid = cocco.categoryoptionid " +
+        "where cocco.categoryoptioncomboid = psi.attributeoptioncomboid) as co_uids, " +
+        "psi.status, psi.executiondate, psi.duedate, psi.storedby, psi.completedby, psi.completeddate, " +
+        "psi.created, psi.createdatclient, psi.lastupdated, psi.lastupdatedatclient, psi.deleted, " +
+        "ST_AsText( psi.geometry ) as psi_geometry, psi.eventdatavalues, au.uid as user_assigned, " +
+        "auc.username as user_assigned_username, (au.firstname || ' ' || au.surname) as user_assigned_name " +
+        "from programstageinstance psi " +
+        "inner join programinstance pi on pi.programinstanceid = psi.programinstanceid " +
+        "inner join trackedentityinstance tei on tei.trackedentityinstanceid = pi.trackedentityinstanceid " +
+        "inner join program p on p.programid = pi.programid " +
+        "inner join programstage ps on ps.programstageid = psi.programstageid " +
+        "inner join categoryoptioncombo coc on coc.categoryoptioncomboid = psi.attributeoptioncomboid " +
+        "left join organisationunit ou on ou.organisationunitid = psi.organisationunitid " +
+        "left join users auc on auc.userid = psi.assigneduserid " +
+        "left join userinfo au on au.userinfoid = auc.userid " +
+        "where pi.trackedentityinstanceid = any( ? ) " +
+        "order by psi.programstageinstanceid";
+
+    private static final String EVENT_NOTE_SQL =
+        "select psi.uid as owner_uid, c.uid, c.commenttext, c.creator, c.created " +
+        "from programstageinstancecomments psic " +
+        "inner join trackedentitycomment c on c.trackedentitycommentid = psic.trackedentitycommentid " +
+        "inner join programstageinstance psi on psi.programstageinstanceid = psic.programstageinstanceid " +
+        "inner join programinstance pi on pi.programinstanceid = psi.programinstanceid " +
+        "where pi.trackedentityinstanceid = any( ? ) " +
+        "order by psic.programstageinstanceid, psic.sort_order";
+
+    private static final String RELATIONSHIP_SQL =
+        "select tei.uid as owner_uid, r.uid as r_uid from relationshipitem ri " +
+        "inner join relationship r on r.relationshipid = ri.relationshipid " +
+        "inner join trackedentityinstance tei on tei.trackedentityinstanceid = ri.trackedentityinstanceid " +
+        "where tei.trackedentityinstanceid = any( ? ) " +
+        "union all " +
+        "select pi.uid as owner_uid, r.uid as r_uid from relationshipitem ri " +
+        "inner join relationship r on r.relationshipid = ri.relationshipid " +
+        "inner join programinstance pi on pi.programinstanceid = ri.programinstanceid " +
+        "where pi.trackedentityinstanceid = any( ? ) " +
+        "union all " +
+        "select psi.uid as owner_uid, r.uid as r_uid from relationshipitem ri " +
+        "inner join relationship r on r.relationshipid = ri.relationshipid " +
+        "inner join programstageinstance psi on psi.programstageinstanceid = ri.programstageinstanceid " +
+        "inner join programinstance pi on pi.programinstanceid = psi.programinstanceid " +
+        "where pi.trackedentityinstanceid = any( ? )";
+
+    //Cannot use DefaultRenderService mapper. Does not work properly - DHIS2-6102
+    private static final ObjectReader eventDataValueJsonReader =
+        JsonEventDataValueSetBinaryType.MAPPER.readerFor( new TypeReference<Map<String, EventDataValue>>()
+        {
+        } );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final PBEStringEncryptor encryptor;
+
+    public JdbcTrackedEntityInstanceAggregateStore( @Qualifier( "readOnlyJdbcTemplate" ) JdbcTemplate jdbcTemplate,
+        @Qualifier( "aes128StringEncryptor" ) PBEStringEncryptor encryptor )
+    {
+        checkNotNull( jdbcTemplate );
+        checkNotNull( encryptor );
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.encryptor = encryptor;
+    }
+
+    // -------------------------------------------------------------------------
+    // TrackedEntityInstanceAggregateStore implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public ListMap<Long, Attribute> getAttributes( List<Long> teiIds )
+    {
+        ListMap<Long, Attribute> attributes = new ListMap<>();
+
+        query( ATTRIBUTE_SQL, teiIds, rs -> {
+            Attribute attribute = new Attribute();
+            attribute.setAttribute( rs.getString( "tea_uid" ) );
+            attribute.setCreated( DateUtils.getIso8601NoTz( rs.getTimestamp( "created" ) ) );
+            attribute.setLastUpdated( DateUtils.getIso8601NoTz( rs.getTimestamp( "lastupdated" ) ) );
+            attribute.setStoredBy( rs.getString( "storedby" ) );
+
+            if ( rs.getBoolean( "tea_confidential" ) )
+            {
+                String encryptedValue = rs.getString( "encryptedvalue" );
+                attribute.setValue( encryptedValue != null ? encryptor.decrypt( encryptedValue ) : null );
+            }
+            else
+            {
+                attribute.setValue( rs.getString( "value" ) );
+            }
+
+            attributes.putValue( rs.getLong( "tei_id" ), attribute );
+        } );
+
+        return attributes;
+    }
+
+    @Override
+    public ListMap<Long, ProgramOwner> getProgramOwners( List<Long> teiIds )
+    {
+        ListMap<Long, ProgramOwner> programOwners = new ListMap<>();
+
+        query( PROGRAM_OWNER_SQL, teiIds, rs -> {
+            ProgramOwner programOwner = new ProgramOwner();
+            programOwner.setTrackedEntityInstance( rs.getString( "tei_uid" ) );
+            programOwner.setProgram( rs.getString( "p_uid" ) );
+            programOwner.setOwnerOrgUnit( rs.getString( "ou_uid" ) );
+
+            programOwners.putValue( rs.getLong( "tei_id" ), programOwner );
+        } );
+
+        return programOwners;
+    }
+
+    @Override
+    public ListMap<Long, Enrollment> getEnrollments( List<Long> teiIds )
+    {
+        ListMap<Long, Enrollment> enrollments = new ListMap<>();
+
+        query( ENROLLMENT_SQL, teiIds, rs -> {
+            Enrollment enrollment = new Enrollment();
+            enrollment.setEnrollment( rs.getString( "pi_uid" ) );
+            enrollment.setTrackedEntityType( rs.getString( "tet_uid" ) );
+            enrollment.setTrackedEntityInstance( rs.getString( "tei_uid" ) );
+            enrollment.setOrgUnit( rs.getString( "ou_uid" ) );
+            enrollment.setOrgUnitName( rs.getString( "ou_name" ) );
+            enrollment.setGeometry( getGeometry( rs, "pi_geometry" ) );
+            enrollment.setCreated( DateUtils.getIso8601NoTz( rs.getTimestamp( "created" ) ) );
+            enrollment.setCreatedAtClient( DateUtils.getIso8601NoTz( rs.getTimestamp( "createdatclient" ) ) );
+            enrollment.setLastUpdated( DateUtils.getIso8601NoTz( rs.getTimestamp( "lastupdated" ) ) );
+            enrollment.setLastUpdatedAtClient( DateUtils.getIso8601NoTz( rs.getTimestamp( "lastupdatedatclient" ) ) );
+            enrollment.setProgram( rs.getString( "p_uid" ) );
+            enrollment.setStatus( EnrollmentStatus.fromProgramStatus( ProgramStatus.valueOf( rs.getString( "status" ) ) ) );
+            enrollment.setEnrollmentDate( rs.getTimestamp( "enrollmentdate" ) );
+            enrollment.setIncidentDate( rs.getTimestamp( "incidentdate" ) );
+            enrollment.setFollowup( (Boolean) rs.getObject( "followup" ) );
+            enrollment.setCompletedDate( rs.getTimestamp( "enddate" ) );
+            enrollment.setCompletedBy( rs.getString( "completedby" ) );
+            enrollment.setStoredBy( rs.getString( "storedby" ) );
+            enrollment.setDeleted( rs.getBoolean( "deleted" ) );
+
+            enrollments.putValue( rs.getLong( "tei_id" ), enrollment );
+        } );
+
+        return enrollments;
+    }
+
+    @Override
+    public ListMap<String, Note> getEnrollmentNotes( List<Long> teiIds )
+    {
+        return getNotes( ENROLLMENT_NOTE_SQL, teiIds );
+    }
+
+    @Override
+    public ListMap<String, Event> getEvents( List<Long> teiIds )
+    {
+        ListMap<String, Event> events = new ListMap<>();
+
+        query( EVENT_SQL, teiIds, rs -> {
+            Event event = new Event();
+            event.setEvent( rs.getString( "psi_uid" ) );
+            event.setTrackedEntityInstance( rs.getString( "tei_uid" ) );
+            event.setFollowup( (Boolean) rs.getObject( "pi_followup" ) );
+            event.setEnrollmentStatus( EnrollmentStatus.fromProgramStatus( ProgramStatus.valueOf( rs.getString( "pi_status" ) ) ) );
+            event.setStatus( EventStatus.valueOf( rs.getString( "status" ) ) );
+            event.setEventDate( DateUtils.getIso8601NoTz( rs.getTimestamp( "executiondate" ) ) );
+            event.setDueDate( DateUtils.getIso8601NoTz( rs.getTimestamp( "duedate" ) ) );
+            event.setStoredBy( rs.getString( "storedby" ) );
+            event.setCompletedBy( rs.getString( "completedby" ) );
+            event.setCompletedDate( DateUtils.getIso8601NoTz( rs.getTimestamp( "completeddate" ) ) );
+            event.setCreated( DateUtils.getIso8601NoTz( rs.getTimestamp( "created" ) ) );
+            event.setCreatedAtClient( DateUtils.getIso8601NoTz( rs.getTimestamp( "createdatclient" ) ) );
+            event.setLastUpdated( DateUtils.getIso8601NoTz( rs.getTimestamp( "lastupdated" ) ) );
+            event.setLastUpdatedAtClient( DateUtils.getIso8601NoTz( rs.getTimestamp( "lastupdatedatclient" ) ) );
+            event.setGeometry( getGeometry( rs, "psi_geometry" ) );
+            event.setDeleted( rs.getBoolean( "deleted" ) );
+
+            if ( event.getGeometry() != null && event.getGeometry().getGeometryType().equals( "Point" ) )
+            {
+                com.vividsolutions.jts.geom.Coordinate geometryCoordinate = event.getGeometry().getCoordinate();
+                event.setCoordinate( new Coordinate( geometryCoordinate.x, geometryCoordinate.y ) );
+            }
+
+            if ( rs.getString( "user_assigned" ) != null )
+            {
+                event.setAssignedUser( rs.getString( "user_assigned" ) );
+                event.setAssignedUserUsername( rs.getString( "user_assigned_username" ) );
+                event.setAssignedUserDisplayName( rs.getString( "user_assigned_name" ) );
+            }
+
+            event.setOrgUnit( rs.getString( "ou_uid" ) );
+            event.setOrgUnitName( rs.getString( "ou_name" ) );
+            event.setProgram( rs.getString( "p_uid" ) );
+            event.setEnrollment( rs.getString( "pi_uid" ) );
+            event.setProgramStage( rs.getString( "ps_uid" ) );
+            event.setAttributeOptionCombo( rs.getString( "coc_uid" ) );
+            event.setAttributeCategoryOptions( StringUtils.defaultString( rs.getString( "co_uids" ) ) );
+
+            String eventDataValues = rs.getString( "eventdatavalues" );
+
+            if ( StringUtils.isNotEmpty( eventDataValues ) )
+            {
+                for ( EventDataValue eventDataValue : convertEventDataValueJsonIntoSet( eventDataValues ) )
+                {
+                    DataValue value = new DataValue();
+                    value.setCreated( DateUtils.getIso8601NoTz( eventDataValue.getCreated() ) );
+                    value.setLastUpdated( DateUtils.getIso8601NoTz( eventDataValue.getLastUpdated() ) );
+                    value.setDataElement( eventDataValue.getDataElement() );
+                    value.setValue( eventDataValue.getValue() );
+                    value.setProvidedElsewhere( eventDataValue.getProvidedElsewhere() );
+                    value.setStoredBy( eventDataValue.getStoredBy() );
+
+                    event.getDataValues().add( value );
+                }
+            }
+
+            events.putValue( event.getEnrollment(), event );
+        } );
+
+        return events;
+    }
+
+    @Override
+    public ListMap<String, Note> getEventNotes( List<Long> teiIds )
+    {
+        return getNotes( EVENT_NOTE_SQL, teiIds );
+    }
+
+    @Override
+    public ListMap<String, String> getRelationships( List<Long> teiIds )
+    {
+        ListMap<String, String> relationships = new ListMap<>();
+
+        query( RELATIONSHIP_SQL, teiIds, rs -> relationships.putValue( rs.getString( "owner_uid" ), rs.getString( "r_uid" ) ) );
+
+        return relationships;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Runs the given query, binding the tracked entity instance identifiers as
+     * an array to every parameter of the query.
+     */
+    private void query( String sql, List<Long> teiIds, RowCallbackHandler handler )
+    {
+        if ( teiIds.isEmpty() )
+        {
+            return;
+        }
+
+        int parameterCount = StringUtils.countMatches( sql, '?' );
+
+        jdbcTemplate.query( sql, ps -> {
+            Array array = ps.getConnection().createArrayOf( "bigint", teiIds.toArray() );
+
+            for ( int i = 1; i <= parameterCount; i++ )
+            {
+                ps.setArray( i, array );
+            }
+        }, handler );
+    }
+
+    private ListMap<String, Note> getNotes( String sql, List<Long> teiIds )
+    {
+        ListMap<String, Note> notes = new ListMap<>();
+
+        query( sql, teiIds, rs -> {
+            Note note = new Note();
+            note.setNote( rs.getString( "uid" ) );
+            note.setValue( rs.getString( "commenttext" ) );
+            note.setStoredBy( rs.getString( "creator" ) );
+            note.setStoredDate( DateUtils.getIso8601NoTz( rs.getTimestamp( "created" ) ) );
+
+            notes.putValue( rs.getString( "owner_uid" ), note );
+        } );
+
+        return notes;
+    }
+
+    private Geometry getGeometry( ResultSet rs, String column )
+        throws SQLException
+    {
+        String geometry = rs.getString( column );
+
+        if ( geometry == null )
+        {
+            return null;
+        }
+
+        try
+        {
+            return new WKTReader().read( geometry );
+        }
+        catch ( ParseException e )
+        {
+            log.error( "Unable to read geometry '" + geometry + "': ", e );
+            return null;
+        }
+    }
+
+    private Set<EventDataValue> convertEventDataValueJsonIntoSet( String jsonString )
+    {
+        try
+        {
+            Map<String, EventDataValue> data = eventDataValueJsonReader.readValue( jsonString );
+            return JsonEventDataValueSetBinaryType.convertEventDataValuesMapIntoSet( data );
+        }
+        catch ( IOException e )
+        {
+            log.error( "Parsing EventDataValues json string failed. String value: " + jsonString );
+            throw new IllegalArgumentException( e );
+        }
+    }
+}
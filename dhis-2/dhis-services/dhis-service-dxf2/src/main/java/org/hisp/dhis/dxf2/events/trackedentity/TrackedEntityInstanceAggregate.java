@@ -0,0 +1,599 @@
+package org.hisp.dhis.dxf2.events.trackedentity;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hisp.dhis.category.CategoryOption;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.common.ListMap;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dxf2.events.RelationshipParams;
+import org.hisp.dhis.dxf2.events.TrackedEntityInstanceParams;
+import org.hisp.dhis.dxf2.events.enrollment.Enrollment;
+import org.hisp.dhis.dxf2.events.event.Coordinate;
+import org.hisp.dhis.dxf2.events.event.DataValue;
+import org.hisp.dhis.dxf2.events.event.Event;
+import org.hisp.dhis.dxf2.events.event.Note;
+import org.hisp.dhis.dxf2.events.relationship.RelationshipService;
+import org.hisp.dhis.organisationunit.FeatureType;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.program.Program;
+import org.hisp.dhis.program.ProgramStage;
+import org.hisp.dhis.security.acl.AclService;
+import org.hisp.dhis.system.util.GeoUtils;
+import org.hisp.dhis.trackedentity.TrackedEntityAttribute;
+import org.hisp.dhis.trackedentity.TrackerOwnershipManager;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.util.DateUtils;
+import org.springframework.stereotype.Component;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Assembles the tracked entity instances of a page, including attributes,
+ * enrollments, events, notes, program owners and relationships. The parts
+ * are loaded for the whole page at once through a
+ * {@link TrackedEntityInstanceAggregateStore}, and access checks are made once
+ * per program, program stage, data element and attribute option combo instead
+ * of once per object.
+ */
+@Slf4j
+@Component( "org.hisp.dhis.dxf2.events.trackedentity.TrackedEntityInstanceAggregate" )
+public class TrackedEntityInstanceAggregate
+{
+    private final TrackedEntityInstanceAggregateStore aggregateStore;
+
+    private final IdentifiableObjectManager manager;
+
+    private final AclService aclService;
+
+    private final OrganisationUnitService organisationUnitService;
+
+    private final TrackerOwnershipManager trackerOwnershipManager;
+
+    private final RelationshipService relationshipService;
+
+    public TrackedEntityInstanceAggregate( TrackedEntityInstanceAggregateStore aggregateStore,
+        IdentifiableObjectManager manager, AclService aclService, OrganisationUnitService organisationUnitService,
+        TrackerOwnershipManager trackerOwnershipManager, RelationshipService relationshipService )
+    {
+        checkNotNull( aggregateStore );
+        checkNotNull( manager );
+        checkNotNull( aclService );
+        checkNotNull( organisationUnitService );
+        checkNotNull( trackerOwnershipManager );
+        checkNotNull( relationshipService );
+
+        this.aggregateStore = aggregateStore;
+        this.manager = manager;
+        this.aclService = aclService;
+        this.organisationUnitService = organisationUnitService;
+        this.trackerOwnershipManager = trackerOwnershipManager;
+        this.relationshipService = relationshipService;
+    }
+
+    /**
+     * Assembles the given tracked entity instances.
+     *
+     * @param daoTrackedEntityInstances the tracked entity instances, which the
+     *        user is known to have access to.
+     * @param readableAttributes function giving the attributes readable by the
+     *        user for a tracked entity instance.
+     * @param params the parameters deciding which parts to include.
+     * @param user the user, or null for internal processes.
+     * @return the tracked entity instances, in the given order.
+     */
+    public List<TrackedEntityInstance> getTrackedEntityInstances(
+        List<org.hisp.dhis.trackedentity.TrackedEntityInstance> daoTrackedEntityInstances,
+        Function<org.hisp.dhis.trackedentity.TrackedEntityInstance, Set<TrackedEntityAttribute>> readableAttributes,
+        TrackedEntityInstanceParams params, User user )
+    {
+        if ( daoTrackedEntityInstances.isEmpty() )
+        {
+            return new ArrayList<>();
+        }
+
+        return new Aggregation( params, user ).assemble( daoTrackedEntityInstances, readableAttributes );
+    }
+
+    /**
+     * Creates a tracked entity instance with the properties of the given
+     * tracked entity instance, without any of its associations.
+     *
+     * @param daoTrackedEntityInstance the tracked entity instance.
+     * @return a tracked entity instance.
+     */
+    public static TrackedEntityInstance createTrackedEntityInstance(
+        org.hisp.dhis.trackedentity.TrackedEntityInstance daoTrackedEntityInstance )
+    {
+        TrackedEntityInstance trackedEntityInstance = new TrackedEntityInstance();
+        trackedEntityInstance.setTrackedEntityInstance( daoTrackedEntityInstance.getUid() );
+        trackedEntityInstance.setOrgUnit( daoTrackedEntityInstance.getOrganisationUnit().getUid() );
+        trackedEntityInstance.setTrackedEntityType( daoTrackedEntityInstance.getTrackedEntityType().getUid() );
+        trackedEntityInstance.setCreated( DateUtils.getIso8601NoTz( daoTrackedEntityInstance.getCreated() ) );
+        trackedEntityInstance
+            .setCreatedAtClient( DateUtils.getIso8601NoTz( daoTrackedEntityInstance.getLastUpdatedAtClient() ) );
+        trackedEntityInstance.setLastUpdated( DateUtils.getIso8601NoTz( daoTrackedEntityInstance.getLastUpdated() ) );
+        trackedEntityInstance
+            .setLastUpdatedAtClient( DateUtils.getIso8601NoTz( daoTrackedEntityInstance.getLastUpdatedAtClient() ) );
+        trackedEntityInstance.setInactive( daoTrackedEntityInstance.isInactive() );
+        trackedEntityInstance.setGeometry( daoTrackedEntityInstance.getGeometry() );
+        trackedEntityInstance.setDeleted( daoTrackedEntityInstance.isDeleted() );
+        trackedEntityInstance.setStoredBy( daoTrackedEntityInstance.getStoredBy() );
+
+        if ( daoTrackedEntityInstance.getGeometry() != null )
+        {
+            Geometry geometry = daoTrackedEntityInstance.getGeometry();
+            FeatureType featureType = FeatureType.getTypeFromName( geometry.getGeometryType() );
+            trackedEntityInstance.setFeatureType( featureType );
+            trackedEntityInstance.setCoordinates( GeoUtils.getCoordinatesFromGeometry( geometry ) );
+        }
+
+        return trackedEntityInstance;
+    }
+
+    /**
+     * The state of assembling one page of tracked entity instances: the loaded
+     * parts, and the metadata and access decisions looked up so far.
+     */
+    private class Aggregation
+    {
+        private final TrackedEntityInstanceParams params;
+
+        private final User user;
+
+        private final boolean isSuper;
+
+        private final Map<String, Program> programs = new HashMap<>();
+
+        private final Map<String, ProgramStage> programStages = new HashMap<>();
+
+        private final Map<String, DataElement> dataElements = new HashMap<>();
+
+        private final Map<String, CategoryOption> categoryOptions = new HashMap<>();
+
+        private final Map<String, OrganisationUnit> organisationUnits = new HashMap<>();
+
+        private final Map<String, Boolean> readAccess = new HashMap<>();
+
+        private final Map<String, Relationship> relationships = new HashMap<>();
+
+        private ListMap<Long, Attribute> attributes = new ListMap<>();
+
+        private ListMap<Long, ProgramOwner> programOwners = new ListMap<>();
+
+        private ListMap<Long, Enrollment> enrollments = new ListMap<>();
+
+        private ListMap<String, Note> enrollmentNotes = new ListMap<>();
+
+        private ListMap<String, Event> events = new ListMap<>();
+
+        private ListMap<String, Note> eventNotes = new ListMap<>();
+
+        private ListMap<String, String> relationshipUids = new ListMap<>();
+
+        private Aggregation( TrackedEntityInstanceParams params, User user )
+        {
+            this.params = params;
+            this.user = user;
+            this.isSuper = user == null || user.isSuper();
+        }
+
+        private List<TrackedEntityInstance> assemble(
+            List<org.hisp.dhis.trackedentity.TrackedEntityInstance> daoTrackedEntityInstances,
+            Function<org.hisp.dhis.trackedentity.TrackedEntityInstance, Set<TrackedEntityAttribute>> readableAttributes )
+        {
+            load( daoTrackedEntityInstances );
+
+            List<TrackedEntityInstance> trackedEntityInstances = new ArrayList<>();
+
+            for ( org.hisp.dhis.trackedentity.TrackedEntityInstance daoTrackedEntityInstance : daoTrackedEntityInstances )
+            {
+                trackedEntityInstances.add( getTrackedEntityInstance( daoTrackedEntityInstance,
+                    readableAttributes.apply( daoTrackedEntityInstance ) ) );
+            }
+
+            return trackedEntityInstances;
+        }
+
+        private void load( List<org.hisp.dhis.trackedentity.TrackedEntityInstance> daoTrackedEntityInstances )
+        {
+            List<Long> ids = daoTrackedEntityInstances.stream()
+                .map( org.hisp.dhis.trackedentity.TrackedEntityInstance::getId )
+                .collect( Collectors.toList() );
+
+            attributes = aggregateStore.getAttributes( ids );
+
+            if ( params.isIncludeProgramOwners() )
+            {
+                programOwners = aggregateStore.getProgramOwners( ids );
+            }
+
+            if ( params.isIncludeEnrollments() )
+            {
+                enrollments = aggregateStore.getEnrollments( ids );
+                enrollmentNotes = aggregateStore.getEnrollmentNotes( ids );
+
+                if ( params.isIncludeEvents() )
+                {
+                    events = aggregateStore.getEvents( ids );
+                    eventNotes = aggregateStore.getEventNotes( ids );
+                }
+            }
+
+            if ( params.isIncludeRelationships() || (params.isIncludeEnrollments() && params.isIncludeEvents()) )
+            {
+                relationshipUids = aggregateStore.getRelationships( ids );
+
+                loadRelationships();
+            }
+        }
+
+        /**
+         * Loads the relationships of the page in one query and converts the
+         * ones readable by the user.
+         */
+        private void loadRelationships()
+        {
+            Set<String> uids = relationshipUids.uniqueValues();
+
+            if ( uids.isEmpty() )
+            {
+                return;
+            }
+
+            for ( org.hisp.dhis.relationship.Relationship daoRelationship : manager
+                .getByUid( org.hisp.dhis.relationship.Relationship.class, uids ) )
+            {
+                Relationship relationship = relationshipService.getRelationship( daoRelationship,
+                    RelationshipParams.FALSE, user );
+
+                if ( relationship != null )
+                {
+                    relationships.put( daoRelationship.getUid(), relationship );
+                }
+            }
+        }
+
+        private TrackedEntityInstance getTrackedEntityInstance(
+            org.hisp.dhis.trackedentity.TrackedEntityInstance daoTrackedEntityInstance,
+            Set<TrackedEntityAttribute> readableAttributes )
+        {
+            TrackedEntityInstance trackedEntityInstance = createTrackedEntityInstance( daoTrackedEntityInstance );
+
+            if ( params.isIncludeRelationships() )
+            {
+                trackedEntityInstance.getRelationships()
+                    .addAll( getRelationships( trackedEntityInstance.getTrackedEntityInstance() ) );
+            }
+
+            if ( params.isIncludeEnrollments() )
+            {
+                for ( Enrollment enrollment : get( enrollments, daoTrackedEntityInstance.getId() ) )
+                {
+                    Program program = getProgram( enrollment.getProgram() );
+
+                    if ( program != null && (params.isIncludeDeleted() || !enrollment.isDeleted())
+                        && canReadEnrollment( daoTrackedEntityInstance, program, enrollment ) )
+                    {
+                        trackedEntityInstance.getEnrollments().add( getEnrollment( enrollment, program ) );
+                    }
+                }
+            }
+
+            if ( params.isIncludeProgramOwners() )
+            {
+                trackedEntityInstance.getProgramOwners().addAll( get( programOwners, daoTrackedEntityInstance.getId() ) );
+            }
+
+            Map<String, TrackedEntityAttribute> readableAttributeMap = getReadableAttributes( trackedEntityInstance,
+                readableAttributes ).stream()
+                .collect( Collectors.toMap( TrackedEntityAttribute::getUid, Function.identity() ) );
+
+            for ( Attribute attribute : get( attributes, daoTrackedEntityInstance.getId() ) )
+            {
+                TrackedEntityAttribute trackedEntityAttribute = readableAttributeMap.get( attribute.getAttribute() );
+
+                if ( trackedEntityAttribute != null )
+                {
+                    attribute.setDisplayName( trackedEntityAttribute.getDisplayName() );
+                    attribute.setValueType( trackedEntityAttribute.getValueType() );
+                    attribute.setCode( trackedEntityAttribute.getCode() );
+                    attribute.setSkipSynchronization( trackedEntityAttribute.getSkipSynchronization() );
+
+                    trackedEntityInstance.getAttributes().add( attribute );
+                }
+            }
+
+            return trackedEntityInstance;
+        }
+
+        private Enrollment getEnrollment( Enrollment enrollment, Program program )
+        {
+            if ( enrollment.getGeometry() != null && FeatureType.POINT.equals( program.getFeatureType() ) )
+            {
+                com.vividsolutions.jts.geom.Coordinate co = enrollment.getGeometry().getCoordinate();
+                enrollment.setCoordinate( new Coordinate( co.x, co.y ) );
+            }
+
+            enrollment.getNotes().addAll( get( enrollmentNotes, enrollment.getEnrollment() ) );
+
+            if ( params.isIncludeEvents() )
+            {
+                for ( Event event : get( events, enrollment.getEnrollment() ) )
+                {
+                    ProgramStage programStage = getProgramStage( event.getProgramStage() );
+
+                    if ( (params.isIncludeDeleted() || !event.isDeleted())
+                        && canReadEvent( program, programStage, event ) )
+                    {
+                        enrollment.getEvents().add( getEvent( event, programStage ) );
+                    }
+                }
+            }
+
+            if ( params.isIncludeRelationships() )
+            {
+                enrollment.getRelationships().addAll( getRelationships( enrollment.getEnrollment() ) );
+            }
+
+            return enrollment;
+        }
+
+        private Event getEvent( Event event, ProgramStage programStage )
+        {
+            Set<String> dataElementsToSync = params.isDataSynchronizationQuery() && programStage != null
+                ? programStage.getProgramStageDataElements().stream()
+                    .filter( psde -> !psde.getSkipSynchronization() )
+                    .map( psde -> psde.getDataElement().getUid() )
+                    .collect( Collectors.toSet() )
+                : null;
+
+            List<DataValue> dataValues = new ArrayList<>( event.getDataValues() );
+            event.getDataValues().clear();
+
+            for ( DataValue dataValue : dataValues )
+            {
+                if ( dataElementsToSync != null && !dataElementsToSync.contains( dataValue.getDataElement() ) )
+                {
+                    continue;
+                }
+
+                DataElement dataElement = getDataElement( dataValue.getDataElement() );
+
+                if ( dataElement == null )
+                {
+                    log.info( "Can not find a Data Element having UID [" + dataValue.getDataElement() + "]" );
+                }
+                else if ( canRead( dataElement ) )
+                {
+                    event.getDataValues().add( dataValue );
+                }
+            }
+
+            event.getNotes().addAll( get( eventNotes, event.getEvent() ) );
+            event.getRelationships().addAll( getRelationships( event.getEvent() ) );
+
+            return event;
+        }
+
+        /**
+         * Gets the attributes to include for the given tracked entity instance.
+         * For data synchronization, attributes marked to skip synchronization
+         * are left out, and the attributes of the programs the instance is
+         * enrolled in are added.
+         */
+        private Set<TrackedEntityAttribute> getReadableAttributes( TrackedEntityInstance trackedEntityInstance,
+            Set<TrackedEntityAttribute> readableAttributes )
+        {
+            if ( !params.isDataSynchronizationQuery() )
+            {
+                return readableAttributes;
+            }
+
+            Set<TrackedEntityAttribute> readableAttributesCopy = readableAttributes.stream()
+                .filter( att -> !att.getSkipSynchronization() )
+                .collect( Collectors.toSet() );
+
+            for ( Enrollment enrollment : trackedEntityInstance.getEnrollments() )
+            {
+                readableAttributesCopy.addAll( getProgram( enrollment.getProgram() ).getTrackedEntityAttributes()
+                    .stream()
+                    .filter( att -> !att.getSkipSynchronization() )
+                    .collect( Collectors.toSet() ) );
+            }
+
+            return readableAttributesCopy;
+        }
+
+        private List<Relationship> getRelationships( String uid )
+        {
+            return get( relationshipUids, uid ).stream()
+                .map( relationships::get )
+                .filter( Objects::nonNull )
+                .collect( Collectors.toList() );
+        }
+
+        // ---------------------------------------------------------------------
+        // Access checks, mirroring the ones of TrackerAccessManager
+        // ---------------------------------------------------------------------
+
+        private boolean canReadEnrollment( org.hisp.dhis.trackedentity.TrackedEntityInstance daoTrackedEntityInstance,
+            Program program, Enrollment enrollment )
+        {
+            if ( isSuper )
+            {
+                return true;
+            }
+
+            if ( !canDataRead( program ) )
+            {
+                return false;
+            }
+
+            if ( program.isWithoutRegistration() )
+            {
+                return isInUserSearchHierarchy( enrollment.getOrgUnit() );
+            }
+
+            return canDataRead( program.getTrackedEntityType() )
+                && trackerOwnershipManager.hasAccess( user, daoTrackedEntityInstance, program );
+        }
+
+        private boolean canReadEvent( Program program, ProgramStage programStage, Event event )
+        {
+            if ( isSuper || programStage == null )
+            {
+                return true;
+            }
+
+            if ( !canDataRead( program ) )
+            {
+                return false;
+            }
+
+            if ( program.isWithoutRegistration() )
+            {
+                if ( !isInUserSearchHierarchy( event.getOrgUnit() ) )
+                {
+                    return false;
+                }
+            }
+            else if ( !canDataRead( programStage ) || !canDataRead( program.getTrackedEntityType() ) )
+            {
+                return false;
+            }
+
+            return canReadAttributeOptionCombo( event );
+        }
+
+        /**
+         * Checks data read access to all category options of the attribute
+         * option combo of the given event. The decision is made once per
+         * attribute option combo, from the category option uids loaded with
+         * the event.
+         */
+        private boolean canReadAttributeOptionCombo( Event event )
+        {
+            if ( event.getAttributeOptionCombo() == null )
+            {
+                return true;
+            }
+
+            String key = "coc:" + event.getAttributeOptionCombo();
+
+            Boolean canRead = readAccess.get( key );
+
+            if ( canRead == null )
+            {
+                canRead = true;
+
+                for ( String categoryOptionUid : StringUtils.split( StringUtils.defaultString(
+                    event.getAttributeCategoryOptions() ), ';' ) )
+                {
+                    CategoryOption categoryOption = getCategoryOption( categoryOptionUid );
+
+                    if ( categoryOption != null && !canDataRead( categoryOption ) )
+                    {
+                        canRead = false;
+                        break;
+                    }
+                }
+
+                readAccess.put( key, canRead );
+            }
+
+            return canRead;
+        }
+
+        private boolean canDataRead( org.hisp.dhis.common.IdentifiableObject object )
+        {
+            return readAccess.computeIfAbsent( "data:" + object.getUid(), k -> aclService.canDataRead( user, object ) );
+        }
+
+        private boolean canRead( DataElement dataElement )
+        {
+            return isSuper || readAccess.computeIfAbsent( dataElement.getUid(),
+                k -> aclService.canRead( user, dataElement ) );
+        }
+
+        private boolean isInUserSearchHierarchy( String orgUnitUid )
+        {
+            OrganisationUnit organisationUnit = orgUnitUid == null ? null : organisationUnits
+                .computeIfAbsent( orgUnitUid, uid -> manager.get( OrganisationUnit.class, uid ) );
+
+            return organisationUnit == null
+                || organisationUnitService.isInUserSearchHierarchyCached( user, organisationUnit );
+        }
+
+        // ---------------------------------------------------------------------
+        // Metadata lookups
+        // ---------------------------------------------------------------------
+
+        private Program getProgram( String uid )
+        {
+            return programs.computeIfAbsent( uid, k -> manager.get( Program.class, k ) );
+        }
+
+        private ProgramStage getProgramStage( String uid )
+        {
+            return programStages.computeIfAbsent( uid, k -> manager.get( ProgramStage.class, k ) );
+        }
+
+        private DataElement getDataElement( String uid )
+        {
+            return dataElements.computeIfAbsent( uid, k -> manager.get( DataElement.class, k ) );
+        }
+
+        private CategoryOption getCategoryOption( String uid )
+        {
+            return categoryOptions.computeIfAbsent( uid, k -> manager.get( CategoryOption.class, k ) );
+        }
+
+        private <K, V> List<V> get( ListMap<K, V> map, K key )
+        {
+            return map.getOrDefault( key, Collections.emptyList() );
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.hisp.dhis.dxf2.events.trackedentity;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.List;
+
+import org.hisp.dhis.common.ListMap;
+import org.hisp.dhis.dxf2.events.enrollment.Enrollment;
+import org.hisp.dhis.dxf2.events.event.Event;
+import org.hisp.dhis.dxf2.events.event.Note;
+
+/**
+ * Loads the parts of tracked entity instances for a whole page of instances at
+ * once, each with a single query, instead of walking the Hibernate collections
+ * of every instance.
+ */
+public interface TrackedEntityInstanceAggregateStore
+{
+    /**
+     * Gets the attribute values of the given tracked entity instances. The
+     * attributes only have the attribute identifier and the value fields set.
+     *
+     * @param teiIds the tracked entity instance identifiers.
+     * @return the attributes, by tracked entity instance identifier.
+     */
+    ListMap<Long, Attribute> getAttributes( List<Long> teiIds );
+
+    /**
+     * Gets the program owners of the given tracked entity instances.
+     *
+     * @param teiIds the tracked entity instance identifiers.
+     * @return the program owners, by tracked entity instance identifier.
+     */
+    ListMap<Long, ProgramOwner> getProgramOwners( List<Long> teiIds );
+
+    /**
+     * Gets the enrollments of the given tracked entity instances, without notes,
+     * events and relationships.
+     *
+     * @param teiIds the tracked entity instance identifiers.
+     * @return the enrollments, by tracked entity instance identifier.
+     */
+    ListMap<Long, Enrollment> getEnrollments( List<Long> teiIds );
+
+    /**
+     * Gets the notes of the enrollments of the given tracked entity instances.
+     *
+     * @param teiIds the tracked entity instance identifiers.
+     * @return the notes, by enrollment UID.
+     */
+    ListMap<String, Note> getEnrollmentNotes( List<Long> teiIds );
+
+    /**
+     * Gets the events of the enrollments of the given tracked entity instances,
+     * with data values but without notes and relationships.
+     *
+     * @param teiIds the tracked entity instance identifiers.
+     * @return the events, by enrollment UID.
+     */
+    ListMap<String, Event> getEvents( List<Long> teiIds );
+
+    /**
+     * Gets the notes of the events of the given tracked entity instances.
+     *
+     * @param teiIds the tracked entity instance identifiers.
+     * @return the notes, by event UID.
+     */
+    ListMap<String, Note> getEventNotes( List<Long> teiIds );
+
+    /**
+     * Gets the relationships that the given tracked entity instances, their
+     * enrollments and their events are part of.
+     *
+     * @param teiIds the tracked entity instance identifiers.
+     * @return the relationship UIDs, by the UID of the tracked entity instance,
+     *         enrollment or event which is part of the relationship.
+     */
+    ListMap<String, String> getRelationships( List<Long> teiIds );
+}
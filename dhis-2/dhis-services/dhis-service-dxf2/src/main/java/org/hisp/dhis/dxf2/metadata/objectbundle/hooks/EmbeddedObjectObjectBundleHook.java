@@ -73,7 +73,7 @@ public class EmbeddedObjectObjectBundleHook
             .stream()
             .forEach( propertyName -> {
                 Property property = schema.getEmbeddedObjectProperties().get( propertyName );
-                Object propertyObject = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+                Object propertyObject = property.getValue( object );
 
                 if ( property.getPropertyType().equals( PropertyType.COMPLEX ) )
                 {
@@ -148,11 +148,11 @@ public class EmbeddedObjectObjectBundleHook
                     continue;
                 }
 
-                ( ( Collection<?> ) ReflectionUtils.invokeMethod( object, property.getGetterMethod() ) ).clear();
+                ( ( Collection<?> ) property.getValue( object ) ).clear();
             }
             else
             {
-                ReflectionUtils.invokeMethod( object, property.getSetterMethod(), (Object) null );
+                property.setValue( object, null );
             }
         }
     }
@@ -161,7 +161,7 @@ public class EmbeddedObjectObjectBundleHook
     {
         for ( Property property : properties )
         {
-            Object propertyObject =  ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+            Object propertyObject =  property.getValue( object );
 
             if ( property.isCollection() )
             {
@@ -197,12 +197,12 @@ public class EmbeddedObjectObjectBundleHook
         {
             if ( PeriodType.class.isAssignableFrom( embeddedProperty.getKlass() ) )
             {
-                PeriodType periodType = ReflectionUtils.invokeMethod( object, embeddedProperty.getGetterMethod() );
+                PeriodType periodType = embeddedProperty.getValue( object );
 
                 if ( periodType != null )
                 {
                     periodType = bundle.getPreheat().getPeriodTypeMap().get( periodType.getName() );
-                    ReflectionUtils.invokeMethod( object, embeddedProperty.getSetterMethod(), periodType );
+                    embeddedProperty.setValue( object, periodType );
                 }
             }
         }
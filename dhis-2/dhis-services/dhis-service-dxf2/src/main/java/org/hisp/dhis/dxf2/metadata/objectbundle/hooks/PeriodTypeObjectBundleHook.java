@@ -34,7 +34,6 @@ import org.hisp.dhis.period.PeriodService;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.schema.Property;
 import org.hisp.dhis.schema.Schema;
-import org.hisp.dhis.system.util.ReflectionUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -56,13 +55,13 @@ public class PeriodTypeObjectBundleHook extends AbstractObjectBundleHook
         {
             if ( PeriodType.class.isAssignableFrom( property.getKlass() ) )
             {
-                PeriodType periodType = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+                PeriodType periodType = property.getValue( object );
 
                 if ( periodType != null )
                 {
                     periodType = bundle.getPreheat().getPeriodTypeMap().get( periodType.getName() );
                     periodType = periodService.reloadPeriodType( periodType );
-                    ReflectionUtils.invokeMethod( object, property.getSetterMethod(), periodType );
+                    property.setValue( object, periodType );
                 }
             }
         }
@@ -77,12 +76,12 @@ public class PeriodTypeObjectBundleHook extends AbstractObjectBundleHook
         {
             if ( PeriodType.class.isAssignableFrom( property.getKlass() ) )
             {
-                PeriodType periodType = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+                PeriodType periodType = property.getValue( object );
 
                 if ( periodType != null )
                 {
                     periodType = bundle.getPreheat().getPeriodTypeMap().get( periodType.getName() );
-                    ReflectionUtils.invokeMethod( object, property.getSetterMethod(), periodType );
+                    property.setValue( object, periodType );
                 }
             }
         }
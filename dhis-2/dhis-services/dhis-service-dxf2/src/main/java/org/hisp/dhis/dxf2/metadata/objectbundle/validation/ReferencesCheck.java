@@ -117,7 +117,7 @@ public class ReferencesCheck
 
                 if ( !p.isCollection() )
                 {
-                    IdentifiableObject refObject = ReflectionUtils.invokeMethod( object, p.getGetterMethod() );
+                    IdentifiableObject refObject = p.getValue( object );
                     IdentifiableObject ref = preheat.get( identifier, refObject );
 
                     if ( ref == null && refObject != null && !preheat.isDefault( refObject ) )
@@ -134,8 +134,7 @@ public class ReferencesCheck
                 else
                 {
                     Collection<IdentifiableObject> objects = ReflectionUtils.newCollectionInstance( p.getKlass() );
-                    Collection<IdentifiableObject> refObjects = ReflectionUtils.invokeMethod( object,
-                        p.getGetterMethod() );
+                    Collection<IdentifiableObject> refObjects = p.getValue( object );
 
                     for ( IdentifiableObject refObject : refObjects )
                     {
@@ -156,7 +155,7 @@ public class ReferencesCheck
                         }
                     }
 
-                    ReflectionUtils.invokeMethod( object, p.getSetterMethod(), objects );
+                    p.setValue( object, objects );
                 }
             } );
 
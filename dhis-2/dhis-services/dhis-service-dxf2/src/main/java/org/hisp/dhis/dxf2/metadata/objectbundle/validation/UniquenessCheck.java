@@ -38,7 +38,6 @@ import org.hisp.dhis.preheat.Preheat;
 import org.hisp.dhis.preheat.PreheatIdentifier;
 import org.hisp.dhis.schema.Property;
 import org.hisp.dhis.schema.Schema;
-import org.hisp.dhis.system.util.ReflectionUtils;
 import org.hisp.dhis.user.User;
 
 import java.util.ArrayList;
@@ -124,7 +123,7 @@ public class UniquenessCheck
                 uniquenessMap.put( property.getName(), new HashMap<>() );
             }
 
-            Object value = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+            Object value = property.getValue( object );
 
             if ( value != null )
             {
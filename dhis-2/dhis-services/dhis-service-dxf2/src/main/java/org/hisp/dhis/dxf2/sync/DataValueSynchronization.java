@@ -29,21 +29,41 @@ package org.hisp.dhis.dxf2.sync;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPOutputStream;
+
 import lombok.extern.slf4j.Slf4j;
 import org.hisp.dhis.common.IdSchemes;
 import org.hisp.dhis.datavalue.DataValueService;
+import org.hisp.dhis.dxf2.datavalueset.DataValueSetCursor;
 import org.hisp.dhis.dxf2.datavalueset.DataValueSetService;
 import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.util.Clock;
 import org.hisp.dhis.system.util.CodecUtils;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RequestCallback;
 import org.springframework.web.client.RestTemplate;
 
 /**
+ * Synchronizes data values changed since the last successful synchronization.
+ * Pages are read one after another using keyset pagination and uploaded gzip
+ * compressed, with up to {@link SettingKey#DATA_VALUE_SYNC_CONCURRENT_PAGES}
+ * uploads in flight. When a page fails, the last successful synchronization
+ * time is moved up to the start of the first failed page so that the next run
+ * resumes from there.
+ *
  * @author David Katuscak <katuscak.d@gmail.com>
  */
 @Slf4j
@@ -57,6 +77,20 @@ public class DataValueSynchronization extends DataSynchronizationWithPaging
 
     private Date lastUpdatedAfter;
 
+    private DataValueSetCursor cursor;
+
+    private boolean exhausted;
+
+    private ExecutorService executor;
+
+    private Semaphore inFlight;
+
+    private List<PageUpload> uploads;
+
+    private int firstFailedPage;
+
+    private Date resumeFrom;
+
     public DataValueSynchronization( DataValueService dataValueService, DataValueSetService dataValueSetService,
         SystemSettingManager systemSettingManager, RestTemplate restTemplate )
     {
@@ -101,6 +135,12 @@ public class DataValueSynchronization extends DataSynchronizationWithPaging
                 .newSuccessResultWithMessage( "DataValueSynchronization done. It took " + clock.getTime() + " ms." );
         }
 
+        if ( resumeFrom != null && resumeFrom.after( lastUpdatedAfter ) )
+        {
+            log.info( "Next DataValueSynchronization will resume from DataValues last updated at " + resumeFrom );
+            SyncUtils.setLastSyncSuccess( systemSettingManager, SettingKey.LAST_SUCCESSFUL_DATA_VALUE_SYNC, resumeFrom );
+        }
+
         return SynchronizationResult.newFailureResultWithMessage( "DataValueSynchronization failed." );
     }
 
@@ -128,28 +168,154 @@ public class DataValueSynchronization extends DataSynchronizationWithPaging
         }
     }
 
+    @Override
+    protected void runSyncWithPaging( int pageSize )
+    {
+        final int concurrentPages = Math.max( 1,
+            (int) systemSettingManager.getSystemSetting( SettingKey.DATA_VALUE_SYNC_CONCURRENT_PAGES ) );
+
+        cursor = null;
+        exhausted = false;
+        firstFailedPage = Integer.MAX_VALUE;
+        resumeFrom = null;
+        uploads = new ArrayList<>();
+        inFlight = new Semaphore( concurrentPages );
+        executor = Executors.newFixedThreadPool( concurrentPages );
+
+        try
+        {
+            super.runSyncWithPaging( pageSize );
+
+            awaitUploads();
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the page following the current cursor and submits its upload. The
+     * page is read on the calling thread while previous pages are uploading.
+     */
     protected void synchronizePage( int page, int pageSize )
     {
+        if ( exhausted )
+        {
+            return;
+        }
+
         log.info( String.format( "Synchronizing page %d with page size %d", page, pageSize ) );
 
-        if ( !sendSyncRequest( pageSize, page ) )
+        final DataValueSetCursor pageStart = cursor;
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        try ( GZIPOutputStream out = new GZIPOutputStream( body ) )
+        {
+            cursor = dataValueSetService.writeDataValueSetJson( lastUpdatedAfter, out, new IdSchemes(), pageSize, pageStart );
+        }
+        catch ( IOException ex )
+        {
+            log.error( String.format( "Failed to write page %d", page ), ex );
+            pageFailed( page, pageStart );
+            exhausted = true;
+            return;
+        }
+
+        if ( cursor == null )
+        {
+            exhausted = true;
+            return;
+        }
+
+        inFlight.acquireUninterruptibly();
+
+        Future<Boolean> upload = executor.submit( () -> {
+            try
+            {
+                return sendSyncRequest( body.toByteArray() );
+            }
+            finally
+            {
+                inFlight.release();
+            }
+        } );
+
+        uploads.add( new PageUpload( page, pageStart, upload ) );
+    }
+
+    private void awaitUploads()
+    {
+        for ( PageUpload upload : uploads )
+        {
+            boolean success;
+
+            try
+            {
+                success = upload.result.get();
+            }
+            catch ( ExecutionException ex )
+            {
+                log.error( String.format( "Failed to upload page %d", upload.page ), ex.getCause() );
+                success = false;
+            }
+            catch ( InterruptedException ex )
+            {
+                Thread.currentThread().interrupt();
+                success = false;
+            }
+
+            if ( !success )
+            {
+                log.info( String.format( "Page %d failed to synchronize", upload.page ) );
+                pageFailed( upload.page, upload.start );
+            }
+        }
+    }
+
+    /**
+     * Marks the synchronization as failed. The resume point is the start of the
+     * earliest failed page, or none when the first page failed.
+     */
+    private void pageFailed( int page, DataValueSetCursor pageStart )
+    {
+        if ( page < firstFailedPage )
         {
-            syncResult = false;
+            firstFailedPage = page;
+            resumeFrom = pageStart != null ? pageStart.getLastUpdated() : null;
         }
+
+        syncResult = false;
     }
 
-    private boolean sendSyncRequest( int syncPageSize, int page )
+    private boolean sendSyncRequest( byte[] body )
     {
         final RequestCallback requestCallback = request ->
         {
             request.getHeaders().setContentType( MediaType.APPLICATION_JSON );
+            request.getHeaders().set( HttpHeaders.CONTENT_ENCODING, "gzip" );
             request.getHeaders().add( SyncUtils.HEADER_AUTHORIZATION,
                 CodecUtils.getBasicAuthString( instance.getUsername(), instance.getPassword() ) );
 
-            dataValueSetService.writeDataValueSetJson( lastUpdatedAfter, request.getBody(), new IdSchemes(),
-                syncPageSize, page );
+            request.getBody().write( body );
         };
 
         return SyncUtils.sendSyncRequest( systemSettingManager, restTemplate, requestCallback, instance, SyncEndpoint.DATA_VALUE_SETS );
     }
-}
\ No newline at end of file
+
+    private static class PageUpload
+    {
+        private final int page;
+
+        private final DataValueSetCursor start;
+
+        private final Future<Boolean> result;
+
+        PageUpload( int page, DataValueSetCursor start, Future<Boolean> result )
+        {
+            this.page = page;
+            this.start = start;
+            this.result = result;
+        }
+    }
+}
@@ -30,10 +30,13 @@ package org.hisp.dhis.dxf2.datavalueset;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.hisp.dhis.IntegrationTestBase;
 import org.hisp.dhis.attribute.Attribute;
@@ -425,6 +428,39 @@ public class DataValueSetServiceExportTest
         }
     }
 
+    @Test
+    public void testExportLastUpdatedKeysetPages()
+        throws IOException
+    {
+        Date lastUpdated = getDate( 1970, 1, 1 );
+        Set<String> exported = new HashSet<>();
+        DataValueSetCursor cursor = null;
+        int pages = 0;
+
+        do
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            cursor = dataValueSetService.writeDataValueSetJson( lastUpdated, out, new IdSchemes(), 5, cursor );
+
+            DataValueSet dvs = jsonMapper.readValue( out.toByteArray(), DataValueSet.class );
+
+            assertTrue( dvs.getDataValues().size() <= 5 );
+
+            for ( org.hisp.dhis.dxf2.datavalue.DataValue dv : dvs.getDataValues() )
+            {
+                assertTrue( exported.add( dv.getDataElement() + dv.getPeriod() + dv.getOrgUnit() +
+                    dv.getCategoryOptionCombo() + dv.getAttributeOptionCombo() ) );
+            }
+
+            pages++;
+        }
+        while ( cursor != null );
+
+        assertEquals( 12, exported.size() );
+        assertEquals( 4, pages );
+    }
+
     @Test
     public void testExportLastUpdatedWithDeletedValues()
         throws IOException
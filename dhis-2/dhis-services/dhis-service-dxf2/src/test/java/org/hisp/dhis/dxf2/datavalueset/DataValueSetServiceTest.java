@@ -53,6 +53,7 @@ import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.dataset.DataSetService;
 import org.hisp.dhis.datavalue.DataValue;
 import org.hisp.dhis.datavalue.DataValueAudit;
+import org.hisp.dhis.datavalue.DataValueService;
 import org.hisp.dhis.dxf2.common.ImportOptions;
 import org.hisp.dhis.dxf2.importsummary.ImportStatus;
 import org.hisp.dhis.dxf2.importsummary.ImportSummary;
@@ -118,6 +119,9 @@ public class DataValueSetServiceTest
     @Autowired
     private DataValueSetService dataValueSetService;
 
+    @Autowired
+    private DataValueService dataValueService;
+
     @Autowired
     private CompleteDataSetRegistrationService registrationService;
 
@@ -178,8 +182,8 @@ public class DataValueSetServiceTest
         CategoryOptionCombo categoryOptionCombo = categoryService.getDefaultCategoryOptionCombo();
         userService = _userService;
 
-        mockDataValueBatchHandler = new MockBatchHandler<>();
-        mockDataValueAuditBatchHandler = new MockBatchHandler<>();
+        mockDataValueBatchHandler = new MockBatchHandler<DataValue>().withCloseOnFlush( true );
+        mockDataValueAuditBatchHandler = new MockBatchHandler<DataValueAudit>().withCloseOnFlush( true );
         mockBatchHandlerFactory = new MockBatchHandlerFactory();
         mockBatchHandlerFactory.registerBatchHandler( DataValueBatchHandler.class, mockDataValueBatchHandler );
         mockBatchHandlerFactory.registerBatchHandler( DataValueAuditBatchHandler.class, mockDataValueAuditBatchHandler );
@@ -960,7 +964,7 @@ public class DataValueSetServiceTest
     public void testImportDataValuesUpdatedAudit()
         throws Exception
     {
-        mockDataValueBatchHandler.withFindSelf( true );
+        addExistingDataValuesForDataValueSetA();
 
         in = new ClassPathResource( "datavalueset/dataValueSetA.xml" ).getInputStream();
 
@@ -971,14 +975,15 @@ public class DataValueSetServiceTest
         assertEquals( ImportStatus.SUCCESS, summary.getStatus() );
         assertEquals( summary.getConflicts().toString(), 0, summary.getConflicts().size() );
 
-        Collection<DataValue> dataValues = mockDataValueBatchHandler.getUpdates();
+        List<DataValue> dataValues = mockDataValueBatchHandler.getUpdates();
         Collection<DataValueAudit> auditValues = mockDataValueAuditBatchHandler.getInserts();
 
-        assertNotNull( dataValues );
+        assertEquals( 3, summary.getImportCount().getUpdated() );
         assertEquals( 3, dataValues.size() );
         assertTrue( dataValues.contains( new DataValue( deA, peA, ouA, ocDef, ocDef ) ) );
-        assertEquals( "10002", ( ( List<DataValue> ) dataValues ).get( 1 ).getValue() );
-        assertEquals( "10003", ( ( List<DataValue> ) dataValues ).get( 2 ).getValue() );
+        assertEquals( "10001", dataValues.get( 0 ).getValue() );
+        assertEquals( "10002", dataValues.get( 1 ).getValue() );
+        assertEquals( "10003", dataValues.get( 2 ).getValue() );
 
         assertEquals( 3, auditValues.size() );
     }
@@ -987,7 +992,7 @@ public class DataValueSetServiceTest
     public void testImportDataValuesUpdatedSkipAudit()
         throws Exception
     {
-        mockDataValueBatchHandler.withFindSelf( true );
+        addExistingDataValuesForDataValueSetA();
 
         in = new ClassPathResource( "datavalueset/dataValueSetA.xml" ).getInputStream();
 
@@ -1000,15 +1005,36 @@ public class DataValueSetServiceTest
         assertEquals( ImportStatus.SUCCESS, summary.getStatus() );
         assertEquals( summary.getConflicts().toString(), 0, summary.getConflicts().size() );
 
-        Collection<DataValue> dataValues = mockDataValueBatchHandler.getUpdates();
+        List<DataValue> dataValues = mockDataValueBatchHandler.getUpdates();
         Collection<DataValueAudit> auditValues = mockDataValueAuditBatchHandler.getInserts();
 
-        assertNotNull( dataValues );
+        assertEquals( 3, summary.getImportCount().getUpdated() );
         assertEquals( 3, dataValues.size() );
+        assertEquals( "10002", dataValues.get( 1 ).getValue() );
 
         assertEquals( 0, auditValues.size() );
     }
 
+    @Test
+    public void testImportDataValuesAcrossChunks()
+        throws Exception
+    {
+        in = new ClassPathResource( "datavalueset/dataValueSetDuplicate.xml" ).getInputStream();
+
+        ImportSummary summary = dataValueSetService.saveDataValueSet( in );
+
+        assertEquals( summary.getConflicts().toString(), 0, summary.getConflicts().size() );
+        assertEquals( ImportStatus.SUCCESS, summary.getStatus() );
+        assertEquals( 3, summary.getImportCount().getImported() );
+
+        List<DataValue> dataValues = mockDataValueBatchHandler.getInserts();
+
+        assertEquals( 3, dataValues.size() );
+        assertEquals( "10001", dataValues.get( 0 ).getValue() );
+        assertEquals( "10002", dataValues.get( 1 ).getValue() );
+        assertEquals( "10003", dataValues.get( 2 ).getValue() );
+    }
+
     @Test
     public void testImportNullDataValues()
         throws Exception
@@ -1237,6 +1263,15 @@ public class DataValueSetServiceTest
         assertTrue( dataValues.contains( new DataValue( deC, peB, ouB, ocDef, ocDef ) ) );
     }
 
+    private void addExistingDataValuesForDataValueSetA()
+    {
+        dataValueService.addDataValue( new DataValue( deA, peA, ouA, ocDef, ocDef, "1" ) );
+        dataValueService.addDataValue( new DataValue( deA, peA, ouB, ocDef, ocDef, "2" ) );
+        dataValueService.addDataValue( new DataValue( deA, peB, ouA, ocDef, ocDef, "3" ) );
+
+        dbmsManager.flushSession();
+    }
+
     private Period createMonthlyPeriod( Date monthStart )
     {
         Date monthEnd = DateUtils.addDays( DateUtils.addMonths( monthStart, 1 ), -1 );
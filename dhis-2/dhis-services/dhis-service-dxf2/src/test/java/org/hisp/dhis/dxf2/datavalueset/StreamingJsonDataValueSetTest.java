@@ -0,0 +1,135 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.hisp.dhis.dxf2.datavalue.DataValue;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+
+public class StreamingJsonDataValueSetTest
+{
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testReadDataValueSet()
+        throws Exception
+    {
+        String json = "{'dataSet':'pBOMPrpg1QX','completeDate':'2012-01-09','orgUnit':'DiszpKrYNg8'," +
+            "'attributeCategoryOptions':['xYerKDKCefk'],'unknown':{'a':[1,2]},'dryRun':true," +
+            "'dataValues':[" +
+            "{'dataElement':'f7n9E0hX8qk','period':'201201','value':'10001'}," +
+            "{'dataElement':'Ix2HsbDMLea','period':'201202','value':'10002','comment':'comment'}]}";
+
+        DataValueSet dataValueSet = new StreamingJsonDataValueSet( mapper.getFactory().createParser( json.replace( '\'', '"' ) ) );
+
+        assertEquals( "pBOMPrpg1QX", dataValueSet.getDataSet() );
+        assertEquals( "2012-01-09", dataValueSet.getCompleteDate() );
+        assertEquals( "DiszpKrYNg8", dataValueSet.getOrgUnit() );
+        assertEquals( Lists.newArrayList( "xYerKDKCefk" ), dataValueSet.getAttributeCategoryOptions() );
+        assertTrue( dataValueSet.getDryRun() );
+        assertNull( dataValueSet.getPeriod() );
+
+        assertTrue( dataValueSet.hasNextDataValue() );
+        DataValue dataValue = dataValueSet.getNextDataValue();
+        assertEquals( "f7n9E0hX8qk", dataValue.getDataElement() );
+        assertEquals( "201201", dataValue.getPeriod() );
+        assertEquals( "10001", dataValue.getValue() );
+
+        assertTrue( dataValueSet.hasNextDataValue() );
+        dataValue = dataValueSet.getNextDataValue();
+        assertEquals( "Ix2HsbDMLea", dataValue.getDataElement() );
+        assertEquals( "comment", dataValue.getComment() );
+
+        assertFalse( dataValueSet.hasNextDataValue() );
+        assertNull( dataValueSet.getNextDataValue() );
+
+        dataValueSet.close();
+    }
+
+    @Test
+    public void testReadDataValueSetWithoutDataValues()
+        throws Exception
+    {
+        String json = "{'dataSet':'pBOMPrpg1QX','period':'201201'}";
+
+        DataValueSet dataValueSet = new StreamingJsonDataValueSet( mapper.getFactory().createParser( json.replace( '\'', '"' ) ) );
+
+        assertEquals( "pBOMPrpg1QX", dataValueSet.getDataSet() );
+        assertEquals( "201201", dataValueSet.getPeriod() );
+        assertFalse( dataValueSet.hasNextDataValue() );
+    }
+
+    @Test
+    public void testReadPropertiesAfterDataValues()
+        throws Exception
+    {
+        String json = "{'dataValues':[{'dataElement':'f7n9E0hX8qk','value':'1'},{'dataElement':'Ix2HsbDMLea','value':'2'}]," +
+            "'dataSet':'pBOMPrpg1QX','dryRun':true,'strategy':'DELETE','idScheme':'CODE','period':'201201'}";
+
+        DataValueSet dataValueSet = new StreamingJsonDataValueSet( mapper.getFactory().createParser( json.replace( '\'', '"' ) ) );
+
+        assertEquals( "pBOMPrpg1QX", dataValueSet.getDataSet() );
+        assertTrue( dataValueSet.getDryRun() );
+        assertEquals( "DELETE", dataValueSet.getStrategy() );
+        assertEquals( "CODE", dataValueSet.getIdScheme() );
+        assertEquals( "201201", dataValueSet.getPeriod() );
+
+        assertTrue( dataValueSet.hasNextDataValue() );
+        assertEquals( "f7n9E0hX8qk", dataValueSet.getNextDataValue().getDataElement() );
+        assertTrue( dataValueSet.hasNextDataValue() );
+        assertEquals( "Ix2HsbDMLea", dataValueSet.getNextDataValue().getDataElement() );
+        assertFalse( dataValueSet.hasNextDataValue() );
+
+        dataValueSet.close();
+    }
+
+    @Test
+    public void testCloseTwice()
+        throws Exception
+    {
+        String json = "{'dataValues':[{'dataElement':'f7n9E0hX8qk','value':'1'},{'dataElement':'Ix2HsbDMLea','value':'2'}]}";
+
+        StreamingJsonDataValueSet dataValueSet = new StreamingJsonDataValueSet( mapper.getFactory().createParser( json.replace( '\'', '"' ) ) );
+
+        assertTrue( dataValueSet.hasNextDataValue() );
+        assertEquals( "f7n9E0hX8qk", dataValueSet.getNextDataValue().getDataElement() );
+
+        dataValueSet.close();
+        dataValueSet.close();
+
+        assertFalse( dataValueSet.hasNextDataValue() );
+    }
+}
@@ -0,0 +1,230 @@
+package org.hisp.dhis.dxf2.events.trackedentity;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.DhisConvenienceTest.createCategoryOption;
+import static org.hisp.dhis.DhisConvenienceTest.createOrganisationUnit;
+import static org.hisp.dhis.DhisConvenienceTest.createProgram;
+import static org.hisp.dhis.DhisConvenienceTest.createProgramStage;
+import static org.hisp.dhis.DhisConvenienceTest.createTrackedEntityInstance;
+import static org.hisp.dhis.DhisConvenienceTest.createTrackedEntityType;
+import static org.hisp.dhis.DhisConvenienceTest.createUser;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hisp.dhis.category.CategoryOption;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.common.ListMap;
+import org.hisp.dhis.dxf2.events.TrackedEntityInstanceParams;
+import org.hisp.dhis.dxf2.events.enrollment.Enrollment;
+import org.hisp.dhis.dxf2.events.event.Event;
+import org.hisp.dhis.dxf2.events.relationship.RelationshipService;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.program.Program;
+import org.hisp.dhis.program.ProgramStage;
+import org.hisp.dhis.security.acl.AclService;
+import org.hisp.dhis.trackedentity.TrackedEntityType;
+import org.hisp.dhis.trackedentity.TrackerOwnershipManager;
+import org.hisp.dhis.user.User;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class TrackedEntityInstanceAggregateTest
+{
+    @Mock
+    private TrackedEntityInstanceAggregateStore aggregateStore;
+
+    @Mock
+    private IdentifiableObjectManager manager;
+
+    @Mock
+    private AclService aclService;
+
+    @Mock
+    private OrganisationUnitService organisationUnitService;
+
+    @Mock
+    private TrackerOwnershipManager trackerOwnershipManager;
+
+    @Mock
+    private RelationshipService relationshipService;
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    private TrackedEntityInstanceAggregate subject;
+
+    private User user;
+
+    private org.hisp.dhis.trackedentity.TrackedEntityInstance daoTrackedEntityInstance;
+
+    private Program program;
+
+    private ProgramStage programStage;
+
+    private CategoryOption readableOption;
+
+    private CategoryOption unreadableOption;
+
+    private ListMap<String, Event> events;
+
+    @Before
+    public void setUp()
+    {
+        subject = new TrackedEntityInstanceAggregate( aggregateStore, manager, aclService, organisationUnitService,
+            trackerOwnershipManager, relationshipService );
+
+        user = createUser( 'A' );
+
+        OrganisationUnit organisationUnit = createOrganisationUnit( 'A' );
+        TrackedEntityType trackedEntityType = createTrackedEntityType( 'A' );
+
+        daoTrackedEntityInstance = createTrackedEntityInstance( organisationUnit );
+        daoTrackedEntityInstance.setId( 1L );
+        daoTrackedEntityInstance.setTrackedEntityType( trackedEntityType );
+
+        program = createProgram( 'A' );
+        program.setTrackedEntityType( trackedEntityType );
+        programStage = createProgramStage( 'A', program );
+
+        readableOption = createCategoryOption( 'A' );
+        unreadableOption = createCategoryOption( 'B' );
+
+        Enrollment enrollment = new Enrollment();
+        enrollment.setEnrollment( "enrollmentA" );
+        enrollment.setProgram( program.getUid() );
+
+        ListMap<Long, Enrollment> enrollments = new ListMap<>();
+        enrollments.putValue( 1L, enrollment );
+
+        events = new ListMap<>();
+
+        when( aggregateStore.getAttributes( anyList() ) ).thenReturn( new ListMap<>() );
+        when( aggregateStore.getEnrollments( anyList() ) ).thenReturn( enrollments );
+        when( aggregateStore.getEnrollmentNotes( anyList() ) ).thenReturn( new ListMap<>() );
+        when( aggregateStore.getEvents( anyList() ) ).thenReturn( events );
+        when( aggregateStore.getEventNotes( anyList() ) ).thenReturn( new ListMap<>() );
+        when( aggregateStore.getRelationships( anyList() ) ).thenReturn( new ListMap<>() );
+
+        when( manager.get( Program.class, program.getUid() ) ).thenReturn( program );
+        when( manager.get( ProgramStage.class, programStage.getUid() ) ).thenReturn( programStage );
+        when( manager.get( CategoryOption.class, readableOption.getUid() ) ).thenReturn( readableOption );
+        when( manager.get( CategoryOption.class, unreadableOption.getUid() ) ).thenReturn( unreadableOption );
+
+        when( aclService.canDataRead( user, program ) ).thenReturn( true );
+        when( aclService.canDataRead( user, programStage ) ).thenReturn( true );
+        when( aclService.canDataRead( user, trackedEntityType ) ).thenReturn( true );
+        when( aclService.canDataRead( user, readableOption ) ).thenReturn( true );
+        when( aclService.canDataRead( user, unreadableOption ) ).thenReturn( false );
+
+        when( trackerOwnershipManager.hasAccess( user, daoTrackedEntityInstance, program ) ).thenReturn( true );
+    }
+
+    @Test
+    public void verifyEventsWithUnreadableAttributeOptionComboAreFiltered()
+    {
+        addEvent( "eventA", "cocA", readableOption.getUid() );
+        addEvent( "eventB", "cocB", readableOption.getUid() + ";" + unreadableOption.getUid() );
+        addEvent( "eventC", "cocA", readableOption.getUid() );
+        addEvent( "eventD", null, "" );
+
+        List<String> eventUids = getEventUids( user );
+
+        assertEquals( Lists.newArrayList( "eventA", "eventC", "eventD" ), eventUids );
+
+        verify( manager, times( 1 ) ).get( CategoryOption.class, readableOption.getUid() );
+        verify( manager, times( 1 ) ).get( CategoryOption.class, unreadableOption.getUid() );
+        verify( aclService, times( 1 ) ).canDataRead( user, readableOption );
+    }
+
+    @Test
+    public void verifySuperUserReadsAllEvents()
+    {
+        addEvent( "eventA", "cocA", readableOption.getUid() );
+        addEvent( "eventB", "cocB", unreadableOption.getUid() );
+
+        List<String> eventUids = getEventUids( null );
+
+        assertEquals( Lists.newArrayList( "eventA", "eventB" ), eventUids );
+
+        verify( aclService, times( 0 ) ).canDataRead( any(), any() );
+    }
+
+    @Test
+    public void verifyEventsAreFilteredWithoutProgramStageAccess()
+    {
+        when( aclService.canDataRead( user, programStage ) ).thenReturn( false );
+
+        addEvent( "eventA", "cocA", readableOption.getUid() );
+
+        assertEquals( Lists.newArrayList(), getEventUids( user ) );
+    }
+
+    private void addEvent( String uid, String attributeOptionCombo, String attributeCategoryOptions )
+    {
+        Event event = new Event();
+        event.setEvent( uid );
+        event.setProgramStage( programStage.getUid() );
+        event.setAttributeOptionCombo( attributeOptionCombo );
+        event.setAttributeCategoryOptions( attributeCategoryOptions );
+        event.setRelationships( new HashSet<>() );
+
+        events.putValue( "enrollmentA", event );
+    }
+
+    private List<String> getEventUids( User user )
+    {
+        List<TrackedEntityInstance> trackedEntityInstances = subject.getTrackedEntityInstances(
+            Lists.newArrayList( daoTrackedEntityInstance ), tei -> Sets.newHashSet(),
+            new TrackedEntityInstanceParams( false, true, true, false ), user );
+
+        assertEquals( 1, trackedEntityInstances.size() );
+        assertEquals( 1, trackedEntityInstances.get( 0 ).getEnrollments().size() );
+
+        return trackedEntityInstances.get( 0 ).getEnrollments().get( 0 ).getEvents().stream()
+            .map( Event::getEvent )
+            .collect( Collectors.toList() );
+    }
+}
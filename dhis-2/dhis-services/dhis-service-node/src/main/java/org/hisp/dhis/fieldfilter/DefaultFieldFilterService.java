@@ -48,6 +48,7 @@ import org.hisp.dhis.node.Preset;
 import org.hisp.dhis.node.types.CollectionNode;
 import org.hisp.dhis.node.types.ComplexNode;
 import org.hisp.dhis.node.types.SimpleNode;
+import org.hisp.dhis.node.types.StreamingCollectionNode;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.preheat.Preheat;
 import org.hisp.dhis.schema.Property;
@@ -55,7 +56,6 @@ import org.hisp.dhis.schema.PropertyTransformer;
 import org.hisp.dhis.schema.Schema;
 import org.hisp.dhis.schema.SchemaService;
 import org.hisp.dhis.security.acl.AclService;
-import org.hisp.dhis.system.util.ReflectionUtils;
 import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.user.UserCredentials;
@@ -72,6 +72,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -222,6 +223,17 @@ public class DefaultFieldFilterService implements FieldFilterService
             params.setUser( currentUserService.getCurrentUser() );
         }
 
+        // null objects are built as simple nodes, which would change the order of the children
+
+        if ( params.isStreaming() && objects.stream().allMatch( Objects::nonNull ) )
+        {
+            StreamingCollectionNode streamingNode = new StreamingCollectionNode( rootSchema.getCollectionName(), objects,
+                object -> buildNode( finalFieldMap, wrapper, object, params.getUser(), params.getDefaults() ) );
+            streamingNode.setNamespace( rootSchema.getNamespace() );
+
+            return streamingNode;
+        }
+
         objects.forEach( object -> {
             AbstractNode node = buildNode( finalFieldMap, wrapper, object, params.getUser(), params.getDefaults() );
 
@@ -294,7 +306,7 @@ public class DefaultFieldFilterService implements FieldFilterService
                 continue;
             }
 
-            Object returnValue = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+            Object returnValue = property.getValue( object );
             Class<?> propertyClass = property.getKlass();
             Schema propertySchema = schemaService.getDynamicSchema( propertyClass );
 
@@ -641,7 +653,7 @@ public class DefaultFieldFilterService implements FieldFilterService
                 continue;
             }
 
-            Object returnValue = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+            Object returnValue = property.getValue( object );
 
             SimpleNode simpleNode = new SimpleNode( field, returnValue );
             simpleNode.setAttribute( property.isAttribute() );
@@ -56,6 +56,13 @@ public final class FieldFilterParams
      */
     private boolean skipSharing;
 
+    /**
+     * Build the nodes of the objects one at a time while serializing, instead
+     * of building all nodes up front. Requires the objects to remain readable
+     * until the collection node has been serialized.
+     */
+    private boolean streaming;
+
     private Defaults defaults = Defaults.INCLUDE;
 
     public FieldFilterParams( List<?> objects, List<String> fields )
@@ -132,4 +139,15 @@ public final class FieldFilterParams
     {
         this.skipSharing = skipSharing;
     }
+
+    public boolean isStreaming()
+    {
+        return streaming;
+    }
+
+    public FieldFilterParams setStreaming( boolean streaming )
+    {
+        this.streaming = streaming;
+        return this;
+    }
 }
@@ -33,10 +33,13 @@ import org.hisp.dhis.node.types.CollectionNode;
 import org.hisp.dhis.node.types.ComplexNode;
 import org.hisp.dhis.node.types.RootNode;
 import org.hisp.dhis.node.types.SimpleNode;
+import org.hisp.dhis.node.types.StreamingCollectionNode;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 
 import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Iterator;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -127,6 +130,12 @@ public abstract class AbstractNodeSerializer implements NodeSerializer
 
     protected void writeCollectionNode( CollectionNode collectionNode ) throws Exception
     {
+        if ( collectionNode instanceof StreamingCollectionNode && ((StreamingCollectionNode) collectionNode).isStreamable() )
+        {
+            writeStreamingCollectionNode( (StreamingCollectionNode) collectionNode );
+            return;
+        }
+
         if ( !config.getInclusionStrategy().include( collectionNode.getChildren() ) )
         {
             return;
@@ -145,6 +154,41 @@ public abstract class AbstractNodeSerializer implements NodeSerializer
 
     protected abstract void endWriteCollectionNode( CollectionNode collectionNode ) throws Exception;
 
+    /**
+     * Writes a collection node by building and writing its children one at a
+     * time. The first child is built up front to apply the inclusion strategy.
+     */
+    protected void writeStreamingCollectionNode( StreamingCollectionNode collectionNode ) throws Exception
+    {
+        Iterator<Node> children = collectionNode.streamChildren();
+
+        try
+        {
+            Node child = children.hasNext() ? children.next() : null;
+
+            if ( !config.getInclusionStrategy().include( child == null ? Collections.emptyList() : Collections.singletonList( child ) ) )
+            {
+                return;
+            }
+
+            startWriteCollectionNode( collectionNode );
+
+            while ( child != null )
+            {
+                dispatcher( child );
+                flushStream();
+
+                child = children.hasNext() ? children.next() : null;
+            }
+
+            endWriteCollectionNode( collectionNode );
+        }
+        finally
+        {
+            collectionNode.endStreaming();
+        }
+    }
+
     protected void dispatcher( Node node ) throws Exception
     {
         switch ( node.getType() )
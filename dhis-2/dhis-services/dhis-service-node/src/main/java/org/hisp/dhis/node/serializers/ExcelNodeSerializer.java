@@ -30,23 +30,25 @@ package org.hisp.dhis.node.serializers;
 
 import java.io.OutputStream;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 
 import org.apache.poi.common.usermodel.HyperlinkType;
-import org.apache.poi.xssf.usermodel.XSSFCell;
-import org.apache.poi.xssf.usermodel.XSSFCellStyle;
-import org.apache.poi.xssf.usermodel.XSSFCreationHelper;
-import org.apache.poi.xssf.usermodel.XSSFFont;
-import org.apache.poi.xssf.usermodel.XSSFHyperlink;
-import org.apache.poi.xssf.usermodel.XSSFRow;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CreationHelper;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Hyperlink;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.hisp.dhis.node.AbstractNodeSerializer;
 import org.hisp.dhis.node.Node;
 import org.hisp.dhis.node.types.CollectionNode;
 import org.hisp.dhis.node.types.ComplexNode;
 import org.hisp.dhis.node.types.RootNode;
 import org.hisp.dhis.node.types.SimpleNode;
+import org.hisp.dhis.node.types.StreamingCollectionNode;
 import org.hisp.dhis.schema.PropertyType;
 import org.hisp.dhis.util.DateUtils;
 import org.springframework.context.annotation.Scope;
@@ -56,13 +58,20 @@ import org.springframework.stereotype.Component;
 import com.google.common.collect.Lists;
 
 /**
+ * Serializes the collections of the root node to a XLSX workbook with one row
+ * per collection item. Rows are written through a streaming workbook which
+ * keeps a fixed size window of rows in memory, and streamable collections are
+ * written one item at a time.
+ *
  * @author Morten Olav Hansen <mortenoh@gmail.com>
  */
 @Component
 @Scope( value = "prototype", proxyMode = ScopedProxyMode.INTERFACES )
 public class ExcelNodeSerializer extends AbstractNodeSerializer
 {
-    private static final String[] CONTENT_TYPES = { "application/vnd.ms-excel" };
+    private static final String[] CONTENT_TYPES = { "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet" };
+
+    private static final int ROW_ACCESS_WINDOW = 100;
 
     @Override
     public List<String> contentTypes()
@@ -70,60 +79,53 @@ public class ExcelNodeSerializer extends AbstractNodeSerializer
         return Lists.newArrayList( CONTENT_TYPES );
     }
 
-    private XSSFWorkbook workbook;
+    private SXSSFWorkbook workbook;
+
+    private SXSSFSheet sheet;
+
+    private CellStyle boldCellStyle;
 
-    private XSSFSheet sheet;
+    private CreationHelper creationHelper;
+
+    private int rowIdx;
+
+    private int columns;
 
     @Override
     protected void startSerialize( RootNode rootNode, OutputStream outputStream ) throws Exception
     {
-        workbook = new XSSFWorkbook();
+        workbook = new SXSSFWorkbook( ROW_ACCESS_WINDOW );
         sheet = workbook.createSheet( "Sheet1" );
+        sheet.trackAllColumnsForAutoSizing();
+        creationHelper = workbook.getCreationHelper();
 
-        XSSFFont boldFont = workbook.createFont();
+        Font boldFont = workbook.createFont();
         boldFont.setBold( true );
 
-        XSSFCellStyle boldCellStyle = workbook.createCellStyle();
+        boldCellStyle = workbook.createCellStyle();
         boldCellStyle.setFont( boldFont );
 
-        // build schema
-        for ( Node child : rootNode.getChildren() )
-        {
-            if ( child.isCollection() )
-            {
-                if ( !child.getChildren().isEmpty() )
-                {
-                    Node node = child.getChildren().get( 0 );
-
-                    XSSFRow row = sheet.createRow( 0 );
-
-                    int cellIdx = 0;
-
-                    for ( Node property : node.getChildren() )
-                    {
-                        if ( property.isSimple() )
-                        {
-                            XSSFCell cell = row.createCell( cellIdx++ );
-                            cell.setCellValue( property.getName() );
-                            cell.setCellStyle( boldCellStyle );
-                        }
-                    }
-                }
-            }
-        }
+        rowIdx = 0;
+        columns = 0;
     }
 
     @Override
     protected void endSerialize( RootNode rootNode, OutputStream outputStream ) throws Exception
     {
-        int columns = sheet.getRow( 0 ).getPhysicalNumberOfCells();
+        try
+        {
+            for ( int i = 0; i < columns; i++ )
+            {
+                sheet.autoSizeColumn( i );
+            }
 
-        for ( int i = 0; i < columns; i++ )
+            workbook.write( outputStream );
+        }
+        finally
         {
-            sheet.autoSizeColumn( i );
+            workbook.dispose();
+            workbook.close();
         }
-
-        workbook.write( outputStream );
     }
 
     @Override
@@ -132,52 +134,100 @@ public class ExcelNodeSerializer extends AbstractNodeSerializer
 
     }
 
+    @Override
+    protected void writeRootNode( RootNode rootNode ) throws Exception
+    {
+        for ( Node child : rootNode.getChildren() )
+        {
+            if ( child.isCollection() )
+            {
+                writeRows( (CollectionNode) child );
+            }
+        }
+    }
+
     @Override
     protected void startWriteRootNode( RootNode rootNode ) throws Exception
     {
-        XSSFCreationHelper creationHelper = workbook.getCreationHelper();
 
-        int rowIdx = 1;
+    }
+
+    private void writeRows( CollectionNode collectionNode )
+    {
+        boolean streaming = collectionNode instanceof StreamingCollectionNode
+            && ((StreamingCollectionNode) collectionNode).isStreamable();
+
+        Iterator<Node> children = streaming ? ((StreamingCollectionNode) collectionNode).streamChildren()
+            : collectionNode.getChildren().iterator();
+
+        try
+        {
+            while ( children.hasNext() )
+            {
+                writeRow( children.next() );
+            }
+        }
+        finally
+        {
+            if ( streaming )
+            {
+                ((StreamingCollectionNode) collectionNode).endStreaming();
+            }
+        }
+    }
+
+    private void writeRow( Node complexNode )
+    {
+        if ( rowIdx == 0 )
+        {
+            writeHeaderRow( complexNode );
+        }
 
-        for ( Node collectionNode : rootNode.getChildren() )
+        Row row = sheet.createRow( rowIdx++ );
+        int cellIdx = 0;
+
+        for ( Node node : complexNode.getChildren() )
         {
-            if ( collectionNode.isCollection() )
+            if ( node.isSimple() )
             {
-                for ( Node complexNode : collectionNode.getChildren() )
+                Cell cell = row.createCell( cellIdx++ );
+                cell.setCellValue( getValue( (SimpleNode) node ) );
+
+                if ( node.haveProperty() && PropertyType.URL.equals( node.getProperty().getPropertyType() ) )
                 {
-                    XSSFRow row = sheet.createRow( rowIdx++ );
-                    int cellIdx = 0;
-
-                    for ( Node node : complexNode.getChildren() )
-                    {
-                        if ( node.isSimple() )
-                        {
-                            XSSFCell cell = row.createCell( cellIdx++ );
-                            cell.setCellValue( getValue( (SimpleNode) node ) );
-
-                            if ( node.haveProperty() && PropertyType.URL.equals( node.getProperty().getPropertyType() ) )
-                            {
-                                XSSFHyperlink hyperlink = creationHelper.createHyperlink( HyperlinkType.URL );
-                                hyperlink.setAddress( getValue( (SimpleNode) node ) );
-                                hyperlink.setLabel( getValue( (SimpleNode) node ) );
-
-                                cell.setHyperlink( hyperlink );
-                            }
-                            else if ( node.haveProperty() && PropertyType.EMAIL.equals( node.getProperty().getPropertyType() ) )
-                            {
-                                XSSFHyperlink hyperlink = creationHelper.createHyperlink( HyperlinkType.EMAIL );
-                                hyperlink.setAddress( getValue( (SimpleNode) node ) );
-                                hyperlink.setLabel( getValue( (SimpleNode) node ) );
-
-                                cell.setHyperlink( hyperlink );
-                            }
-                        }
-                    }
+                    Hyperlink hyperlink = creationHelper.createHyperlink( HyperlinkType.URL );
+                    hyperlink.setAddress( getValue( (SimpleNode) node ) );
+                    hyperlink.setLabel( getValue( (SimpleNode) node ) );
+
+                    cell.setHyperlink( hyperlink );
+                }
+                else if ( node.haveProperty() && PropertyType.EMAIL.equals( node.getProperty().getPropertyType() ) )
+                {
+                    Hyperlink hyperlink = creationHelper.createHyperlink( HyperlinkType.EMAIL );
+                    hyperlink.setAddress( getValue( (SimpleNode) node ) );
+                    hyperlink.setLabel( getValue( (SimpleNode) node ) );
+
+                    cell.setHyperlink( hyperlink );
                 }
             }
         }
     }
 
+    private void writeHeaderRow( Node complexNode )
+    {
+        Row row = sheet.createRow( rowIdx++ );
+
+        for ( Node property : complexNode.getChildren() )
+        {
+            if ( property.isSimple() )
+            {
+                Cell cell = row.createCell( columns++ );
+                cell.setCellValue( property.getName() );
+                cell.setCellStyle( boldCellStyle );
+            }
+        }
+    }
+
     public String getValue( SimpleNode simpleNode )
     {
         if ( simpleNode.getValue() == null )
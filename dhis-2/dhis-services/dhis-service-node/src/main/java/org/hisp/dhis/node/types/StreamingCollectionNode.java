@@ -0,0 +1,186 @@
+package org.hisp.dhis.node.types;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.node.Node;
+import org.springframework.util.Assert;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Collection node which builds its children from a list of objects on demand.
+ * Serializers can stream the children, building and writing one child at a
+ * time, so that the nodes of all children are never held in memory at once.
+ * Any other access to the children builds and retains all of them, which
+ * makes this node behave like a regular {@link CollectionNode}.
+ */
+public class StreamingCollectionNode extends CollectionNode
+{
+    private final List<?> objects;
+
+    private final Function<Object, ? extends Node> childBuilder;
+
+    private boolean materialized;
+
+    private boolean streaming;
+
+    public StreamingCollectionNode( String name, List<?> objects, Function<Object, ? extends Node> childBuilder )
+    {
+        super( name );
+        this.objects = objects;
+        this.childBuilder = childBuilder;
+    }
+
+    /**
+     * Indicates whether the children of this node can be streamed, which is
+     * the case until they are accessed in any other way.
+     */
+    public boolean isStreamable()
+    {
+        return !materialized && !streaming;
+    }
+
+    /**
+     * Returns an iterator which builds the children of this node one at a time.
+     * The child last returned is the only child attached to this node. Objects
+     * for which no child is built are skipped. {@link #endStreaming()} must be
+     * invoked when done.
+     *
+     * @return an iterator of the children of this node.
+     */
+    public Iterator<Node> streamChildren()
+    {
+        Assert.state( isStreamable(), "Children of collection node are not streamable: " + name );
+
+        streaming = true;
+
+        Iterator<?> iterator = objects.iterator();
+
+        return new Iterator<Node>()
+        {
+            private Node next;
+
+            @Override
+            public boolean hasNext()
+            {
+                while ( next == null && iterator.hasNext() )
+                {
+                    Node child = childBuilder.apply( iterator.next() );
+
+                    if ( child != null && child.getName() != null )
+                    {
+                        next = child;
+                    }
+                }
+
+                return next != null;
+            }
+
+            @Override
+            public Node next()
+            {
+                if ( !hasNext() )
+                {
+                    throw new NoSuchElementException();
+                }
+
+                Node child = next;
+                next = null;
+
+                StreamingCollectionNode.super.setChildren( null );
+                StreamingCollectionNode.super.addChild( child );
+
+                return child;
+            }
+        };
+    }
+
+    /**
+     * Detaches the child last streamed, allowing the children to be streamed
+     * again.
+     */
+    public void endStreaming()
+    {
+        streaming = false;
+        super.setChildren( null );
+    }
+
+    private void materialize()
+    {
+        if ( materialized || streaming )
+        {
+            return;
+        }
+
+        materialized = true;
+
+        for ( Object object : objects )
+        {
+            super.addChild( childBuilder.apply( object ) );
+        }
+    }
+
+    @Override
+    public List<Node> getChildren()
+    {
+        materialize();
+        return super.getChildren();
+    }
+
+    @Override
+    public List<Node> getUnorderedChildren()
+    {
+        materialize();
+        return super.getUnorderedChildren();
+    }
+
+    @Override
+    public <T extends Node> T addChild( T child )
+    {
+        materialize();
+        return super.addChild( child );
+    }
+
+    @Override
+    public <T extends Node> void removeChild( T child )
+    {
+        materialize();
+        super.removeChild( child );
+    }
+
+    @Override
+    public void setChildren( List<Node> children )
+    {
+        materialized = true;
+        super.setChildren( children );
+    }
+}
@@ -0,0 +1,130 @@
+package org.hisp.dhis.node.types;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import org.hisp.dhis.node.Node;
+import org.hisp.dhis.node.serializers.Jackson2JsonNodeSerializer;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link StreamingCollectionNode}.
+ */
+public class StreamingCollectionNodeTest
+{
+    private final List<String> objects = Lists.newArrayList( "a", "b", "c" );
+
+    @Test
+    public void testSerializeEqualsCollectionNode()
+        throws Exception
+    {
+        CollectionNode collectionNode = new CollectionNode( "items" );
+        objects.forEach( object -> collectionNode.addChild( createNode( object ) ) );
+
+        StreamingCollectionNode streamingNode = new StreamingCollectionNode( "items", objects, this::createNode );
+
+        assertEquals( serialize( collectionNode ), serialize( streamingNode ) );
+        assertTrue( streamingNode.isStreamable() );
+    }
+
+    @Test
+    public void testSerializeTwice()
+        throws Exception
+    {
+        StreamingCollectionNode streamingNode = new StreamingCollectionNode( "items", objects, this::createNode );
+
+        assertEquals( serialize( streamingNode ), serialize( streamingNode ) );
+    }
+
+    @Test
+    public void testSerializeEmpty()
+        throws Exception
+    {
+        StreamingCollectionNode streamingNode = new StreamingCollectionNode( "items", Collections.emptyList(), this::createNode );
+
+        assertEquals( serialize( new CollectionNode( "items" ) ), serialize( streamingNode ) );
+    }
+
+    @Test
+    public void testSkipNullChildren()
+        throws Exception
+    {
+        CollectionNode collectionNode = new CollectionNode( "items" );
+        collectionNode.addChild( createNode( "a" ) );
+        collectionNode.addChild( createNode( "c" ) );
+
+        StreamingCollectionNode streamingNode = new StreamingCollectionNode( "items", objects,
+            object -> "b".equals( object ) ? null : createNode( object ) );
+
+        assertEquals( serialize( collectionNode ), serialize( streamingNode ) );
+    }
+
+    @Test
+    public void testGetChildren()
+    {
+        StreamingCollectionNode streamingNode = new StreamingCollectionNode( "items", objects, this::createNode );
+
+        List<Node> children = streamingNode.getChildren();
+
+        assertEquals( 3, children.size() );
+        assertEquals( streamingNode, children.get( 0 ).getParent() );
+        assertFalse( streamingNode.isStreamable() );
+    }
+
+    private ComplexNode createNode( Object object )
+    {
+        ComplexNode complexNode = new ComplexNode( "item" );
+        complexNode.addChild( new SimpleNode( "id", object ) );
+        complexNode.addChild( new SimpleNode( "name", "Name " + object ) );
+
+        return complexNode;
+    }
+
+    private String serialize( CollectionNode collectionNode )
+        throws Exception
+    {
+        RootNode rootNode = new RootNode( "metadata" );
+        rootNode.addChild( collectionNode );
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new Jackson2JsonNodeSerializer( new ObjectMapper() ).serialize( rootNode, outputStream );
+
+        return new String( outputStream.toByteArray(), StandardCharsets.UTF_8 );
+    }
+}
@@ -28,6 +28,8 @@ package org.hisp.dhis.programrule.config;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import org.hisp.dhis.cache.MetadataChangeTracker;
+import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.constant.ConstantService;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroupService;
 import org.hisp.dhis.program.ProgramService;
@@ -38,6 +40,7 @@ import org.hisp.dhis.user.CurrentUserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
 /**
  * @author Enrico Colasante
@@ -60,6 +63,12 @@ public class ProgramRuleConfig
     @Autowired
     private ConstantService constantService;
 
+    @Autowired
+    private MetadataChangeTracker metadataChangeTracker;
+
+    @Autowired
+    private Environment environment;
+
     /**
      * This bean is used in the system when an event is intercepted by
      * {@link ProgramRuleEngineListener}. Only the notification rule actions are
@@ -70,7 +79,7 @@ public class ProgramRuleConfig
     {
         return new ProgramRuleEngine( programRuleEntityMapperService, programRuleVariableService,
             organisationUnitGroupService, currentUserService, constantService,
-            oldImplementableRuleService );
+            oldImplementableRuleService, metadataChangeTracker, isCacheEnabled() );
     }
 
     /**
@@ -82,6 +91,11 @@ public class ProgramRuleConfig
     {
         return new ProgramRuleEngine( programRuleEntityMapperService, programRuleVariableService,
             organisationUnitGroupService, currentUserService, constantService,
-            newImplementableRuleService );
+            newImplementableRuleService, metadataChangeTracker, isCacheEnabled() );
+    }
+
+    private boolean isCacheEnabled()
+    {
+        return !SystemUtils.isTestRun( environment.getActiveProfiles() );
     }
 }
@@ -31,6 +31,7 @@ package org.hisp.dhis.programrule.engine;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -39,14 +40,22 @@ import java.util.stream.Collectors;
 import com.google.common.collect.Maps;
 import lombok.extern.slf4j.Slf4j;
 
+import org.hisp.dhis.cache.MetadataChangeTracker;
+import org.hisp.dhis.cache.MetadataVersionedCache;
 import org.hisp.dhis.common.BaseIdentifiableObject;
 import org.hisp.dhis.commons.collection.ListUtils;
 import org.hisp.dhis.commons.util.DebugUtils;
+import org.hisp.dhis.constant.Constant;
 import org.hisp.dhis.constant.ConstantService;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.option.Option;
+import org.hisp.dhis.option.OptionSet;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitGroup;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroupService;
 import org.hisp.dhis.program.Program;
 import org.hisp.dhis.program.ProgramInstance;
+import org.hisp.dhis.program.ProgramStage;
 import org.hisp.dhis.program.ProgramStageInstance;
 import org.hisp.dhis.programrule.*;
 import org.hisp.dhis.rules.DataItem;
@@ -54,6 +63,7 @@ import org.hisp.dhis.rules.RuleEngine;
 import org.hisp.dhis.rules.RuleEngineContext;
 import org.hisp.dhis.rules.RuleEngineIntent;
 import org.hisp.dhis.rules.models.*;
+import org.hisp.dhis.trackedentity.TrackedEntityAttribute;
 import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.UserAuthorityGroup;
 
@@ -67,6 +77,10 @@ public class ProgramRuleEngine
 {
     private static final String USER = "USER";
 
+    private static final String ALL = "ALL";
+
+    private static final long MAX_CACHE_ENTRIES = 1000;
+
     private final ProgramRuleEntityMapperService programRuleEntityMapperService;
 
     private final ProgramRuleVariableService programRuleVariableService;
@@ -79,12 +93,35 @@ public class ProgramRuleEngine
 
     private final ImplementableRuleService implementableRuleService;
 
+    /**
+     * Mapped rules and rule variables per program.
+     */
+    private final MetadataVersionedCache<ProgramRuleContext> programRuleContextCache;
+
+    /**
+     * Constant values, there is a single entry.
+     */
+    private final MetadataVersionedCache<Map<String, String>> constantCache;
+
+    /**
+     * Organisation unit group members, there is a single entry.
+     */
+    private final MetadataVersionedCache<Map<String, List<String>>> orgUnitGroupCache;
+
+    /**
+     * Constructor.
+     *
+     * @param cacheEnabled whether to cache the metadata part of the rule
+     *        engine context between evaluations.
+     */
     public ProgramRuleEngine( ProgramRuleEntityMapperService programRuleEntityMapperService,
         ProgramRuleVariableService programRuleVariableService,
         OrganisationUnitGroupService organisationUnitGroupService,
         CurrentUserService currentUserService,
         ConstantService constantService,
-        ImplementableRuleService implementableRuleService )
+        ImplementableRuleService implementableRuleService,
+        MetadataChangeTracker metadataChangeTracker,
+        boolean cacheEnabled )
     {
         checkNotNull( programRuleEntityMapperService );
         checkNotNull( programRuleVariableService );
@@ -92,6 +129,7 @@ public class ProgramRuleEngine
         checkNotNull( currentUserService );
         checkNotNull( constantService );
         checkNotNull( implementableRuleService );
+        checkNotNull( metadataChangeTracker );
 
         this.programRuleEntityMapperService = programRuleEntityMapperService;
         this.programRuleVariableService = programRuleVariableService;
@@ -99,6 +137,17 @@ public class ProgramRuleEngine
         this.currentUserService = currentUserService;
         this.constantService = constantService;
         this.implementableRuleService = implementableRuleService;
+
+        long maxEntries = cacheEnabled ? MAX_CACHE_ENTRIES : 0;
+
+        this.programRuleContextCache = new MetadataVersionedCache<>( "programRuleContext", maxEntries,
+            metadataChangeTracker, ProgramRule.class, ProgramRuleAction.class, ProgramRuleVariable.class,
+            Program.class, ProgramStage.class, DataElement.class, TrackedEntityAttribute.class,
+            OptionSet.class, Option.class );
+        this.constantCache = new MetadataVersionedCache<>( "programRuleConstants", maxEntries,
+            metadataChangeTracker, Constant.class );
+        this.orgUnitGroupCache = new MetadataVersionedCache<>( "programRuleOrgUnitGroups", maxEntries,
+            metadataChangeTracker, OrganisationUnitGroup.class );
     }
 
     public List<RuleEffect> evaluate( ProgramInstance enrollment, Set<ProgramStageInstance> events )
@@ -178,21 +227,22 @@ public class ProgramRuleEngine
         return ruleEngine.evaluate( condition );
     }
 
+    /**
+     * Returns the rule engine context for the given program. The mapped rules,
+     * rule variables, constants and organisation unit group members are cached
+     * until the metadata they are derived from changes, only the user roles of
+     * the current user are added for each evaluation.
+     *
+     * @param program the {@link Program}.
+     * @return the {@link RuleEngineContext}.
+     */
     private RuleEngineContext getRuleEngineContext( Program program )
     {
-        List<ProgramRuleVariable> programRuleVariables = programRuleVariableService
-            .getProgramRuleVariable( program );
-        List<ProgramRule> programRules = implementableRuleService
-            .getImplementableRules( program );
+        ProgramRuleContext programRuleContext = programRuleContextCache.get( program.getUid(),
+            uid -> getProgramRuleContext( program ) );
 
-        Map<String, String> constantMap = constantService.getConstantMap().entrySet()
-            .stream()
-            .collect( Collectors.toMap( Map.Entry::getKey, v -> v.getValue().toString() ) );
-
-        Map<String, List<String>> supplementaryData = organisationUnitGroupService.getAllOrganisationUnitGroups()
-            .stream()
-            .collect( Collectors.toMap( BaseIdentifiableObject::getUid,
-                g -> g.getMembers().stream().map( OrganisationUnit::getUid ).collect( Collectors.toList() ) ) );
+        Map<String, List<String>> supplementaryData = new HashMap<>( orgUnitGroupCache.get( ALL,
+            key -> getOrgUnitGroupMembers() ) );
 
         if ( currentUserService.getCurrentUser() != null )
         {
@@ -202,23 +252,44 @@ public class ProgramRuleEngine
 
         return RuleEngineContext.builder()
             .supplementaryData( supplementaryData )
-            .rules( programRuleEntityMapperService.toMappedProgramRules( programRules ) )
-            .ruleVariables( programRuleEntityMapperService.toMappedProgramRuleVariables( programRuleVariables ) )
-            .constantsValue( constantMap )
+            .rules( programRuleContext.getRules() )
+            .ruleVariables( programRuleContext.getRuleVariables() )
+            .constantsValue( constantCache.get( ALL, key -> getConstantValues() ) )
             .build();
     }
 
-    private RuleEngine.Builder ruleEngineBuilder( List<ProgramRule> programRules,
-        List<ProgramRuleVariable> programRuleVariables, RuleEngineIntent intent )
+    private ProgramRuleContext getProgramRuleContext( Program program )
+    {
+        List<ProgramRuleVariable> programRuleVariables = programRuleVariableService
+            .getProgramRuleVariable( program );
+        List<ProgramRule> programRules = implementableRuleService
+            .getImplementableRules( program );
+
+        return new ProgramRuleContext( programRuleEntityMapperService.toMappedProgramRules( programRules ),
+            programRuleEntityMapperService.toMappedProgramRuleVariables( programRuleVariables ) );
+    }
+
+    private Map<String, String> getConstantValues()
     {
-        Map<String, String> constantMap = constantService.getConstantMap().entrySet()
+        return constantService.getConstantMap().entrySet()
             .stream()
             .collect( Collectors.toMap( Map.Entry::getKey, v -> v.getValue().toString() ) );
+    }
 
-        Map<String, List<String>> supplementaryData = organisationUnitGroupService.getAllOrganisationUnitGroups()
+    private Map<String, List<String>> getOrgUnitGroupMembers()
+    {
+        return organisationUnitGroupService.getAllOrganisationUnitGroups()
             .stream()
             .collect( Collectors.toMap( BaseIdentifiableObject::getUid,
                 g -> g.getMembers().stream().map( OrganisationUnit::getUid ).collect( Collectors.toList() ) ) );
+    }
+
+    private RuleEngine.Builder ruleEngineBuilder( List<ProgramRule> programRules,
+        List<ProgramRuleVariable> programRuleVariables, RuleEngineIntent intent )
+    {
+        Map<String, String> constantMap = getConstantValues();
+
+        Map<String, List<String>> supplementaryData = getOrgUnitGroupMembers();
 
         if ( currentUserService.getCurrentUser() != null )
         {
@@ -280,4 +351,30 @@ public class ProgramRuleEngine
             return ruleEngine.evaluate( getRuleEvent( event ) ).call();
         }
     }
+
+    /**
+     * Rules and rule variables of a program, mapped to the rule engine model.
+     */
+    private static class ProgramRuleContext
+    {
+        private final List<Rule> rules;
+
+        private final List<RuleVariable> ruleVariables;
+
+        private ProgramRuleContext( List<Rule> rules, List<RuleVariable> ruleVariables )
+        {
+            this.rules = rules;
+            this.ruleVariables = ruleVariables;
+        }
+
+        public List<Rule> getRules()
+        {
+            return rules;
+        }
+
+        public List<RuleVariable> getRuleVariables()
+        {
+            return ruleVariables;
+        }
+    }
 }
@@ -0,0 +1,156 @@
+package org.hisp.dhis.programrule.engine;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.HashSet;
+
+import org.hisp.dhis.cache.CacheInvalidationBus;
+import org.hisp.dhis.cache.MetadataChangeTracker;
+import org.hisp.dhis.constant.Constant;
+import org.hisp.dhis.constant.ConstantService;
+import org.hisp.dhis.organisationunit.OrganisationUnitGroupService;
+import org.hisp.dhis.program.Program;
+import org.hisp.dhis.program.ProgramInstance;
+import org.hisp.dhis.programrule.ProgramRule;
+import org.hisp.dhis.programrule.ProgramRuleVariableService;
+import org.hisp.dhis.user.CurrentUserService;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+/**
+ * Verifies that the metadata part of the rule engine context is cached
+ * between evaluations and reloaded once the metadata it depends on changes.
+ */
+public class ProgramRuleEngineCacheTest
+{
+    @Mock
+    private ProgramRuleEntityMapperService programRuleEntityMapperService;
+
+    @Mock
+    private ProgramRuleVariableService programRuleVariableService;
+
+    @Mock
+    private OrganisationUnitGroupService organisationUnitGroupService;
+
+    @Mock
+    private CurrentUserService currentUserService;
+
+    @Mock
+    private ConstantService constantService;
+
+    @Mock
+    private ImplementableRuleService implementableRuleService;
+
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    private MetadataChangeTracker metadataChangeTracker;
+
+    private Program program;
+
+    private ProgramInstance enrollment;
+
+    @Before
+    public void setUp()
+    {
+        metadataChangeTracker = new MetadataChangeTracker( invalidationBus );
+
+        program = new Program( "Program", "Program" );
+        program.setUid( "ProgramUidA" );
+
+        enrollment = new ProgramInstance();
+        enrollment.setProgram( program );
+    }
+
+    @Test
+    public void testEvaluateUsesCachedContext()
+    {
+        ProgramRuleEngine engine = newEngine( true );
+
+        engine.evaluate( enrollment, new HashSet<>() );
+        engine.evaluate( enrollment, new HashSet<>() );
+
+        verify( implementableRuleService, times( 1 ) ).getImplementableRules( program );
+        verify( programRuleVariableService, times( 1 ) ).getProgramRuleVariable( program );
+        verify( constantService, times( 1 ) ).getConstantMap();
+        verify( organisationUnitGroupService, times( 1 ) ).getAllOrganisationUnitGroups();
+    }
+
+    @Test
+    public void testEvaluateReloadsChangedMetadata()
+    {
+        ProgramRuleEngine engine = newEngine( true );
+
+        engine.evaluate( enrollment, new HashSet<>() );
+
+        metadataChangeTracker.registerChange( ProgramRule.class );
+
+        engine.evaluate( enrollment, new HashSet<>() );
+
+        verify( implementableRuleService, times( 2 ) ).getImplementableRules( program );
+        verify( constantService, times( 1 ) ).getConstantMap();
+
+        metadataChangeTracker.registerChange( Constant.class );
+
+        engine.evaluate( enrollment, new HashSet<>() );
+
+        verify( implementableRuleService, times( 2 ) ).getImplementableRules( program );
+        verify( constantService, times( 2 ) ).getConstantMap();
+        verify( organisationUnitGroupService, times( 1 ) ).getAllOrganisationUnitGroups();
+    }
+
+    @Test
+    public void testEvaluateCacheDisabled()
+    {
+        ProgramRuleEngine engine = newEngine( false );
+
+        engine.evaluate( enrollment, new HashSet<>() );
+        engine.evaluate( enrollment, new HashSet<>() );
+
+        verify( implementableRuleService, times( 2 ) ).getImplementableRules( program );
+        verify( constantService, times( 2 ) ).getConstantMap();
+    }
+
+    private ProgramRuleEngine newEngine( boolean cacheEnabled )
+    {
+        return new ProgramRuleEngine( programRuleEntityMapperService, programRuleVariableService,
+            organisationUnitGroupService, currentUserService, constantService, implementableRuleService,
+            metadataChangeTracker, cacheEnabled );
+    }
+}
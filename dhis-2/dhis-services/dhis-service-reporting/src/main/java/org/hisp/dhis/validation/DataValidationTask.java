@@ -36,22 +36,11 @@ import static org.hisp.dhis.system.util.MathUtils.roundSignificant;
 import static org.hisp.dhis.system.util.MathUtils.zeroIfNull;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
-import javax.persistence.PersistenceException;
-
-import org.apache.commons.lang3.ObjectUtils;
-import org.hisp.dhis.analytics.AnalyticsService;
-import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.common.*;
 import org.hisp.dhis.commons.util.DebugUtils;
-import org.hisp.dhis.dataelement.DataElement;
-import org.hisp.dhis.dataelement.DataElementOperand;
-import org.hisp.dhis.datavalue.DataExportParams;
-import org.hisp.dhis.datavalue.DataValueService;
-import org.hisp.dhis.datavalue.DeflatedDataValue;
 import org.hisp.dhis.expression.Expression;
 import org.hisp.dhis.expression.ExpressionService;
 import org.hisp.dhis.expression.Operator;
@@ -63,7 +52,6 @@ import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 import lombok.extern.slf4j.Slf4j;
@@ -71,7 +59,9 @@ import lombok.extern.slf4j.Slf4j;
 /**
  * Runs a validation task on a thread within a multi-threaded validation run.
  * <p>
- * Each task looks for validation results in a different organisation unit.
+ * Each task looks for validation results in a different set of organisation
+ * units, using the data of a {@link ValidationDataSlice} it shares with the
+ * other tasks evaluating the same slice.
  *
  * @author Jim Grace
  */
@@ -87,29 +77,22 @@ public class DataValidationTask
 
     private final ExpressionService expressionService;
 
-    private final DataValueService dataValueService;
-
     private final CategoryService categoryService;
 
     private final PeriodService periodService;
 
-    public DataValidationTask( ExpressionService expressionService, DataValueService dataValueService,
-        CategoryService categoryService, PeriodService periodService )
+    public DataValidationTask( ExpressionService expressionService, CategoryService categoryService,
+        PeriodService periodService )
     {
         checkNotNull( expressionService );
-        checkNotNull( dataValueService );
         checkNotNull( categoryService );
         checkNotNull( periodService );
 
         this.expressionService = expressionService;
-        this.dataValueService = dataValueService;
         this.categoryService = categoryService;
         this.periodService = periodService;
     }
 
-    // (wired through constructor)
-    private AnalyticsService analyticsService;
-
     private List<OrganisationUnit> orgUnits;
 
     private ValidationRunContext context;
@@ -126,22 +109,28 @@ public class DataValidationTask
 
     private ValidationRuleExtended ruleX;   // Current rule extended.
 
+    private long ruleEvaluations;           // Rules evaluated by this task.
+
     // Data for current period and all rules being evaluated:
-    private MapMapMap<Long, String, DimensionalItemObject, Double> dataMap;
+    private Map<Long, Map<String, Map<DimensionalItemObject, Double>>> dataMap;
 
-    private MapMapMap<Long, String, DimensionalItemObject, Double> slidingWindowDataMap;
+    private Map<Long, Map<String, Map<DimensionalItemObject, Double>>> slidingWindowDataMap;
 
     @Override
-    public void init( List<OrganisationUnit> orgUnits, ValidationRunContext context, AnalyticsService analyticsService )
+    public void init( List<OrganisationUnit> orgUnits, ValidationRunContext context, ValidationDataSlice slice )
     {
         this.orgUnits = orgUnits;
         this.context = context;
-        this.analyticsService = analyticsService;
+        this.periodTypeX = slice.getPeriodTypeX();
+        this.period = slice.getPeriod();
+        this.dataMap = slice.getDataMap();
+        this.slidingWindowDataMap = slice.getSlidingWindowDataMap();
+        this.ruleEvaluations = 0;
     }
 
     /**
-     * Evaluates validation rules for a single organisation unit. This is the
-     * central method in validation rule evaluation.
+     * Evaluates validation rules for the organisation units of this task. This
+     * is the central method in validation rule evaluation.
      */
     @Override
     @Transactional
@@ -157,11 +146,15 @@ public class DataValidationTask
 
             throw ex;
         }
+        finally
+        {
+            context.addRuleEvaluations( ruleEvaluations );
+        }
     }
 
     /**
-     * Get the data needed for this task, then evaluate each combination
-     * of organisation unit / period / validation rule.
+     * Evaluates each combination of organisation unit / validation rule for
+     * the period of the data slice.
      */
     private void runInternal()
     {
@@ -171,34 +164,23 @@ public class DataValidationTask
         }
 
         loop:
-        for ( PeriodTypeExtended ptx : context.getPeriodTypeXs() )
+        for ( OrganisationUnit ou : orgUnits )
         {
-            periodTypeX = ptx;
+            orgUnit = ou;
+            orgUnitId = ou.getId();
 
-            for ( Period p : periodTypeX.getPeriods() )
+            for ( ValidationRuleExtended r : periodTypeX.getRuleXs() )
             {
-                period = p;
-
-                getData();
+                ruleX = r;
 
-                for ( OrganisationUnit ou : orgUnits )
+                if ( context.isAnalysisComplete() )
                 {
-                    orgUnit = ou;
-                    orgUnitId = ou.getId();
-
-                    for ( ValidationRuleExtended r : periodTypeX.getRuleXs() )
-                    {
-                        ruleX = r;
-
-                        if ( context.isAnalysisComplete() )
-                        {
-                            break loop;
-                        }
-                        validationResults = new HashSet<>();
-                        validateRule();
-                        addValidationResultsToContext();
-                    }
+                    break loop;
                 }
+                validationResults = new HashSet<>();
+                validateRule();
+                addValidationResultsToContext();
+                ruleEvaluations++;
             }
         }
     }
@@ -319,35 +301,6 @@ public class DataValidationTask
         return ! (Boolean) expressionService.getExpressionValue( test, SIMPLE_TEST );
     }
 
-    /**
-     * Gets the data for this period:
-     * <p/>
-     * dataMap contains data for non-sliding window expressions.
-     * slidingWindowDataMap contains data for sliding window expressions.
-     */
-    private void getData()
-    {
-        getDataValueMap();
-
-        dataMap.putMap( getAnalyticsMap( true, periodTypeX.getIndicators() ) );
-
-        slidingWindowDataMap = new MapMapMap<>();
-
-        if ( periodTypeX.areSlidingWindowsNeeded() )
-        {
-            slidingWindowDataMap.putMap( dataMap );
-
-            slidingWindowDataMap.putMap( getEventMapForSlidingWindow( true, periodTypeX.getEventItems() ) );
-            slidingWindowDataMap.putMap( getEventMapForSlidingWindow( false, periodTypeX.getEventItemsWithoutAttributeOptions() ) );
-        }
-
-        if ( periodTypeX.areNonSlidingWindowsNeeded() )
-        {
-            dataMap.putMap( getAnalyticsMap( true, periodTypeX.getEventItems() ) );
-            dataMap.putMap( getAnalyticsMap( false, periodTypeX.getEventItemsWithoutAttributeOptions() ) );
-        }
-    }
-
     /**
      * For an expression (left side or right side), finds the values
      * (grouped by attribute option combo).
@@ -383,42 +336,6 @@ public class DataValidationTask
         }
     }
 
-    private Period getPeriod( long id )
-    {
-        Period p = context.getPeriodIdMap().get( id );
-
-        if ( p == null )
-        {
-            log.trace("DataValidationTask calling getPeriod( id " + id + " )" );
-
-            p = periodService.getPeriod( id );
-
-            log.trace("DataValidationTask called getPeriod( id " + id + " )" );
-
-            context.getPeriodIdMap().put( id, p );
-        }
-
-        return p;
-    }
-
-    private CategoryOptionCombo getAttributeOptionCombo( long id )
-    {
-        CategoryOptionCombo aoc = context.getAocIdMap().get( id );
-
-        if ( aoc == null )
-        {
-            log.trace("DataValidationTask calling getCategoryOptionCombo( id " + id + " )" );
-
-            aoc = categoryService.getCategoryOptionCombo( id );
-
-            log.trace("DataValidationTask called getCategoryOptionCombo( id " + id + ")" );
-
-            addToAocCache( aoc );
-        }
-
-        return aoc;
-    }
-
     private CategoryOptionCombo getAttributeOptionCombo( String uid )
     {
         CategoryOptionCombo aoc = context.getAocUidMap().get( uid );
@@ -452,14 +369,14 @@ public class DataValidationTask
      * @return map of values.
      */
     private Map<String, Double> getExpressionValueMap( Expression expression,
-        MapMapMap<Long, String, DimensionalItemObject, Double> valueMap )
+        Map<Long, Map<String, Map<DimensionalItemObject, Double>>> valueMap )
     {
         Map<String, Double> expressionValueMap = new HashMap<>();
 
         Map<DimensionalItemObject, Double> nonAocValues = valueMap.get( orgUnitId ) == null
             ? null : valueMap.get( orgUnitId ).get( NON_AOC );
 
-        MapMap<String, DimensionalItemObject, Double> aocValues = valueMap.get( orgUnitId );
+        Map<String, Map<DimensionalItemObject, Double>> aocValues = valueMap.get( orgUnitId );
 
         if ( aocValues == null )
         {
@@ -469,8 +386,7 @@ public class DataValidationTask
             }
             else
             {
-                aocValues = new MapMap<>();
-                aocValues.putEntries( context.getDefaultAttributeCombo().getUid(), nonAocValues );
+                aocValues = Collections.singletonMap( context.getDefaultAttributeCombo().getUid(), nonAocValues );
             }
         }
 
@@ -480,6 +396,7 @@ public class DataValidationTask
 
             if ( nonAocValues != null )
             {
+                values = new HashMap<>( values ); // The data slice is shared
                 values.putAll( nonAocValues );
             }
 
@@ -495,214 +412,4 @@ public class DataValidationTask
 
         return expressionValueMap;
     }
-
-    /**
-     * Gets data elements and data element operands from the datavalue table.
-     */
-    private void getDataValueMap()
-    {
-        DataExportParams params = new DataExportParams();
-        params.setDataElements( periodTypeX.getDataElements() );
-        params.setDataElementOperands( periodTypeX.getDataElementOperands() );
-        params.setIncludedDate( period.getStartDate() );
-        params.setOrganisationUnits( new HashSet<>( orgUnits ) );
-        params.setPeriodTypes( periodTypeX.getAllowedPeriodTypes() );
-        params.setCoDimensionConstraints( context.getCoDimensionConstraints() );
-        params.setCogDimensionConstraints( context.getCogDimensionConstraints() );
-
-        if ( context.getAttributeCombo() != null )
-        {
-            params.setAttributeOptionCombos( Sets.newHashSet( context.getAttributeCombo() ) );
-        }
-
-        List<DeflatedDataValue> dataValues = dataValueService.getDeflatedDataValues( params );
-
-        dataMap = new MapMapMap<>();
-
-        MapMapMap<Long, String, DimensionalItemObject, Long> checkForDuplicates = new MapMapMap<>();
-
-        for ( DeflatedDataValue dv : dataValues )
-        {
-            DataElement dataElement = periodTypeX.getDataElementIdMap().get( dv.getDataElementId() );
-            String deoIdKey = periodTypeX.getDeoIds( dv.getDataElementId(), dv.getCategoryOptionComboId() );
-            DataElementOperand dataElementOperand = periodTypeX.getDataElementOperandIdMap().get( deoIdKey );
-            Period p = getPeriod( dv.getPeriodId() );
-            long orgUnitId = dv.getSourceId();
-            String attributeOptionComboUid = getAttributeOptionCombo( dv.getAttributeOptionComboId() ).getUid();
-            String valueString = dv.getValue();
-            Double value;
-
-            try
-            {
-                value = Double.parseDouble( valueString );
-            }
-            catch ( NumberFormatException | NullPointerException e )
-            {
-                continue;
-            }
-
-            if ( dataElement != null )
-            {
-                addValueToDataMap( orgUnitId, attributeOptionComboUid, dataElement, value, p, checkForDuplicates );
-            }
-
-            if ( dataElementOperand != null )
-            {
-                addValueToDataMap( orgUnitId, attributeOptionComboUid, dataElementOperand, value, p,
-                    checkForDuplicates );
-            }
-        }
-    }
-
-    private void addValueToDataMap( long orgUnitId, String aocUid, DimensionalItemObject dimItemObject,
-        Double value, Period p, MapMapMap<Long, String, DimensionalItemObject, Long> checkForDuplicates )
-    {
-        double existingValue = ObjectUtils.firstNonNull( dataMap.getValue( orgUnitId, aocUid, dimItemObject ), 0.0 );
-
-        long periodInterval = p.getEndDate().getTime() - p.getStartDate().getTime();
-
-        Long existingPeriodInterval = checkForDuplicates.getValue( orgUnitId, aocUid, dimItemObject );
-
-        if ( existingPeriodInterval != null )
-        {
-            if ( existingPeriodInterval < periodInterval )
-            {
-                return; // Do not overwrite the previous value if for a shorter interval
-            }
-            else if ( existingPeriodInterval > periodInterval )
-            {
-                existingValue = 0.0; // Overwrite previous value if for a longer interval
-            }
-        }
-
-        dataMap.putEntry( orgUnitId, aocUid, dimItemObject, value + existingValue );
-
-        checkForDuplicates.putEntry( orgUnitId, aocUid, dimItemObject, periodInterval );
-    }
-
-    /**
-     * Gets analytics data for the given parameters.
-     *
-     * @param hasAttributeOptions whether the event data has attribute options.
-     */
-    private MapMapMap<Long, String, DimensionalItemObject, Double> getAnalyticsMap(
-        boolean hasAttributeOptions, Set<DimensionalItemObject> analyticsItems )
-    {
-        if ( analyticsItems.isEmpty() )
-        {
-            return new MapMapMap<>();
-        }
-
-        DataQueryParams.Builder paramsBuilder = DataQueryParams.newBuilder()
-            .withDataDimensionItems( Lists.newArrayList( analyticsItems ) )
-            .withAttributeOptionCombos( Lists.newArrayList() )
-            .withFilterPeriods( Lists.newArrayList( period ) )
-            .withOrganisationUnits( orgUnits );
-
-        if ( hasAttributeOptions )
-        {
-            paramsBuilder.withAttributeOptionCombos( Lists.newArrayList() );
-        }
-
-        return getAnalyticsData( paramsBuilder.build(), hasAttributeOptions );
-    }
-
-    /**
-     * Gets sliding window analytics event data for the given parameters.
-     *
-     * @param hasAttributeOptions whether the event data has attribute options.
-     */
-    private MapMapMap<Long, String, DimensionalItemObject, Double> getEventMapForSlidingWindow(
-        boolean hasAttributeOptions, Set<DimensionalItemObject> eventItems )
-    {
-        if ( eventItems.isEmpty() )
-        {
-            return new MapMapMap<>();
-        }
-
-        // We want to position the sliding window over the most recent data.
-        // To achieve this, we need to satisfy the following criteria:
-        //
-        // 1. Window end should not be later than the current date
-        // 2. Window end should not be later than the period.endDate
-
-        // Criteria 1
-        Calendar endDate = Calendar.getInstance();
-        Calendar startDate = Calendar.getInstance();
-
-        // Criteria 2
-        if ( endDate.getTime().after( period.getEndDate() ) )
-        {
-            endDate.setTime( period.getEndDate() );
-        }
-
-        // The window size is based on the frequencyOrder of the period's periodType:
-        startDate.setTime( endDate.getTime() );
-        startDate.add( Calendar.DATE, (-1 * period.frequencyOrder()) );
-
-        DataQueryParams.Builder paramsBuilder = DataQueryParams.newBuilder()
-            .withDataDimensionItems( Lists.newArrayList( eventItems ) )
-            .withAttributeOptionCombos( Lists.newArrayList() )
-            .withStartDate( startDate.getTime() )
-            .withEndDate( endDate.getTime() )
-            .withOrganisationUnits( orgUnits );
-
-        if ( hasAttributeOptions )
-        {
-            paramsBuilder.withAttributeOptionCombos( Lists.newArrayList() );
-        }
-
-        return getAnalyticsData( paramsBuilder.build(), hasAttributeOptions );
-    }
-
-    /**
-     * Gets analytics data.
-     *
-     * @param params              event data query parameters.
-     * @param hasAttributeOptions whether the event data has attribute options.
-     * @return event data.
-     */
-    private MapMapMap<Long, String, DimensionalItemObject, Double> getAnalyticsData(
-        DataQueryParams params, boolean hasAttributeOptions )
-    {
-        MapMapMap<Long, String, DimensionalItemObject, Double> map = new MapMapMap<>();
-
-        Grid grid;
-
-        try
-        {
-            grid = analyticsService.getAggregatedDataValues( params );
-        }
-        catch ( PersistenceException ex )
-        {
-            return map;
-        }
-
-        int dxInx = grid.getIndexOfHeader( DimensionalObject.DATA_X_DIM_ID );
-        int ouInx = grid.getIndexOfHeader( DimensionalObject.ORGUNIT_DIM_ID );
-        int aoInx = hasAttributeOptions ? grid.getIndexOfHeader( DimensionalObject.ATTRIBUTEOPTIONCOMBO_DIM_ID ) : 0;
-        int vlInx = grid.getWidth() - 1;
-
-        Map<String, OrganisationUnit> ouLookup = orgUnits.stream()
-            .collect( Collectors.toMap(BaseIdentifiableObject::getUid, o -> o ) );
-        Map<String, DimensionalItemObject> dxLookup = periodTypeX.getEventItems().stream()
-            .collect( Collectors.toMap(DimensionalItemObject::getDimensionItem, d -> d ) );
-        dxLookup.putAll( periodTypeX.getIndicators().stream()
-            .collect( Collectors.toMap(DimensionalItemObject::getDimensionItem, d -> d ) ) );
-
-        for ( List<Object> row : grid.getRows() )
-        {
-            String dx = (String) row.get( dxInx );
-            String ao = hasAttributeOptions ? (String) row.get( aoInx ) : NON_AOC;
-            String ou = (String) row.get( ouInx );
-            Double vl = ( (Number)row.get( vlInx ) ).doubleValue();
-
-            OrganisationUnit orgUnit = ouLookup.get( ou );
-            DimensionalItemObject analyticsItem = dxLookup.get( dx );
-
-            map.putEntry( orgUnit.getId(), ao, analyticsItem, vl );
-        }
-
-        return map;
-    }
 }
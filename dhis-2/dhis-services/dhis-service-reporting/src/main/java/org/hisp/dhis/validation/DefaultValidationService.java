@@ -297,7 +297,8 @@ public class DefaultValidationService
             .withPersistResults( parameters.isPersistResults() )
             .withAttributeCombo( parameters.getAttributeOptionCombo() )
             .withDefaultAttributeCombo( categoryService.getDefaultCategoryOptionCombo() )
-            .withMaxResults( parameters.getMaxResults() );
+            .withMaxResults( parameters.getMaxResults() )
+            .withJobConfiguration( parameters.getJobConfiguration() );
 
         if ( currentUser != null )
         {
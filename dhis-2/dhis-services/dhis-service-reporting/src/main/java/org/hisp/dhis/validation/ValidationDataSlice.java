@@ -0,0 +1,125 @@
+package org.hisp.dhis.validation;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.common.MapMapMap;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
+
+/**
+ * The data needed to evaluate the validation rules of one period type for one
+ * period and a batch of organisation units, fetched in one pass by
+ * {@link ValidationDataSliceLoader}.
+ * <p>
+ * A slice is shared by all tasks evaluating its organisation units, so its
+ * organisation units and data are only exposed as unmodifiable views.
+ */
+public class ValidationDataSlice
+{
+    private final PeriodTypeExtended periodTypeX;
+
+    private final Period period;
+
+    private final List<OrganisationUnit> orgUnits;
+
+    /**
+     * Data for non-sliding window expressions.
+     */
+    private final Map<Long, Map<String, Map<DimensionalItemObject, Double>>> dataMap;
+
+    /**
+     * Data for sliding window expressions.
+     */
+    private final Map<Long, Map<String, Map<DimensionalItemObject, Double>>> slidingWindowDataMap;
+
+    public ValidationDataSlice( PeriodTypeExtended periodTypeX, Period period, List<OrganisationUnit> orgUnits,
+        MapMapMap<Long, String, DimensionalItemObject, Double> dataMap,
+        MapMapMap<Long, String, DimensionalItemObject, Double> slidingWindowDataMap )
+    {
+        this.periodTypeX = periodTypeX;
+        this.period = period;
+        this.orgUnits = Collections.unmodifiableList( orgUnits );
+        this.dataMap = unmodifiable( dataMap );
+        this.slidingWindowDataMap = unmodifiable( slidingWindowDataMap );
+    }
+
+    public PeriodTypeExtended getPeriodTypeX()
+    {
+        return periodTypeX;
+    }
+
+    public Period getPeriod()
+    {
+        return period;
+    }
+
+    public List<OrganisationUnit> getOrgUnits()
+    {
+        return orgUnits;
+    }
+
+    public Map<Long, Map<String, Map<DimensionalItemObject, Double>>> getDataMap()
+    {
+        return dataMap;
+    }
+
+    public Map<Long, Map<String, Map<DimensionalItemObject, Double>>> getSlidingWindowDataMap()
+    {
+        return slidingWindowDataMap;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Wraps every level of the given data map in an unmodifiable view.
+     */
+    private static Map<Long, Map<String, Map<DimensionalItemObject, Double>>> unmodifiable(
+        MapMapMap<Long, String, DimensionalItemObject, Double> map )
+    {
+        Map<Long, Map<String, Map<DimensionalItemObject, Double>>> orgUnitMaps = new HashMap<>( map.size() );
+
+        map.forEach( ( orgUnitId, aocMap ) -> {
+            Map<String, Map<DimensionalItemObject, Double>> aocMaps = new HashMap<>( aocMap.size() );
+
+            aocMap.forEach( ( aoc, values ) -> aocMaps.put( aoc, Collections.unmodifiableMap( values ) ) );
+
+            orgUnitMaps.put( orgUnitId, Collections.unmodifiableMap( aocMaps ) );
+        } );
+
+        return Collections.unmodifiableMap( orgUnitMaps );
+    }
+}
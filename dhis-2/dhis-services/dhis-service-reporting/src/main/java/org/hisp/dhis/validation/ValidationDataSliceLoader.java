@@ -0,0 +1,400 @@
+package org.hisp.dhis.validation;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.hisp.dhis.validation.DataValidationTask.NON_AOC;
+
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.persistence.PersistenceException;
+
+import org.apache.commons.lang3.ObjectUtils;
+import org.hisp.dhis.analytics.AnalyticsService;
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.category.CategoryOptionCombo;
+import org.hisp.dhis.category.CategoryService;
+import org.hisp.dhis.common.BaseIdentifiableObject;
+import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.common.DimensionalObject;
+import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.MapMapMap;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementOperand;
+import org.hisp.dhis.datavalue.DataExportParams;
+import org.hisp.dhis.datavalue.DataValueService;
+import org.hisp.dhis.datavalue.DeflatedDataValue;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.PeriodService;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Loads the data values and analytics data needed to evaluate the validation
+ * rules of a period type for one period and a batch of organisation units.
+ * <p>
+ * The data for the whole batch is fetched with one query per data source, so
+ * that tasks evaluating rules for the organisation units of the batch do not
+ * query overlapping data.
+ */
+@Slf4j
+@Component( "org.hisp.dhis.validation.ValidationDataSliceLoader" )
+public class ValidationDataSliceLoader
+{
+    private final DataValueService dataValueService;
+
+    private final CategoryService categoryService;
+
+    private final PeriodService periodService;
+
+    public ValidationDataSliceLoader( DataValueService dataValueService, CategoryService categoryService,
+        PeriodService periodService )
+    {
+        checkNotNull( dataValueService );
+        checkNotNull( categoryService );
+        checkNotNull( periodService );
+
+        this.dataValueService = dataValueService;
+        this.categoryService = categoryService;
+        this.periodService = periodService;
+    }
+
+    /**
+     * Loads the data for a period type, period and batch of organisation units.
+     *
+     * @param context the validation run context.
+     * @param analyticsService the analytics service to read analytics data from.
+     * @param periodTypeX the period type.
+     * @param period the period.
+     * @param orgUnits the batch of organisation units.
+     * @return the data slice.
+     */
+    @Transactional( readOnly = true )
+    public ValidationDataSlice load( ValidationRunContext context, AnalyticsService analyticsService,
+        PeriodTypeExtended periodTypeX, Period period, List<OrganisationUnit> orgUnits )
+    {
+        MapMapMap<Long, String, DimensionalItemObject, Double> dataMap = getDataValueMap( context, periodTypeX,
+            period, orgUnits );
+
+        dataMap.putMap( getAnalyticsMap( analyticsService, periodTypeX, period, orgUnits, true,
+            periodTypeX.getIndicators() ) );
+
+        MapMapMap<Long, String, DimensionalItemObject, Double> slidingWindowDataMap = new MapMapMap<>();
+
+        if ( periodTypeX.areSlidingWindowsNeeded() )
+        {
+            slidingWindowDataMap.putMap( dataMap );
+
+            slidingWindowDataMap.putMap( getEventMapForSlidingWindow( analyticsService, periodTypeX, period,
+                orgUnits, true, periodTypeX.getEventItems() ) );
+            slidingWindowDataMap.putMap( getEventMapForSlidingWindow( analyticsService, periodTypeX, period,
+                orgUnits, false, periodTypeX.getEventItemsWithoutAttributeOptions() ) );
+        }
+
+        if ( periodTypeX.areNonSlidingWindowsNeeded() )
+        {
+            dataMap.putMap( getAnalyticsMap( analyticsService, periodTypeX, period, orgUnits, true,
+                periodTypeX.getEventItems() ) );
+            dataMap.putMap( getAnalyticsMap( analyticsService, periodTypeX, period, orgUnits, false,
+                periodTypeX.getEventItemsWithoutAttributeOptions() ) );
+        }
+
+        return new ValidationDataSlice( periodTypeX, period, orgUnits, dataMap, slidingWindowDataMap );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Gets data elements and data element operands from the datavalue table.
+     */
+    private MapMapMap<Long, String, DimensionalItemObject, Double> getDataValueMap( ValidationRunContext context,
+        PeriodTypeExtended periodTypeX, Period period, List<OrganisationUnit> orgUnits )
+    {
+        DataExportParams params = new DataExportParams();
+        params.setDataElements( periodTypeX.getDataElements() );
+        params.setDataElementOperands( periodTypeX.getDataElementOperands() );
+        params.setIncludedDate( period.getStartDate() );
+        params.setOrganisationUnits( new HashSet<>( orgUnits ) );
+        params.setPeriodTypes( periodTypeX.getAllowedPeriodTypes() );
+        params.setCoDimensionConstraints( context.getCoDimensionConstraints() );
+        params.setCogDimensionConstraints( context.getCogDimensionConstraints() );
+
+        if ( context.getAttributeCombo() != null )
+        {
+            params.setAttributeOptionCombos( Sets.newHashSet( context.getAttributeCombo() ) );
+        }
+
+        List<DeflatedDataValue> dataValues = dataValueService.getDeflatedDataValues( params );
+
+        MapMapMap<Long, String, DimensionalItemObject, Double> dataMap = new MapMapMap<>();
+
+        MapMapMap<Long, String, DimensionalItemObject, Long> checkForDuplicates = new MapMapMap<>();
+
+        for ( DeflatedDataValue dv : dataValues )
+        {
+            DataElement dataElement = periodTypeX.getDataElementIdMap().get( dv.getDataElementId() );
+            String deoIdKey = periodTypeX.getDeoIds( dv.getDataElementId(), dv.getCategoryOptionComboId() );
+            DataElementOperand dataElementOperand = periodTypeX.getDataElementOperandIdMap().get( deoIdKey );
+            Period p = getPeriod( context, dv.getPeriodId() );
+            long orgUnitId = dv.getSourceId();
+            String attributeOptionComboUid = getAttributeOptionCombo( context, dv.getAttributeOptionComboId() ).getUid();
+            String valueString = dv.getValue();
+            Double value;
+
+            try
+            {
+                value = Double.parseDouble( valueString );
+            }
+            catch ( NumberFormatException | NullPointerException e )
+            {
+                continue;
+            }
+
+            if ( dataElement != null )
+            {
+                addValueToDataMap( dataMap, orgUnitId, attributeOptionComboUid, dataElement, value, p,
+                    checkForDuplicates );
+            }
+
+            if ( dataElementOperand != null )
+            {
+                addValueToDataMap( dataMap, orgUnitId, attributeOptionComboUid, dataElementOperand, value, p,
+                    checkForDuplicates );
+            }
+        }
+
+        return dataMap;
+    }
+
+    private void addValueToDataMap( MapMapMap<Long, String, DimensionalItemObject, Double> dataMap,
+        long orgUnitId, String aocUid, DimensionalItemObject dimItemObject, Double value, Period p,
+        MapMapMap<Long, String, DimensionalItemObject, Long> checkForDuplicates )
+    {
+        double existingValue = ObjectUtils.firstNonNull( dataMap.getValue( orgUnitId, aocUid, dimItemObject ), 0.0 );
+
+        long periodInterval = p.getEndDate().getTime() - p.getStartDate().getTime();
+
+        Long existingPeriodInterval = checkForDuplicates.getValue( orgUnitId, aocUid, dimItemObject );
+
+        if ( existingPeriodInterval != null )
+        {
+            if ( existingPeriodInterval < periodInterval )
+            {
+                return; // Do not overwrite the previous value if for a shorter interval
+            }
+            else if ( existingPeriodInterval > periodInterval )
+            {
+                existingValue = 0.0; // Overwrite previous value if for a longer interval
+            }
+        }
+
+        dataMap.putEntry( orgUnitId, aocUid, dimItemObject, value + existingValue );
+
+        checkForDuplicates.putEntry( orgUnitId, aocUid, dimItemObject, periodInterval );
+    }
+
+    /**
+     * Gets analytics data for the given parameters.
+     *
+     * @param hasAttributeOptions whether the event data has attribute options.
+     */
+    private MapMapMap<Long, String, DimensionalItemObject, Double> getAnalyticsMap( AnalyticsService analyticsService,
+        PeriodTypeExtended periodTypeX, Period period, List<OrganisationUnit> orgUnits,
+        boolean hasAttributeOptions, Set<DimensionalItemObject> analyticsItems )
+    {
+        if ( analyticsItems.isEmpty() )
+        {
+            return new MapMapMap<>();
+        }
+
+        DataQueryParams.Builder paramsBuilder = DataQueryParams.newBuilder()
+            .withDataDimensionItems( Lists.newArrayList( analyticsItems ) )
+            .withAttributeOptionCombos( Lists.newArrayList() )
+            .withFilterPeriods( Lists.newArrayList( period ) )
+            .withOrganisationUnits( orgUnits );
+
+        if ( hasAttributeOptions )
+        {
+            paramsBuilder.withAttributeOptionCombos( Lists.newArrayList() );
+        }
+
+        return getAnalyticsData( analyticsService, periodTypeX, orgUnits, paramsBuilder.build(), hasAttributeOptions );
+    }
+
+    /**
+     * Gets sliding window analytics event data for the given parameters.
+     *
+     * @param hasAttributeOptions whether the event data has attribute options.
+     */
+    private MapMapMap<Long, String, DimensionalItemObject, Double> getEventMapForSlidingWindow(
+        AnalyticsService analyticsService, PeriodTypeExtended periodTypeX, Period period,
+        List<OrganisationUnit> orgUnits, boolean hasAttributeOptions, Set<DimensionalItemObject> eventItems )
+    {
+        if ( eventItems.isEmpty() )
+        {
+            return new MapMapMap<>();
+        }
+
+        // We want to position the sliding window over the most recent data.
+        // To achieve this, we need to satisfy the following criteria:
+        //
+        // 1. Window end should not be later than the current date
+        // 2. Window end should not be later than the period.endDate
+
+        // Criteria 1
+        Calendar endDate = Calendar.getInstance();
+        Calendar startDate = Calendar.getInstance();
+
+        // Criteria 2
+        if ( endDate.getTime().after( period.getEndDate() ) )
+        {
+            endDate.setTime( period.getEndDate() );
+        }
+
+        // The window size is based on the frequencyOrder of the period's periodType:
+        startDate.setTime( endDate.getTime() );
+        startDate.add( Calendar.DATE, (-1 * period.frequencyOrder()) );
+
+        DataQueryParams.Builder paramsBuilder = DataQueryParams.newBuilder()
+            .withDataDimensionItems( Lists.newArrayList( eventItems ) )
+            .withAttributeOptionCombos( Lists.newArrayList() )
+            .withStartDate( startDate.getTime() )
+            .withEndDate( endDate.getTime() )
+            .withOrganisationUnits( orgUnits );
+
+        if ( hasAttributeOptions )
+        {
+            paramsBuilder.withAttributeOptionCombos( Lists.newArrayList() );
+        }
+
+        return getAnalyticsData( analyticsService, periodTypeX, orgUnits, paramsBuilder.build(), hasAttributeOptions );
+    }
+
+    /**
+     * Gets analytics data.
+     *
+     * @param params              event data query parameters.
+     * @param hasAttributeOptions whether the event data has attribute options.
+     * @return event data.
+     */
+    private MapMapMap<Long, String, DimensionalItemObject, Double> getAnalyticsData( AnalyticsService analyticsService,
+        PeriodTypeExtended periodTypeX, List<OrganisationUnit> orgUnits, DataQueryParams params,
+        boolean hasAttributeOptions )
+    {
+        MapMapMap<Long, String, DimensionalItemObject, Double> map = new MapMapMap<>();
+
+        Grid grid;
+
+        try
+        {
+            grid = analyticsService.getAggregatedDataValues( params );
+        }
+        catch ( PersistenceException ex )
+        {
+            return map;
+        }
+
+        int dxInx = grid.getIndexOfHeader( DimensionalObject.DATA_X_DIM_ID );
+        int ouInx = grid.getIndexOfHeader( DimensionalObject.ORGUNIT_DIM_ID );
+        int aoInx = hasAttributeOptions ? grid.getIndexOfHeader( DimensionalObject.ATTRIBUTEOPTIONCOMBO_DIM_ID ) : 0;
+        int vlInx = grid.getWidth() - 1;
+
+        Map<String, OrganisationUnit> ouLookup = orgUnits.stream()
+            .collect( Collectors.toMap(BaseIdentifiableObject::getUid, o -> o ) );
+        Map<String, DimensionalItemObject> dxLookup = periodTypeX.getEventItems().stream()
+            .collect( Collectors.toMap(DimensionalItemObject::getDimensionItem, d -> d ) );
+        dxLookup.putAll( periodTypeX.getIndicators().stream()
+            .collect( Collectors.toMap(DimensionalItemObject::getDimensionItem, d -> d ) ) );
+
+        for ( List<Object> row : grid.getRows() )
+        {
+            String dx = (String) row.get( dxInx );
+            String ao = hasAttributeOptions ? (String) row.get( aoInx ) : NON_AOC;
+            String ou = (String) row.get( ouInx );
+            Double vl = ( (Number)row.get( vlInx ) ).doubleValue();
+
+            OrganisationUnit orgUnit = ouLookup.get( ou );
+            DimensionalItemObject analyticsItem = dxLookup.get( dx );
+
+            map.putEntry( orgUnit.getId(), ao, analyticsItem, vl );
+        }
+
+        return map;
+    }
+
+    private Period getPeriod( ValidationRunContext context, long id )
+    {
+        Period p = context.getPeriodIdMap().get( id );
+
+        if ( p == null )
+        {
+            log.trace("ValidationDataSliceLoader calling getPeriod( id " + id + " )" );
+
+            p = periodService.getPeriod( id );
+
+            log.trace("ValidationDataSliceLoader called getPeriod( id " + id + " )" );
+
+            context.getPeriodIdMap().put( id, p );
+        }
+
+        return p;
+    }
+
+    private CategoryOptionCombo getAttributeOptionCombo( ValidationRunContext context, long id )
+    {
+        CategoryOptionCombo aoc = context.getAocIdMap().get( id );
+
+        if ( aoc == null )
+        {
+            log.trace("ValidationDataSliceLoader calling getCategoryOptionCombo( id " + id + " )" );
+
+            aoc = categoryService.getCategoryOptionCombo( id );
+
+            log.trace("ValidationDataSliceLoader called getCategoryOptionCombo( id " + id + ")" );
+
+            context.getAocIdMap().put( aoc.getId(), aoc );
+            context.getAocUidMap().put( aoc.getUid(), aoc );
+        }
+
+        return aoc;
+    }
+}
@@ -36,6 +36,7 @@ import org.hisp.dhis.common.MapMapMap;
 import org.hisp.dhis.constant.Constant;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
+import org.hisp.dhis.scheduling.JobConfiguration;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
@@ -47,6 +48,7 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class keeps track of a validation analysis. It contains information about the initial params of the analysis,
@@ -58,7 +60,13 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 @Scope( "prototype" )
 public class ValidationRunContext
 {
-    public static final int ORG_UNITS_PER_TASK = 500;
+    public static final int ORG_UNITS_PER_TASK = 100;
+
+    /**
+     * Number of organisation units whose data is fetched together into one
+     * {@link ValidationDataSlice}, and then evaluated by several tasks.
+     */
+    public static final int ORG_UNITS_PER_SLICE = 2000;
 
     private Queue<ValidationResult> validationResults;
 
@@ -86,6 +94,10 @@ public class ValidationRunContext
 
     private boolean persistResults = false;
 
+    private JobConfiguration jobConfiguration;
+
+    private final AtomicLong ruleEvaluations = new AtomicLong();
+
     private MapMapMap<OrganisationUnit, ValidationRule, Period, List<ValidationResult>> initialValidationResults = new MapMapMap<>();
 
     private ValidationRunContext()
@@ -157,6 +169,16 @@ public class ValidationRunContext
         return persistResults;
     }
 
+    public JobConfiguration getJobConfiguration()
+    {
+        return jobConfiguration;
+    }
+
+    public long getRuleEvaluations()
+    {
+        return ruleEvaluations.get();
+    }
+
     public Queue<ValidationResult> getValidationResults()
     {
         return validationResults;
@@ -208,6 +230,11 @@ public class ValidationRunContext
         return ( orgUnits.size() + ORG_UNITS_PER_TASK - 1 ) / ORG_UNITS_PER_TASK;
     }
 
+    public void addRuleEvaluations( long count )
+    {
+        ruleEvaluations.addAndGet( count );
+    }
+
     public boolean isAnalysisComplete()
     {
         return validationResults.size() >= maxResults;
@@ -342,6 +369,12 @@ public class ValidationRunContext
             return this;
         }
 
+        public Builder withJobConfiguration( JobConfiguration jobConfiguration )
+        {
+            this.context.jobConfiguration = jobConfiguration;
+            return this;
+        }
+
         public Builder withInitialResults( Collection<ValidationResult> results )
         {
             this.context.validationResults.addAll( results );
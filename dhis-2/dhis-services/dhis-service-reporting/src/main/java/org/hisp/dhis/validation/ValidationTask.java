@@ -28,7 +28,6 @@ package org.hisp.dhis.validation;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
-import org.hisp.dhis.analytics.AnalyticsService;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 
 import java.util.List;
@@ -36,5 +35,5 @@ import java.util.List;
 public interface ValidationTask
     extends Runnable
 {
-    void init( List<OrganisationUnit> orgUnits, ValidationRunContext context, AnalyticsService analyticsService );
+    void init( List<OrganisationUnit> orgUnits, ValidationRunContext context, ValidationDataSlice slice );
 }
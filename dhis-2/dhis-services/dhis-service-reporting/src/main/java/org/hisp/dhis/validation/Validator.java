@@ -29,30 +29,45 @@ package org.hisp.dhis.validation;
  */
 
 import com.google.common.collect.Lists;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.hisp.dhis.analytics.AnalyticsService;
 import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.system.notification.Notifier;
 import org.springframework.context.ApplicationContext;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Evaluates validation rules.
  * 
  * @author Jim Grace
  */
+@Slf4j
 public class Validator
 {
+    private static final String METRIC_RULE_EVALUATIONS = "validation.rule.evaluations";
+
     /**
      * Evaluates validation rules for a collection of organisation units. This
-     * method breaks the job down by organisation unit. It assigns the
-     * evaluation for each organisation unit to a task that can be evaluated
-     * independently in a multi-threaded environment.
+     * method breaks the job down by period and batch of organisation units.
+     * The data for each batch is loaded once into a {@link ValidationDataSlice},
+     * and the evaluation of the organisation units of the slice is assigned to
+     * tasks that can be evaluated independently in a multi-threaded
+     * environment. The next slice is loaded while the tasks of the previous
+     * slice are evaluated.
      * <p/>
      * Return early with no results if there are no organisation units
      * or no validation rules.
@@ -63,7 +78,12 @@ public class Validator
         ApplicationContext applicationContext, AnalyticsService analyticsService )
     {
         CategoryService categoryService = applicationContext.getBean( CategoryService.class );
-                
+        ValidationDataSliceLoader sliceLoader = applicationContext.getBean( ValidationDataSliceLoader.class );
+        Notifier notifier = applicationContext.getBean( Notifier.class );
+        Counter ruleEvaluationCounter = Counter.builder( METRIC_RULE_EVALUATIONS )
+            .description( "Number of validation rules evaluated for an organisation unit and period" )
+            .register( applicationContext.getBean( MeterRegistry.class ) );
+
         int threadPoolSize = getThreadPoolSize( context );
 
         if ( threadPoolSize == 0 || context.getPeriodTypeXs().isEmpty() )
@@ -73,32 +93,114 @@ public class Validator
 
         ExecutorService executor = Executors.newFixedThreadPool( threadPoolSize );
 
-        List<List<OrganisationUnit>> orgUnitLists = Lists.partition( context.getOrgUnits(), ValidationRunContext.ORG_UNITS_PER_TASK );
+        List<List<OrganisationUnit>> orgUnitSlices = Lists.partition( context.getOrgUnits(), ValidationRunContext.ORG_UNITS_PER_SLICE );
 
-        for ( List<OrganisationUnit> orgUnits : orgUnitLists )
-        {
-            ValidationTask task = (ValidationTask) applicationContext.getBean( DataValidationTask.NAME );
-            task.init( orgUnits, context, analyticsService );
+        int slices = context.getPeriodTypeXs().stream().mapToInt( ptx -> ptx.getPeriods().size() ).sum() * orgUnitSlices.size();
+        int slice = 0;
+        long startTime = System.currentTimeMillis();
 
-            executor.execute( task );
-        }
-
-        executor.shutdown();
+        List<Future<?>> previousTasks = new ArrayList<>();
 
         try
         {
-            executor.awaitTermination( 6, TimeUnit.HOURS );
+            loop:
+            for ( PeriodTypeExtended periodTypeX : context.getPeriodTypeXs() )
+            {
+                for ( Period period : periodTypeX.getPeriods() )
+                {
+                    for ( List<OrganisationUnit> orgUnitSlice : orgUnitSlices )
+                    {
+                        if ( context.isAnalysisComplete() || Thread.currentThread().isInterrupted() )
+                        {
+                            break loop;
+                        }
+
+                        ValidationDataSlice dataSlice = sliceLoader.load( context, analyticsService, periodTypeX, period, orgUnitSlice );
+
+                        awaitTasks( previousTasks );
+
+                        notifyProgress( context, notifier, slice++, slices, startTime );
+
+                        previousTasks = new ArrayList<>();
+
+                        for ( List<OrganisationUnit> orgUnits : Lists.partition( orgUnitSlice, ValidationRunContext.ORG_UNITS_PER_TASK ) )
+                        {
+                            ValidationTask task = (ValidationTask) applicationContext.getBean( DataValidationTask.NAME );
+                            task.init( orgUnits, context, dataSlice );
+
+                            previousTasks.add( executor.submit( task ) );
+                        }
+                    }
+                }
+            }
+
+            awaitTasks( previousTasks );
         }
-        catch ( InterruptedException e )
+        finally
         {
             executor.shutdownNow();
         }
 
+        long elapsedMillis = Math.max( System.currentTimeMillis() - startTime, 1 );
+
+        ruleEvaluationCounter.increment( context.getRuleEvaluations() );
+
+        log.info( "Evaluated " + context.getRuleEvaluations() + " validation rules in " + elapsedMillis + " ms, "
+            + ( context.getRuleEvaluations() * 1000 / elapsedMillis ) + " per second" );
+
         reloadAttributeOptionCombos( context.getValidationResults(), categoryService );
 
         return context.getValidationResults();
     }
 
+    /**
+     * Waits for the given evaluation tasks to finish.
+     *
+     * @param tasks the tasks to wait for.
+     */
+    private static void awaitTasks( List<Future<?>> tasks )
+    {
+        for ( Future<?> task : tasks )
+        {
+            try
+            {
+                task.get( 6, TimeUnit.HOURS );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch ( ExecutionException | TimeoutException e )
+            {
+                log.error( "Validation task failed", e );
+            }
+        }
+    }
+
+    /**
+     * Reports the progress of the validation analysis, if run as a job.
+     *
+     * @param context validation run context
+     * @param notifier the notifier
+     * @param slice number of data slices evaluated so far
+     * @param slices total number of data slices
+     * @param startTime when the evaluation started
+     */
+    private static void notifyProgress( ValidationRunContext context, Notifier notifier, int slice, int slices,
+        long startTime )
+    {
+        if ( context.getJobConfiguration() == null )
+        {
+            return;
+        }
+
+        long elapsedSeconds = Math.max( ( System.currentTimeMillis() - startTime ) / 1000, 1 );
+
+        notifier.notify( context.getJobConfiguration(), "Validated " + slice + " of " + slices + " data slices, "
+            + ( context.getRuleEvaluations() / elapsedSeconds ) + " rule evaluations per second" );
+    }
+
     /**
      * Determines how many threads we should use for testing validation rules.
      * 
@@ -159,6 +159,7 @@ public class MonitoringJob
                 .withMaxResults( ValidationService.MAX_SCHEDULED_ALERTS )
                 .withSendNotifications( monitoringJobParameters.isSendNotifications() )
                 .withPersistResults( monitoringJobParameters.isPersistResults() )
+                .withJobConfiguration( jobConfiguration )
                 .build();
 
             validationService.validationAnalysis( parameters );
@@ -33,6 +33,8 @@ import static org.hisp.dhis.DhisConvenienceTest.*;
 import static org.hisp.dhis.expression.ParseType.SIMPLE_TEST;
 import static org.hisp.dhis.expression.ParseType.VALIDATION_RULE_EXPRESSION;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 
@@ -45,7 +47,9 @@ import org.apache.commons.lang3.RandomUtils;
 import org.hisp.dhis.analytics.AnalyticsService;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.category.CategoryService;
+import org.hisp.dhis.common.CodeGenerator;
 import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.common.MapMapMap;
 import org.hisp.dhis.constant.Constant;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.datavalue.DataExportParams;
@@ -66,6 +70,8 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import com.google.common.collect.Lists;
+
 /**
  * @author Luciano Fiandesio
  */
@@ -91,6 +97,7 @@ public class DataValidationTaskTest
 
     private PeriodType MONTHLY = PeriodType.getPeriodTypeFromIsoString( "201901" );
     private DataValidationTask subject;
+    private ValidationDataSliceLoader sliceLoader;
     private DataElement deA;
     private List<OrganisationUnit> organisationUnits;
     private OrganisationUnit ouA;
@@ -104,7 +111,8 @@ public class DataValidationTaskTest
     @Before
     public void setUp()
     {
-        subject = new DataValidationTask( expressionService, dataValueService, categoryService, periodService );
+        subject = new DataValidationTask( expressionService, categoryService, periodService );
+        sliceLoader = new ValidationDataSliceLoader( dataValueService, categoryService, periodService );
 
         deA = createDataElement( 'A' );
 
@@ -173,8 +181,7 @@ public class DataValidationTaskTest
 
         when( expressionService.getExpressionValue( "8.4!=-10.0", SIMPLE_TEST ) ).thenReturn( true );
 
-        subject.init( organisationUnits, ctx, analyticsService );
-        subject.run();
+        runValidation( ctx );
 
         assertThat( ctx.getValidationResults().size(), is( 0 ) );
     }
@@ -208,13 +215,130 @@ public class DataValidationTaskTest
         when( dataValueService.getDeflatedDataValues( any( DataExportParams.class ) ) )
                 .thenReturn( deflatedDataValues );
 
-        subject.init( organisationUnits, ctx, analyticsService );
-        subject.run();
+        runValidation( ctx );
+
+        assertThat( ctx.getValidationResults().size(), is( 0 ) );
+    }
+
+    @Test
+    public void verifySliceIsUnmodifiable()
+    {
+        MapMapMap<Long, String, DimensionalItemObject, Double> dataMap = new MapMapMap<>();
+        dataMap.putEntry( ouA.getId(), "HllvX50cXC0", deA, 12.4 );
+
+        ValidationDataSlice slice = new ValidationDataSlice( new PeriodTypeExtended( MONTHLY ), p1,
+            new ArrayList<>( organisationUnits ), dataMap, new MapMapMap<>() );
+
+        assertUnsupported( () -> slice.getOrgUnits().add( ouA ) );
+        assertUnsupported( () -> slice.getDataMap().put( ouB.getId(), new HashMap<>() ) );
+        assertUnsupported( () -> slice.getDataMap().get( ouA.getId() ).put( "HllvX50cXC0", new HashMap<>() ) );
+        assertUnsupported( () -> slice.getDataMap().get( ouA.getId() ).get( "HllvX50cXC0" ).put( deA, 0d ) );
+        assertUnsupported( () -> slice.getSlidingWindowDataMap().put( ouA.getId(), new HashMap<>() ) );
+
+        dataMap.putEntry( ouB.getId(), "HllvX50cXC0", deA, 1d );
+
+        assertThat( slice.getDataMap().size(), is( 1 ) );
+    }
+
+    /**
+     * Verify that when the organisation units span more than one slice and
+     * several tasks per slice, every organisation unit is evaluated exactly
+     * once per period against the slice loaded for its batch.
+     */
+    @Test
+    public void verifyValidationOfOrgUnitsAcrossSlicesAndTasks()
+    {
+        Expression leftExpression = createExpression2( 'A', "#{FUrCpcvMAmC.OrDRjJL9bTS}" );
+        Expression rightExpression = createExpression2( 'B', "-10" );
+
+        ValidationRuleExtended vre = createValidationRuleExtended( leftExpression, rightExpression, Operator.not_equal_to );
+
+        PeriodTypeExtended periodType = createPeriodTypeExtended( vre );
+        periodType.addDataElement( deA );
+
+        int orgUnitCount = ValidationRunContext.ORG_UNITS_PER_SLICE + ValidationRunContext.ORG_UNITS_PER_TASK + 1;
+
+        List<OrganisationUnit> orgUnits = new ArrayList<>();
 
+        for ( int i = 0; i < orgUnitCount; i++ )
+        {
+            OrganisationUnit organisationUnit = createOrganisationUnit( 'A' );
+            organisationUnit.setId( i + 1 );
+            organisationUnit.setUid( CodeGenerator.generateUid() );
+            orgUnits.add( organisationUnit );
+        }
+
+        ValidationRunContext ctx = ValidationRunContext.newBuilder()
+            .withOrgUnits( orgUnits )
+            .withConstantMap( constantMap )
+            .withDefaultAttributeCombo( createCategoryOptionCombo( 'A', 'B' ) )
+            .withPeriodTypeXs( Lists.newArrayList( periodType ) )
+            .withMaxResults( 500 )
+            .build();
+
+        when( dataValueService.getDeflatedDataValues( any( DataExportParams.class ) ) )
+            .thenReturn( new ArrayList<>() );
+
+        List<List<OrganisationUnit>> orgUnitSlices = Lists.partition( ctx.getOrgUnits(),
+            ValidationRunContext.ORG_UNITS_PER_SLICE );
+
+        assertThat( orgUnitSlices.size(), is( 2 ) );
+        assertThat( ctx.getNumberOfTasks(), is( ValidationRunContext.ORG_UNITS_PER_SLICE
+            / ValidationRunContext.ORG_UNITS_PER_TASK + 2 ) );
+
+        int tasks = 0;
+
+        for ( Period period : periodType.getPeriods() )
+        {
+            for ( List<OrganisationUnit> orgUnitSlice : orgUnitSlices )
+            {
+                ValidationDataSlice slice = sliceLoader.load( ctx, analyticsService, periodType, period, orgUnitSlice );
+
+                assertThat( slice.getOrgUnits(), is( orgUnitSlice ) );
+
+                for ( List<OrganisationUnit> taskOrgUnits : Lists.partition( slice.getOrgUnits(),
+                    ValidationRunContext.ORG_UNITS_PER_TASK ) )
+                {
+                    DataValidationTask task = new DataValidationTask( expressionService, categoryService, periodService );
+                    task.init( taskOrgUnits, ctx, slice );
+                    task.run();
+                    tasks++;
+                }
+
+                assertTrue( slice.getDataMap().isEmpty() );
+            }
+        }
+
+        assertThat( tasks, is( periodType.getPeriods().size() * ctx.getNumberOfTasks() ) );
+        assertThat( ctx.getRuleEvaluations(), is( (long) periodType.getPeriods().size() * orgUnitCount ) );
         assertThat( ctx.getValidationResults().size(), is( 0 ) );
     }
 
+    private void assertUnsupported( Runnable modification )
+    {
+        try
+        {
+            modification.run();
+            fail( "Expected the slice to be unmodifiable" );
+        }
+        catch ( UnsupportedOperationException ex )
+        {
+            // Expected
+        }
+    }
 
+    private void runValidation( ValidationRunContext ctx )
+    {
+        for ( PeriodTypeExtended periodTypeX : ctx.getPeriodTypeXs() )
+        {
+            for ( Period period : periodTypeX.getPeriods() )
+            {
+                subject.init( organisationUnits, ctx,
+                    sliceLoader.load( ctx, analyticsService, periodTypeX, period, organisationUnits ) );
+                subject.run();
+            }
+        }
+    }
 
     private void mockExpressionService(Expression expression, Map<DimensionalItemObject, Double> vals, ValidationRunContext ctx, Double val) {
 
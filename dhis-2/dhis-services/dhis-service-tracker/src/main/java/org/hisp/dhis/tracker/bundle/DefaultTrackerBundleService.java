@@ -36,6 +36,7 @@ import org.hisp.dhis.dbms.DbmsManager;
 import org.hisp.dhis.fileresource.FileResource;
 import org.hisp.dhis.program.ProgramInstance;
 import org.hisp.dhis.program.ProgramStageInstance;
+import org.hisp.dhis.relationship.RelationshipItem;
 import org.hisp.dhis.reservedvalue.ReservedValueService;
 import org.hisp.dhis.rules.models.RuleEffect;
 import org.hisp.dhis.trackedentity.TrackedEntityAttribute;
@@ -68,6 +69,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import com.google.common.collect.ImmutableList;
+
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -84,6 +87,15 @@ import static com.google.api.client.util.Preconditions.checkNotNull;
 public class DefaultTrackerBundleService
     implements TrackerBundleService
 {
+    /**
+     * Types written by a bundle commit, which are evicted from the
+     * second-level cache after the commit.
+     */
+    private static final List<Class<?>> COMMITTED_TYPES = ImmutableList.of(
+        TrackedEntityInstance.class, TrackedEntityAttributeValue.class, ProgramInstance.class,
+        ProgramStageInstance.class, org.hisp.dhis.relationship.Relationship.class, RelationshipItem.class,
+        TrackedEntityComment.class, FileResource.class );
+
     private final TrackerPreheatService trackerPreheatService;
 
     private final TrackerConverterService<TrackedEntity, TrackedEntityInstance> teConverter;
@@ -223,7 +235,7 @@ public class DefaultTrackerBundleService
         bundleHooks.forEach( hook -> hook.postCommit( bundle ) );
 
         dbmsManager.clearSession();
-        cacheManager.clearCache();
+        cacheManager.clearObjectCache( COMMITTED_TYPES );
 
         return bundleReport;
     }
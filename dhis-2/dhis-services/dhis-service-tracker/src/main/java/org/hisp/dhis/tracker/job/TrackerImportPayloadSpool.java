@@ -0,0 +1,202 @@
+package org.hisp.dhis.tracker.job;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.hisp.dhis.fileresource.FileResource;
+import org.hisp.dhis.fileresource.FileResourceContentStore;
+import org.hisp.dhis.tracker.TrackerImportParams;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Spools the payload of asynchronous tracker imports to the file resource
+ * content store, so that only a reference to it is sent through the message
+ * broker. The payload is written to and read from the store as a stream.
+ * <p>
+ * A payload is deleted when its import job completes. Payloads which are
+ * left behind, for instance when a node stops before running the job, are
+ * deleted periodically once older than {@link #STALE_AGE_MILLIS}.
+ */
+@Slf4j
+@Component
+public class TrackerImportPayloadSpool
+{
+    private static final String DIRECTORY = "tracker-import";
+
+    private static final String KEY_PREFIX = DIRECTORY + "/";
+
+    private static final long STALE_AGE_MILLIS = TimeUnit.DAYS.toMillis( 1 );
+
+    private static final long CLEANUP_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis( 1 );
+
+    private final FileResourceContentStore fileResourceContentStore;
+
+    private final ObjectMapper objectMapper;
+
+    private final TaskScheduler scheduler;
+
+    public TrackerImportPayloadSpool( FileResourceContentStore fileResourceContentStore, ObjectMapper objectMapper,
+        TaskScheduler scheduler )
+    {
+        checkNotNull( fileResourceContentStore );
+        checkNotNull( objectMapper );
+        checkNotNull( scheduler );
+
+        this.fileResourceContentStore = fileResourceContentStore;
+        this.objectMapper = objectMapper;
+        this.scheduler = scheduler;
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        Date startTime = new Date( System.currentTimeMillis() + CLEANUP_INTERVAL_MILLIS );
+
+        scheduler.scheduleWithFixedDelay( this::deleteStalePayloads, startTime, CLEANUP_INTERVAL_MILLIS );
+    }
+
+    /**
+     * Writes the given import parameters to the store.
+     *
+     * @param jobId the identifier of the import job.
+     * @param params the import parameters.
+     * @return the key of the stored payload.
+     * @throws IOException if the payload could not be written or stored.
+     */
+    public String spool( String jobId, TrackerImportParams params )
+        throws IOException
+    {
+        File file = File.createTempFile( "tracker-import-", ".json" );
+
+        try
+        {
+            try ( OutputStream out = new BufferedOutputStream( Files.newOutputStream( file.toPath() ) ) )
+            {
+                objectMapper.writeValue( out, params );
+            }
+
+            FileResource fileResource = new FileResource();
+            fileResource.setName( jobId + ".json" );
+            fileResource.setContentType( MimeTypeUtils.APPLICATION_JSON_VALUE );
+            fileResource.setContentLength( file.length() );
+            fileResource.setContentMd5(
+                com.google.common.io.Files.asByteSource( file ).hash( Hashing.md5() ).toString() );
+            fileResource.setStorageKey( KEY_PREFIX + jobId );
+
+            String key = fileResourceContentStore.saveFileResourceContent( fileResource, file );
+
+            if ( key == null )
+            {
+                throw new IOException( "Tracker import payload could not be stored for job: " + jobId );
+            }
+
+            log.debug( String.format( "Tracker import payload of %d bytes stored with key: %s",
+                fileResource.getContentLength(), key ) );
+
+            return key;
+        }
+        finally
+        {
+            Files.deleteIfExists( file.toPath() );
+        }
+    }
+
+    /**
+     * Reads the import parameters stored with the given key.
+     *
+     * @param key the key of the stored payload.
+     * @return the import parameters.
+     * @throws IOException if the payload could not be found or read.
+     */
+    public TrackerImportParams load( String key )
+        throws IOException
+    {
+        try ( InputStream in = fileResourceContentStore.getFileResourceContent( key ) )
+        {
+            if ( in == null )
+            {
+                throw new IOException( "Tracker import payload not found with key: " + key );
+            }
+
+            return objectMapper.readValue( in, TrackerImportParams.class );
+        }
+    }
+
+    /**
+     * Removes the payload stored with the given key.
+     *
+     * @param key the key of the stored payload.
+     */
+    public void delete( String key )
+    {
+        fileResourceContentStore.deleteFileResourceContent( key );
+    }
+
+    /**
+     * Removes the payloads which were stored more than
+     * {@link #STALE_AGE_MILLIS} ago, as their import jobs are not expected to
+     * run anymore.
+     */
+    public void deleteStalePayloads()
+    {
+        try
+        {
+            int deleted = fileResourceContentStore.deleteFileResourceContentOlderThan( DIRECTORY,
+                new Date( System.currentTimeMillis() - STALE_AGE_MILLIS ) );
+
+            if ( deleted > 0 )
+            {
+                log.info( String.format( "Deleted %d stale tracker import payloads", deleted ) );
+            }
+        }
+        catch ( RuntimeException ex )
+        {
+            log.warn( "Failed to delete stale tracker import payloads", ex );
+        }
+    }
+}
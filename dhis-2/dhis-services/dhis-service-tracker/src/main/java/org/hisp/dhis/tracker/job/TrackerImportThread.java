@@ -46,11 +46,16 @@ public class TrackerImportThread
 {
     private final TrackerImportService trackerImportService;
 
+    private final TrackerImportPayloadSpool payloadSpool;
+
     private TrackerImportParams trackerImportParams;
 
-    public TrackerImportThread( TrackerImportService trackerImportService )
+    private String payloadKey;
+
+    public TrackerImportThread( TrackerImportService trackerImportService, TrackerImportPayloadSpool payloadSpool )
     {
         this.trackerImportService = trackerImportService;
+        this.payloadSpool = payloadSpool;
     }
 
     @Override
@@ -63,8 +68,26 @@ public class TrackerImportThread
             .importTracker( trackerImportParams ); // discard returned report, it has been put on the jobs endpoint
     }
 
+    /**
+     * Removes the spooled payload of the import once the job has completed,
+     * whether or not it succeeded.
+     */
+    @Override
+    public void after()
+    {
+        if ( payloadKey != null )
+        {
+            payloadSpool.delete( payloadKey );
+        }
+    }
+
     public void setTrackerImportParams( TrackerImportParams trackerImportParams )
     {
         this.trackerImportParams = trackerImportParams;
     }
+
+    public void setPayloadKey( String payloadKey )
+    {
+        this.payloadKey = payloadKey;
+    }
 }
@@ -39,7 +39,8 @@ import org.hisp.dhis.tracker.TrackerImportParams;
 
 /**
  * Used by Apache Artemis to pass tracker import jobs from the /api/tracker endpoint to the
- * tracker import services.
+ * tracker import services. The import parameters are either passed inline, or spooled by
+ * the {@link TrackerImportPayloadSpool} and referred to by their payload key.
  *
  * @author Morten Olav Hansen <mortenoh@gmail.com>
  */
@@ -54,6 +55,9 @@ public class TrackerMessage implements SerializableMessage
     @JsonProperty
     private final TrackerImportParams trackerImportParams;
 
+    @JsonProperty
+    private final String payloadKey;
+
     @Override
     public MessageType getMessageType()
     {
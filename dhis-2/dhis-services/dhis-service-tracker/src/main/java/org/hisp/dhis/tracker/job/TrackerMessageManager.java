@@ -28,8 +28,8 @@ package org.hisp.dhis.tracker.job;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
 import org.hisp.dhis.artemis.MessageManager;
 import org.hisp.dhis.artemis.Topics;
 import org.hisp.dhis.common.CodeGenerator;
@@ -43,10 +43,12 @@ import org.springframework.stereotype.Component;
 
 import javax.jms.JMSException;
 import javax.jms.TextMessage;
+import java.io.IOException;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
  */
+@Slf4j
 @Component
 public class TrackerMessageManager
 {
@@ -58,40 +60,76 @@ public class TrackerMessageManager
 
     private final ObjectFactory<TrackerImportThread> trackerImportThreadFactory;
 
+    private final TrackerImportPayloadSpool payloadSpool;
+
     public TrackerMessageManager(
         MessageManager messageManager,
         ObjectMapper objectMapper,
         SchedulingManager schedulingManager,
-        ObjectFactory<TrackerImportThread> trackerImportThreadFactory )
+        ObjectFactory<TrackerImportThread> trackerImportThreadFactory,
+        TrackerImportPayloadSpool payloadSpool )
     {
         this.messageManager = messageManager;
         this.objectMapper = objectMapper;
         this.schedulingManager = schedulingManager;
         this.trackerImportThreadFactory = trackerImportThreadFactory;
+        this.payloadSpool = payloadSpool;
     }
 
+    /**
+     * Adds an import job. The import parameters are spooled to the file
+     * resource content store and only a reference to them is sent to the
+     * message broker, to keep large payloads out of broker memory. The
+     * payload is removed again if the message could not be sent.
+     *
+     * @param params the import parameters.
+     * @return the job identifier.
+     * @throws IOException if the import parameters could not be spooled.
+     */
     public String addJob( TrackerImportParams params )
+        throws IOException
     {
         String jobId = CodeGenerator.generateUid();
 
+        String payloadKey = payloadSpool.spool( jobId, params );
+
         TrackerMessage trackerMessage = TrackerMessage.builder()
-            .uid( jobId ).trackerImportParams( params )
+            .uid( jobId ).payloadKey( payloadKey )
             .build();
 
-        messageManager.sendQueue( Topics.TRACKER_IMPORT_JOB_TOPIC_NAME, trackerMessage );
+        try
+        {
+            messageManager.sendQueue( Topics.TRACKER_IMPORT_JOB_TOPIC_NAME, trackerMessage );
+        }
+        catch ( RuntimeException ex )
+        {
+            payloadSpool.delete( payloadKey );
+
+            throw ex;
+        }
 
         return jobId;
     }
 
     @JmsListener( destination = Topics.TRACKER_IMPORT_JOB_TOPIC_NAME, containerFactory = "jmsQueueListenerContainerFactory" )
     public void consume( TextMessage message )
-        throws JMSException, JsonProcessingException
+        throws JMSException, IOException
     {
         String payload = message.getText();
 
         TrackerMessage trackerMessage = objectMapper.readValue( payload, TrackerMessage.class );
         TrackerImportParams trackerImportParams = trackerMessage.getTrackerImportParams();
 
+        // The payload is kept until the job completes, so that the message can
+        // be redelivered if the job can not be started
+
+        if ( trackerMessage.getPayloadKey() != null )
+        {
+            trackerImportParams = payloadSpool.load( trackerMessage.getPayloadKey() );
+
+            log.debug( "Tracker import payload loaded for job: " + trackerMessage.getUid() );
+        }
+
         JobConfiguration jobConfiguration = new JobConfiguration(
             "",
             JobType.TRACKER_IMPORT_JOB,
@@ -104,6 +142,7 @@ public class TrackerMessageManager
 
         TrackerImportThread trackerImportThread = trackerImportThreadFactory.getObject();
         trackerImportThread.setTrackerImportParams( trackerImportParams );
+        trackerImportThread.setPayloadKey( trackerMessage.getPayloadKey() );
 
         schedulingManager.executeJob( trackerImportThread );
     }
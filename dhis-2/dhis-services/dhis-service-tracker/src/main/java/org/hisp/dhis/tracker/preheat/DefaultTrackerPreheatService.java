@@ -56,6 +56,7 @@ import org.hisp.dhis.relationship.RelationshipStore;
 import org.hisp.dhis.relationship.RelationshipType;
 import org.hisp.dhis.schema.Schema;
 import org.hisp.dhis.schema.SchemaService;
+import org.hisp.dhis.security.acl.AclService;
 import org.hisp.dhis.trackedentity.TrackedEntityInstance;
 import org.hisp.dhis.trackedentity.TrackedEntityInstanceStore;
 import org.hisp.dhis.trackedentity.TrackedEntityType;
@@ -73,9 +74,12 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static com.google.api.client.util.Preconditions.checkNotNull;
 
@@ -108,6 +112,10 @@ public class DefaultTrackerPreheatService
 
     private final RelationshipStore relationshipStore;
 
+    private final AclService aclService;
+
+    private final TrackerPreheatMetadataCache metadataCache;
+
     private List<TrackerPreheatHook> preheatHooks = new ArrayList<>();
 
     @Autowired( required = false )
@@ -125,8 +133,13 @@ public class DefaultTrackerPreheatService
         TrackedEntityInstanceStore trackedEntityInstanceStore,
         ProgramInstanceStore programInstanceStore,
         ProgramStageInstanceStore programStageInstanceStore,
-        RelationshipStore relationshipStore )
+        RelationshipStore relationshipStore,
+        AclService aclService,
+        TrackerPreheatMetadataCache metadataCache )
     {
+        checkNotNull( aclService );
+        checkNotNull( metadataCache );
+
         this.schemaService = schemaService;
         this.queryService = queryService;
         this.manager = manager;
@@ -136,6 +149,8 @@ public class DefaultTrackerPreheatService
         this.programInstanceStore = programInstanceStore;
         this.programStageInstanceStore = programStageInstanceStore;
         this.relationshipStore = relationshipStore;
+        this.aclService = aclService;
+        this.metadataCache = metadataCache;
     }
 
     @Override
@@ -247,10 +262,10 @@ public class DefaultTrackerPreheatService
         }
 
         // since TrackedEntityTypes are not really required by incoming payload, and they are small in size/count, we preload them all here
-        preheat.put( TrackerIdentifier.UID, manager.getAll( TrackedEntityType.class ) );
+        preheat.put( TrackerIdentifier.UID, getAllCached( preheat, TrackedEntityType.class ) );
 
         // since RelationshipTypes are not really required by incoming payload, and they are small in size/count, we preload them all here
-        preheat.put( TrackerIdentifier.UID, manager.getAll( RelationshipType.class ) );
+        preheat.put( TrackerIdentifier.UID, getAllCached( preheat, RelationshipType.class ) );
 
         periodStore.getAll().forEach( period -> preheat.getPeriodMap().put( period.getName(), period ) );
         periodStore.getAllPeriodTypes()
@@ -289,9 +304,23 @@ public class DefaultTrackerPreheatService
         List<List<String>> splitList )
     {
         TrackerIdScheme idScheme = identifier.getIdScheme();
+        boolean cacheable = metadataCache.isCacheable( identifier );
+
         for ( List<String> ids : splitList )
         {
             List<? extends IdentifiableObject> objects;
+            long version = 0;
+
+            if ( cacheable )
+            {
+                version = metadataCache.getVersion( schema.getKlass() );
+                ids = getCachedObjects( preheat, schema, identifier, ids, version );
+
+                if ( ids.isEmpty() )
+                {
+                    continue;
+                }
+            }
 
             if ( TrackerIdScheme.ATTRIBUTE.equals( idScheme ) )
             {
@@ -309,10 +338,79 @@ public class DefaultTrackerPreheatService
                 objects = queryService.query( query );
             }
 
+            if ( cacheable )
+            {
+                metadataCache.putIds( schema.getKlass(), identifier, objects, version );
+            }
+
             preheat.put( identifier, objects );
         }
     }
 
+    /**
+     * Puts the objects found in the metadata cache into the preheat, applying
+     * sharing for the preheat user.
+     *
+     * @return the identifiers which were not found in the cache.
+     */
+    @SuppressWarnings( "unchecked" )
+    private List<String> getCachedObjects( TrackerPreheat preheat, Schema schema, TrackerIdentifier identifier,
+        List<String> ids, long version )
+    {
+        Map<String, Long> cachedIds = metadataCache.getIds( schema.getKlass(), identifier, ids, version );
+
+        if ( cachedIds.isEmpty() )
+        {
+            return ids;
+        }
+
+        Class<? extends IdentifiableObject> klass = (Class<? extends IdentifiableObject>) schema.getKlass();
+        Set<String> found = new HashSet<>();
+        List<IdentifiableObject> objects = new ArrayList<>();
+
+        for ( Map.Entry<String, Long> entry : cachedIds.entrySet() )
+        {
+            IdentifiableObject object = manager.get( klass, entry.getValue() );
+
+            // deleted since it was cached, let the query decide
+
+            if ( object == null )
+            {
+                continue;
+            }
+
+            found.add( entry.getKey() );
+
+            if ( !schema.isShareable() || aclService.canRead( preheat.getUser(), object ) )
+            {
+                objects.add( object );
+            }
+        }
+
+        preheat.put( identifier, objects );
+
+        return ids.stream()
+            .filter( id -> !found.contains( id ) )
+            .collect( Collectors.toList() );
+    }
+
+    /**
+     * Returns all objects of the given type readable by the preheat user. The
+     * database identifiers are cached, the objects are loaded in the current
+     * session.
+     */
+    private <T extends IdentifiableObject> List<T> getAllCached( TrackerPreheat preheat, Class<T> klass )
+    {
+        Collection<Long> ids = metadataCache.getAllIds( klass, () -> manager.getAllNoAcl( klass ).stream()
+            .map( IdentifiableObject::getId )
+            .collect( Collectors.toList() ) );
+
+        return ids.stream()
+            .map( id -> manager.get( klass, id ) )
+            .filter( object -> object != null && aclService.canRead( preheat.getUser(), object ) )
+            .collect( Collectors.toList() );
+    }
+
     private User getImportingUser( User user )
     {
         // ıf user already set, reload the user to make sure its loaded in the current tx
@@ -0,0 +1,202 @@
+package org.hisp.dhis.tracker.preheat;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.hisp.dhis.cache.MetadataChangeTracker;
+import org.hisp.dhis.cache.MetadataVersionedCache;
+import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.commons.util.SystemUtils;
+import org.hisp.dhis.tracker.TrackerIdScheme;
+import org.hisp.dhis.tracker.TrackerIdentifier;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache of tracker metadata shared across imports. It maps the identifiers
+ * used in tracker payloads to database identifiers, and keeps the database
+ * identifiers of metadata which is preheated in full. Entries are stamped with
+ * the version of their metadata type from the {@link MetadataChangeTracker},
+ * and are not used once metadata of that type has changed. The caches of a
+ * type are also cleared as soon as the tracker reports a change to it, on this
+ * or another node of the cluster, and entries expire an hour after they were
+ * loaded to bound the staleness after changes made outside of Hibernate.
+ * <p>
+ * Only identifiers are cached, as metadata objects are bound to the session of
+ * an import. Imports load the objects by database identifier, which is served
+ * by the Hibernate second level cache. Caching is disabled in test runs.
+ */
+@Component
+public class TrackerPreheatMetadataCache
+{
+    private static final long MAX_CACHE_ENTRIES = 100_000;
+
+    private static final String ALL_KEY = "all";
+
+    private final MetadataChangeTracker metadataChangeTracker;
+
+    private final long maxEntries;
+
+    private final Map<Class<?>, MetadataVersionedCache<Long>> identifierCaches = new ConcurrentHashMap<>();
+
+    private final Map<Class<?>, MetadataVersionedCache<List<Long>>> allIdCaches = new ConcurrentHashMap<>();
+
+    public TrackerPreheatMetadataCache( MetadataChangeTracker metadataChangeTracker, Environment environment )
+    {
+        checkNotNull( metadataChangeTracker );
+        checkNotNull( environment );
+
+        this.metadataChangeTracker = metadataChangeTracker;
+        this.maxEntries = SystemUtils.isTestRun( environment.getActiveProfiles() ) ? 0 : MAX_CACHE_ENTRIES;
+    }
+
+    /**
+     * Indicates whether objects referred to with the given identifier scheme
+     * can be cached.
+     */
+    public boolean isCacheable( TrackerIdentifier identifier )
+    {
+        return maxEntries > 0 && (TrackerIdScheme.UID.equals( identifier.getIdScheme() )
+            || TrackerIdScheme.CODE.equals( identifier.getIdScheme() ));
+    }
+
+    /**
+     * Returns the current version of the given metadata type. Read it before
+     * querying objects to be passed to {@link #putIds}.
+     */
+    public long getVersion( Class<?> klass )
+    {
+        return getIdentifierCache( klass ).getVersion();
+    }
+
+    /**
+     * Returns the cached database identifiers of the given objects.
+     *
+     * @param klass the metadata type.
+     * @param identifier the identifier scheme of the identifiers.
+     * @param identifiers the identifiers.
+     * @param version the current version of the metadata type.
+     * @return a map of identifiers to database identifiers, for the
+     *         identifiers found in the cache.
+     */
+    public Map<String, Long> getIds( Class<?> klass, TrackerIdentifier identifier, Collection<String> identifiers,
+        long version )
+    {
+        MetadataVersionedCache<Long> cache = getIdentifierCache( klass );
+
+        Map<String, Long> ids = new HashMap<>();
+
+        for ( String id : identifiers )
+        {
+            Long cached = cache.getIfCurrent( getKey( identifier, id ), version );
+
+            if ( cached != null )
+            {
+                ids.put( id, cached );
+            }
+        }
+
+        return ids;
+    }
+
+    /**
+     * Caches the database identifiers of the given objects.
+     *
+     * @param klass the metadata type.
+     * @param identifier the identifier scheme.
+     * @param objects the objects.
+     * @param version the version of the metadata type read before the
+     *        objects were queried.
+     */
+    public void putIds( Class<?> klass, TrackerIdentifier identifier, Collection<? extends IdentifiableObject> objects,
+        long version )
+    {
+        MetadataVersionedCache<Long> cache = getIdentifierCache( klass );
+
+        for ( IdentifiableObject object : objects )
+        {
+            String id = identifier.getIdentifier( object );
+
+            if ( id != null )
+            {
+                cache.put( getKey( identifier, id ), object.getId(), version );
+            }
+        }
+    }
+
+    /**
+     * Returns the database identifiers of all objects of the given metadata
+     * type, loading them with the given supplier when not cached.
+     *
+     * @param klass the metadata type.
+     * @param loader the supplier of the database identifiers.
+     * @return the database identifiers.
+     */
+    public List<Long> getAllIds( Class<?> klass, Supplier<List<Long>> loader )
+    {
+        return allIdCaches
+            .computeIfAbsent( klass, k -> createCache( "trackerPreheatAll", k ) )
+            .get( ALL_KEY, key -> loader.get() );
+    }
+
+    private MetadataVersionedCache<Long> getIdentifierCache( Class<?> klass )
+    {
+        return identifierCaches.computeIfAbsent( klass, k -> createCache( "trackerPreheatIds", k ) );
+    }
+
+    /**
+     * Creates a cache for the given metadata type, which is cleared whenever
+     * the {@link MetadataChangeTracker} reports a change to the type.
+     */
+    private <V> MetadataVersionedCache<V> createCache( String regionPrefix, Class<?> klass )
+    {
+        MetadataVersionedCache<V> cache = new MetadataVersionedCache<>( regionPrefix + klass.getSimpleName(),
+            maxEntries, metadataChangeTracker, klass );
+
+        if ( maxEntries > 0 )
+        {
+            metadataChangeTracker.addListener( klass, cache::invalidateAll );
+        }
+
+        return cache;
+    }
+
+    private static String getKey( TrackerIdentifier identifier, String id )
+    {
+        return identifier.getIdScheme().name() + ":" + id;
+    }
+}
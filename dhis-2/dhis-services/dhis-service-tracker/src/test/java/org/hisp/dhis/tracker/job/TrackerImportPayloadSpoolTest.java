@@ -0,0 +1,183 @@
+package org.hisp.dhis.tracker.job;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.hisp.dhis.fileresource.FileResource;
+import org.hisp.dhis.fileresource.FileResourceContentStore;
+import org.hisp.dhis.tracker.TrackerImportParams;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.scheduling.TaskScheduler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class TrackerImportPayloadSpoolTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private FileResourceContentStore fileResourceContentStore;
+
+    @Mock
+    private ObjectMapper objectMapper;
+
+    @Mock
+    private TaskScheduler scheduler;
+
+    @Captor
+    private ArgumentCaptor<FileResource> fileResourceCaptor;
+
+    @Captor
+    private ArgumentCaptor<File> fileCaptor;
+
+    @Captor
+    private ArgumentCaptor<Date> dateCaptor;
+
+    private TrackerImportPayloadSpool payloadSpool;
+
+    @Before
+    public void setUp()
+    {
+        payloadSpool = new TrackerImportPayloadSpool( fileResourceContentStore, objectMapper, scheduler );
+    }
+
+    @Test
+    public void test_spool()
+        throws IOException
+    {
+        TrackerImportParams params = TrackerImportParams.builder().userId( "userA" ).build();
+
+        when( fileResourceContentStore.saveFileResourceContent( any( FileResource.class ), any( File.class ) ) )
+            .thenReturn( "tracker-import/jobA" );
+
+        assertEquals( "tracker-import/jobA", payloadSpool.spool( "jobA", params ) );
+
+        verify( objectMapper ).writeValue( any( OutputStream.class ), eq( params ) );
+        verify( fileResourceContentStore ).saveFileResourceContent( fileResourceCaptor.capture(),
+            fileCaptor.capture() );
+
+        assertEquals( "tracker-import/jobA", fileResourceCaptor.getValue().getStorageKey() );
+        assertEquals( "application/json", fileResourceCaptor.getValue().getContentType() );
+        assertFalse( fileCaptor.getValue().exists() );
+    }
+
+    @Test
+    public void test_spool_not_stored()
+        throws IOException
+    {
+        when( fileResourceContentStore.saveFileResourceContent( any( FileResource.class ), any( File.class ) ) )
+            .thenReturn( null );
+
+        try
+        {
+            payloadSpool.spool( "jobA", TrackerImportParams.builder().build() );
+            fail( "Expected spooling to fail" );
+        }
+        catch ( IOException ex )
+        {
+            // Expected
+        }
+
+        verify( fileResourceContentStore ).saveFileResourceContent( any( FileResource.class ), fileCaptor.capture() );
+
+        assertFalse( fileCaptor.getValue().exists() );
+    }
+
+    @Test
+    public void test_load()
+        throws IOException
+    {
+        TrackerImportParams params = TrackerImportParams.builder().userId( "userA" ).build();
+
+        when( fileResourceContentStore.getFileResourceContent( "tracker-import/jobA" ) )
+            .thenReturn( new ByteArrayInputStream( new byte[0] ) );
+        when( objectMapper.readValue( any( InputStream.class ), eq( TrackerImportParams.class ) ) )
+            .thenReturn( params );
+
+        assertSame( params, payloadSpool.load( "tracker-import/jobA" ) );
+    }
+
+    @Test( expected = IOException.class )
+    public void test_load_not_found()
+        throws IOException
+    {
+        when( fileResourceContentStore.getFileResourceContent( "tracker-import/jobA" ) ).thenReturn( null );
+
+        payloadSpool.load( "tracker-import/jobA" );
+    }
+
+    @Test
+    public void test_delete_stale_payloads()
+    {
+        long now = System.currentTimeMillis();
+
+        payloadSpool.deleteStalePayloads();
+
+        verify( fileResourceContentStore ).deleteFileResourceContentOlderThan( eq( "tracker-import" ),
+            dateCaptor.capture() );
+
+        long age = now - dateCaptor.getValue().getTime();
+
+        assertTrue( age >= TimeUnit.HOURS.toMillis( 23 ) && age <= TimeUnit.HOURS.toMillis( 25 ) );
+    }
+
+    @Test
+    public void test_init_schedules_cleanup()
+    {
+        payloadSpool.init();
+
+        verify( scheduler ).scheduleWithFixedDelay( any( Runnable.class ), any( Date.class ),
+            eq( TimeUnit.HOURS.toMillis( 1 ) ) );
+    }
+}
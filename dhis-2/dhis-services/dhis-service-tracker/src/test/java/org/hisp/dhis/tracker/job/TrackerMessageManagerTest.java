@@ -0,0 +1,205 @@
+package org.hisp.dhis.tracker.job;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+
+import javax.jms.JMSException;
+import javax.jms.TextMessage;
+
+import org.hisp.dhis.artemis.MessageManager;
+import org.hisp.dhis.artemis.Topics;
+import org.hisp.dhis.scheduling.SchedulingManager;
+import org.hisp.dhis.tracker.TrackerImportParams;
+import org.hisp.dhis.tracker.TrackerImportService;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.beans.factory.ObjectFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class TrackerMessageManagerTest
+{
+    private static final String PAYLOAD_KEY = "tracker-import/jobA";
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private MessageManager messageManager;
+
+    @Mock
+    private ObjectMapper objectMapper;
+
+    @Mock
+    private SchedulingManager schedulingManager;
+
+    @Mock
+    private ObjectFactory<TrackerImportThread> objectFactory;
+
+    @Mock
+    private TrackerImportPayloadSpool payloadSpool;
+
+    @Mock
+    private TrackerImportService trackerImportService;
+
+    @Mock
+    private TextMessage textMessage;
+
+    @Captor
+    private ArgumentCaptor<TrackerMessage> messageCaptor;
+
+    private TrackerMessageManager trackerMessageManager;
+
+    @Before
+    public void setUp()
+    {
+        trackerMessageManager = new TrackerMessageManager( messageManager, objectMapper, schedulingManager,
+            objectFactory, payloadSpool );
+    }
+
+    @Test
+    public void test_add_job()
+        throws IOException
+    {
+        TrackerImportParams params = TrackerImportParams.builder().build();
+
+        when( payloadSpool.spool( anyString(), eq( params ) ) ).thenReturn( PAYLOAD_KEY );
+
+        String jobId = trackerMessageManager.addJob( params );
+
+        verify( messageManager ).sendQueue( eq( Topics.TRACKER_IMPORT_JOB_TOPIC_NAME ), messageCaptor.capture() );
+
+        assertEquals( jobId, messageCaptor.getValue().getUid() );
+        assertEquals( PAYLOAD_KEY, messageCaptor.getValue().getPayloadKey() );
+        verify( payloadSpool, never() ).delete( anyString() );
+    }
+
+    @Test
+    public void test_add_job_send_failure_deletes_payload()
+        throws IOException
+    {
+        TrackerImportParams params = TrackerImportParams.builder().build();
+
+        when( payloadSpool.spool( anyString(), eq( params ) ) ).thenReturn( PAYLOAD_KEY );
+        doThrow( new IllegalStateException( "Broker unavailable" ) ).when( messageManager )
+            .sendQueue( anyString(), any( TrackerMessage.class ) );
+
+        try
+        {
+            trackerMessageManager.addJob( params );
+            fail( "Expected sending to fail" );
+        }
+        catch ( IllegalStateException ex )
+        {
+            // Expected
+        }
+
+        verify( payloadSpool ).delete( PAYLOAD_KEY );
+    }
+
+    @Test
+    public void test_message_consumer_keeps_payload_until_job_completes()
+        throws JMSException, IOException
+    {
+        TrackerImportParams params = TrackerImportParams.builder().userId( "userA" ).build();
+        TrackerImportThread trackerImportThread = new TrackerImportThread( trackerImportService, payloadSpool );
+
+        when( textMessage.getText() ).thenReturn( "text" );
+        when( objectMapper.readValue( "text", TrackerMessage.class ) )
+            .thenReturn( TrackerMessage.builder().uid( "jobA" ).payloadKey( PAYLOAD_KEY ).build() );
+        when( payloadSpool.load( PAYLOAD_KEY ) ).thenReturn( params );
+        when( objectFactory.getObject() ).thenReturn( trackerImportThread );
+
+        trackerMessageManager.consume( textMessage );
+
+        verify( schedulingManager ).executeJob( trackerImportThread );
+        verify( payloadSpool, never() ).delete( anyString() );
+        assertEquals( "jobA", params.getJobConfiguration().getUid() );
+
+        trackerImportThread.run();
+
+        verify( trackerImportService ).importTracker( params );
+        verify( payloadSpool ).delete( PAYLOAD_KEY );
+    }
+
+    @Test
+    public void test_payload_deleted_when_job_fails()
+    {
+        TrackerImportParams params = TrackerImportParams.builder().build();
+        TrackerImportThread trackerImportThread = new TrackerImportThread( trackerImportService, payloadSpool );
+        trackerImportThread.setTrackerImportParams( params );
+        trackerImportThread.setPayloadKey( PAYLOAD_KEY );
+
+        when( trackerImportService.importTracker( params ) ).thenThrow( new IllegalStateException( "Failed" ) );
+
+        trackerImportThread.run();
+
+        verify( payloadSpool ).delete( PAYLOAD_KEY );
+    }
+
+    @Test
+    public void test_message_consumer_inline_params()
+        throws JMSException, IOException
+    {
+        TrackerImportParams params = TrackerImportParams.builder().build();
+        TrackerImportThread trackerImportThread = new TrackerImportThread( trackerImportService, payloadSpool );
+
+        when( textMessage.getText() ).thenReturn( "text" );
+        when( objectMapper.readValue( "text", TrackerMessage.class ) )
+            .thenReturn( TrackerMessage.builder().uid( "jobA" ).trackerImportParams( params ).build() );
+        when( objectFactory.getObject() ).thenReturn( trackerImportThread );
+
+        trackerMessageManager.consume( textMessage );
+
+        verify( payloadSpool, never() ).load( anyString() );
+        verify( schedulingManager ).executeJob( trackerImportThread );
+
+        trackerImportThread.run();
+
+        assertEquals( "jobA", params.getJobConfiguration().getUid() );
+        verify( payloadSpool, never() ).delete( anyString() );
+    }
+}
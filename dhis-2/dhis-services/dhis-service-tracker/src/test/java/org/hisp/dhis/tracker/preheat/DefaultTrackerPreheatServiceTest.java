@@ -0,0 +1,215 @@
+package org.hisp.dhis.tracker.preheat;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.DhisConvenienceTest.createProgram;
+import static org.hisp.dhis.DhisConvenienceTest.createTrackedEntityType;
+import static org.hisp.dhis.DhisConvenienceTest.createUser;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.hisp.dhis.cache.CacheInvalidationBus;
+import org.hisp.dhis.cache.MetadataChangeTracker;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.period.PeriodStore;
+import org.hisp.dhis.program.Program;
+import org.hisp.dhis.program.ProgramInstanceStore;
+import org.hisp.dhis.program.ProgramStageInstanceStore;
+import org.hisp.dhis.query.Query;
+import org.hisp.dhis.query.QueryService;
+import org.hisp.dhis.relationship.RelationshipStore;
+import org.hisp.dhis.schema.Schema;
+import org.hisp.dhis.schema.SchemaService;
+import org.hisp.dhis.security.acl.AclService;
+import org.hisp.dhis.trackedentity.TrackedEntityInstanceStore;
+import org.hisp.dhis.trackedentity.TrackedEntityType;
+import org.hisp.dhis.tracker.TrackerIdScheme;
+import org.hisp.dhis.tracker.domain.Event;
+import org.hisp.dhis.user.CurrentUserService;
+import org.hisp.dhis.user.User;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.core.env.Environment;
+
+import com.google.common.collect.Lists;
+
+public class DefaultTrackerPreheatServiceTest
+{
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private SchemaService schemaService;
+
+    @Mock
+    private QueryService queryService;
+
+    @Mock
+    private IdentifiableObjectManager manager;
+
+    @Mock
+    private CurrentUserService currentUserService;
+
+    @Mock
+    private PeriodStore periodStore;
+
+    @Mock
+    private TrackedEntityInstanceStore trackedEntityInstanceStore;
+
+    @Mock
+    private ProgramInstanceStore programInstanceStore;
+
+    @Mock
+    private ProgramStageInstanceStore programStageInstanceStore;
+
+    @Mock
+    private RelationshipStore relationshipStore;
+
+    @Mock
+    private AclService aclService;
+
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    @Mock
+    private Environment environment;
+
+    private MetadataChangeTracker metadataChangeTracker;
+
+    private DefaultTrackerPreheatService preheatService;
+
+    private User user;
+
+    private Program program;
+
+    @Before
+    public void setUp()
+    {
+        when( environment.getActiveProfiles() ).thenReturn( new String[0] );
+
+        metadataChangeTracker = new MetadataChangeTracker( invalidationBus );
+
+        preheatService = new DefaultTrackerPreheatService( schemaService, queryService, manager,
+            currentUserService, periodStore, trackedEntityInstanceStore, programInstanceStore,
+            programStageInstanceStore, relationshipStore, aclService,
+            new TrackerPreheatMetadataCache( metadataChangeTracker, environment ) );
+
+        user = createUser( 'A' );
+
+        program = createProgram( 'A' );
+        program.setId( 1L );
+
+        Schema schema = new Schema( Program.class, "program", "programs" );
+        schema.setShareable( true );
+
+        when( manager.get( User.class, user.getUid() ) ).thenReturn( user );
+        when( manager.get( Program.class, 1L ) ).thenReturn( program );
+        when( schemaService.getDynamicSchema( Program.class ) ).thenReturn( schema );
+        when( aclService.canRead( user, program ) ).thenReturn( true );
+        doReturn( Lists.newArrayList( program ) ).when( queryService ).query( any( Query.class ) );
+    }
+
+    @Test
+    public void testCachedObjectsLoadedWithoutQuery()
+    {
+        assertNotNull( preheatProgram().get( TrackerIdScheme.UID, Program.class, program.getUid() ) );
+        assertNotNull( preheatProgram().get( TrackerIdScheme.UID, Program.class, program.getUid() ) );
+
+        verify( queryService, times( 1 ) ).query( any( Query.class ) );
+        verify( manager, times( 1 ) ).get( Program.class, 1L );
+    }
+
+    @Test
+    public void testCachedObjectsFilteredBySharing()
+    {
+        preheatProgram();
+
+        when( aclService.canRead( user, program ) ).thenReturn( false );
+
+        assertNull( preheatProgram().get( TrackerIdScheme.UID, Program.class, program.getUid() ) );
+
+        verify( queryService, times( 1 ) ).query( any( Query.class ) );
+    }
+
+    @Test
+    public void testCachedObjectsQueriedAfterChange()
+    {
+        preheatProgram();
+
+        metadataChangeTracker.registerChange( Program.class );
+
+        assertNotNull( preheatProgram().get( TrackerIdScheme.UID, Program.class, program.getUid() ) );
+
+        verify( queryService, times( 2 ) ).query( any( Query.class ) );
+    }
+
+    @Test
+    public void testAllCachedFilteredBySharing()
+    {
+        TrackedEntityType readable = createTrackedEntityType( 'A' );
+        readable.setId( 1L );
+        TrackedEntityType unreadable = createTrackedEntityType( 'B' );
+        unreadable.setId( 2L );
+
+        doReturn( Lists.newArrayList( readable, unreadable ) ).when( manager ).getAllNoAcl( TrackedEntityType.class );
+        when( manager.get( TrackedEntityType.class, 1L ) ).thenReturn( readable );
+        when( manager.get( TrackedEntityType.class, 2L ) ).thenReturn( unreadable );
+        when( aclService.canRead( user, readable ) ).thenReturn( true );
+        when( aclService.canRead( user, unreadable ) ).thenReturn( false );
+
+        TrackerPreheatParams params = TrackerPreheatParams.builder().user( user ).build();
+
+        preheatService.preheat( params );
+        TrackerPreheat preheat = preheatService.preheat( params );
+
+        assertNotNull( preheat.get( TrackerIdScheme.UID, TrackedEntityType.class, readable.getUid() ) );
+        assertNull( preheat.get( TrackerIdScheme.UID, TrackedEntityType.class, unreadable.getUid() ) );
+
+        verify( manager, times( 1 ) ).getAllNoAcl( TrackedEntityType.class );
+    }
+
+    private TrackerPreheat preheatProgram()
+    {
+        TrackerPreheatParams params = TrackerPreheatParams.builder()
+            .user( user )
+            .events( Lists.newArrayList( Event.builder().event( "EVENT123456" ).program( program.getUid() ).build() ) )
+            .build();
+
+        return preheatService.preheat( params );
+    }
+}
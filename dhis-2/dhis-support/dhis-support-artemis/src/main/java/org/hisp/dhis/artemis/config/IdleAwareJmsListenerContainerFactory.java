@@ -0,0 +1,98 @@
+package org.hisp.dhis.artemis.config;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+import javax.jms.Session;
+
+import org.hisp.dhis.artemis.IdleListener;
+import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
+import org.springframework.jms.config.JmsListenerEndpoint;
+import org.springframework.jms.config.MethodJmsListenerEndpoint;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+
+/**
+ * Listener container factory which notifies listener beans implementing
+ * {@link IdleListener} on the listener thread whenever their container did
+ * not receive a message within its receive timeout.
+ */
+public class IdleAwareJmsListenerContainerFactory
+    extends DefaultJmsListenerContainerFactory
+{
+    @Override
+    public DefaultMessageListenerContainer createListenerContainer( JmsListenerEndpoint endpoint )
+    {
+        DefaultMessageListenerContainer container = super.createListenerContainer( endpoint );
+
+        if ( endpoint instanceof MethodJmsListenerEndpoint && container instanceof IdleAwareMessageListenerContainer )
+        {
+            Object bean = ((MethodJmsListenerEndpoint) endpoint).getBean();
+
+            if ( bean instanceof IdleListener )
+            {
+                ((IdleAwareMessageListenerContainer) container).setIdleListener( (IdleListener) bean );
+            }
+        }
+
+        return container;
+    }
+
+    @Override
+    protected DefaultMessageListenerContainer createContainerInstance()
+    {
+        return new IdleAwareMessageListenerContainer();
+    }
+
+    private static class IdleAwareMessageListenerContainer
+        extends DefaultMessageListenerContainer
+    {
+        private IdleListener idleListener;
+
+        void setIdleListener( IdleListener idleListener )
+        {
+            this.idleListener = idleListener;
+        }
+
+        @Override
+        protected void noMessageReceived( Object invoker, Session session )
+        {
+            super.noMessageReceived( invoker, session );
+
+            if ( idleListener != null )
+            {
+                try
+                {
+                    idleListener.onIdle();
+                }
+                catch ( RuntimeException ex )
+                {
+                    logger.warn( "Idle listener of JMS listener container failed", ex );
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,4 @@
+
+-- Index supporting keyset paginated data value synchronization ordered by last updated and the data value key
+
+create index if not exists in_datavalue_lastupdated_keyset on datavalue (lastupdated, dataelementid, periodid, sourceid, categoryoptioncomboid, attributeoptioncomboid);
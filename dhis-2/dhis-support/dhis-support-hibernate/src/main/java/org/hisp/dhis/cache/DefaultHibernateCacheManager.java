@@ -28,9 +28,19 @@ package org.hisp.dhis.cache;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
 import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.spi.MetamodelImplementor;
+import org.hibernate.persister.entity.EntityPersister;
 import org.hibernate.stat.Statistics;
+import org.hibernate.type.CollectionType;
+import org.hibernate.type.Type;
 import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
 import org.springframework.context.event.EventListener;
 
@@ -63,6 +73,41 @@ public class DefaultHibernateCacheManager
         sessionFactory.getCache().evictCollectionRegions();
      }
 
+    @Override
+    public void clearObjectCache( Collection<Class<?>> klasses )
+    {
+        MetamodelImplementor metamodel = sessionFactory.unwrap( SessionFactoryImplementor.class ).getMetamodel();
+        Cache cache = sessionFactory.getCache();
+
+        Set<String> collectionRoles = new HashSet<>();
+
+        for ( Class<?> klass : klasses )
+        {
+            EntityPersister persister = metamodel.entityPersister( klass );
+
+            cache.evictEntityRegion( klass );
+
+            for ( Type type : persister.getPropertyTypes() )
+            {
+                if ( type.isCollectionType() )
+                {
+                    collectionRoles.add( ((CollectionType) type).getRole() );
+                }
+            }
+
+            Set<String> participantRoles = metamodel.getCollectionRolesByEntityParticipant( persister.getEntityName() );
+
+            if ( participantRoles != null )
+            {
+                collectionRoles.addAll( participantRoles );
+            }
+        }
+
+        collectionRoles.forEach( cache::evictCollectionRegion );
+
+        log.debug( String.format( "Hibernate caches cleared for types: %s", klasses ) );
+    }
+
     @Override
     public void clearQueryCache()
     {
@@ -28,6 +28,8 @@ package org.hisp.dhis.cache;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.Collection;
+
 import org.hibernate.stat.Statistics;
 import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
 
@@ -41,6 +43,15 @@ public interface HibernateCacheManager
      */
     void clearObjectCache();
 
+    /**
+     * Evicts the entities of the given types from the cache, together with the
+     * collections owned by these types and the collections which these types
+     * are elements of. Other entities, collections and queries are retained.
+     *
+     * @param klasses the entity types.
+     */
+    void clearObjectCache( Collection<Class<?>> klasses );
+
     /**
      * Evicts all queries from the cache.
      */
@@ -0,0 +1,148 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.spi.MetamodelImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.CollectionType;
+import org.hibernate.type.StringType;
+import org.hibernate.type.Type;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+public class DefaultHibernateCacheManagerTest
+{
+    @Mock
+    private SessionFactory sessionFactory;
+
+    @Mock
+    private SessionFactoryImplementor sessionFactoryImplementor;
+
+    @Mock
+    private MetamodelImplementor metamodel;
+
+    @Mock
+    private Cache cache;
+
+    @Mock
+    private EntityPersister persisterA;
+
+    @Mock
+    private EntityPersister persisterB;
+
+    @Mock
+    private CollectionType collectionType;
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    private DefaultHibernateCacheManager cacheManager;
+
+    @Before
+    public void setUp()
+    {
+        when( sessionFactory.unwrap( SessionFactoryImplementor.class ) ).thenReturn( sessionFactoryImplementor );
+        when( sessionFactoryImplementor.getMetamodel() ).thenReturn( metamodel );
+        when( sessionFactory.getCache() ).thenReturn( cache );
+
+        when( metamodel.entityPersister( EntityA.class ) ).thenReturn( persisterA );
+        when( metamodel.entityPersister( EntityB.class ) ).thenReturn( persisterB );
+
+        when( collectionType.isCollectionType() ).thenReturn( true );
+        when( collectionType.getRole() ).thenReturn( "EntityA.children" );
+
+        when( persisterA.getEntityName() ).thenReturn( EntityA.class.getName() );
+        when( persisterA.getPropertyTypes() ).thenReturn( new Type[] { StringType.INSTANCE, collectionType } );
+
+        when( persisterB.getEntityName() ).thenReturn( EntityB.class.getName() );
+        when( persisterB.getPropertyTypes() ).thenReturn( new Type[] { StringType.INSTANCE } );
+
+        when( metamodel.getCollectionRolesByEntityParticipant( EntityB.class.getName() ) )
+            .thenReturn( Collections.singleton( "EntityC.members" ) );
+
+        cacheManager = new DefaultHibernateCacheManager();
+        cacheManager.setSessionFactory( sessionFactory );
+    }
+
+    @Test
+    public void testClearObjectCacheEvictsOnlyGivenTypes()
+    {
+        cacheManager.clearObjectCache( Arrays.asList( EntityA.class, EntityB.class ) );
+
+        verify( cache ).evictEntityRegion( EntityA.class );
+        verify( cache ).evictEntityRegion( EntityB.class );
+        verify( cache, never() ).evictEntityRegion( EntityC.class );
+        verify( cache ).evictCollectionRegion( "EntityA.children" );
+        verify( cache ).evictCollectionRegion( "EntityC.members" );
+
+        verify( cache, never() ).evictEntityRegions();
+        verify( cache, never() ).evictCollectionRegions();
+        verify( cache, never() ).evictQueryRegions();
+        verify( cache, never() ).evictDefaultQueryRegion();
+        verify( cache, never() ).evictEntityRegion( anyString() );
+    }
+
+    @Test
+    public void testClearObjectCacheEvictsAllRegions()
+    {
+        cacheManager.clearObjectCache();
+
+        verify( cache ).evictEntityRegions();
+        verify( cache ).evictCollectionRegions();
+        verify( cache, never() ).evictEntityRegion( any( Class.class ) );
+    }
+
+    private static class EntityA
+    {
+    }
+
+    private static class EntityB
+    {
+    }
+
+    private static class EntityC
+    {
+    }
+}
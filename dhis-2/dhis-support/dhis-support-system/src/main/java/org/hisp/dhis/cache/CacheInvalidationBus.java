@@ -0,0 +1,81 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.function.Consumer;
+
+/**
+ * Exchanges cache invalidations between the nodes of a cluster, so that local
+ * in-memory caches can be kept while invalidations of a cache region on one
+ * node are applied to the same region on all other nodes.
+ */
+public interface CacheInvalidationBus
+{
+    /**
+     * Indicates whether invalidations are exchanged with other nodes.
+     */
+    boolean isEnabled();
+
+    /**
+     * Registers a local cache for the given region. Invalidations published
+     * for the region by other nodes are applied to the cache.
+     *
+     * @param region the cache region.
+     * @param cache the local cache.
+     */
+    void register( String region, Cache<?> cache );
+
+    /**
+     * Registers a listener for the given region. The listener is called with
+     * the key of each invalidation published for the region by other nodes,
+     * or with null when all keys of the region are invalidated, which is also
+     * the case when invalidations from other nodes may have been missed.
+     *
+     * @param region the cache region.
+     * @param listener the listener.
+     */
+    void addListener( String region, Consumer<String> listener );
+
+    /**
+     * Publishes the invalidation of the given key in the given region to other
+     * nodes.
+     *
+     * @param region the cache region.
+     * @param key the cache key.
+     */
+    void publishInvalidation( String region, String key );
+
+    /**
+     * Publishes the invalidation of all keys in the given region to other
+     * nodes.
+     *
+     * @param region the cache region.
+     */
+    void publishInvalidationAll( String region );
+}
@@ -0,0 +1,123 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Local in-memory cache which publishes its invalidations to the other nodes
+ * of a cluster through a {@link CacheInvalidationBus}, and which has
+ * invalidations published by other nodes applied to it. Values are only
+ * stored locally, and reads never leave the node. Putting a value only fills
+ * the local cache, callers which replace a value shared with other nodes must
+ * invalidate the key instead, so other nodes load the new value on their next
+ * read.
+ */
+public class ClusteredLocalCache<V>
+    implements Cache<V>
+{
+    private final LocalCache<V> localCache;
+
+    private final String region;
+
+    private final CacheInvalidationBus invalidationBus;
+
+    public ClusteredLocalCache( LocalCache<V> localCache, String region, CacheInvalidationBus invalidationBus )
+    {
+        checkNotNull( localCache );
+        checkNotNull( region );
+        checkNotNull( invalidationBus );
+
+        this.localCache = localCache;
+        this.region = region;
+        this.invalidationBus = invalidationBus;
+
+        invalidationBus.register( region, localCache );
+    }
+
+    @Override
+    public Optional<V> getIfPresent( String key )
+    {
+        return localCache.getIfPresent( key );
+    }
+
+    @Override
+    public Optional<V> get( String key )
+    {
+        return localCache.get( key );
+    }
+
+    @Override
+    public Optional<V> get( String key, Function<String, V> mappingFunction )
+    {
+        return localCache.get( key, mappingFunction );
+    }
+
+    @Override
+    public Collection<V> getAll()
+    {
+        return localCache.getAll();
+    }
+
+    @Override
+    public void put( String key, V value )
+    {
+        localCache.put( key, value );
+    }
+
+    @Override
+    public void put( String key, V value, long ttlInSeconds )
+    {
+        localCache.put( key, value, ttlInSeconds );
+    }
+
+    @Override
+    public void invalidate( String key )
+    {
+        localCache.invalidate( key );
+        invalidationBus.publishInvalidation( region, key );
+    }
+
+    @Override
+    public void invalidateAll()
+    {
+        localCache.invalidateAll();
+        invalidationBus.publishInvalidationAll( region );
+    }
+
+    @Override
+    public CacheType getCacheType()
+    {
+        return CacheType.IN_MEMORY;
+    }
+}
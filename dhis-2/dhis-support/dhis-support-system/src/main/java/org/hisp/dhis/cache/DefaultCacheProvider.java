@@ -47,16 +47,18 @@ public class DefaultCacheProvider implements CacheProvider
 
     private RedisTemplate<String, ?> redisTemplate;
 
+    private CacheInvalidationBus invalidationBus;
+
     @Override
     public <V> ExtendedCacheBuilder<V> newCacheBuilder( Class<V> valueType )
     {
-        return new ExtendedCacheBuilder<V>( redisTemplate, configurationProvider );
+        return new ExtendedCacheBuilder<V>( redisTemplate, configurationProvider, invalidationBus );
     }
 
     @Override
     public  <K,V> ExtendedCacheBuilder<Map<K,V>> newCacheBuilder( Class<K> keyType, Class<V> valueType )
     {
-        return new ExtendedCacheBuilder<Map<K,V>>( redisTemplate, configurationProvider );
+        return new ExtendedCacheBuilder<Map<K,V>>( redisTemplate, configurationProvider, invalidationBus );
     }
 
     @Autowired
@@ -71,4 +73,10 @@ public class DefaultCacheProvider implements CacheProvider
         this.redisTemplate = redisTemplate;
     }
 
+    @Autowired( required = false )
+    public void setInvalidationBus( CacheInvalidationBus invalidationBus )
+    {
+        this.invalidationBus = invalidationBus;
+    }
+
 }
\ No newline at end of file
@@ -48,13 +48,22 @@ public class ExtendedCacheBuilder<V> extends SimpleCacheBuilder<V>
 
     private RedisTemplate<String, ?> redisTemplate;
 
+    private CacheInvalidationBus invalidationBus;
+
     private boolean forceInMemory;
     
     public ExtendedCacheBuilder( RedisTemplate<String, ?> redisTemplate, DhisConfigurationProvider configurationProvider )
+    {
+        this( redisTemplate, configurationProvider, null );
+    }
+
+    public ExtendedCacheBuilder( RedisTemplate<String, ?> redisTemplate, DhisConfigurationProvider configurationProvider,
+        CacheInvalidationBus invalidationBus )
     {
         super();
         this.configurationProvider = configurationProvider;
         this.redisTemplate = redisTemplate;
+        this.invalidationBus = invalidationBus;
         this.forceInMemory = false;
     }
 
@@ -83,7 +92,10 @@ public class ExtendedCacheBuilder<V> extends SimpleCacheBuilder<V>
      * implementation {@link LocalCache} will be returned. For Local cache,
      * every instance created using this method will be logically separate and
      * will not share any state. However, when using Redis Cache, every instance
-     * created using this method will use the same redis store.
+     * created using this method will use the same redis store. When the
+     * instance is part of a cluster, local caches are wrapped in a
+     * {@link ClusteredLocalCache} which exchanges invalidations of the region
+     * with the other nodes.
      * 
      * @return A cache instance based on the system configuration and input
      *         parameters. Returns one of {@link RedisCache}, {@link LocalCache}
@@ -100,7 +112,7 @@ public class ExtendedCacheBuilder<V> extends SimpleCacheBuilder<V>
         else if ( forceInMemory )
         {
             log.info( String.format( "Local Cache (forced) instance created for region:'%s'", getRegion() ) );
-            return new LocalCache<V>( this );
+            return withClusterInvalidation( new LocalCache<V>( this ) );
         }
         else if ( configurationProvider.getProperty( ConfigurationKey.REDIS_ENABLED ).equalsIgnoreCase( "true" ) )
         {
@@ -110,8 +122,18 @@ public class ExtendedCacheBuilder<V> extends SimpleCacheBuilder<V>
         else
         {
             log.info( String.format( "Local Cache instance created for region:'%s'", getRegion() ) );
-            return new LocalCache<V>( this );
+            return withClusterInvalidation( new LocalCache<V>( this ) );
+        }
+    }
+
+    private Cache<V> withClusterInvalidation( LocalCache<V> cache )
+    {
+        if ( invalidationBus == null || !invalidationBus.isEnabled() || getRegion() == null )
+        {
+            return cache;
         }
+
+        return new ClusteredLocalCache<V>( cache, getRegion(), invalidationBus );
     }
 
     public RedisTemplate<String, ?> getRedisTemplate()
@@ -0,0 +1,375 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.hisp.dhis.common.CodeGenerator;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cache invalidation bus based on PostgreSQL LISTEN and NOTIFY, which is
+ * enabled when the instance is part of a cluster. Invalidations published
+ * within a transaction are sent once the transaction commits, and are dropped
+ * if it rolls back. Invalidations are sent by a publisher thread on its own
+ * connection, so sending never joins or fails the transaction of the caller,
+ * and are received on a dedicated connection by a listener thread.
+ * <p>
+ * Notifications sent while the listener is disconnected are lost, hence all
+ * registered caches are invalidated whenever the listener reconnects.
+ */
+@Slf4j
+@Component( "org.hisp.dhis.cache.CacheInvalidationBus" )
+public class PostgresCacheInvalidationBus
+    implements CacheInvalidationBus
+{
+    private static final String CHANNEL = "dhis_cache_invalidation";
+
+    private static final String SEPARATOR = "|";
+
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+
+    private static final int POLL_TIMEOUT_MILLIS = 1000;
+
+    private static final long RECONNECT_DELAY_MILLIS = 5000;
+
+    /**
+     * Identifies this node, so that it ignores its own invalidations.
+     */
+    private final String nodeId = CodeGenerator.generateUid();
+
+    private final Map<String, Set<Cache<?>>> regionCaches = new ConcurrentHashMap<>();
+
+    private final Map<String, List<Consumer<String>>> regionListeners = new ConcurrentHashMap<>();
+
+    private final DhisConfigurationProvider config;
+
+    private final JdbcOperations jdbcTemplate;
+
+    private final Executor publisher;
+
+    private final boolean enabled;
+
+    private volatile boolean running;
+
+    private Thread listener;
+
+    @Autowired
+    public PostgresCacheInvalidationBus( DhisConfigurationProvider config, JdbcOperations jdbcTemplate )
+    {
+        this( config, jdbcTemplate, Executors.newSingleThreadExecutor( runnable -> {
+            Thread thread = new Thread( runnable, "cache-invalidation-publisher" );
+            thread.setDaemon( true );
+            return thread;
+        } ) );
+    }
+
+    PostgresCacheInvalidationBus( DhisConfigurationProvider config, JdbcOperations jdbcTemplate, Executor publisher )
+    {
+        checkNotNull( config );
+        checkNotNull( jdbcTemplate );
+        checkNotNull( publisher );
+
+        this.config = config;
+        this.jdbcTemplate = jdbcTemplate;
+        this.publisher = publisher;
+        this.enabled = config.isClusterEnabled();
+    }
+
+    @PostConstruct
+    public void start()
+    {
+        if ( !enabled )
+        {
+            return;
+        }
+
+        running = true;
+
+        listener = new Thread( this::listen, "cache-invalidation-listener" );
+        listener.setDaemon( true );
+        listener.start();
+
+        log.info( "Cache invalidation listener started for node: " + nodeId );
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        running = false;
+
+        if ( listener != null )
+        {
+            listener.interrupt();
+        }
+
+        if ( publisher instanceof ExecutorService )
+        {
+            ((ExecutorService) publisher).shutdown();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // CacheInvalidationBus implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    @Override
+    public void register( String region, Cache<?> cache )
+    {
+        regionCaches.computeIfAbsent( region, r -> Collections.synchronizedSet(
+            Collections.newSetFromMap( new WeakHashMap<>() ) ) ).add( cache );
+    }
+
+    @Override
+    public void addListener( String region, Consumer<String> listener )
+    {
+        regionListeners.computeIfAbsent( region, r -> new CopyOnWriteArrayList<>() ).add( listener );
+    }
+
+    @Override
+    public void publishInvalidation( String region, String key )
+    {
+        String payload = nodeId + SEPARATOR + region + SEPARATOR + key;
+
+        if ( payload.getBytes( StandardCharsets.UTF_8 ).length > MAX_PAYLOAD_BYTES )
+        {
+            publishInvalidationAll( region );
+        }
+        else
+        {
+            notify( payload );
+        }
+    }
+
+    @Override
+    public void publishInvalidationAll( String region )
+    {
+        notify( nodeId + SEPARATOR + region );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Sends the given payload once the current transaction, if any, has
+     * committed.
+     */
+    private void notify( String payload )
+    {
+        if ( !enabled )
+        {
+            return;
+        }
+
+        if ( TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronizationAdapter()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    send( payload );
+                }
+            } );
+        }
+        else
+        {
+            send( payload );
+        }
+    }
+
+    /**
+     * Sends the given payload from the publisher thread, which holds no
+     * transaction and hence sends it on a separate connection in auto-commit
+     * mode. Failures are logged and otherwise ignored.
+     */
+    private void send( String payload )
+    {
+        try
+        {
+            publisher.execute( () -> {
+                try
+                {
+                    jdbcTemplate.queryForRowSet( "select pg_notify(?, ?)", CHANNEL, payload );
+                }
+                catch ( RuntimeException ex )
+                {
+                    log.warn( "Failed to publish cache invalidation: " + payload, ex );
+                }
+            } );
+        }
+        catch ( RuntimeException ex )
+        {
+            log.warn( "Failed to schedule cache invalidation: " + payload, ex );
+        }
+    }
+
+    private void listen()
+    {
+        while ( running )
+        {
+            try ( Connection connection = DriverManager.getConnection(
+                config.getProperty( ConfigurationKey.CONNECTION_URL ),
+                config.getProperty( ConfigurationKey.CONNECTION_USERNAME ),
+                config.getProperty( ConfigurationKey.CONNECTION_PASSWORD ) ) )
+            {
+                try ( Statement statement = connection.createStatement() )
+                {
+                    statement.execute( "listen " + CHANNEL );
+                }
+
+                invalidateAll();
+
+                PGConnection pgConnection = connection.unwrap( PGConnection.class );
+
+                while ( running )
+                {
+                    PGNotification[] notifications = pgConnection.getNotifications( POLL_TIMEOUT_MILLIS );
+
+                    if ( notifications != null )
+                    {
+                        for ( PGNotification notification : notifications )
+                        {
+                            apply( notification.getParameter() );
+                        }
+                    }
+                }
+            }
+            catch ( SQLException ex )
+            {
+                log.warn( "Cache invalidation listener disconnected, reconnecting", ex );
+
+                sleep();
+            }
+        }
+    }
+
+    /**
+     * Applies the invalidation of the given payload, which is on the format
+     * {@code node|region[|key]}, unless published by this node.
+     */
+    void apply( String payload )
+    {
+        String[] parts = payload.split( "\\|", 3 );
+
+        if ( parts.length < 2 || nodeId.equals( parts[0] ) )
+        {
+            return;
+        }
+
+        String key = parts.length == 3 ? parts[2] : null;
+
+        Set<Cache<?>> caches = regionCaches.get( parts[1] );
+
+        if ( caches != null )
+        {
+            synchronized ( caches )
+            {
+                for ( Cache<?> cache : caches )
+                {
+                    if ( key != null )
+                    {
+                        cache.invalidate( key );
+                    }
+                    else
+                    {
+                        cache.invalidateAll();
+                    }
+                }
+            }
+        }
+
+        regionListeners.getOrDefault( parts[1], Collections.emptyList() )
+            .forEach( listener -> listener.accept( key ) );
+    }
+
+    private void invalidateAll()
+    {
+        for ( Set<Cache<?>> caches : regionCaches.values() )
+        {
+            synchronized ( caches )
+            {
+                caches.forEach( Cache::invalidateAll );
+            }
+        }
+
+        regionListeners.values().forEach( listeners -> listeners.forEach( listener -> listener.accept( null ) ) );
+    }
+
+    private void sleep()
+    {
+        try
+        {
+            Thread.sleep( RECONNECT_DELAY_MILLIS );
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
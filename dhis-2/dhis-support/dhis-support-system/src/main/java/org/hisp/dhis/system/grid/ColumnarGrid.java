@@ -0,0 +1,478 @@
+package org.hisp.dhis.system.grid;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Grid implementation which stores its values column by column in primitive
+ * arrays rather than as one list of boxed objects per row. Double and long
+ * columns are backed by {@code double[]} and {@code long[]} arrays with a
+ * null bitmap, and string columns, typically dimension item identifiers, are
+ * dictionary encoded into an {@code int[]} of codes. Columns holding values of
+ * mixed or other types fall back to an object array.
+ * <p>
+ * Rows are exposed as list views over the column stores, which means that all
+ * operations of {@link ListGrid}, including sorting and rendering, behave
+ * exactly as for a list based grid. This implementation is intended for large
+ * analytics responses where the per-row and per-value object overhead of
+ * {@link ListGrid} dominates memory usage.
+ */
+public class ColumnarGrid
+    extends ListGrid
+{
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Column stores, one per physical column position.
+     */
+    private final List<ColumnStore> columns = new ArrayList<>();
+
+    /**
+     * The number of values in each physical row.
+     */
+    private int[] rowWidths = new int[INITIAL_CAPACITY];
+
+    /**
+     * The number of physical rows allocated.
+     */
+    private int rowCount = 0;
+
+    /**
+     * Default constructor.
+     */
+    public ColumnarGrid()
+    {
+        super();
+    }
+
+    /**
+     * @param metaData meta data.
+     * @param internalMetaData internal meta data.
+     */
+    public ColumnarGrid( Map<String, Object> metaData, Map<String, Object> internalMetaData )
+    {
+        super( metaData, internalMetaData );
+    }
+
+    // -------------------------------------------------------------------------
+    // ListGrid implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    protected List<Object> newRow()
+    {
+        if ( rowCount == rowWidths.length )
+        {
+            rowWidths = Arrays.copyOf( rowWidths, newCapacity( rowWidths.length, rowCount + 1 ) );
+        }
+
+        return new ColumnarRow( rowCount++ );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private Object getCell( int column, int row )
+    {
+        return columns.get( column ).get( row );
+    }
+
+    private void setCell( int column, int row, Object value )
+    {
+        while ( columns.size() <= column )
+        {
+            columns.add( new ColumnStore() );
+        }
+
+        columns.get( column ).set( row, value, rowCount );
+    }
+
+    private static int newCapacity( int current, int required )
+    {
+        return Math.max( required, current + ( current >> 1 ) + 1 );
+    }
+
+    // -------------------------------------------------------------------------
+    // Row view
+    // -------------------------------------------------------------------------
+
+    /**
+     * List view of a single physical row across the column stores.
+     */
+    private class ColumnarRow
+        extends AbstractList<Object>
+        implements RandomAccess, Serializable
+    {
+        private final int row;
+
+        ColumnarRow( int row )
+        {
+            this.row = row;
+        }
+
+        @Override
+        public int size()
+        {
+            return rowWidths[row];
+        }
+
+        @Override
+        public Object get( int index )
+        {
+            checkIndex( index, size() );
+
+            return getCell( index, row );
+        }
+
+        @Override
+        public Object set( int index, Object value )
+        {
+            checkIndex( index, size() );
+
+            Object previous = getCell( index, row );
+            setCell( index, row, value );
+            return previous;
+        }
+
+        @Override
+        public void add( int index, Object value )
+        {
+            int width = size();
+
+            checkIndex( index, width + 1 );
+
+            for ( int column = width; column > index; column-- )
+            {
+                setCell( column, row, getCell( column - 1, row ) );
+            }
+
+            setCell( index, row, value );
+            rowWidths[row]++;
+            modCount++;
+        }
+
+        @Override
+        public Object remove( int index )
+        {
+            int width = size();
+
+            checkIndex( index, width );
+
+            Object previous = getCell( index, row );
+
+            for ( int column = index; column < width - 1; column++ )
+            {
+                setCell( column, row, getCell( column + 1, row ) );
+            }
+
+            setCell( width - 1, row, null );
+            rowWidths[row]--;
+            modCount++;
+            return previous;
+        }
+
+        private void checkIndex( int index, int bound )
+        {
+            if ( index < 0 || index >= bound )
+            {
+                throw new IndexOutOfBoundsException( "Index: " + index + ", size: " + size() );
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Column stores
+    // -------------------------------------------------------------------------
+
+    /**
+     * Column store which picks its typed storage from the first non-null value
+     * and falls back to object storage when a value of another type is set.
+     */
+    private static class ColumnStore
+        implements Serializable
+    {
+        private Column column;
+
+        Object get( int row )
+        {
+            return column != null ? column.get( row ) : null;
+        }
+
+        void set( int row, Object value, int rowCount )
+        {
+            if ( column == null )
+            {
+                if ( value == null )
+                {
+                    return;
+                }
+
+                column = Column.forValue( value, rowCount );
+            }
+            else if ( !column.accepts( value ) )
+            {
+                column = new ObjectColumn( column, rowCount );
+            }
+
+            column.set( row, value, rowCount );
+        }
+    }
+
+    private abstract static class Column
+        implements Serializable
+    {
+        static Column forValue( Object value, int rowCount )
+        {
+            int capacity = Math.max( INITIAL_CAPACITY, rowCount );
+
+            if ( value instanceof Double )
+            {
+                return new DoubleColumn( capacity );
+            }
+            else if ( value instanceof Long )
+            {
+                return new LongColumn( capacity );
+            }
+            else if ( value instanceof String )
+            {
+                return new DictionaryColumn( capacity );
+            }
+
+            return new ObjectColumn( capacity );
+        }
+
+        /**
+         * Returns the value at the given row, or null if not set.
+         */
+        abstract Object get( int row );
+
+        /**
+         * Indicates whether the given value can be stored without changing the
+         * type of this column.
+         */
+        abstract boolean accepts( Object value );
+
+        /**
+         * Sets the value at the given row. The value must be accepted by this
+         * column.
+         */
+        abstract void set( int row, Object value, int rowCount );
+    }
+
+    private static class DoubleColumn
+        extends Column
+    {
+        private double[] values;
+
+        /**
+         * Null bitmap, where a set bit indicates a non-null value.
+         */
+        private final BitSet present = new BitSet();
+
+        DoubleColumn( int capacity )
+        {
+            this.values = new double[capacity];
+        }
+
+        @Override
+        Object get( int row )
+        {
+            return present.get( row ) ? values[row] : null;
+        }
+
+        @Override
+        boolean accepts( Object value )
+        {
+            return value == null || value instanceof Double;
+        }
+
+        @Override
+        void set( int row, Object value, int rowCount )
+        {
+            if ( row >= values.length )
+            {
+                values = Arrays.copyOf( values, newCapacity( values.length, rowCount ) );
+            }
+
+            present.set( row, value != null );
+            values[row] = value != null ? (Double) value : 0d;
+        }
+    }
+
+    private static class LongColumn
+        extends Column
+    {
+        private long[] values;
+
+        /**
+         * Null bitmap, where a set bit indicates a non-null value.
+         */
+        private final BitSet present = new BitSet();
+
+        LongColumn( int capacity )
+        {
+            this.values = new long[capacity];
+        }
+
+        @Override
+        Object get( int row )
+        {
+            return present.get( row ) ? values[row] : null;
+        }
+
+        @Override
+        boolean accepts( Object value )
+        {
+            return value == null || value instanceof Long;
+        }
+
+        @Override
+        void set( int row, Object value, int rowCount )
+        {
+            if ( row >= values.length )
+            {
+                values = Arrays.copyOf( values, newCapacity( values.length, rowCount ) );
+            }
+
+            present.set( row, value != null );
+            values[row] = value != null ? (Long) value : 0L;
+        }
+    }
+
+    /**
+     * Dictionary encoded string column. Each distinct string is stored once and
+     * rows refer to it by code, where -1 represents null.
+     */
+    private static class DictionaryColumn
+        extends Column
+    {
+        private int[] codes;
+
+        private final List<String> dictionary = new ArrayList<>();
+
+        private final Map<String, Integer> dictionaryCodes = new HashMap<>();
+
+        DictionaryColumn( int capacity )
+        {
+            this.codes = new int[capacity];
+            Arrays.fill( codes, -1 );
+        }
+
+        @Override
+        Object get( int row )
+        {
+            int code = row < codes.length ? codes[row] : -1;
+
+            return code != -1 ? dictionary.get( code ) : null;
+        }
+
+        @Override
+        boolean accepts( Object value )
+        {
+            return value == null || value instanceof String;
+        }
+
+        @Override
+        void set( int row, Object value, int rowCount )
+        {
+            if ( row >= codes.length )
+            {
+                int length = codes.length;
+                codes = Arrays.copyOf( codes, newCapacity( length, rowCount ) );
+                Arrays.fill( codes, length, codes.length, -1 );
+            }
+
+            codes[row] = value != null ? dictionaryCodes.computeIfAbsent( (String) value, this::addToDictionary ) : -1;
+        }
+
+        private int addToDictionary( String value )
+        {
+            dictionary.add( value );
+            return dictionary.size() - 1;
+        }
+    }
+
+    private static class ObjectColumn
+        extends Column
+    {
+        private Object[] values;
+
+        ObjectColumn( int capacity )
+        {
+            this.values = new Object[capacity];
+        }
+
+        /**
+         * Creates an object column holding the values of the given column.
+         */
+        ObjectColumn( Column column, int rowCount )
+        {
+            this( Math.max( INITIAL_CAPACITY, rowCount ) );
+
+            for ( int row = 0; row < rowCount; row++ )
+            {
+                values[row] = column.get( row );
+            }
+        }
+
+        @Override
+        Object get( int row )
+        {
+            return row < values.length ? values[row] : null;
+        }
+
+        @Override
+        boolean accepts( Object value )
+        {
+            return true;
+        }
+
+        @Override
+        void set( int row, Object value, int rowCount )
+        {
+            if ( row >= values.length )
+            {
+                values = Arrays.copyOf( values, newCapacity( values.length, rowCount ) );
+            }
+
+            values[row] = value;
+        }
+    }
+}
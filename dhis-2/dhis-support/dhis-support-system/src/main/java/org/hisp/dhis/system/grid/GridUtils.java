@@ -38,6 +38,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.velocity.VelocityContext;
 import org.hisp.dhis.common.DimensionalItemObject;
 import org.hisp.dhis.common.DimensionalObjectUtils;
@@ -83,7 +84,9 @@ public class GridUtils
     private static final String EMPTY = "";
     private static final char CSV_DELIMITER = ',';
     private static final String XLS_SHEET_PREFIX = "Sheet ";
-    private static final int JXL_MAX_COLS = 256;
+    private static final int XLS_MAX_COLS = 256;
+    private static final int XLSX_MAX_COLS = 16384;
+    private static final int XLSX_ROW_ACCESS_WINDOW = 100;
     private static final String FONT_ARIAL = "Arial";
 
     private static final NodeFilter HTML_ROW_FILTER = new OrFilter( new TagNameFilter( "td" ), new TagNameFilter( "th" ) );
@@ -216,7 +219,7 @@ public class GridUtils
 
             String sheetName = CodecUtils.filenameEncode( StringUtils.defaultIfEmpty( grid.getTitle(), XLS_SHEET_PREFIX + (i + 1) ) );
 
-            toXlsInternal( grid,  workbook.createSheet( sheetName ),headerCellStyle, cellStyle );
+            toXlsInternal( grid, workbook.createSheet( sheetName ), headerCellStyle, cellStyle, XLS_MAX_COLS );
         }
 
         workbook.write( out );
@@ -229,17 +232,52 @@ public class GridUtils
     public static void toXls( Grid grid, OutputStream out )
         throws Exception
     {
-        Workbook workbook = new HSSFWorkbook();
+        toXls( Collections.singletonList( grid ), out );
+    }
+
+    /**
+     * Writes a XLSX (Excel workbook) representation of the given list of Grids to the given OutputStream.
+     * Each grid is written to a separate sheet. Rows are streamed through a fixed size window, so
+     * memory usage does not grow with the number of rows.
+     */
+    public static void toXlsx( List<Grid> grids, OutputStream out )
+        throws Exception
+    {
+        SXSSFWorkbook workbook = new SXSSFWorkbook( XLSX_ROW_ACCESS_WINDOW );
+
+        try
+        {
+            CellStyle headerCellStyle = createHeaderCellStyle( workbook );
+            CellStyle cellStyle = createCellStyle( workbook );
 
-        String sheetName = CodecUtils.filenameEncode( StringUtils.defaultIfEmpty( grid.getTitle(), XLS_SHEET_PREFIX + 1 ) );
+            for ( int i = 0; i < grids.size(); i++ )
+            {
+                Grid grid = grids.get( i );
 
-        toXlsInternal( grid, workbook.createSheet( sheetName ), createHeaderCellStyle( workbook ), createCellStyle( workbook ) );
+                String sheetName = CodecUtils.filenameEncode( StringUtils.defaultIfEmpty( grid.getTitle(), XLS_SHEET_PREFIX + (i + 1) ) );
 
-        workbook.write( out );
-        workbook.close();
+                toXlsInternal( grid, workbook.createSheet( sheetName ), headerCellStyle, cellStyle, XLSX_MAX_COLS );
+            }
+
+            workbook.write( out );
+        }
+        finally
+        {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /**
+     * Writes a XLSX (Excel workbook) representation of the given Grid to the given OutputStream.
+     */
+    public static void toXlsx( Grid grid, OutputStream out )
+        throws Exception
+    {
+        toXlsx( Collections.singletonList( grid ), out );
     }
 
-    private static void toXlsInternal( Grid grid, Sheet sheet, CellStyle headerCellStyle, CellStyle cellStyle )
+    private static void toXlsInternal( Grid grid, Sheet sheet, CellStyle headerCellStyle, CellStyle cellStyle, int maxCols )
     {
         if ( grid == null )
         {
@@ -248,9 +286,9 @@ public class GridUtils
 
         int cols = grid.getVisibleHeaders().size();
 
-        if ( cols > JXL_MAX_COLS )
+        if ( cols > maxCols )
         {
-            log.warn( "Grid will be truncated, no of columns is greater than JXL max limit: " + cols + "/" + JXL_MAX_COLS );
+            log.warn( "Grid will be truncated, no of columns is greater than max limit: " + cols + "/" + maxCols );
         }
 
         int rowNumber = 0;
@@ -274,7 +312,7 @@ public class GridUtils
             rowNumber++;
         }
 
-        List<GridHeader> headers = ListUtils.subList( grid.getVisibleHeaders(), 0, JXL_MAX_COLS );
+        List<GridHeader> headers = ListUtils.subList( grid.getVisibleHeaders(), 0, maxCols );
         Row headerRow = sheet.createRow( ++rowNumber );
         for ( GridHeader header : headers )
         {
@@ -291,7 +329,7 @@ public class GridUtils
             xlsRow.setRowStyle( cellStyle );
             columnIndex = 0;
 
-            List<Object> columns = ListUtils.subList( row, 0, JXL_MAX_COLS );
+            List<Object> columns = ListUtils.subList( row, 0, maxCols );
 
             for ( Object column : columns )
             {
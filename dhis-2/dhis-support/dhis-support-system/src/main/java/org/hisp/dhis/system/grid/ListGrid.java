@@ -342,7 +342,7 @@ public class ListGrid
     @Override
     public Grid addRow()
     {
-        grid.add( new ArrayList<>() );
+        grid.add( newRow() );
 
         currentRowWriteIndex++;
 
@@ -1061,6 +1061,17 @@ public class ListGrid
     // Supportive methods
     // -------------------------------------------------------------------------
 
+    /**
+     * Creates the list backing a new row. Subclasses may override this to
+     * provide an alternative row storage.
+     *
+     * @return a new, empty row.
+     */
+    protected List<Object> newRow()
+    {
+        return new ArrayList<>();
+    }
+
     /**
      * Verifies that all grid rows are of the same length.
      */
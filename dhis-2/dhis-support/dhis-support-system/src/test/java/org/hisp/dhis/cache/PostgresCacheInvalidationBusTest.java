@@ -0,0 +1,220 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class PostgresCacheInvalidationBusTest
+{
+    @Mock
+    private DhisConfigurationProvider config;
+
+    @Mock
+    private JdbcOperations jdbcTemplate;
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    private PostgresCacheInvalidationBus invalidationBus;
+
+    private Cache<String> cacheA;
+
+    private Cache<String> cacheB;
+
+    @Before
+    public void setUp()
+    {
+        when( config.isClusterEnabled() ).thenReturn( true );
+
+        invalidationBus = new PostgresCacheInvalidationBus( config, jdbcTemplate, Runnable::run );
+
+        cacheA = newCache( "regionA" );
+        cacheB = newCache( "regionB" );
+
+        cacheA.put( "keyA", "valueA" );
+        cacheA.put( "keyB", "valueB" );
+        cacheB.put( "keyA", "valueA" );
+    }
+
+    @After
+    public void tearDown()
+    {
+        if ( TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testPublishInvalidation()
+    {
+        cacheA.invalidate( "keyA" );
+
+        assertFalse( cacheA.getIfPresent( "keyA" ).isPresent() );
+        verify( jdbcTemplate ).queryForRowSet( anyString(), eq( "dhis_cache_invalidation" ), anyString() );
+    }
+
+    @Test
+    public void testNoPublishInvalidationOnPut()
+    {
+        cacheA.put( "keyC", "valueC" );
+        cacheA.put( "keyD", "valueD", 60 );
+
+        assertEquals( "valueC", cacheA.getIfPresent( "keyC" ).get() );
+        assertEquals( "valueD", cacheA.getIfPresent( "keyD" ).get() );
+        verify( jdbcTemplate, never() ).queryForRowSet( anyString(), anyString(), anyString() );
+    }
+
+    @Test
+    public void testPublishInvalidationAfterCommit()
+    {
+        TransactionSynchronizationManager.initSynchronization();
+
+        cacheA.invalidate( "keyA" );
+
+        assertFalse( cacheA.getIfPresent( "keyA" ).isPresent() );
+        verify( jdbcTemplate, never() ).queryForRowSet( anyString(), anyString(), anyString() );
+
+        TransactionSynchronizationManager.getSynchronizations().forEach( TransactionSynchronization::afterCommit );
+
+        verify( jdbcTemplate ).queryForRowSet( anyString(), eq( "dhis_cache_invalidation" ), endsWith( "|regionA|keyA" ) );
+    }
+
+    @Test
+    public void testNoPublishInvalidationOnRollback()
+    {
+        TransactionSynchronizationManager.initSynchronization();
+
+        cacheA.invalidate( "keyA" );
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(
+            sync -> sync.afterCompletion( TransactionSynchronization.STATUS_ROLLED_BACK ) );
+
+        verify( jdbcTemplate, never() ).queryForRowSet( anyString(), anyString(), anyString() );
+    }
+
+    @Test
+    public void testPublishInvalidationFailure()
+    {
+        when( jdbcTemplate.queryForRowSet( anyString(), anyString(), anyString() ) )
+            .thenThrow( new DataAccessResourceFailureException( "Connection refused" ) );
+
+        cacheA.invalidate( "keyA" );
+        cacheA.put( "keyB", "valueC" );
+
+        assertFalse( cacheA.getIfPresent( "keyA" ).isPresent() );
+        assertEquals( "valueC", cacheA.getIfPresent( "keyB" ).get() );
+        verify( jdbcTemplate, times( 2 ) ).queryForRowSet( anyString(), eq( "dhis_cache_invalidation" ), anyString() );
+    }
+
+    @Test
+    public void testApplyOwnInvalidation()
+    {
+        ArgumentCaptor<String> payload = ArgumentCaptor.forClass( String.class );
+
+        invalidationBus.publishInvalidationAll( "regionA" );
+
+        verify( jdbcTemplate ).queryForRowSet( anyString(), anyString(), payload.capture() );
+
+        invalidationBus.apply( payload.getValue() );
+
+        assertTrue( cacheA.getIfPresent( "keyA" ).isPresent() );
+    }
+
+    @Test
+    public void testApplyInvalidation()
+    {
+        invalidationBus.apply( "otherNode|regionA|keyA" );
+
+        assertFalse( cacheA.getIfPresent( "keyA" ).isPresent() );
+        assertTrue( cacheA.getIfPresent( "keyB" ).isPresent() );
+        assertTrue( cacheB.getIfPresent( "keyA" ).isPresent() );
+    }
+
+    @Test
+    public void testApplyInvalidationAll()
+    {
+        invalidationBus.apply( "otherNode|regionA" );
+
+        assertFalse( cacheA.getIfPresent( "keyA" ).isPresent() );
+        assertFalse( cacheA.getIfPresent( "keyB" ).isPresent() );
+        assertTrue( cacheB.getIfPresent( "keyA" ).isPresent() );
+    }
+
+    @Test
+    public void testApplyInvalidationToListener()
+    {
+        List<String> keys = new ArrayList<>();
+
+        invalidationBus.addListener( "regionC", keys::add );
+
+        invalidationBus.apply( "otherNode|regionC|keyA" );
+        invalidationBus.apply( "otherNode|regionA|keyB" );
+        invalidationBus.apply( "otherNode|regionC" );
+
+        assertEquals( 2, keys.size() );
+        assertEquals( "keyA", keys.get( 0 ) );
+        assertNull( keys.get( 1 ) );
+    }
+
+    private Cache<String> newCache( String region )
+    {
+        CacheBuilder<String> builder = new SimpleCacheBuilder<String>().forRegion( region ).withMaximumSize( 100 );
+
+        return new ClusteredLocalCache<>( new LocalCache<>( builder ), region, invalidationBus );
+    }
+}
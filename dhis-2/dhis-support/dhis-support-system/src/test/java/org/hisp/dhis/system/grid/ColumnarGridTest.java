@@ -0,0 +1,158 @@
+package org.hisp.dhis.system.grid;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+
+import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridHeader;
+import org.hisp.dhis.common.ValueType;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class ColumnarGridTest
+{
+    private Grid gridA;
+
+    private Grid gridB;
+
+    @Before
+    public void setUp()
+    {
+        gridA = new ColumnarGrid();
+        gridB = new ListGrid();
+
+        for ( Grid grid : Lists.newArrayList( gridA, gridB ) )
+        {
+            grid.addHeader( new GridHeader( "ColA", "colA", ValueType.TEXT, String.class.getName(), false, true ) );
+            grid.addHeader( new GridHeader( "ColB", "colB", ValueType.TEXT, String.class.getName(), false, true ) );
+            grid.addHeader( new GridHeader( "ColC", "colC", ValueType.NUMBER, Double.class.getName(), false, false ) );
+            grid.addHeader( new GridHeader( "ColD", "colD", ValueType.INTEGER, Long.class.getName(), false, false ) );
+
+            for ( int i = 0; i < 200; i++ )
+            {
+                grid.addRow()
+                    .addValue( "ouUid" + ( i % 7 ) )
+                    .addValue( i % 10 == 0 ? null : "peUid" + ( i % 3 ) )
+                    .addValue( i % 5 == 0 ? null : i * 1.5 )
+                    .addValue( (long) i );
+            }
+        }
+    }
+
+    @Test
+    public void testGetValues()
+    {
+        assertEquals( 200, gridA.getHeight() );
+        assertEquals( 4, gridA.getWidth() );
+        assertEquals( "ouUid3", gridA.getValue( 10, 0 ) );
+        assertNull( gridA.getValue( 10, 1 ) );
+        assertEquals( "peUid2", gridA.getValue( 11, 1 ) );
+        assertNull( gridA.getValue( 10, 2 ) );
+        assertEquals( 16.5, gridA.getValue( 11, 2 ) );
+        assertEquals( 11L, gridA.getValue( 11, 3 ) );
+        assertEquals( gridB.getRows(), gridA.getRows() );
+    }
+
+    @Test
+    public void testMixedValueTypes()
+    {
+        gridA.addRow().addValue( 1 ).addValue( "peUid1" ).addValue( "NaN" ).addValue( 2.5 );
+
+        List<Object> row = gridA.getRow( 200 );
+
+        assertEquals( Lists.newArrayList( 1, "peUid1", "NaN", 2.5 ), row );
+        assertEquals( 16.5, gridA.getValue( 11, 2 ) );
+        assertEquals( 11L, gridA.getValue( 11, 3 ) );
+    }
+
+    @Test
+    public void testSetValue()
+    {
+        gridA.getRow( 5 ).set( 2, 4d );
+        gridA.getRow( 6 ).set( 2, null );
+
+        assertEquals( 4d, gridA.getValue( 5, 2 ) );
+        assertNull( gridA.getValue( 6, 2 ) );
+    }
+
+    @Test
+    public void testSortGrid()
+    {
+        gridA.sortGrid( 4, 1 );
+        gridB.sortGrid( 4, 1 );
+
+        assertEquals( 199L, gridA.getValue( 0, 3 ) );
+        assertEquals( gridB.getRows(), gridA.getRows() );
+    }
+
+    @Test
+    public void testLimitGrid()
+    {
+        gridA.limitGrid( 10, 20 );
+        gridB.limitGrid( 10, 20 );
+
+        assertEquals( 10, gridA.getHeight() );
+        assertEquals( gridB.getRows(), gridA.getRows() );
+    }
+
+    @Test
+    public void testAddAndRemoveColumn()
+    {
+        List<Object> columnValues = gridB.getColumn( 0 );
+
+        gridA.addColumn( 1, columnValues );
+        gridB.addColumn( 1, columnValues );
+
+        assertEquals( 5, gridA.getWidth() );
+        assertEquals( gridB.getRows(), gridA.getRows() );
+
+        gridA.removeColumn( 2 );
+        gridB.removeColumn( 2 );
+
+        assertEquals( 4, gridA.getWidth() );
+        assertEquals( gridB.getRows(), gridA.getRows() );
+    }
+
+    @Test
+    public void testSubstituteMetaData()
+    {
+        gridA.getMetaData().put( "ouUid1", "Bo" );
+        gridA.substituteMetaData( 0, 0, gridA.getMetaData() );
+
+        assertEquals( "Bo", gridA.getValue( 1, 0 ) );
+        assertEquals( "ouUid2", gridA.getValue( 2, 0 ) );
+    }
+}
@@ -28,6 +28,8 @@ package org.hisp.dhis.system.grid;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
 
 import java.util.ArrayList;
@@ -35,9 +37,15 @@ import java.util.List;
 
 import com.google.common.collect.Lists;
 import org.apache.commons.io.IOUtils;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.hisp.dhis.common.CodeGenerator;
 import org.hisp.dhis.common.DimensionalItemObject;
 import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridHeader;
+import org.hisp.dhis.common.ValueType;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodType;
 import org.junit.Test;
@@ -92,5 +100,63 @@ public class GridUtilsTest
 
     }
 
+    @Test
+    public void testToXls()
+        throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        GridUtils.toXls( createGrids(), out );
+
+        try ( Workbook workbook = new HSSFWorkbook( new ByteArrayInputStream( out.toByteArray() ) ) )
+        {
+            assertWorkbook( workbook );
+        }
+    }
 
+    @Test
+    public void testToXlsx()
+        throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        GridUtils.toXlsx( createGrids(), out );
+
+        try ( Workbook workbook = new XSSFWorkbook( new ByteArrayInputStream( out.toByteArray() ) ) )
+        {
+            assertWorkbook( workbook );
+        }
+    }
+
+    private List<Grid> createGrids()
+    {
+        Grid gridA = new ListGrid();
+        gridA.setTitle( "GridA" );
+        gridA.addHeader( new GridHeader( "ColA", "colA", ValueType.TEXT, String.class.getName(), false, false ) );
+        gridA.addHeader( new GridHeader( "ColB", "colB", ValueType.NUMBER, Double.class.getName(), false, false ) );
+
+        for ( int i = 0; i < 500; i++ )
+        {
+            gridA.addRow().addValue( "uid" + i ).addValue( i * 2d );
+        }
+
+        Grid gridB = new ListGrid();
+        gridB.addHeader( new GridHeader( "ColA", "colA", ValueType.TEXT, String.class.getName(), false, false ) );
+        gridB.addRow().addValue( "uid" );
+
+        return Lists.newArrayList( gridA, gridB );
+    }
+
+    private void assertWorkbook( Workbook workbook )
+    {
+        assertEquals( 2, workbook.getNumberOfSheets() );
+
+        Sheet sheet = workbook.getSheetAt( 0 );
+
+        assertEquals( "GridA", sheet.getRow( 0 ).getCell( 0 ).getStringCellValue() );
+        assertEquals( "colA", sheet.getRow( 2 ).getCell( 0 ).getStringCellValue() );
+        assertEquals( "uid499", sheet.getRow( 502 ).getCell( 0 ).getStringCellValue() );
+        assertEquals( 998d, sheet.getRow( 502 ).getCell( 1 ).getNumericCellValue(), 0.01 );
+        assertEquals( "Sheet 2", workbook.getSheetName( 1 ) );
+    }
 }
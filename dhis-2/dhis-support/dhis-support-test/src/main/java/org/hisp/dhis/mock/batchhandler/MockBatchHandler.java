@@ -45,6 +45,10 @@ public class MockBatchHandler<T>
     private List<T> deletes = new ArrayList<>();
     
     private boolean findSelf = false;
+
+    private boolean closeOnFlush = false;
+
+    private boolean closed = false;
     
     public MockBatchHandler()
     {
@@ -55,10 +59,21 @@ public class MockBatchHandler<T>
         this.findSelf = findSelf;
         return this;
     }
+
+    /**
+     * Makes the handler behave like a JDBC batch handler, which is closed by
+     * {@link #flush()} and must be initialized again before further use.
+     */
+    public MockBatchHandler<T> withCloseOnFlush( boolean closeOnFlush )
+    {
+        this.closeOnFlush = closeOnFlush;
+        return this;
+    }
     
     @Override
     public BatchHandler<T> init()
     {
+        closed = false;
         return this;
     }
 
@@ -71,6 +86,7 @@ public class MockBatchHandler<T>
     @Override
     public boolean addObject( T object )
     {
+        checkNotClosed();
         return inserts.add( object );
     }
 
@@ -89,13 +105,15 @@ public class MockBatchHandler<T>
     @Override
     public void updateObject( T object )
     {
-        updates.add( object );        
+        checkNotClosed();
+        updates.add( object );
     }
 
     @Override
     public void deleteObject( T object )
     {
-        deletes.add( object );        
+        checkNotClosed();
+        deletes.add( object );
     }
 
     @Override
@@ -112,6 +130,16 @@ public class MockBatchHandler<T>
     @Override
     public void flush()
     {
+        checkNotClosed();
+        closed = closeOnFlush;
+    }
+
+    private void checkNotClosed()
+    {
+        if ( closed )
+        {
+            throw new IllegalStateException( "Batch handler is closed" );
+        }
     }
 
     public List<T> getInserts()
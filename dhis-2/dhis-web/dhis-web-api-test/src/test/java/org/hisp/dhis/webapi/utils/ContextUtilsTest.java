@@ -63,10 +63,12 @@ import javax.servlet.http.HttpServletResponse;
 import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.common.cache.CacheStrategy;
 import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.system.grid.ListGrid;
 import org.hisp.dhis.webapi.DhisWebSpringTest;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 
 /**
@@ -223,6 +225,30 @@ public class ContextUtilsTest
         assertEquals( "max-age=" + timeToLive +", public", response.getHeader( "Cache-Control" ) );
     }
 
+    @Test
+    public void testWriteExcelResponseXls()
+        throws Exception
+    {
+        MockHttpServletRequest request = new MockHttpServletRequest( "GET", "/api/reportTables/uid/data.xls" );
+
+        contextUtils.writeExcelResponse( request, response, new ListGrid().setTitle( "Grid" ), NO_CACHE, "grid", true );
+
+        assertEquals( ContextUtils.CONTENT_TYPE_EXCEL, response.getContentType() );
+        assertEquals( "attachment; filename=\"grid.xls\"", response.getHeader( "Content-Disposition" ) );
+    }
+
+    @Test
+    public void testWriteExcelResponseXlsx()
+        throws Exception
+    {
+        MockHttpServletRequest request = new MockHttpServletRequest( "GET", "/api/reportTables/uid/data.xlsx" );
+
+        contextUtils.writeExcelResponse( request, response, new ListGrid().setTitle( "Grid" ), NO_CACHE, null, false );
+
+        assertEquals( ContextUtils.CONTENT_TYPE_XLSX, response.getContentType() );
+        assertNull( response.getHeader( "Content-Disposition" ) );
+    }
+
     @Test
     public void testGetAttachmentFileNameNull()
     {
@@ -33,6 +33,7 @@ import static org.hisp.dhis.common.DimensionalObjectUtils.getItemsFromParam;
 import java.util.Date;
 import java.util.Set;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.hisp.dhis.analytics.*;
@@ -356,7 +357,7 @@ public class AnalyticsController
         GridUtils.toCsv( grid, response.getWriter() );
     }
 
-    @RequestMapping( value = RESOURCE_PATH + ".xls", method = RequestMethod.GET )
+    @RequestMapping( value = { RESOURCE_PATH + ".xls", RESOURCE_PATH + ".xlsx" }, method = RequestMethod.GET )
     public void getXls(
         @RequestParam Set<String> dimension,
         @RequestParam( required = false ) Set<String> filter,
@@ -390,6 +391,7 @@ public class AnalyticsController
         @RequestParam( required = false ) String rows,
         DhisApiVersion apiVersion,
         Model model,
+        HttpServletRequest httpRequest,
         HttpServletResponse response ) throws Exception
     {
         DataQueryRequest request = DataQueryRequest.newBuilder()
@@ -407,9 +409,10 @@ public class AnalyticsController
 
         DataQueryParams params = dataQueryService.getFromRequest( request );
 
-        contextUtils.configureAnalyticsResponse( response, ContextUtils.CONTENT_TYPE_EXCEL, CacheStrategy.RESPECT_SYSTEM_SETTING, "data.xls", true, params.getLatestEndDate() );
         Grid grid = analyticsService.getAggregatedDataValues( params, getItemsFromParam( columns ), getItemsFromParam( rows ) );
-        GridUtils.toXls( grid, response.getOutputStream() );
+
+        contextUtils.writeAnalyticsExcelResponse( httpRequest, response, grid, CacheStrategy.RESPECT_SYSTEM_SETTING, "data", true,
+            params.getLatestEndDate() );
     }
 
     @RequestMapping( value = RESOURCE_PATH + ".jrxml", method = RequestMethod.GET )
@@ -87,6 +87,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import java.util.ArrayList;
@@ -423,8 +424,8 @@ public class DataAnalysisController
         GridUtils.toPdf( grid, response.getOutputStream() );
     }
 
-    @RequestMapping( value = "/report.xls", method = RequestMethod.GET )
-    public void getXlsReport( HttpSession session, HttpServletResponse response )
+    @RequestMapping( value = { "/report.xls", "/report.xlsx" }, method = RequestMethod.GET )
+    public void getXlsReport( HttpSession session, HttpServletRequest request, HttpServletResponse response )
         throws Exception
     {
         @SuppressWarnings( "unchecked" )
@@ -432,11 +433,7 @@ public class DataAnalysisController
         Grid grid = generateAnalysisReportGridFromResults( results, (OrganisationUnit) session.getAttribute(
             KEY_ORG_UNIT ) );
 
-        String filename = filenameEncode( grid.getTitle() ) + ".xls";
-        contextUtils.configureResponse( response, ContextUtils.CONTENT_TYPE_EXCEL, CacheStrategy.RESPECT_SYSTEM_SETTING,
-            filename, false );
-
-        GridUtils.toXls( grid, response.getOutputStream() );
+        contextUtils.writeExcelResponse( request, response, grid, CacheStrategy.RESPECT_SYSTEM_SETTING, filenameEncode( grid.getTitle() ), false );
     }
 
     @RequestMapping( value = "/report.csv", method = RequestMethod.GET )
@@ -473,8 +470,8 @@ public class DataAnalysisController
         GridUtils.toPdf( grid, response.getOutputStream() );
     }
 
-    @RequestMapping( value = "validationRules/report.xls", method = RequestMethod.GET )
-    public void getValidationRulesXlsReport( HttpSession session, HttpServletResponse response )
+    @RequestMapping( value = { "validationRules/report.xls", "validationRules/report.xlsx" }, method = RequestMethod.GET )
+    public void getValidationRulesXlsReport( HttpSession session, HttpServletRequest request, HttpServletResponse response )
         throws Exception
     {
         @SuppressWarnings( "unchecked" )
@@ -482,11 +479,7 @@ public class DataAnalysisController
         Grid grid = generateValidationRulesReportGridFromResults( results, (OrganisationUnit) session.getAttribute(
             KEY_ORG_UNIT ) );
 
-        String filename = filenameEncode( grid.getTitle() ) + ".xls";
-        contextUtils.configureResponse( response, ContextUtils.CONTENT_TYPE_EXCEL, CacheStrategy.RESPECT_SYSTEM_SETTING,
-            filename, false );
-
-        GridUtils.toXls( grid, response.getOutputStream() );
+        contextUtils.writeExcelResponse( request, response, grid, CacheStrategy.RESPECT_SYSTEM_SETTING, filenameEncode( grid.getTitle() ), false );
     }
 
     @RequestMapping( value = "validationRules/report.csv", method = RequestMethod.GET )
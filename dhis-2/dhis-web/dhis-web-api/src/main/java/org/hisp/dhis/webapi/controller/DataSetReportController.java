@@ -53,6 +53,7 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.util.List;
 import java.util.Set;
@@ -128,8 +129,8 @@ public class DataSetReportController
         return dataSetReportService.getDataSetReportAsGrid( dataSet, period, orgUnit, filter, selectedUnitOnly );
     }
 
-    @RequestMapping( value = RESOURCE_PATH + ".xls", method = RequestMethod.GET )
-    public void getDataSetReportAsExcel( HttpServletResponse response,
+    @RequestMapping( value = { RESOURCE_PATH + ".xls", RESOURCE_PATH + ".xlsx" }, method = RequestMethod.GET )
+    public void getDataSetReportAsExcel( HttpServletRequest request, HttpServletResponse response,
         @RequestParam String ds,
         @RequestParam String pe,
         @RequestParam String ou,
@@ -140,9 +141,9 @@ public class DataSetReportController
         DataSet dataSet = getAndValidateDataSet( ds );
         Period period = getAndValidatePeriod( pe );
 
-        contextUtils.configureResponse( response, ContextUtils.CONTENT_TYPE_EXCEL, CacheStrategy.RESPECT_SYSTEM_SETTING );
         List<Grid> grids = dataSetReportService.getDataSetReportAsGrid( dataSet, period, orgUnit, filter, selectedUnitOnly );
-        GridUtils.toXls( grids, response.getOutputStream() );
+
+        contextUtils.writeExcelResponse( request, response, grids, CacheStrategy.RESPECT_SYSTEM_SETTING, null, false );
     }
 
     @RequestMapping( value = RESOURCE_PATH + ".pdf", method = RequestMethod.GET )
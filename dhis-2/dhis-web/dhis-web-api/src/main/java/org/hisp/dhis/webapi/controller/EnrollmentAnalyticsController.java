@@ -48,6 +48,7 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.util.Date;
 import java.util.Set;
@@ -157,7 +158,7 @@ public class EnrollmentAnalyticsController
         GridUtils.toXml( grid, response.getOutputStream() );
     }
 
-    @RequestMapping( value = RESOURCE_PATH + "/query/{program}.xls", method = RequestMethod.GET )
+    @RequestMapping( value = { RESOURCE_PATH + "/query/{program}.xls", RESOURCE_PATH + "/query/{program}.xlsx" }, method = RequestMethod.GET )
     public void getQueryXls(
         @PathVariable String program,
         @RequestParam( required = false ) Date startDate,
@@ -184,6 +185,7 @@ public class EnrollmentAnalyticsController
         @RequestParam( required = false ) SortOrder sortOrder,
         DhisApiVersion apiVersion,
         Model model,
+        HttpServletRequest httpRequest,
         HttpServletResponse response ) throws Exception
     {
         EventDataQueryRequest request = EventDataQueryRequest.newBuilder().program( program ).sortOrder( sortOrder )
@@ -196,9 +198,9 @@ public class EnrollmentAnalyticsController
 
         EventQueryParams params = eventDataQueryService.getFromRequest( request );
 
-        contextUtils.configureResponse( response, ContextUtils.CONTENT_TYPE_EXCEL, CacheStrategy.RESPECT_SYSTEM_SETTING, "enrollments.xls", true );
         Grid grid = analyticsService.getEnrollments( params );
-        GridUtils.toXls( grid, response.getOutputStream() );
+
+        contextUtils.writeExcelResponse( httpRequest, response, grid, CacheStrategy.RESPECT_SYSTEM_SETTING, "enrollments", true );
     }
 
     @RequestMapping( value = RESOURCE_PATH + "/query/{program}.csv", method = RequestMethod.GET )
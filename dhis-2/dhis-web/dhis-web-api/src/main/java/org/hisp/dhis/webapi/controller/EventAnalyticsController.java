@@ -51,6 +51,7 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.util.Date;
 import java.util.Set;
@@ -181,7 +182,7 @@ public class EventAnalyticsController
         GridUtils.toXml( grid, response.getOutputStream() );
     }
 
-    @RequestMapping( value = RESOURCE_PATH + "/aggregate/{program}.xls", method = RequestMethod.GET )
+    @RequestMapping( value = { RESOURCE_PATH + "/aggregate/{program}.xls", RESOURCE_PATH + "/aggregate/{program}.xlsx" }, method = RequestMethod.GET )
     public void getAggregateXls(
         @PathVariable String program,
         @RequestParam( required = false ) String stage,
@@ -213,6 +214,7 @@ public class EventAnalyticsController
         @RequestParam( required = false ) String rows,
         DhisApiVersion apiVersion,
         Model model,
+        HttpServletRequest httpRequest,
         HttpServletResponse response ) throws Exception
     {
         EventDataQueryRequest request = EventDataQueryRequest.newBuilder().program( program ).stage( stage )
@@ -226,9 +228,9 @@ public class EventAnalyticsController
 
         EventQueryParams params = eventDataQueryService.getFromRequest( request );
 
-        contextUtils.configureResponse( response, ContextUtils.CONTENT_TYPE_EXCEL, CacheStrategy.RESPECT_SYSTEM_SETTING, "events.xls", true );
         Grid grid = analyticsService.getAggregatedEventData( params, DimensionalObjectUtils.getItemsFromParam( columns ), DimensionalObjectUtils.getItemsFromParam( rows ) );
-        GridUtils.toXls( grid, response.getOutputStream() );
+
+        contextUtils.writeExcelResponse( httpRequest, response, grid, CacheStrategy.RESPECT_SYSTEM_SETTING, "events", true );
     }
 
     @RequestMapping( value = RESOURCE_PATH + "/aggregate/{program}.csv", method = RequestMethod.GET )
@@ -577,7 +579,7 @@ public class EventAnalyticsController
         GridUtils.toXml( grid, response.getOutputStream() );
     }
 
-    @RequestMapping( value = RESOURCE_PATH + "/query/{program}.xls", method = RequestMethod.GET )
+    @RequestMapping( value = { RESOURCE_PATH + "/query/{program}.xls", RESOURCE_PATH + "/query/{program}.xlsx" }, method = RequestMethod.GET )
     public void getQueryXls(
         @PathVariable String program,
         @RequestParam( required = false ) String stage,
@@ -604,6 +606,7 @@ public class EventAnalyticsController
         @RequestParam( required = false ) String coordinateField,
         DhisApiVersion apiVersion,
         Model model,
+        HttpServletRequest httpRequest,
         HttpServletResponse response ) throws Exception
     {
         EventDataQueryRequest request = EventDataQueryRequest.newBuilder().program( program ).stage( stage )
@@ -616,9 +619,9 @@ public class EventAnalyticsController
 
         EventQueryParams params = eventDataQueryService.getFromRequest( request );
 
-        contextUtils.configureResponse( response, ContextUtils.CONTENT_TYPE_EXCEL, CacheStrategy.RESPECT_SYSTEM_SETTING, "events.xls", true );
         Grid grid = analyticsService.getEvents( params );
-        GridUtils.toXls( grid, response.getOutputStream() );
+
+        contextUtils.writeExcelResponse( httpRequest, response, grid, CacheStrategy.RESPECT_SYSTEM_SETTING, "events", true );
     }
 
     @RequestMapping( value = RESOURCE_PATH + "/query/{program}.csv", method = RequestMethod.GET )
@@ -28,6 +28,7 @@ package org.hisp.dhis.webapi.controller;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.hisp.dhis.analytics.orgunit.OrgUnitQueryParams;
@@ -73,18 +74,19 @@ public class OrgUnitAnalyticsController
         return analyticsService.getOrgUnitData( params );
     }
 
-    @RequestMapping( value = RESOURCE_PATH + ".xls", method = RequestMethod.GET )
+    @RequestMapping( value = { RESOURCE_PATH + ".xls", RESOURCE_PATH + ".xlsx" }, method = RequestMethod.GET )
     public void getXls(
         @RequestParam String ou,
         @RequestParam String ougs,
         @RequestParam( required = false ) String columns,
         DhisApiVersion apiVersion,
+        HttpServletRequest request,
         HttpServletResponse response ) throws Exception
     {
         OrgUnitQueryParams params = analyticsService.getParams( ou, ougs, columns );
-        contextUtils.configureResponse( response, ContextUtils.CONTENT_TYPE_EXCEL, CacheStrategy.RESPECT_SYSTEM_SETTING );
         Grid grid = analyticsService.getOrgUnitData( params );
-        GridUtils.toXls( grid, response.getOutputStream() );
+
+        contextUtils.writeExcelResponse( request, response, grid, CacheStrategy.RESPECT_SYSTEM_SETTING, null, false );
     }
 
     @RequestMapping( value = RESOURCE_PATH + ".csv", method = RequestMethod.GET )
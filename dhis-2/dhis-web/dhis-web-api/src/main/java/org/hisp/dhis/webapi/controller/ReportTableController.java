@@ -179,18 +179,16 @@ public class ReportTableController
         GridUtils.toPdf( grid, response.getOutputStream() );
     }
 
-    @RequestMapping( value = "/{uid}/data.xls", method = RequestMethod.GET )
+    @RequestMapping( value = { "/{uid}/data.xls", "/{uid}/data.xlsx" }, method = RequestMethod.GET )
     public void getReportTableXls( @PathVariable( "uid" ) String uid,
         @RequestParam( value = "ou", required = false ) String organisationUnitUid,
         @RequestParam( value = "date", required = false ) Date date,
+        HttpServletRequest request,
         HttpServletResponse response ) throws Exception
     {
         Grid grid = getReportTableGrid( uid, organisationUnitUid, date );
 
-        String filename = filenameEncode( grid.getTitle() ) + ".xls";
-        contextUtils.configureResponse( response, ContextUtils.CONTENT_TYPE_EXCEL, CacheStrategy.RESPECT_SYSTEM_SETTING, filename, true );
-
-        GridUtils.toXls( grid, response.getOutputStream() );
+        contextUtils.writeExcelResponse( request, response, grid, CacheStrategy.RESPECT_SYSTEM_SETTING, filenameEncode( grid.getTitle() ), true );
     }
 
     @RequestMapping( value = "/{uid}/data.csv", method = RequestMethod.GET )
@@ -121,10 +121,10 @@ public class SqlViewController
         GridUtils.toCsv( grid, response.getWriter() );
     }
 
-    @RequestMapping( value = "/{uid}/data.xls", method = RequestMethod.GET )
+    @RequestMapping( value = { "/{uid}/data.xls", "/{uid}/data.xlsx" }, method = RequestMethod.GET )
     public void getViewXls( @PathVariable( "uid" ) String uid,
         @RequestParam( required = false ) Set<String> criteria, @RequestParam( required = false ) Set<String> var,
-        HttpServletResponse response ) throws Exception
+        HttpServletRequest request, HttpServletResponse response ) throws Exception
     {
         SqlView sqlView = validateView( uid );
 
@@ -133,11 +133,7 @@ public class SqlViewController
 
         Grid grid = sqlViewService.getSqlViewGrid( sqlView, SqlView.getCriteria( criteria ), SqlView.getCriteria( var ), filters, fields );
 
-        String filename = CodecUtils.filenameEncode( grid.getTitle() ) + ".xls";
-
-        contextUtils.configureResponse( response, ContextUtils.CONTENT_TYPE_EXCEL, sqlView.getCacheStrategy(), filename, true );
-
-        GridUtils.toXls( grid, response.getOutputStream() );
+        contextUtils.writeExcelResponse( request, response, grid, sqlView.getCacheStrategy(), CodecUtils.filenameEncode( grid.getTitle() ), true );
     }
 
     @RequestMapping( value = "/{uid}/data.html", method = RequestMethod.GET )
@@ -34,6 +34,7 @@ import org.hisp.dhis.dxf2.webmessage.WebMessageUtils;
 import org.hisp.dhis.message.MessageSender;
 import org.hisp.dhis.outboundmessage.OutboundMessageResponse;
 import org.hisp.dhis.render.RenderService;
+import org.hisp.dhis.sms.MessageQueue;
 import org.hisp.dhis.sms.command.SMSCommand;
 import org.hisp.dhis.sms.command.SMSCommandService;
 import org.hisp.dhis.sms.incoming.IncomingSms;
@@ -50,6 +51,7 @@ import org.hisp.dhis.user.UserService;
 import org.hisp.dhis.webapi.mvc.annotation.ApiVersion;
 import org.hisp.dhis.webapi.service.WebMessageService;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -70,6 +72,8 @@ import java.util.List;
 @ApiVersion( { DhisApiVersion.DEFAULT, DhisApiVersion.ALL } )
 public class SmsController
 {
+    private static final int QUEUE_FULL_RETRY_AFTER_SECONDS = 60;
+
     private final MessageSender smsSender;
     private final WebMessageService webMessageService;
     private final IncomingSmsService incomingSMSService;
@@ -78,6 +82,7 @@ public class SmsController
     private final UserService userService;
     private final CurrentUserService currentUserService;
     private final OutboundSmsService outboundSmsService;
+    private final MessageQueue incomingSmsQueue;
 
     public SmsController(
         @Qualifier( "smsMessageSender" ) MessageSender smsSender,
@@ -87,7 +92,8 @@ public class SmsController
         SMSCommandService smsCommandService,
         UserService userService,
         CurrentUserService currentUserService,
-        OutboundSmsService outboundSmsService )
+        OutboundSmsService outboundSmsService,
+        MessageQueue incomingSmsQueue )
     {
         this.smsSender = smsSender;
         this.webMessageService = webMessageService;
@@ -97,6 +103,7 @@ public class SmsController
         this.userService = userService;
         this.currentUserService = currentUserService;
         this.outboundSmsService = outboundSmsService;
+        this.incomingSmsQueue = incomingSmsQueue;
     }
 
     // -------------------------------------------------------------------------
@@ -203,6 +210,8 @@ public class SmsController
             throw new WebMessageException( WebMessageUtils.conflict( "Message must be specified" ) );
         }
 
+        checkIncomingSmsQueue( response );
+
         int smsId = incomingSMSService.save( message, originator, gateway, receivedTime, getUserByPhoneNumber( originator, message ) );
 
         webMessageService.send( WebMessageUtils.ok( "Received SMS: " + smsId ), response, request );
@@ -213,6 +222,8 @@ public class SmsController
     public void receiveSMSMessage( HttpServletRequest request, HttpServletResponse response )
         throws WebMessageException, IOException
     {
+        checkIncomingSmsQueue( response );
+
         IncomingSms sms = renderService.fromJson( request.getInputStream(), IncomingSms.class );
         sms.setUser( getUserByPhoneNumber( sms.getOriginator(), sms.getText() ) );
 
@@ -261,6 +272,20 @@ public class SmsController
     // SUPPORTIVE METHOD
     // -------------------------------------------------------------------------
 
+    /**
+     * Rejects incoming SMS while the incoming SMS queue is full, so that the
+     * gateway retries delivery later.
+     */
+    private void checkIncomingSmsQueue( HttpServletResponse response ) throws WebMessageException
+    {
+        if ( incomingSmsQueue.isFull() )
+        {
+            response.setHeader( HttpHeaders.RETRY_AFTER, String.valueOf( QUEUE_FULL_RETRY_AFTER_SECONDS ) );
+
+            throw new WebMessageException( WebMessageUtils.serviceUnavailable( "Incoming SMS queue is full, retry later" ) );
+        }
+    }
+
     private User getUserByPhoneNumber( String phoneNumber, String text ) throws WebMessageException
     {
         SMSCommand unregisteredParser = smsCommandService.getSMSCommand( SmsUtils.getCommandString( text ), ParserType.UNREGISTERED_PARSER );
@@ -31,25 +31,42 @@ package org.hisp.dhis.webapi.mvc.messageconverter;
 import com.google.common.collect.ImmutableList;
 import org.hisp.dhis.common.Compression;
 import org.hisp.dhis.node.NodeService;
+import org.hisp.dhis.node.types.RootNode;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
 
 /**
+ * Writes root nodes as XLSX workbooks. Requests for <code>.xls</code> and
+ * <code>.xlsx</code> are both served by this converter, and the response is
+ * always labelled with the Office Open XML content type since that is what
+ * the workbook contains.
+ *
  * @author Morten Olav Hansen <mortenoh@gmail.com>
  */
 @Component
 public class ExcelMessageConverter extends AbstractRootNodeMessageConverter
 {
+    public static final MediaType XLSX_MEDIA_TYPE = new MediaType( "application", "vnd.openxmlformats-officedocument.spreadsheetml.sheet" );
+
     public static final ImmutableList<MediaType> SUPPORTED_MEDIA_TYPES = ImmutableList.<MediaType>builder()
+        .add( XLSX_MEDIA_TYPE )
         .add( new MediaType( "application", "vnd.ms-excel" ) )
         .build();
 
     public ExcelMessageConverter( @Nonnull @Autowired NodeService nodeService )
     {
-        super( nodeService, "application/vnd.ms-excel", "xlsx", Compression.NONE );
+        super( nodeService, XLSX_MEDIA_TYPE.toString(), "xlsx", Compression.NONE );
         setSupportedMediaTypes( SUPPORTED_MEDIA_TYPES );
     }
+
+    @Override
+    protected void addDefaultHeaders( HttpHeaders headers, RootNode rootNode, MediaType contentType ) throws IOException
+    {
+        super.addDefaultHeaders( headers, rootNode, XLSX_MEDIA_TYPE );
+    }
 }
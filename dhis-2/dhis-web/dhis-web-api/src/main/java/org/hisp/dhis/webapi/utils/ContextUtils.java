@@ -34,8 +34,10 @@ import static org.hisp.dhis.common.cache.CacheStrategy.RESPECT_SYSTEM_SETTING;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
@@ -46,9 +48,11 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.hisp.dhis.common.DimensionalObject;
+import org.hisp.dhis.common.Grid;
 import org.hisp.dhis.common.IdentifiableObject;
 import org.hisp.dhis.common.IdentifiableObjectUtils;
 import org.hisp.dhis.common.cache.CacheStrategy;
+import org.hisp.dhis.system.grid.GridUtils;
 import org.hisp.dhis.system.util.CodecUtils;
 import org.hisp.dhis.webapi.service.WebCache;
 import org.springframework.http.CacheControl;
@@ -78,6 +82,7 @@ public class ContextUtils
     public static final String CONTENT_TYPE_PNG = "image/png";
     public static final String CONTENT_TYPE_JPG = "image/jpeg";
     public static final String CONTENT_TYPE_EXCEL = "application/vnd.ms-excel";
+    public static final String CONTENT_TYPE_XLSX = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
     public static final String CONTENT_TYPE_JAVASCRIPT = "application/javascript; charset=UTF-8";
     public static final String CONTENT_TYPE_FORM_ENCODED = "application/x-www-form-urlencoded";
 
@@ -139,6 +144,85 @@ public class ContextUtils
         configureResponse( response, contentType, filename, attachment, cacheControl );
     }
 
+    /**
+     * Configures the response and writes the given grids to it as an Excel
+     * workbook. The workbook is streamed as XLSX if the request path ends with
+     * <code>.xlsx</code> and written as binary XLS otherwise, with the content
+     * type and file name extension of the chosen format.
+     *
+     * @param request the HttpServletRequest.
+     * @param response the HttpServletResponse.
+     * @param grids the grids to write, one sheet per grid.
+     * @param cacheStrategy the cache strategy of the response.
+     * @param filename the file name without extension, or null for none.
+     * @param attachment whether to serve the workbook as an attachment.
+     */
+    public void writeExcelResponse( HttpServletRequest request, HttpServletResponse response, List<Grid> grids,
+        CacheStrategy cacheStrategy, String filename, boolean attachment )
+        throws Exception
+    {
+        boolean xlsx = isXlsxRequest( request );
+
+        configureResponse( response, getExcelContentType( xlsx ), cacheStrategy, getExcelFilename( filename, xlsx ), attachment );
+
+        writeExcel( grids, xlsx, response );
+    }
+
+    /**
+     * Configures the response and writes the given grid to it as an Excel
+     * workbook.
+     *
+     * @see #writeExcelResponse(HttpServletRequest, HttpServletResponse, List, CacheStrategy, String, boolean)
+     */
+    public void writeExcelResponse( HttpServletRequest request, HttpServletResponse response, Grid grid,
+        CacheStrategy cacheStrategy, String filename, boolean attachment )
+        throws Exception
+    {
+        writeExcelResponse( request, response, Collections.singletonList( grid ), cacheStrategy, filename, attachment );
+    }
+
+    /**
+     * Configures the response as an analytics response and writes the given
+     * grid to it as an Excel workbook.
+     *
+     * @see #configureAnalyticsResponse(HttpServletResponse, String, CacheStrategy, String, boolean, Date)
+     * @see #writeExcelResponse(HttpServletRequest, HttpServletResponse, List, CacheStrategy, String, boolean)
+     */
+    public void writeAnalyticsExcelResponse( HttpServletRequest request, HttpServletResponse response, Grid grid,
+        CacheStrategy cacheStrategy, String filename, boolean attachment, Date latestEndDate )
+        throws Exception
+    {
+        boolean xlsx = isXlsxRequest( request );
+
+        configureAnalyticsResponse( response, getExcelContentType( xlsx ), cacheStrategy, getExcelFilename( filename, xlsx ),
+            attachment, latestEndDate );
+
+        writeExcel( Collections.singletonList( grid ), xlsx, response );
+    }
+
+    private static String getExcelContentType( boolean xlsx )
+    {
+        return xlsx ? CONTENT_TYPE_XLSX : CONTENT_TYPE_EXCEL;
+    }
+
+    private static String getExcelFilename( String filename, boolean xlsx )
+    {
+        return filename != null ? filename + ( xlsx ? ".xlsx" : ".xls" ) : null;
+    }
+
+    private static void writeExcel( List<Grid> grids, boolean xlsx, HttpServletResponse response )
+        throws Exception
+    {
+        if ( xlsx )
+        {
+            GridUtils.toXlsx( grids, response.getOutputStream() );
+        }
+        else
+        {
+            GridUtils.toXls( grids, response.getOutputStream() );
+        }
+    }
+
     private void configureResponse( HttpServletResponse response, String contentType, String filename,
         boolean attachment, CacheControl cacheControl )
     {
@@ -404,6 +488,18 @@ public class ContextUtils
             || ( request.getHeader( "Accept" ) != null && request.getHeader( "Accept" ).contains( "application/csv+gzip" ) ) ) ;
     }
 
+    /**
+     * Indicates whether the given request asks for an Office Open XML workbook,
+     * i.e. whether the request path ends with <code>.xlsx</code>.
+     *
+     * @param request the HttpServletRequest.
+     * @return whether the given request asks for an XLSX response.
+     */
+    public static boolean isXlsxRequest( HttpServletRequest request )
+    {
+        return request != null && request.getRequestURI() != null && request.getRequestURI().endsWith( ".xlsx" );
+    }
+
     /**
      * Extracts and returns the file name from a content disposition header value.
      *
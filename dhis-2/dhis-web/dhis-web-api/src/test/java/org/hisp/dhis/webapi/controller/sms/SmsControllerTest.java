@@ -0,0 +1,165 @@
+package org.hisp.dhis.webapi.controller.sms;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.hisp.dhis.dxf2.webmessage.WebMessageException;
+import org.hisp.dhis.message.MessageSender;
+import org.hisp.dhis.render.RenderService;
+import org.hisp.dhis.sms.MessageQueue;
+import org.hisp.dhis.sms.command.SMSCommandService;
+import org.hisp.dhis.sms.incoming.IncomingSms;
+import org.hisp.dhis.sms.incoming.IncomingSmsService;
+import org.hisp.dhis.sms.outbound.OutboundSmsService;
+import org.hisp.dhis.user.CurrentUserService;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserService;
+import org.hisp.dhis.webapi.service.WebMessageService;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.http.HttpHeaders;
+
+import com.google.common.collect.Lists;
+
+public class SmsControllerTest
+{
+    @Mock
+    private MessageSender smsSender;
+
+    @Mock
+    private WebMessageService webMessageService;
+
+    @Mock
+    private IncomingSmsService incomingSmsService;
+
+    @Mock
+    private RenderService renderService;
+
+    @Mock
+    private SMSCommandService smsCommandService;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private CurrentUserService currentUserService;
+
+    @Mock
+    private OutboundSmsService outboundSmsService;
+
+    @Mock
+    private MessageQueue incomingSmsQueue;
+
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private SmsController controller;
+
+    @Before
+    public void setUp()
+    {
+        controller = new SmsController( smsSender, webMessageService, incomingSmsService, renderService,
+            smsCommandService, userService, currentUserService, outboundSmsService, incomingSmsQueue );
+    }
+
+    @Test
+    public void testReceiveSmsWhenQueueIsFull()
+    {
+        when( incomingSmsQueue.isFull() ).thenReturn( true );
+
+        try
+        {
+            controller.receiveSMSMessage( "4740000000", null, "text", "Unknown", request, response );
+
+            fail( "Expected service unavailable" );
+        }
+        catch ( WebMessageException e )
+        {
+            assertEquals( 503, e.getWebMessage().getHttpStatusCode().intValue() );
+        }
+
+        verify( response ).setHeader( HttpHeaders.RETRY_AFTER, "60" );
+        verify( incomingSmsService, never() ).save( anyString(), anyString(), anyString(), any(), any() );
+    }
+
+    @Test
+    public void testReceiveJsonSmsWhenQueueIsFull() throws Exception
+    {
+        when( incomingSmsQueue.isFull() ).thenReturn( true );
+
+        try
+        {
+            controller.receiveSMSMessage( request, response );
+
+            fail( "Expected service unavailable" );
+        }
+        catch ( WebMessageException e )
+        {
+            assertEquals( 503, e.getWebMessage().getHttpStatusCode().intValue() );
+        }
+
+        verify( response ).setHeader( HttpHeaders.RETRY_AFTER, "60" );
+        verify( incomingSmsService, never() ).save( any( IncomingSms.class ) );
+    }
+
+    @Test
+    public void testReceiveSms() throws Exception
+    {
+        User user = new User();
+
+        when( incomingSmsQueue.isFull() ).thenReturn( false );
+        when( userService.getUsersByPhoneNumber( "4740000000" ) ).thenReturn( Lists.newArrayList( user ) );
+        when( incomingSmsService.save( "text", "4740000000", "Unknown", null, user ) ).thenReturn( 1 );
+
+        controller.receiveSMSMessage( "4740000000", null, "text", "Unknown", request, response );
+
+        verify( response, never() ).setHeader( anyString(), anyString() );
+        verify( incomingSmsService ).save( "text", "4740000000", "Unknown", null, user );
+    }
+}
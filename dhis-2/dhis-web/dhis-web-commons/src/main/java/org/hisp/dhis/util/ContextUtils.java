@@ -60,6 +60,7 @@ public class ContextUtils
     public static final String CONTENT_TYPE_PNG = "image/png";
     public static final String CONTENT_TYPE_JPG = "image/jpeg";
     public static final String CONTENT_TYPE_EXCEL = "application/vnd.ms-excel";
+    public static final String CONTENT_TYPE_XLSX = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
     public static final String CONTENT_TYPE_JAVASCRIPT = "application/javascript";
 
     public static final String HEADER_USER_AGENT = "User-Agent";
@@ -79,6 +80,7 @@ public class ContextUtils
         put( "csv", CONTENT_TYPE_CSV );
         put( "png", CONTENT_TYPE_PNG );
         put( "xls", CONTENT_TYPE_EXCEL );
+        put( "xlsx", CONTENT_TYPE_XLSX );
     } };
 
     public static String getContentType( String type, String defaultType )